@@ -0,0 +1,53 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.eep;
+
+/**
+ * <p>Title: DoubleAggregateFunction</p>
+ * <p>Description: A primitive <code>double</code> specialization of {@link AggregateFunction}. Events are accumulated and results emitted without boxing.</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.eep.DoubleAggregateFunction</code></p>
+ */
+public interface DoubleAggregateFunction {
+	/**
+	 * Resets the function
+	 */
+	public void init();
+	/**
+	 * Adds an event to the aggregate
+	 * @param v The event value
+	 */
+	public void accumulate(double v);
+	/**
+	 * Removes an event, previously accumulated, from the aggregate
+	 * @param v The event value
+	 */
+	public void compensate(double v);
+	/**
+	 * Returns the aggregate
+	 * @return the aggregate
+	 */
+	public double emit();
+	/**
+	 * Creates a new instance of this function
+	 * @return a new function
+	 */
+	public DoubleAggregateFunction make();
+}
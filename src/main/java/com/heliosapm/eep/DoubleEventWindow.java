@@ -0,0 +1,43 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.eep;
+
+/**
+ * <p>Title: DoubleEventWindow</p>
+ * <p>Description: A primitive <code>double</code> specialization of {@link EventWindow}</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.eep.DoubleEventWindow</code></p>
+ */
+public interface DoubleEventWindow {
+	/**
+	 * Pushes an event into the window
+	 * @param e The event value
+	 */
+	public void push(double e);
+	/**
+	 * Registers a listener for emitted results
+	 * @param l The listener
+	 */
+	public void onEmit(DoubleEventEmitter l);
+	/**
+	 * Advances the window's clock. A no-op for count based windows.
+	 */
+	public void tick();
+}
@@ -0,0 +1,69 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.eep;
+
+/**
+ * <p>Title: DoubleMonotonicWindow</p>
+ * <p>Description: A primitive <code>double</code> specialization of {@link MonotonicWindow}. Events are accumulated without boxing; the clock is only consulted on {@link #tick()}.</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.eep.DoubleMonotonicWindow</code></p>
+ */
+public class DoubleMonotonicWindow<TimeUnit> extends DoubleWindowSupport {
+	private final EventClock<TimeUnit> clock;
+	/** The clock time the current window started */
+	private TimeUnit at;
+
+	/**
+	 * Creates a new DoubleMonotonicWindow
+	 * @param fn The aggregate function
+	 * @param clock The event clock
+	 */
+	public DoubleMonotonicWindow(final DoubleAggregateFunction fn, final EventClock<TimeUnit> clock) {
+		super(fn);
+		this.clock = clock;
+		this.at = clock.init();
+		this.clock.init();
+		fn.init();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.eep.DoubleEventWindow#push(double)
+	 */
+	@Override
+	public void push(final double e) {
+		fn.accumulate(e);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.eep.DoubleEventWindow#tick()
+	 */
+	@Override
+	public void tick() {
+		clock.inc();
+		if (clock.tock(at)) {
+			emit();
+			clock.inc();
+			at = clock.at();
+			fn.init();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.eep;
+
+/**
+ * <p>Title: DoubleSlidingWindow</p>
+ * <p>Description: A primitive <code>double</code> specialization of {@link SlidingWindow}. Events are retained in a <code>double[]</code> ring.</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.eep.DoubleSlidingWindow</code></p>
+ */
+public class DoubleSlidingWindow extends DoubleWindowSupport {
+	private final int size;
+	private final int mark;
+	private long idx;
+	private final double[] p;
+
+	/**
+	 * Creates a new DoubleSlidingWindow
+	 * @param fn The aggregate function
+	 * @param size The number of events in the window
+	 */
+	public DoubleSlidingWindow(final DoubleAggregateFunction fn, final int size) {
+		super(fn);
+		if(size < 1) throw new IllegalArgumentException("Invalid window size [" + size + "]");
+		this.size = size;
+		this.mark = size-1;
+		this.p = new double[size];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.eep.DoubleEventWindow#push(double)
+	 */
+	@Override
+	public void push(final double e) {
+		if (idx >= mark) {
+			final int po = (int)((idx+1) % size);
+			fn.accumulate(e);
+			emit();
+			fn.compensate(p[po]);
+			p[(int)(idx % size)] = e;
+		} else {
+			fn.accumulate(e);
+			p[(int)idx] = e;
+		}
+		idx += 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.eep.DoubleEventWindow#tick()
+	 */
+	@Override
+	public void tick() {
+		// Do nothing
+	}
+}
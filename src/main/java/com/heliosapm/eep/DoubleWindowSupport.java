@@ -0,0 +1,64 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.eep;
+
+/**
+ * <p>Title: DoubleWindowSupport</p>
+ * <p>Description: Listener registration and dispatch for the <code>double</code> windows. Listeners are held in an array so dispatch allocates no iterator.</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.eep.DoubleWindowSupport</code></p>
+ */
+abstract class DoubleWindowSupport implements DoubleEventWindow {
+	/** The aggregate function */
+	protected final DoubleAggregateFunction fn;
+	/** The result listeners */
+	private DoubleEventEmitter[] listeners = {};
+
+	/**
+	 * Creates a new DoubleWindowSupport
+	 * @param fn The aggregate function
+	 */
+	protected DoubleWindowSupport(final DoubleAggregateFunction fn) {
+		if(fn==null) throw new IllegalArgumentException("The passed aggregate function was null");
+		this.fn = fn;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.eep.DoubleEventWindow#onEmit(com.heliosapm.eep.DoubleEventEmitter)
+	 */
+	@Override
+	public synchronized void onEmit(final DoubleEventEmitter l) {
+		final DoubleEventEmitter[] arr = new DoubleEventEmitter[listeners.length + 1];
+		System.arraycopy(listeners, 0, arr, 0, listeners.length);
+		arr[listeners.length] = l;
+		listeners = arr;
+	}
+
+	/**
+	 * Emits the function's current result to all listeners
+	 */
+	protected void emit() {
+		final DoubleEventEmitter[] ls = listeners;
+		if(ls.length==0) return;
+		final double r = fn.emit();
+		for(int i = 0; i < ls.length; i++) ls[i].emit(r);
+	}
+}
@@ -49,4 +49,36 @@ public class Eep {
 			EventClock<TimeUnit> clock) {
 		return new MonotonicWindow<EventType,ResultType,TimeUnit>(fn,clock);
 	}
+
+	public static LongEventWindow tumbling(LongAggregateFunction fn, int size) {
+		return new LongTumblingWindow(fn,size);
+	}
+
+	public static LongEventWindow sliding(LongAggregateFunction fn, int size) {
+		return new LongSlidingWindow(fn,size);
+	}
+
+	public static LongEventWindow periodic(LongAggregateFunction fn, long intervalNanos) {
+		return new LongPeriodicWindow(fn,intervalNanos);
+	}
+
+	public static <TimeUnit> LongEventWindow monotonic(LongAggregateFunction fn, EventClock<TimeUnit> clock) {
+		return new LongMonotonicWindow<TimeUnit>(fn,clock);
+	}
+
+	public static DoubleEventWindow tumbling(DoubleAggregateFunction fn, int size) {
+		return new DoubleTumblingWindow(fn,size);
+	}
+
+	public static DoubleEventWindow sliding(DoubleAggregateFunction fn, int size) {
+		return new DoubleSlidingWindow(fn,size);
+	}
+
+	public static DoubleEventWindow periodic(DoubleAggregateFunction fn, long intervalNanos) {
+		return new DoublePeriodicWindow(fn,intervalNanos);
+	}
+
+	public static <TimeUnit> DoubleEventWindow monotonic(DoubleAggregateFunction fn, EventClock<TimeUnit> clock) {
+		return new DoubleMonotonicWindow<TimeUnit>(fn,clock);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.eep;
+
+/**
+ * <p>Title: LongAggregateFunction</p>
+ * <p>Description: A primitive <code>long</code> specialization of {@link AggregateFunction}. Events are accumulated and results emitted without boxing.</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.eep.LongAggregateFunction</code></p>
+ */
+public interface LongAggregateFunction {
+	/**
+	 * Resets the function
+	 */
+	public void init();
+	/**
+	 * Adds an event to the aggregate
+	 * @param v The event value
+	 */
+	public void accumulate(long v);
+	/**
+	 * Removes an event, previously accumulated, from the aggregate
+	 * @param v The event value
+	 */
+	public void compensate(long v);
+	/**
+	 * Returns the aggregate as a long
+	 * @return the aggregate, truncated for functions with a fractional result
+	 */
+	public long emitLong();
+	/**
+	 * Returns the aggregate as a double
+	 * @return the aggregate
+	 */
+	public double emitDouble();
+	/**
+	 * Creates a new instance of this function
+	 * @return a new function
+	 */
+	public LongAggregateFunction make();
+}
@@ -0,0 +1,69 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.eep;
+
+/**
+ * <p>Title: LongMonotonicWindow</p>
+ * <p>Description: A primitive <code>long</code> specialization of {@link MonotonicWindow}. Events are accumulated without boxing; the clock is only consulted on {@link #tick()}.</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.eep.LongMonotonicWindow</code></p>
+ */
+public class LongMonotonicWindow<TimeUnit> extends LongWindowSupport {
+	private final EventClock<TimeUnit> clock;
+	/** The clock time the current window started */
+	private TimeUnit at;
+
+	/**
+	 * Creates a new LongMonotonicWindow
+	 * @param fn The aggregate function
+	 * @param clock The event clock
+	 */
+	public LongMonotonicWindow(final LongAggregateFunction fn, final EventClock<TimeUnit> clock) {
+		super(fn);
+		this.clock = clock;
+		this.at = clock.init();
+		this.clock.init();
+		fn.init();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.eep.LongEventWindow#push(long)
+	 */
+	@Override
+	public void push(final long e) {
+		fn.accumulate(e);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.eep.LongEventWindow#tick()
+	 */
+	@Override
+	public void tick() {
+		clock.inc();
+		if (clock.tock(at)) {
+			emit();
+			clock.inc();
+			at = clock.at();
+			fn.init();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.eep;
+
+/**
+ * <p>Title: LongPeriodicWindow</p>
+ * <p>Description: A primitive <code>long</code> specialization of {@link PeriodicWindow}. The wall clock is tracked in primitive fields rather than a {@link WallClock}, which boxes on every event.</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.eep.LongPeriodicWindow</code></p>
+ */
+public class LongPeriodicWindow extends LongWindowSupport {
+	private final long interval;
+	/** The nano time of the last event or tick */
+	private long at;
+	/** The nano time the current window started */
+	private long start;
+	private long mark;
+
+	/**
+	 * Creates a new LongPeriodicWindow
+	 * @param fn The aggregate function
+	 * @param intervalNanos The window period in nanos
+	 */
+	public LongPeriodicWindow(final LongAggregateFunction fn, final long intervalNanos) {
+		super(fn);
+		if(intervalNanos < 1) throw new IllegalArgumentException("Invalid interval [" + intervalNanos + "]");
+		this.interval = intervalNanos;
+		at = start = System.nanoTime();
+		mark = at + interval;
+		fn.init();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.eep.LongEventWindow#push(long)
+	 */
+	@Override
+	public void push(final long e) {
+		at = System.nanoTime();
+		fn.accumulate(e);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.eep.LongEventWindow#tick()
+	 */
+	@Override
+	public void tick() {
+		if ((at - mark) < interval) return;
+		if ((at - start) >= interval) {
+			mark += interval;
+			emit();
+			at = System.nanoTime();
+			start = at;
+			fn.init();
+		}
+	}
+}
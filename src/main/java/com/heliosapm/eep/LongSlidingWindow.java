@@ -0,0 +1,122 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.eep;
+
+import com.heliosapm.eep.libs.PrimitiveStats;
+import com.heliosapm.eep.libs.Stats;
+import com.heliosapm.utils.jmx.JMXHelper;
+
+/**
+ * <p>Title: LongSlidingWindow</p>
+ * <p>Description: A primitive <code>long</code> specialization of {@link SlidingWindow}. Events are retained in a <code>long[]</code> ring.</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.eep.LongSlidingWindow</code></p>
+ */
+public class LongSlidingWindow extends LongWindowSupport {
+	private final int size;
+	private final int mark;
+	private long idx;
+	private final long[] p;
+
+	/**
+	 * Creates a new LongSlidingWindow
+	 * @param fn The aggregate function
+	 * @param size The number of events in the window
+	 */
+	public LongSlidingWindow(final LongAggregateFunction fn, final int size) {
+		super(fn);
+		if(size < 1) throw new IllegalArgumentException("Invalid window size [" + size + "]");
+		this.size = size;
+		this.mark = size-1;
+		this.p = new long[size];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.eep.LongEventWindow#push(long)
+	 */
+	@Override
+	public void push(final long e) {
+		if (idx >= mark) {
+			final int po = (int)((idx+1) % size);
+			fn.accumulate(e);
+			emit();
+			fn.compensate(p[po]);
+			p[(int)(idx % size)] = e;
+		} else {
+			fn.accumulate(e);
+			p[(int)idx] = e;
+		}
+		idx += 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.eep.LongEventWindow#tick()
+	 */
+	@Override
+	public void tick() {
+		// Do nothing
+	}
+
+	/** Benchmark result sink */
+	private static double sink = 0;
+
+	/**
+	 * Benchmarks events/sec and bytes allocated per event of the primitive windows against the generic windows
+	 * @param args Optional event count per run, default 20,000,000
+	 */
+	public static void main(final String[] args) {
+		final int events = args.length > 0 ? Integer.parseInt(args[0]) : 20000000;
+		final int size = 1024;
+		for(int pass = 0; pass < 3; pass++) {
+			final boolean report = pass==2;
+			// generic sliding
+			final SlidingWindow<Long, Double> gs = new SlidingWindow<Long, Double>(new Stats.MeanLong(), size);
+			gs.onEmit(new EventEmitter<Double>() { public void emit(final Double event) { sink += event; } });
+			run("Generic Sliding", events, report, new Runnable() { public void run() { for(long i = 0; i < events; i++) gs.push(i); } });
+			// primitive sliding
+			final LongSlidingWindow ps = new LongSlidingWindow(new PrimitiveStats.MeanLong(), size);
+			ps.onEmit(new DoubleEventEmitter() { public void emit(final double result) { sink += result; } });
+			run("Primitive Sliding", events, report, new Runnable() { public void run() { for(long i = 0; i < events; i++) ps.push(i); } });
+			// generic tumbling
+			final TumblingWindow<Long, Double> gt = new TumblingWindow<Long, Double>(new Stats.MeanLong(), size);
+			gt.onEmit(new EventEmitter<Double>() { public void emit(final Double event) { sink += event; } });
+			run("Generic Tumbling", events, report, new Runnable() { public void run() { for(long i = 0; i < events; i++) gt.push(i); } });
+			// primitive tumbling
+			final LongTumblingWindow pt = new LongTumblingWindow(new PrimitiveStats.MeanLong(), size);
+			pt.onEmit(new DoubleEventEmitter() { public void emit(final double result) { sink += result; } });
+			run("Primitive Tumbling", events, report, new Runnable() { public void run() { for(long i = 0; i < events; i++) pt.push(i); } });
+		}
+		System.out.println("Sink:" + sink);
+	}
+
+	private static void run(final String name, final int events, final boolean report, final Runnable r) {
+		final long id = Thread.currentThread().getId();
+		final long startBytes = JMXHelper.getThreadAllocatedBytes(id);
+		final long start = System.nanoTime();
+		r.run();
+		final long elapsed = System.nanoTime() - start;
+		final long bytes = JMXHelper.getThreadAllocatedBytes(id) - startBytes;
+		if(report) {
+			System.out.println(String.format("%-20s %,14d events/sec  %8.3f bytes/event", name, (long)(events / (elapsed / 1e9d)), (double)bytes / events));
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.eep;
+
+/**
+ * <p>Title: LongTumblingWindow</p>
+ * <p>Description: A primitive <code>long</code> specialization of {@link TumblingWindow}</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.eep.LongTumblingWindow</code></p>
+ */
+public class LongTumblingWindow extends LongWindowSupport {
+	private final int size;
+	private int idx;
+
+	/**
+	 * Creates a new LongTumblingWindow
+	 * @param fn The aggregate function
+	 * @param size The number of events in each window
+	 */
+	public LongTumblingWindow(final LongAggregateFunction fn, final int size) {
+		super(fn);
+		if(size < 1) throw new IllegalArgumentException("Invalid window size [" + size + "]");
+		this.size = size;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.eep.LongEventWindow#push(long)
+	 */
+	@Override
+	public void push(final long e) {
+		fn.accumulate(e);
+		idx++;
+		if (idx == size) {
+			emit();
+			fn.init();
+			idx = 0;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.eep.LongEventWindow#tick()
+	 */
+	@Override
+	public void tick() {
+		// do nothing
+	}
+}
@@ -0,0 +1,84 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.eep;
+
+/**
+ * <p>Title: LongWindowSupport</p>
+ * <p>Description: Listener registration and dispatch for the <code>long</code> windows. Listeners are held in arrays so dispatch allocates no iterator.</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.eep.LongWindowSupport</code></p>
+ */
+abstract class LongWindowSupport implements LongEventWindow {
+	/** The aggregate function */
+	protected final LongAggregateFunction fn;
+	/** The long result listeners */
+	private LongEventEmitter[] longListeners = {};
+	/** The double result listeners */
+	private DoubleEventEmitter[] doubleListeners = {};
+
+	/**
+	 * Creates a new LongWindowSupport
+	 * @param fn The aggregate function
+	 */
+	protected LongWindowSupport(final LongAggregateFunction fn) {
+		if(fn==null) throw new IllegalArgumentException("The passed aggregate function was null");
+		this.fn = fn;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.eep.LongEventWindow#onEmit(com.heliosapm.eep.LongEventEmitter)
+	 */
+	@Override
+	public synchronized void onEmit(final LongEventEmitter l) {
+		final LongEventEmitter[] arr = new LongEventEmitter[longListeners.length + 1];
+		System.arraycopy(longListeners, 0, arr, 0, longListeners.length);
+		arr[longListeners.length] = l;
+		longListeners = arr;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.eep.LongEventWindow#onEmit(com.heliosapm.eep.DoubleEventEmitter)
+	 */
+	@Override
+	public synchronized void onEmit(final DoubleEventEmitter l) {
+		final DoubleEventEmitter[] arr = new DoubleEventEmitter[doubleListeners.length + 1];
+		System.arraycopy(doubleListeners, 0, arr, 0, doubleListeners.length);
+		arr[doubleListeners.length] = l;
+		doubleListeners = arr;
+	}
+
+	/**
+	 * Emits the function's current result to all listeners
+	 */
+	protected void emit() {
+		final LongEventEmitter[] ls = longListeners;
+		if(ls.length!=0) {
+			final long r = fn.emitLong();
+			for(int i = 0; i < ls.length; i++) ls[i].emit(r);
+		}
+		final DoubleEventEmitter[] ds = doubleListeners;
+		if(ds.length!=0) {
+			final double r = fn.emitDouble();
+			for(int i = 0; i < ds.length; i++) ds[i].emit(r);
+		}
+	}
+}
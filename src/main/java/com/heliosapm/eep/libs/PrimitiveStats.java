@@ -0,0 +1,136 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.eep.libs;
+
+import com.heliosapm.eep.DoubleAggregateFunction;
+import com.heliosapm.eep.LongAggregateFunction;
+
+/**
+ * <p>Title: PrimitiveStats</p>
+ * <p>Description: Primitive specializations of the {@link Stats} functions for the <code>long</code> and <code>double</code> windows</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.eep.libs.PrimitiveStats</code></p>
+ */
+public class PrimitiveStats {
+	
+	private PrimitiveStats() { }
+	
+	public static class CountLong implements LongAggregateFunction {
+		private long c;
+		public void init() { c = 0; }
+		public void accumulate(long v) { c++; }
+		public void compensate(long v) { c--; }
+		public long emitLong() { return c; }
+		public double emitDouble() { return c; }
+		public LongAggregateFunction make() { return new CountLong(); }
+	}
+
+	public static class SumLong implements LongAggregateFunction {
+		private long s;
+		public void init() { s = 0; }
+		public void accumulate(long v) { s += v; }
+		public void compensate(long v) { s -= v; }
+		public long emitLong() { return s; }
+		public double emitDouble() { return s; }
+		public LongAggregateFunction make() { return new SumLong(); }
+	}
+
+	public static class MeanLong implements LongAggregateFunction {
+		private long s;
+		private long c;
+		public void init() { s = 0; c = 0; }
+		public void accumulate(long v) { c++; s += v; }
+		public void compensate(long v) { c--; s -= v; }
+		public long emitLong() { return (c == 0) ? 0 : s / c; }
+		public double emitDouble() { return (c == 0) ? 0 : ((double)s / (double)c); }
+		public LongAggregateFunction make() { return new MeanLong(); }
+	}
+	
+	public static class VarsLong implements LongAggregateFunction {
+		private double m, m2, d;
+		private long n;
+		public void init() { m = 0; m2 = 0; d = 0; n = 0; }
+		public void accumulate(long v) { n++; d = v - m; m = d/n + m; m2 = m2 + d*(v - m); }
+		public void compensate(long v) { n--; if (n == 0) { init(); return; } d = m - v; m = m + d/n; m2 = d*(v - m) + m2; }
+		public long emitLong() { return (long)emitDouble(); }
+		public double emitDouble() { return m2/(n-1); }
+		public LongAggregateFunction make() { return new VarsLong(); }
+	}
+	
+	public static class StdevsLong implements LongAggregateFunction {
+		private double m, m2, d;
+		private long n;
+		public void init() { m = 0; m2 = 0; d = 0; n = 0; }
+		public void accumulate(long v) { n++; d = v - m; m = d/n + m; m2 = m2 + d*(v - m); }
+		public void compensate(long v) { n--; if (n == 0) { init(); return; } d = m - v; m = m + d/n; m2 = d*(v - m) + m2; }
+		public long emitLong() { return (long)emitDouble(); }
+		public double emitDouble() { return Math.sqrt(m2/(n-1)); }
+		public LongAggregateFunction make() { return new StdevsLong(); }
+	}
+	
+	public static class CountDouble implements DoubleAggregateFunction {
+		private long c;
+		public void init() { c = 0; }
+		public void accumulate(double v) { c++; }
+		public void compensate(double v) { c--; }
+		public double emit() { return c; }
+		public DoubleAggregateFunction make() { return new CountDouble(); }
+	}
+
+	public static class SumDouble implements DoubleAggregateFunction {
+		private double s;
+		public void init() { s = 0; }
+		public void accumulate(double v) { s += v; }
+		public void compensate(double v) { s -= v; }
+		public double emit() { return s; }
+		public DoubleAggregateFunction make() { return new SumDouble(); }
+	}
+
+	public static class MeanDouble implements DoubleAggregateFunction {
+		private double s;
+		private long c;
+		public void init() { s = 0; c = 0; }
+		public void accumulate(double v) { c++; s += v; }
+		public void compensate(double v) { c--; s -= v; }
+		public double emit() { return (c == 0) ? 0 : (s / c); }
+		public DoubleAggregateFunction make() { return new MeanDouble(); }
+	}
+	
+	public static class VarsDouble implements DoubleAggregateFunction {
+		private double m, m2, d;
+		private long n;
+		public void init() { m = 0; m2 = 0; d = 0; n = 0; }
+		public void accumulate(double v) { n++; d = v - m; m = d/n + m; m2 = m2 + d*(v - m); }
+		public void compensate(double v) { n--; if (n == 0) { init(); return; } d = m - v; m = m + d/n; m2 = d*(v - m) + m2; }
+		public double emit() { return m2/(n-1); }
+		public DoubleAggregateFunction make() { return new VarsDouble(); }
+	}
+	
+	public static class StdevsDouble implements DoubleAggregateFunction {
+		private double m, m2, d;
+		private long n;
+		public void init() { m = 0; m2 = 0; d = 0; n = 0; }
+		public void accumulate(double v) { n++; d = v - m; m = d/n + m; m2 = m2 + d*(v - m); }
+		public void compensate(double v) { n--; if (n == 0) { init(); return; } d = m - v; m = m + d/n; m2 = d*(v - m) + m2; }
+		public double emit() { return Math.sqrt(m2/(n-1)); }
+		public DoubleAggregateFunction make() { return new StdevsDouble(); }
+	}
+	
+}
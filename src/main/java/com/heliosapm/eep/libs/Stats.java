@@ -50,7 +50,7 @@ public class Stats {
 		public void accumulate(Long v) { if (v != null) { s += v; } }
 		public void compensate(Long v) { if (v != null) { s -= v; } }
 		public Long emit() { return s; }
-		public AggregateFunction<Long, Long> make() { return new CountLong(); }
+		public AggregateFunction<Long, Long> make() { return new SumLong(); }
 	}
 
 	public static class MeanLong implements AggregateFunction<Long, Double> {
@@ -53,6 +53,7 @@ public class PrivateClassLoaderAgentInstaller implements Closeable {
 				.agentClass(PrivateClassLoaderAgent.class.getName())
 				.preMainClass(PrivateClassLoaderAgent.class.getName())
 				.done()
+			.stored(true)
 			.build();
 	}
 	
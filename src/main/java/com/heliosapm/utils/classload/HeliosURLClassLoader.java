@@ -19,6 +19,7 @@ under the License.
 package com.heliosapm.utils.classload;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.instrument.Instrumentation;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Array;
@@ -32,6 +33,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.Manifest;
 
 import javax.management.ObjectName;
 
@@ -60,6 +62,8 @@ public class HeliosURLClassLoader extends URLClassLoader implements HeliosURLCla
 	protected final long id;
 	/** The class loader's JMX ObjectName */
 	protected ObjectName objectName;
+	/** The index of the entries in this class loader's jars */
+	protected final JarIndex index = new JarIndex();
 	/** The instrumentation instance */
 	protected static final Instrumentation instr;
 	
@@ -92,9 +96,19 @@ public class HeliosURLClassLoader extends URLClassLoader implements HeliosURLCla
 		super(unique(URL.class, urls));
 		id = serial.incrementAndGet();		
 		this.name = (name==null || name.trim().isEmpty()) ? ("HeliosURLClassLoader#" + id) : name.trim();		
+		indexURLs();
 		ref(this);
 	}
 	
+	/**
+	 * Adds the URLs passed to the constructor to the entry index
+	 */
+	private void indexURLs() {
+		for(URL url: super.getURLs()) {
+			index.add(url);
+		}
+	}
+	
 	
 	private static void ref(final HeliosURLClassLoader loader) {
 		final String key = loader.getName();
@@ -134,11 +148,23 @@ public class HeliosURLClassLoader extends URLClassLoader implements HeliosURLCla
 	public void unload() {
 		final WeakReference<HeliosURLClassLoader> ref = loaders.remove(name);
 		urls.clear();
+		index.close();
 		if(ref!=null) {
 			ref.enqueue();
 		}
 	}
 	
+	/**
+	 * Closes the indexed jars and then the URLs
+	 * {@inheritDoc}
+	 * @see java.net.URLClassLoader#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		index.close();
+		super.close();
+	}
+	
 	/**
 	 * Unloads the named classloader
 	 * @param name the name of the classloader to unload
@@ -184,6 +210,7 @@ public class HeliosURLClassLoader extends URLClassLoader implements HeliosURLCla
 		super(unique(URL.class, urls), parent);
 		id = serial.incrementAndGet();
 		this.name = (name==null || name.trim().isEmpty()) ? ("HeliosURLClassLoader#" + id) : name.trim();
+		indexURLs();
 		ref(this);
 	}
 
@@ -198,6 +225,7 @@ public class HeliosURLClassLoader extends URLClassLoader implements HeliosURLCla
 		super(unique(URL.class, urls), parent, factory);
 		id = serial.incrementAndGet();
 		this.name = (name==null || name.trim().isEmpty()) ? ("HeliosURLClassLoader#" + id) : name.trim();		
+		indexURLs();
 		ref(this);
 	}
 	
@@ -365,6 +393,136 @@ public class HeliosURLClassLoader extends URLClassLoader implements HeliosURLCla
 		}		
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * @see java.net.URLClassLoader#addURL(java.net.URL)
+	 */
+	@Override
+	protected void addURL(final URL url) {
+		super.addURL(url);
+		if(url!=null) index.add(url);
+	}
+	
+	/**
+	 * Finds the class in the entry index, falling back to walking the URLs if the index cannot answer.
+	 * {@inheritDoc}
+	 * @see java.net.URLClassLoader#findClass(java.lang.String)
+	 */
+	@Override
+	protected Class<?> findClass(final String name) throws ClassNotFoundException {
+		final long start = System.nanoTime();
+		final String path = name.replace('.', '/').concat(".class");
+		final long ref = index.find(path);
+		if(!index.isDefinitive(ref)) return super.findClass(name);
+		if(ref==-1L) throw new ClassNotFoundException(name);
+		final byte[] byteCode;
+		try {
+			byteCode = index.read(ref);
+		} catch (IOException iex) {
+			throw new ClassNotFoundException(name, iex);
+		}
+		final int i = name.lastIndexOf('.');
+		if(i!=-1) {
+			final String pkg = name.substring(0, i);
+			final Manifest manifest = index.manifest(ref);
+			final URL location = index.codeSource(ref).getLocation();
+			Package p = getPackage(pkg);
+			if(p==null) {
+				try {
+					if(manifest!=null) {
+						definePackage(pkg, manifest, location);
+					} else {
+						definePackage(pkg, null, null, null, null, null, null, null);
+					}
+				} catch (IllegalArgumentException iae) {
+					/* defined concurrently */
+					p = getPackage(pkg);
+				}
+			}
+			if(p!=null && (p.isSealed() ? !p.isSealed(location) : manifest!=null && JarIndex.isSealed(pkg, manifest))) {
+				throw new SecurityException("sealing violation: package " + pkg + " is sealed");
+			}
+		}
+		final Class<?> clazz = defineClass(name, byteCode, 0, byteCode.length, index.codeSource(ref));
+		index.classLoaded(System.nanoTime() - start);
+		return clazz;
+	}
+	
+	/**
+	 * Finds the resource in the entry index, falling back to walking the URLs if the index cannot answer.
+	 * {@inheritDoc}
+	 * @see java.net.URLClassLoader#findResource(java.lang.String)
+	 */
+	@Override
+	public URL findResource(final String name) {
+		final long ref = index.find(name);
+		if(!index.isDefinitive(ref)) return super.findResource(name);
+		return ref==-1L ? null : index.url(ref, name);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.classload.HeliosURLClassLoaderMBean#getIndexedJars()
+	 */
+	@Override
+	public int getIndexedJars() {
+		return index.getIndexedJars();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.classload.HeliosURLClassLoaderMBean#getIndexedEntries()
+	 */
+	@Override
+	public int getIndexedEntries() {
+		return index.getIndexedEntries();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.classload.HeliosURLClassLoaderMBean#getClassLoadCount()
+	 */
+	@Override
+	public long getClassLoadCount() {
+		return index.getClassLoadCount();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.classload.HeliosURLClassLoaderMBean#getClassLoadTime()
+	 */
+	@Override
+	public long getClassLoadTime() {
+		return index.getClassLoadTime();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.classload.HeliosURLClassLoaderMBean#getAverageClassLoadTime()
+	 */
+	@Override
+	public long getAverageClassLoadTime() {
+		return index.getAverageClassLoadTime();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.classload.HeliosURLClassLoaderMBean#getFallbackLookups()
+	 */
+	@Override
+	public long getFallbackLookups() {
+		return index.getFallbackLookups();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.classload.HeliosURLClassLoaderMBean#resetClassLoadStats()
+	 */
+	@Override
+	public void resetClassLoadStats() {
+		index.resetStats();
+	}
+	
 	@Override
 	public String toString() {		
 		return "HeliosURLClassLoader[" + name + "]";
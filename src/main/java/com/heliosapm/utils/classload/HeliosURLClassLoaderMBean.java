@@ -127,6 +127,48 @@ public interface HeliosURLClassLoaderMBean {
 	 */
 	public long getId();
 	
+	/**
+	 * Returns the number of jars in this classloader's entry index
+	 * @return the number of indexed jars
+	 */
+	public int getIndexedJars();
+	
+	/**
+	 * Returns the number of entries in this classloader's entry index
+	 * @return the number of indexed entries
+	 */
+	public int getIndexedEntries();
+	
+	/**
+	 * Returns the number of classes this classloader has defined from its entry index
+	 * @return the number of classes defined from the index
+	 */
+	public long getClassLoadCount();
+	
+	/**
+	 * Returns the total time spent defining classes from the entry index in ms
+	 * @return the total class load time in ms
+	 */
+	public long getClassLoadTime();
+	
+	/**
+	 * Returns the average time to define a class from the entry index in us
+	 * @return the average class load time in us
+	 */
+	public long getAverageClassLoadTime();
+	
+	/**
+	 * Returns the number of class and resource lookups the entry index could not answer, which walked the URLs instead.
+	 * Directories and other URLs that are not jars are not indexed.
+	 * @return the number of fallback lookups
+	 */
+	public long getFallbackLookups();
+	
+	/**
+	 * Resets the class load stats
+	 */
+	public void resetClassLoadStats();
+	
   /**
    * Returns an input stream for reading the specified resource.
    * If this loader is closed, then any resources opened by this method
@@ -19,22 +19,20 @@ under the License.
 package com.heliosapm.utils.classload;
 
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.management.ManagementFactory;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.nio.ByteBuffer;
 import java.security.AccessControlContext;
 import java.security.AccessController;
 import java.security.AllPermission;
 import java.security.CodeSource;
 import java.security.Permissions;
 import java.security.ProtectionDomain;
-import java.security.cert.Certificate;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
@@ -198,6 +196,78 @@ public class IsolatedClassLoader extends ClassLoader implements IsolatedClassLoa
 		childClassLoader.addURL(url);
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.classload.IsolatedClassLoaderMBean#getIndexedJars()
+	 */
+	@Override
+	public int getIndexedJars() {
+		return childClassLoader.index.getIndexedJars();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.classload.IsolatedClassLoaderMBean#getIndexedEntries()
+	 */
+	@Override
+	public int getIndexedEntries() {
+		return childClassLoader.index.getIndexedEntries();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.classload.IsolatedClassLoaderMBean#getClassLoadCount()
+	 */
+	@Override
+	public long getClassLoadCount() {
+		return childClassLoader.index.getClassLoadCount();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.classload.IsolatedClassLoaderMBean#getClassLoadTime()
+	 */
+	@Override
+	public long getClassLoadTime() {
+		return childClassLoader.index.getClassLoadTime();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.classload.IsolatedClassLoaderMBean#getAverageClassLoadTime()
+	 */
+	@Override
+	public long getAverageClassLoadTime() {
+		return childClassLoader.index.getAverageClassLoadTime();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.classload.IsolatedClassLoaderMBean#getFallbackLookups()
+	 */
+	@Override
+	public long getFallbackLookups() {
+		return childClassLoader.index.getFallbackLookups();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.classload.IsolatedClassLoaderMBean#resetClassLoadStats()
+	 */
+	@Override
+	public void resetClassLoadStats() {
+		childClassLoader.index.resetStats();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.classload.IsolatedClassLoaderMBean#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		childClassLoader.close();
+	}
+	
 	/**
 	 * Returns the designated JMX ObjectName
 	 * @return the designated JMX ObjectName or null if one was not assigned
@@ -287,13 +357,10 @@ public class IsolatedClassLoader extends ClassLoader implements IsolatedClassLoa
     private FindClassClassLoader realParent;
     /** The context to be used when loading classes and resources */
     private final AccessControlContext acc;
-    /** A map of the class contents of the URLs */
-    private final ConcurrentHashMap<String, ByteBuffer> jarItems = new ConcurrentHashMap<String, ByteBuffer>();
-    /** A map of the resource contents of the URLs */
-    private final ConcurrentHashMap<String, URL> resourceItems = new ConcurrentHashMap<String, URL>();
-    
-    
-    private final Map<String, ProtectionDomain> protectionDomains = new ConcurrentHashMap<String, ProtectionDomain>();
+    /** The index of the entries in the URLs */
+    private final JarIndex index = new JarIndex();
+    /** The protection domains of the indexed jars keyed by their code source */
+    private final ConcurrentHashMap<CodeSource, ProtectionDomain> protectionDomains = new ConcurrentHashMap<CodeSource, ProtectionDomain>();
     
     private Permissions permissions = new Permissions();
 
@@ -309,56 +376,58 @@ public class IsolatedClassLoader extends ClassLoader implements IsolatedClassLoa
         this.realParent = realParent;
         acc = AccessController.getContext();
         for(final URL url: urls) {
-        	final CodeSource cs = new CodeSource(url, (Certificate[])null);
-        	final ProtectionDomain pd = new ProtectionDomain(cs, permissions);
-    		InputStream is = null;
-    		JarInputStream jis = null;        	
-        	try {
-        		is = url.openStream();
-        		jis = new JarInputStream(is);
-        		JarEntry je = null;
-    			while((je = jis.getNextJarEntry())!=null) {
-    				try {    					
-	    				if(je.isDirectory()) continue;
-	    				final String rezName = je.getName();
-	    				if(jarItems.containsKey(rezName)) continue;
-	    				if(!rezName.endsWith(".class")) {
-	    					resourceItems.put(rezName, new URL("jar:" + url + "!/" + rezName));
-	    					continue;
-	    				}
-	    				byte[] byteCode = load(jis);
-//	    				log("Entry [%s], size: %s", rezName, byteCode.length);
-	    				final ByteBuffer bb = ByteBuffer.allocateDirect(byteCode.length);
-	    				bb.put(byteCode);
-	    				bb.flip();
-	    				byteCode = null;
-	    				jarItems.put(rezName, bb);
-	    				protectionDomains.put(rezName, pd);
-    				} finally {
-    					try { jis.closeEntry(); } catch (Exception x) {/* No Op */}
-    				}
-    			}        		
-        	} catch (Exception ex) {
-        		loge("Failed in load of [%s]: %s", url, ex.toString());
-        	} finally {
-    			if(jis != null) try { jis.close(); } catch (Exception x) {/* No Op */}
-    			if(is != null) try { is.close(); } catch (Exception x) {/* No Op */}
-    		}
+        	index.add(url);
         }
     }
     
-    private static byte[] load(final JarInputStream jis) throws Exception {
-    	ByteArrayOutputStream baos = null;
-    	try {
-    		baos = new ByteArrayOutputStream(1024);
-    		byte[] buff = new byte[1024];
-    		int bytesRead = 0;
-    		while((bytesRead = jis.read(buff))!=-1) {
-    			baos.write(buff, 0, bytesRead);
+    private ProtectionDomain protectionDomain(final CodeSource cs) {
+    	ProtectionDomain pd = protectionDomains.get(cs);
+    	if(pd==null) {
+    		pd = new ProtectionDomain(cs, permissions);
+    		final ProtectionDomain existing = protectionDomains.putIfAbsent(cs, pd);
+    		if(existing!=null) pd = existing;
+    	}
+    	return pd;
+    }
+    
+    /**
+     * Closes the indexed jars and then the URLs
+     * {@inheritDoc}
+     * @see java.net.URLClassLoader#close()
+     */
+    @Override
+    public void close() throws IOException {
+    	index.close();
+    	super.close();
+    }
+    
+    /**
+     * Defines the package of the named class from the manifest of the indexed jar holding it,
+     * or verifies the jar against the package's sealing if the package is already defined
+     * @param name The class name
+     * @param ref The index reference of the class entry
+     */
+    private void definePackage(final String name, final long ref) {
+    	final int i = name.lastIndexOf('.');
+    	if(i==-1) return;
+    	final String pkg = name.substring(0, i);
+    	final Manifest manifest = index.manifest(ref);
+    	final URL location = index.codeSource(ref).getLocation();
+    	Package p = getPackage(pkg);
+    	if(p==null) {
+    		try {
+    			if(manifest!=null) {
+    				definePackage(pkg, manifest, location);
+    			} else {
+    				definePackage(pkg, null, null, null, null, null, null, null);
+    			}
+    		} catch (IllegalArgumentException iae) {
+    			/* defined concurrently */
+    			p = getPackage(pkg);
     		}
-    		return baos.toByteArray();
-    	} finally {
-    		if(baos != null) try { baos.close(); } catch (Exception x) {/* No Op */}
+    	}
+    	if(p!=null && (p.isSealed() ? !p.isSealed(location) : manifest!=null && JarIndex.isSealed(pkg, manifest))) {
+    		throw new SecurityException("sealing violation: package " + pkg + " is sealed");
     	}
     }
     
@@ -373,18 +442,17 @@ public class IsolatedClassLoader extends ClassLoader implements IsolatedClassLoa
      *            or if the loader is closed.
      */
     protected Class<?> _findClass(final String name) throws ClassNotFoundException {
+        final long start = System.nanoTime();
+        final String path = name.replace('.', '/').concat(".class");
+        final long ref = index.find(path);
+        if(!index.isDefinitive(ref)) return super.findClass(name);
+        if(ref==-1L) throw new ClassNotFoundException(path);
+        definePackage(name, ref);
         try {
-                        final String path = name.replace('.', '/').concat(".class");
-                        ByteBuffer bb = jarItems.get(path);
-                        ProtectionDomain pd = protectionDomains.get(path);
-                        if(bb!=null && pd!=null) {
-//                        	log("Found cached bb for [%s]", path);
-                        	jarItems.remove(path);
-                        	protectionDomains.remove(path);
-                        	return defineClass(name, bb, pd);
-                        }
-//						log("[%s] not found in cache", path);
-						throw new ClassNotFoundException(path);
+        	final byte[] byteCode = index.read(ref);
+        	final Class<?> clazz = defineClass(name, byteCode, 0, byteCode.length, protectionDomain(index.codeSource(ref)));
+        	index.classLoaded(System.nanoTime() - start);
+        	return clazz;
         } catch (Exception pae) {
             throw new ClassNotFoundException(name);
         }
@@ -413,19 +481,20 @@ public class IsolatedClassLoader extends ClassLoader implements IsolatedClassLoa
     
     @Override
     public URL findResource(final String name) {
-    	URL url = null;
-    	if(resourceItems.containsKey(name)) {
-    		url = resourceItems.get(name);
-    	} else {
-    		url = super.findResource(name);
-    	}
-    	return url;
+    	final long ref = index.find(name);
+    	if(!index.isDefinitive(ref)) return super.findResource(name);
+    	return ref==-1L ? null : index.url(ref, name);
     }
     
     @Override
     public InputStream getResourceAsStream(final String name) {
-    	final URL url = findResource(name);    	
+    	final long ref = index.find(name);
     	try {
+    		if(ref!=-1L && index.isDefinitive(ref)) {
+    			// read from the mapped jar rather than opening a jar url connection
+    			return new ByteArrayInputStream(index.read(ref));
+    		}
+    		final URL url = findResource(name);
     		return url==null ? null : url.openStream();
     	} catch (Exception x) {
     		return null;
@@ -458,6 +527,7 @@ public class IsolatedClassLoader extends ClassLoader implements IsolatedClassLoa
     @Override
 	public void addURL(final URL url) {
     	  super.addURL(url);
+    	  if(url!=null) index.add(url);
       }
   }
   
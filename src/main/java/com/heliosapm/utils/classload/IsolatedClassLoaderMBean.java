@@ -18,6 +18,7 @@ under the License.
  */
 package com.heliosapm.utils.classload;
 
+import java.io.IOException;
 import java.net.URL;
 
 /**
@@ -34,4 +35,51 @@ public interface IsolatedClassLoaderMBean {
 	 * @return the URLs that comprise the classloaders isolated classpath
 	 */
 	public URL[] getURLs();
+	
+	/**
+	 * Returns the number of jars in the classloader's entry index
+	 * @return the number of indexed jars
+	 */
+	public int getIndexedJars();
+	
+	/**
+	 * Returns the number of entries in the classloader's entry index
+	 * @return the number of indexed entries
+	 */
+	public int getIndexedEntries();
+	
+	/**
+	 * Returns the number of classes the classloader has defined from its entry index
+	 * @return the number of classes defined from the index
+	 */
+	public long getClassLoadCount();
+	
+	/**
+	 * Returns the total time spent defining classes from the entry index in ms
+	 * @return the total class load time in ms
+	 */
+	public long getClassLoadTime();
+	
+	/**
+	 * Returns the average time to define a class from the entry index in us
+	 * @return the average class load time in us
+	 */
+	public long getAverageClassLoadTime();
+	
+	/**
+	 * Returns the number of class and resource lookups the entry index could not answer, which walked the URLs instead
+	 * @return the number of fallback lookups
+	 */
+	public long getFallbackLookups();
+	
+	/**
+	 * Resets the class load stats
+	 */
+	public void resetClassLoadStats();
+	
+	/**
+	 * Closes the jars opened by this class loader. Classes and resources not yet loaded can no longer be found.
+	 * @throws IOException thrown if closing a jar failed
+	 */
+	public void close() throws IOException;
 }
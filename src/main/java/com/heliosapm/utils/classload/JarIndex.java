@@ -0,0 +1,696 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.classload;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.security.CodeSource;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.Attributes.Name;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.heliosapm.utils.config.ConfigurationHelper;
+
+import jsr166e.LongAdder;
+
+/**
+ * <p>Title: JarIndex</p>
+ * <p>Description: An index of the entries in a class loader's jars, so classes and resources are found with one table lookup
+ * rather than by walking the URL list. Each jar's central directory is read once and the entry names are added to an open addressing
+ * table mapping the name to the jar and entry, first jar wins, as a URL class loader would resolve it. Entry bytes are then read
+ * from the jar's open file channel, or from the memory mapped jar if {@link #CONFIG_MMAP} is set. A mapped jar stays locked on Windows
+ * until the mapping is garbage collected, and a mapped jar truncated or replaced in place can crash the JVM, so jars that may be rewritten
+ * should not be mapped. {@link #close()} closes the jars and makes every lookup fall back to walking the URLs.</p>
+ * <p>URLs that cannot be indexed, such as directories, are recorded in order so a loader knows when the index is authoritative and
+ * when it must fall back to walking its URLs. Signed jars are not indexed, so their classes keep their certificates. If {@link #CONFIG_INDEX_DIR} is set, each jar's parsed index is persisted there,
+ * keyed by the checksum of the jar's central directory, and reloaded instead of being parsed again.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.classload.JarIndex</code></p>
+ */
+
+class JarIndex {
+	/** The indexed and unindexed sources in class path order */
+	private volatile Source[] sources = new Source[0];
+	/** The entry table */
+	private volatile Table table = new Table(64);
+	/** The ordinal of the first unindexed source, or {@link Integer#MAX_VALUE} if all sources are indexed */
+	private volatile int firstUnindexed = Integer.MAX_VALUE;
+
+	/** The number of classes defined from the index */
+	private final LongAdder classLoads = new LongAdder();
+	/** The elapsed time of class loads from the index in ns */
+	private final LongAdder classLoadNanos = new LongAdder();
+	/** The number of lookups the index could not answer */
+	private final LongAdder fallbacks = new LongAdder();
+
+	/** Indicates the index has been closed */
+	private boolean closed = false;
+
+	/** The config property name for the directory parsed jar indexes are persisted in. Not persisted if not set. */
+	public static final String CONFIG_INDEX_DIR = "heliosutils.classload.index.dir";
+	/** The config property name for memory mapping indexed jar files instead of reading them through a file channel */
+	public static final String CONFIG_MMAP = "heliosutils.classload.index.mmap";
+	/** The default jar file memory mapping */
+	public static final boolean DEFAULT_MMAP = false;
+
+	/** Static class logger */
+	private static final Logger log = Logger.getLogger(JarIndex.class.getName());
+	/** The UTF-8 charset */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	/** The ISO-8859-1 charset, used for names not flagged as UTF-8 */
+	private static final Charset ISO8859 = Charset.forName("ISO-8859-1");
+	/** The persisted index file magic */
+	private static final int INDEX_MAGIC = 0x4A494458;
+	/** Per thread inflaters */
+	private static final ThreadLocal<Inflater> INFLATERS = new ThreadLocal<Inflater>() {
+		@Override
+		protected Inflater initialValue() {
+			return new Inflater(true);
+		}
+	};
+
+	/**
+	 * <p>Title: Table</p>
+	 * <p>Description: An open addressing, linear probing table of entry names to packed source and entry ordinals.
+	 * Tables are never modified once published: adding a jar copies the table.</p>
+	 */
+	private static final class Table {
+		final String[] keys;
+		final long[] refs;
+		final int mask;
+		int size = 0;
+
+		Table(final int capacity) {
+			keys = new String[capacity];
+			refs = new long[capacity];
+			mask = capacity - 1;
+		}
+
+		long get(final String name) {
+			int i = spread(name.hashCode()) & mask;
+			for(;;) {
+				final String k = keys[i];
+				if(k==null) return -1L;
+				if(k.equals(name)) return refs[i];
+				i = (i + 1) & mask;
+			}
+		}
+
+		/** Adds the entry unless the name is already present */
+		void putIfAbsent(final String name, final long ref) {
+			int i = spread(name.hashCode()) & mask;
+			for(;;) {
+				final String k = keys[i];
+				if(k==null) {
+					keys[i] = name;
+					refs[i] = ref;
+					size++;
+					return;
+				}
+				if(k.equals(name)) return;
+				i = (i + 1) & mask;
+			}
+		}
+
+		/** Returns a copy of this table able to hold the passed number of entries at a load factor of 0.5 */
+		Table copy(final int entries) {
+			int cap = keys.length;
+			while(cap < entries * 2) cap <<= 1;
+			final Table t = new Table(cap);
+			for(int i = 0; i < keys.length; i++) {
+				if(keys[i]!=null) t.putIfAbsent(keys[i], refs[i]);
+			}
+			return t;
+		}
+
+		private static int spread(final int h) {
+			return h ^ (h >>> 16);
+		}
+	}
+
+	/**
+	 * <p>Title: Source</p>
+	 * <p>Description: One URL of the class path, with its jar content and entry locations if it was indexed</p>
+	 */
+	private static final class Source {
+		final URL url;
+		final CodeSource codeSource;
+		/** The mapped or loaded jar content, or null if the source is read through its channel or is not indexed */
+		final ByteBuffer content;
+		/** The jar file channel, or null if the source is read from its content or is not indexed */
+		final FileChannel channel;
+		/** The local header offsets of the entries */
+		final int[] offsets;
+		/** The compressed sizes of the entries */
+		final int[] csizes;
+		/** The uncompressed sizes of the entries */
+		final int[] sizes;
+		/** The compression methods of the entries */
+		final byte[] methods;
+		/** The manifest entry, or -1 if the jar has no manifest */
+		final int manifestEntry;
+		/** The jar manifest, resolved on first use */
+		volatile Object manifest = null;
+
+		Source(final URL url, final ByteBuffer content, final FileChannel channel, final int[] offsets, final int[] csizes, final int[] sizes, final byte[] methods, final int manifestEntry) {
+			this.url = url;
+			this.codeSource = new CodeSource(url, (Certificate[])null);
+			this.content = content;
+			this.channel = channel;
+			this.offsets = offsets;
+			this.csizes = csizes;
+			this.sizes = sizes;
+			this.methods = methods;
+			this.manifestEntry = manifestEntry;
+		}
+
+		Source(final URL url) {
+			this(url, null, null, null, null, null, null, -1);
+		}
+
+		boolean isIndexed() {
+			return offsets!=null;
+		}
+
+		byte[] read(final int entry) throws IOException {
+			final int lho = offsets[entry];
+			final byte[] header = new byte[30];
+			readFully(content, channel, lho, header, header.length);
+			final ByteBuffer buf = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+			if(buf.getInt(0)!=0x04034b50) throw new IOException("Invalid local header in [" + url + "] at " + lho);
+			final long dataOffset = (long)lho + 30 + (buf.getShort(26) & 0xFFFF) + (buf.getShort(28) & 0xFFFF);
+			final byte[] bytes = new byte[sizes[entry]];
+			if(methods[entry]==0) {
+				readFully(content, channel, dataOffset, bytes, bytes.length);
+				return bytes;
+			}
+			// the inflater needs a dummy byte after the data when there is no zlib wrapper
+			final byte[] compressed = new byte[csizes[entry] + 1];
+			readFully(content, channel, dataOffset, compressed, csizes[entry]);
+			final Inflater inflater = INFLATERS.get();
+			inflater.reset();
+			inflater.setInput(compressed);
+			try {
+				int len = 0;
+				while(len < bytes.length) {
+					final int n = inflater.inflate(bytes, len, bytes.length - len);
+					if(n==0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) break;
+					len += n;
+				}
+				if(len!=bytes.length) throw new IOException("Truncated entry in [" + url + "] at " + lho);
+			} catch (DataFormatException dex) {
+				throw new IOException("Corrupt entry in [" + url + "] at " + lho, dex);
+			}
+			return bytes;
+		}
+
+		void close() {
+			if(channel!=null) try { channel.close(); } catch (Exception x) {/* No Op */}
+		}
+	}
+
+	/**
+	 * Reads bytes of a jar from its content or its channel
+	 * @param content The jar content or null to read from the channel
+	 * @param channel The jar file channel
+	 * @param pos The position of the first byte to read
+	 * @param dst The array the bytes are read into, from the start
+	 * @param len The number of bytes to read
+	 * @throws IOException thrown if the jar is closed or shorter than the bytes to read
+	 */
+	private static void readFully(final ByteBuffer content, final FileChannel channel, final long pos, final byte[] dst, final int len) throws IOException {
+		if(content!=null) {
+			if(pos + len > content.capacity()) throw new IOException("Read past the end of the jar at " + pos);
+			final ByteBuffer buf = content.duplicate();
+			buf.position((int)pos);
+			buf.get(dst, 0, len);
+			return;
+		}
+		final ByteBuffer buf = ByteBuffer.wrap(dst, 0, len);
+		while(buf.hasRemaining()) {
+			if(channel.read(buf, pos + buf.position())==-1) throw new IOException("Read past the end of the jar at " + pos);
+		}
+	}
+
+	/**
+	 * Adds the passed URL to the end of the indexed class path
+	 * @param url The URL to add
+	 */
+	synchronized void add(final URL url) {
+		final Source[] current = sources;
+		for(Source s: current) {
+			if(s.url.equals(url)) return;
+		}
+		final int ordinal = current.length;
+		Source source = null;
+		final List<String> names = new ArrayList<String>();
+		if(!closed) {
+			try {
+				source = index(url, names);
+			} catch (Exception ex) {
+				log.log(Level.FINE, "Failed to index [" + url + "]", ex);
+			}
+		}
+		if(source==null) {
+			source = new Source(url);
+			if(firstUnindexed==Integer.MAX_VALUE) firstUnindexed = ordinal;
+		}
+		final Source[] updated = new Source[ordinal + 1];
+		System.arraycopy(current, 0, updated, 0, ordinal);
+		updated[ordinal] = source;
+		// the sources are published before the table so a reader never sees a reference to a source it cannot resolve
+		sources = updated;
+		if(source.isIndexed()) {
+			final Table t = table.copy(table.size + names.size());
+			final long hi = ((long)ordinal) << 32;
+			for(int i = 0; i < names.size(); i++) {
+				t.putIfAbsent(names.get(i), hi | i);
+			}
+			table = t;
+		}
+	}
+
+	/**
+	 * Closes the indexed jars. Every lookup then falls back to walking the URLs, and URLs added later are not indexed.
+	 */
+	synchronized void close() {
+		if(closed) return;
+		closed = true;
+		final Source[] current = sources;
+		final Source[] unindexed = new Source[current.length];
+		for(int i = 0; i < current.length; i++) {
+			unindexed[i] = new Source(current[i].url);
+		}
+		// no lookup is definitive from here, so no reader resolves a source after it is closed
+		firstUnindexed = 0;
+		table = new Table(64);
+		sources = unindexed;
+		// mapped jars are only unmapped when their buffers are garbage collected
+		for(Source s: current) {
+			s.close();
+		}
+	}
+
+	/**
+	 * Determines if the passed manifest seals the passed package, either in the package's own section or in the main section
+	 * @param pkg The package name
+	 * @param manifest The manifest of the jar the package's classes are defined from
+	 * @return true if the package is sealed
+	 */
+	static boolean isSealed(final String pkg, final Manifest manifest) {
+		final Attributes attrs = manifest.getAttributes(pkg.replace('.', '/').concat("/"));
+		String sealed = attrs==null ? null : attrs.getValue(Name.SEALED);
+		if(sealed==null) sealed = manifest.getMainAttributes().getValue(Name.SEALED);
+		return "true".equalsIgnoreCase(sealed);
+	}
+
+	/**
+	 * Looks up the passed entry name
+	 * @param name The entry name, e.g. <code>java/lang/Object.class</code>
+	 * @return the entry reference or -1 if no indexed jar contains the entry
+	 */
+	long find(final String name) {
+		return table.get(name);
+	}
+
+	/**
+	 * Determines if the passed lookup result is definitive, meaning there is no unindexed URL ahead of the indexed jar that could also
+	 * hold the entry or, for a miss, there are no unindexed URLs at all. Lookups that are not definitive are counted as fallbacks.
+	 * @param ref The reference returned by {@link #find(String)}
+	 * @return true if the lookup result is definitive
+	 */
+	boolean isDefinitive(final long ref) {
+		final boolean definitive = ref==-1L ? firstUnindexed==Integer.MAX_VALUE : (int)(ref >>> 32) < firstUnindexed;
+		if(!definitive) fallbacks.increment();
+		return definitive;
+	}
+
+	/**
+	 * Reads the referenced entry from its jar
+	 * @param ref The entry reference
+	 * @return the entry bytes
+	 * @throws IOException thrown if the entry cannot be read
+	 */
+	byte[] read(final long ref) throws IOException {
+		return sources[(int)(ref >>> 32)].read((int)ref);
+	}
+
+	/**
+	 * Returns the code source of the jar holding the referenced entry
+	 * @param ref The entry reference
+	 * @return the code source
+	 */
+	CodeSource codeSource(final long ref) {
+		return sources[(int)(ref >>> 32)].codeSource;
+	}
+
+	/**
+	 * Returns the manifest of the jar holding the referenced entry
+	 * @param ref The entry reference
+	 * @return the manifest or null if the jar has none
+	 */
+	Manifest manifest(final long ref) {
+		final Source source = sources[(int)(ref >>> 32)];
+		Object m = source.manifest;
+		if(m==null) {
+			m = Boolean.FALSE;
+			if(source.manifestEntry!=-1) {
+				try {
+					m = new Manifest(new ByteArrayInputStream(source.read(source.manifestEntry)));
+				} catch (Exception ex) {
+					log.log(Level.FINE, "Failed to read manifest of [" + source.url + "]", ex);
+				}
+			}
+			source.manifest = m;
+		}
+		return m instanceof Manifest ? (Manifest)m : null;
+	}
+
+	/**
+	 * Returns a URL for the referenced entry
+	 * @param ref The entry reference
+	 * @param name The entry name
+	 * @return the entry URL
+	 */
+	URL url(final long ref, final String name) {
+		try {
+			return new URL("jar:" + sources[(int)(ref >>> 32)].url + "!/" + name);
+		} catch (MalformedURLException mex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Records a class defined from the index
+	 * @param elapsedNanos The elapsed time of the load in ns
+	 */
+	void classLoaded(final long elapsedNanos) {
+		classLoads.increment();
+		classLoadNanos.add(elapsedNanos);
+	}
+
+	/**
+	 * Returns the number of indexed jars
+	 * @return the number of indexed jars
+	 */
+	int getIndexedJars() {
+		int count = 0;
+		for(Source s: sources) {
+			if(s.isIndexed()) count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of indexed entries
+	 * @return the number of indexed entries
+	 */
+	int getIndexedEntries() {
+		return table.size;
+	}
+
+	/**
+	 * Returns the number of classes defined from the index
+	 * @return the number of classes defined from the index
+	 */
+	long getClassLoadCount() {
+		return classLoads.longValue();
+	}
+
+	/**
+	 * Returns the total elapsed time of class loads from the index in ms
+	 * @return the total elapsed time of class loads in ms
+	 */
+	long getClassLoadTime() {
+		return classLoadNanos.longValue() / 1000000L;
+	}
+
+	/**
+	 * Returns the average elapsed time of a class load from the index in us
+	 * @return the average elapsed time of a class load in us
+	 */
+	long getAverageClassLoadTime() {
+		final long count = classLoads.longValue();
+		return count==0 ? 0L : classLoadNanos.longValue() / count / 1000L;
+	}
+
+	/**
+	 * Returns the number of lookups that had to fall back to walking the URLs
+	 * @return the number of fallback lookups
+	 */
+	long getFallbackLookups() {
+		return fallbacks.longValue();
+	}
+
+	/**
+	 * Resets the class load stats
+	 */
+	void resetStats() {
+		classLoads.reset();
+		classLoadNanos.reset();
+		fallbacks.reset();
+	}
+
+	/**
+	 * Opens, maps or loads the passed jar and reads its entries
+	 * @param url The jar URL
+	 * @param names The list the entry names are added to, in entry order
+	 * @return the indexed source or null if the URL is not an indexable jar
+	 * @throws IOException thrown on any IO error reading the jar
+	 */
+	private static Source index(final URL url, final List<String> names) throws IOException {
+		ByteBuffer content = null;
+		FileChannel channel = null;
+		if("file".equals(url.getProtocol())) {
+			final File f;
+			try {
+				f = new File(url.toURI());
+			} catch (Exception ex) {
+				return null;
+			}
+			if(!f.isFile() || f.length() > Integer.MAX_VALUE) return null;
+			final RandomAccessFile raf = new RandomAccessFile(f, "r");
+			if(ConfigurationHelper.getBooleanSystemThenEnvProperty(CONFIG_MMAP, DEFAULT_MMAP)) {
+				try {
+					final FileChannel fc = raf.getChannel();
+					content = fc.map(MapMode.READ_ONLY, 0, fc.size());
+				} finally {
+					try { raf.close(); } catch (Exception x) {/* No Op */}
+				}
+			} else {
+				channel = raf.getChannel();
+			}
+		} else if(url.getPath().endsWith("/")) {
+			return null;
+		} else {
+			content = ByteBuffer.wrap(readFully(url.openStream()));
+		}
+		Source source = null;
+		try {
+			source = index(url, content, channel, names);
+			return source;
+		} finally {
+			if(source==null && channel!=null) try { channel.close(); } catch (Exception x) {/* No Op */}
+		}
+	}
+
+	private static Source index(final URL url, final ByteBuffer content, final FileChannel channel, final List<String> names) throws IOException {
+		final long length = content!=null ? content.capacity() : channel.size();
+		final int tailLength = (int)Math.min(length, 22 + 0xFFFF);
+		final byte[] tailBytes = new byte[tailLength];
+		readFully(content, channel, length - tailLength, tailBytes, tailLength);
+		final ByteBuffer tail = ByteBuffer.wrap(tailBytes).order(ByteOrder.LITTLE_ENDIAN);
+		final int tailEnd = findEnd(tail);
+		if(tailEnd==-1) return null;
+		final long end = length - tailLength + tailEnd;
+		final int count = tail.getShort(tailEnd + 10) & 0xFFFF;
+		final long cenSize = tail.getInt(tailEnd + 12) & 0xFFFFFFFFL;
+		final long cenOffset = tail.getInt(tailEnd + 16) & 0xFFFFFFFFL;
+		// zip64 archives and archives with prefixed bytes are left to the URL walk
+		if(count==0xFFFF || cenOffset + cenSize != end) return null;
+		final byte[] cen = new byte[(int)cenSize];
+		readFully(content, channel, cenOffset, cen, cen.length);
+		final ByteBuffer buf = ByteBuffer.wrap(cen).order(ByteOrder.LITTLE_ENDIAN);
+		final int[] offsets = new int[count];
+		final int[] csizes = new int[count];
+		final int[] sizes = new int[count];
+		final byte[] methods = new byte[count];
+		final File indexFile = indexFile(cen);
+		if(indexFile!=null && indexFile.canRead() && readIndex(indexFile, names, offsets, csizes, sizes, methods)) {
+			if(isSigned(names)) return null;
+			return new Source(url, content, channel, offsets, csizes, sizes, methods, names.indexOf(JarFile.MANIFEST_NAME));
+		}
+		names.clear();
+		int pos = 0;
+		int entries = 0;
+		for(int i = 0; i < count; i++) {
+			if(buf.getInt(pos)!=0x02014b50) throw new IOException("Invalid central directory in [" + url + "]");
+			final int flags = buf.getShort(pos + 8) & 0xFFFF;
+			final int method = buf.getShort(pos + 10) & 0xFFFF;
+			final long csize = buf.getInt(pos + 20) & 0xFFFFFFFFL;
+			final long size = buf.getInt(pos + 24) & 0xFFFFFFFFL;
+			final int nameLen = buf.getShort(pos + 28) & 0xFFFF;
+			final int extraLen = buf.getShort(pos + 30) & 0xFFFF;
+			final int commentLen = buf.getShort(pos + 32) & 0xFFFF;
+			final long lho = buf.getInt(pos + 42) & 0xFFFFFFFFL;
+			final byte[] nameBytes = new byte[nameLen];
+			buf.position(pos + 46);
+			buf.get(nameBytes);
+			pos += 46 + nameLen + extraLen + commentLen;
+			final String name = new String(nameBytes, (flags & 0x0800)!=0 ? UTF8 : ISO8859);
+			if(name.endsWith("/")) continue;
+			if((method!=0 && method!=8) || csize >= Integer.MAX_VALUE || size >= Integer.MAX_VALUE || lho >= Integer.MAX_VALUE) return null;
+			names.add(name);
+			offsets[entries] = (int)lho;
+			csizes[entries] = (int)csize;
+			sizes[entries] = (int)size;
+			methods[entries] = (byte)method;
+			entries++;
+		}
+		if(indexFile!=null) writeIndex(indexFile, names, offsets, csizes, sizes, methods);
+		if(isSigned(names)) return null;
+		return new Source(url, content, channel, offsets, csizes, sizes, methods, names.indexOf(JarFile.MANIFEST_NAME));
+	}
+
+	/**
+	 * Determines if the jar with the passed entry names is signed. Signed jars are left to the URL walk,
+	 * which verifies the entries and defines their classes with the signers' certificates.
+	 */
+	private static boolean isSigned(final List<String> names) {
+		for(String name: names) {
+			if(!name.regionMatches(true, 0, "META-INF/", 0, 9) || name.indexOf('/', 9)!=-1) continue;
+			final String upper = name.toUpperCase();
+			if(upper.endsWith(".SF") || upper.endsWith(".DSA") || upper.endsWith(".RSA") || upper.endsWith(".EC") || upper.startsWith("META-INF/SIG-")) return true;
+		}
+		return false;
+	}
+
+	private static int findEnd(final ByteBuffer buf) {
+		final int limit = buf.capacity();
+		final int min = Math.max(0, limit - 22 - 0xFFFF);
+		for(int pos = limit - 22; pos >= min; pos--) {
+			if(buf.getInt(pos)==0x06054b50) return pos;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the persisted index file for the jar with the passed central directory, or null if persistence is not enabled
+	 */
+	private static File indexFile(final byte[] cen) {
+		final String dir = ConfigurationHelper.getSystemThenEnvProperty(CONFIG_INDEX_DIR, null);
+		if(dir==null || dir.trim().isEmpty()) return null;
+		final CRC32 crc = new CRC32();
+		crc.update(cen);
+		return new File(dir.trim(), Long.toHexString(crc.getValue()) + "-" + cen.length + ".idx");
+	}
+
+	private static boolean readIndex(final File f, final List<String> names, final int[] offsets, final int[] csizes, final int[] sizes, final byte[] methods) {
+		DataInputStream dis = null;
+		try {
+			dis = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 65536));
+			if(dis.readInt()!=INDEX_MAGIC) return false;
+			final int entries = dis.readInt();
+			if(entries > offsets.length) return false;
+			for(int i = 0; i < entries; i++) {
+				names.add(dis.readUTF());
+				offsets[i] = dis.readInt();
+				csizes[i] = dis.readInt();
+				sizes[i] = dis.readInt();
+				methods[i] = dis.readByte();
+			}
+			return true;
+		} catch (Exception ex) {
+			log.log(Level.FINE, "Failed to read index [" + f + "]", ex);
+			return false;
+		} finally {
+			if(dis!=null) try { dis.close(); } catch (Exception x) {/* No Op */}
+		}
+	}
+
+	private static void writeIndex(final File f, final List<String> names, final int[] offsets, final int[] csizes, final int[] sizes, final byte[] methods) {
+		final File dir = f.getParentFile();
+		if(!dir.isDirectory() && !dir.mkdirs()) return;
+		DataOutputStream dos = null;
+		File tmp = null;
+		try {
+			// written to a temp file and renamed so a concurrent reader never sees a partial index
+			tmp = File.createTempFile("jarindex", ".tmp", dir);
+			dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 65536));
+			dos.writeInt(INDEX_MAGIC);
+			dos.writeInt(names.size());
+			for(int i = 0; i < names.size(); i++) {
+				dos.writeUTF(names.get(i));
+				dos.writeInt(offsets[i]);
+				dos.writeInt(csizes[i]);
+				dos.writeInt(sizes[i]);
+				dos.writeByte(methods[i]);
+			}
+			dos.close();
+			dos = null;
+			if(!tmp.renameTo(f)) tmp.delete();
+		} catch (Exception ex) {
+			log.log(Level.FINE, "Failed to write index [" + f + "]", ex);
+			if(tmp!=null) tmp.delete();
+		} finally {
+			if(dos!=null) try { dos.close(); } catch (Exception x) {/* No Op */}
+		}
+	}
+
+	private static byte[] readFully(final InputStream is) throws IOException {
+		try {
+			final ByteArrayOutputStream baos = new ByteArrayOutputStream(65536);
+			final byte[] buff = new byte[16384];
+			int bytesRead = 0;
+			while((bytesRead = is.read(buff))!=-1) {
+				baos.write(buff, 0, bytesRead);
+			}
+			return baos.toByteArray();
+		} finally {
+			try { is.close(); } catch (Exception x) {/* No Op */}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.events;
+
+/**
+ * <p>Title: BackpressureMode</p>
+ * <p>Description: Functional enumeration of the ways an asynchronous {@link TriggerPipeline} handles a producer when its ingestion queue is full</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.events.BackpressureMode</code></p>
+ */
+public enum BackpressureMode {
+	/** The producer waits until there is space in the queue */
+	BLOCK,
+	/** The oldest queued event is discarded to make space */
+	DROP_OLDEST,
+	/** An event identical to the last queued, and still pending, event is merged into it. When the queue is full, the oldest event is discarded. */
+	COALESCE;
+	
+	/**
+	 * Decodes the passed name to a BackpressureMode, ignoring case
+	 * @param name The name to decode
+	 * @return the decoded BackpressureMode
+	 */
+	public static BackpressureMode decode(final String name) {
+		if(name==null || name.trim().isEmpty()) throw new IllegalArgumentException("The passed name was null or empty");
+		try {
+			return valueOf(name.trim().toUpperCase());
+		} catch (Exception ex) {
+			throw new IllegalArgumentException("Invalid BackpressureMode [" + name + "]");
+		}
+	}
+}
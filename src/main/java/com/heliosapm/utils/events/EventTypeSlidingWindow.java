@@ -18,8 +18,6 @@ under the License.
  */
 package com.heliosapm.utils.events;
 
-import java.nio.IntBuffer;
-import java.nio.LongBuffer;
 import java.util.Arrays;
 import java.util.Map;
 
@@ -29,7 +27,9 @@ import com.heliosapm.utils.unsafe.UnsafeAdapter;
 
 /**
  * <p>Title: EventTypeSlidingWindow</p>
- * <p>Description: </p> 
+ * <p>Description: A fixed size sliding window of enum events, held in a ring. A running count per event ordinal
+ * makes {@link #insert(Enum, long)} and {@link #cardinality()} O(1). When times are kept and inserted in order,
+ * time bounded cardinalities binary search the time ring and count the shorter side of the split.</p> 
  * <p>Company: Helios Development Group LLC</p>
  * @author Whitehead (nwhitehead AT heliosdev DOT org)
  * <p><code>com.heliosapm.utils.events.EventTypeSlidingWindow</code></p>
@@ -38,49 +38,51 @@ import com.heliosapm.utils.unsafe.UnsafeAdapter;
 public class EventTypeSlidingWindow<E extends Enum<E> & BitMasked> {
 	/** Spin lock around the window */
 	protected final UnsafeAdapter.SpinLock lock = UnsafeAdapter.allocateSpinLock();
-	/** The max position in the series */
-	protected final int maxPos;
-	/** The current position in the series */
-	protected int currentPos = -1;
-	/** Full indicator */
-	protected boolean full = false;
-	/** The series as an int array */	
+	/** The window size */
+	protected final int windowSize;
+	/** The ring index of the oldest event in the series */
+	protected int head = 0;
+	/** The number of events in the series */
+	protected int count = 0;
+	/** The series ring of event ordinals */	
 	protected final int[] series;
-	/** A buffer wrapping the series so we can efficiently compact */
-	protected final IntBuffer buffer;;
+	/** The running count of events in the series by ordinal */
+	protected final int[] counts;
 	/** The decode for the event types */
 	protected final E[] eventTypes;
 	/** The event type */
 	protected final Class<E> eventType;
 	/** Indicates if we're keeping the event times, or discarding them if supplied */
 	protected final boolean keepTimes;
-	/** The optional time series as an long array */	
+	/** The optional time series ring */	
 	protected final long[] times;
-	/** A buffer wrapping the time series so we can efficiently compact */
-	protected final LongBuffer tbuffer;
+	/** Flags the ring slots holding a time earlier than the time of the preceding event */
+	protected final boolean[] inversions;
+	/** The number of flagged inversions in the series. Binary search is only used when this is zero. */
+	protected int inversionCount = 0;
 	
 	/**
 	 * Creates a new EventTypeSlidingWindow
 	 * @param eventType The event type
 	 * @param windowSize The length of the window 
+	 * @param keepTimes true to keep the event times
 	 */
 	public EventTypeSlidingWindow(final Class<E> eventType, final int windowSize, final boolean keepTimes) {
-		maxPos = windowSize -1;		
+		if(windowSize < 1) throw new IllegalArgumentException("Invalid window size [" + windowSize + "]");
+		this.windowSize = windowSize;
 		this.keepTimes = keepTimes;
 		series = new int[windowSize];
 		Arrays.fill(series, -1);
-		buffer = IntBuffer.wrap(series);
 		if(keepTimes) {
 			times = new long[windowSize];
-			tbuffer = LongBuffer.wrap(times);
+			inversions = new boolean[windowSize];
 		} else {
 			times = null;
-			tbuffer = null;
+			inversions = null;
 		}
-		
-		
 		this.eventType = eventType;
 		eventTypes = eventType.getEnumConstants();
+		counts = new int[eventTypes.length];
 	}
 	
 	/**
@@ -93,15 +95,28 @@ public class EventTypeSlidingWindow<E extends Enum<E> & BitMasked> {
 		final int index = event.ordinal();
 		try {
 			lock.xlock(true);
-			if(full) {
-				slide();
+			final int slot;
+			if(count==windowSize) {
+				slot = head;
+				counts[series[slot]]--;
+				head = head + 1 == windowSize ? 0 : head + 1;
+				if(times!=null) {
+					// the evicted event's own inversion, and the new oldest event's inversion against the evicted event, no longer count 
+					if(inversions[slot]) { inversions[slot] = false; inversionCount--; }
+					if(windowSize > 1 && inversions[head]) { inversions[head] = false; inversionCount--; }
+				}
 			} else {
-				currentPos++;
+				slot = ring(count);
+				count++;
 			}
-			series[currentPos] = index;
-			full = currentPos==maxPos;
+			series[slot] = index;
+			counts[index]++;
 			if(times!=null) {
-				times[currentPos] = timestamp;
+				times[slot] = timestamp;
+				if(count > 1 && timestamp < times[ring(count-2)]) {
+					inversions[slot] = true;
+					inversionCount++;
+				}
 			}
 		} finally {
 			lock.xunlock();
@@ -116,14 +131,14 @@ public class EventTypeSlidingWindow<E extends Enum<E> & BitMasked> {
 		insert(event, times==null ? -1L : System.currentTimeMillis());
 	}
 	
-	
-	protected void slide() {
-		buffer.position(1);
-		buffer.compact();	
-		if(tbuffer!=null) {
-			tbuffer.position(1);
-			tbuffer.compact();				
-		}
+	/**
+	 * Returns the ring index of the passed logical position, where zero is the oldest event
+	 * @param pos The logical position
+	 * @return the ring index
+	 */
+	protected final int ring(final int pos) {
+		final int r = head + pos;
+		return r >= windowSize ? r - windowSize : r;
 	}
 	
 	/**
@@ -131,7 +146,24 @@ public class EventTypeSlidingWindow<E extends Enum<E> & BitMasked> {
 	 * @return the number of events currently in the series
 	 */
 	public int size() {
-		return currentPos+1;
+		return count;
+	}
+	
+	/**
+	 * Returns the event ordinals in the series, oldest first
+	 * @return the event ordinals in the series
+	 */
+	public int[] series() {
+		try {
+			lock.xlock();
+			final int[] arr = new int[count];
+			for(int i = 0; i < count; i++) {
+				arr[i] = series[ring(i)];
+			}
+			return arr;
+		} finally {
+			lock.xunlock();
+		}
 	}
 	
 	public int[] cardinality() {
@@ -149,8 +181,8 @@ public class EventTypeSlidingWindow<E extends Enum<E> & BitMasked> {
 	
 	/**
 	 * Returns a cardinality array for this series
-	 * @param the start time
-	 * @param the end time
+	 * @param startTime the start time, or -1 for all events
+	 * @param endTime the end time, or -1 for now
 	 * @return a cardinality array 
 	 */
 	protected int[] cardinality(final long startTime, final long endTime) {
@@ -158,34 +190,49 @@ public class EventTypeSlidingWindow<E extends Enum<E> & BitMasked> {
 		if(timingEnabled && times==null) {
 			throw new IllegalArgumentException("This sliding window is not enabled for event timing");
 		}
-		final int[] cards = new int[eventTypes.length];
-		if(currentPos==-1) return cards;
-		final int[] seriesClone;
-		final long[] timesClone;
-		final int size;
 		try {
 			lock.xlock();
-			seriesClone = series.clone();
-			timesClone =timingEnabled ? this.times.clone() : null;
-			size = size();
-		} finally {
-			lock.xunlock();
-		}
-		if(timingEnabled) {
+			if(!timingEnabled) return counts.clone();
 			final long end = endTime==-1L ? System.currentTimeMillis() : endTime;
-			for(int i = 0; i < size; i++) {
-				long t = timesClone[i];
-				if(t >= startTime && t <= end) {
-					cards[seriesClone[i]]++;
+			final int[] cards = new int[eventTypes.length];
+			if(count==0 || end < startTime) return cards;
+			if(inversionCount!=0) {
+				for(int i = 0; i < count; i++) {
+					final int r = ring(i);
+					final long t = times[r];
+					if(t >= startTime && t <= end) cards[series[r]]++;
 				}
+				return cards;
 			}
-			
-		} else {
-			for(int i = 0; i < size; i++) {
-				cards[seriesClone[i]]++;
-			}			
-		}		
-		return cards;
+			// times are ordered: the matching events are the logical range [from, to)
+			final int from = firstAtOrAfter(startTime);
+			final int to = end==Long.MAX_VALUE ? count : firstAtOrAfter(end + 1);
+			if(to - from <= count - (to - from)) {
+				for(int i = from; i < to; i++) cards[series[ring(i)]]++;
+			} else {
+				System.arraycopy(counts, 0, cards, 0, cards.length);
+				for(int i = 0; i < from; i++) cards[series[ring(i)]]--;
+				for(int i = to; i < count; i++) cards[series[ring(i)]]--;
+			}
+			return cards;
+		} finally {
+			lock.xunlock();
+		}
+	}
+	
+	/**
+	 * Binary searches the ordered time ring for the logical position of the first event at or after the passed time
+	 * @param time The time to search for
+	 * @return the logical position, or the size of the series if all events are earlier
+	 */
+	protected int firstAtOrAfter(final long time) {
+		int lo = 0, hi = count;
+		while(lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if(times[ring(mid)] < time) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
 	}
 	
 	/**
@@ -206,8 +253,27 @@ public class EventTypeSlidingWindow<E extends Enum<E> & BitMasked> {
 			final int index = i%mod;
 			final AlarmState state = states[index];
 			window.insert(states[i%mod]);
-			log("#" + i + ": (" + state + "/" + index + ") " + Arrays.toString(window.series) + "     Map:" + window.cardinalityMap());
+			log("#" + i + ": (" + state + "/" + index + ") " + Arrays.toString(window.series()) + "     Map:" + window.cardinalityMap());
+		}
+		log("Benchmark (times kept, ns/op)");
+		long sink = 0;
+		for(int pass = 0; pass < 2; pass++) {
+			for(int size = 16; size <= 4096; size *= 4) {
+				final EventTypeSlidingWindow<AlarmState> w = new EventTypeSlidingWindow<AlarmState>(AlarmState.class, size, true);
+				final int inserts = 2000000, reads = 200000;
+				long start = System.nanoTime();
+				for(int i = 0; i < inserts; i++) w.insert(states[i%mod], i);
+				final long insertNs = (System.nanoTime() - start) / inserts;
+				start = System.nanoTime();
+				for(int i = 0; i < reads; i++) sink += w.cardinality()[0];
+				final long cardNs = (System.nanoTime() - start) / reads;
+				start = System.nanoTime();
+				for(int i = 0; i < reads; i++) sink += w.cardinalitySince(inserts - size/2)[0];
+				final long sinceNs = (System.nanoTime() - start) / reads;
+				if(pass==1) log(String.format("Size: %5d, insert: %5d, cardinality: %5d, cardinalitySince: %5d", size, insertNs, cardNs, sinceNs));
+			}
 		}
+		log("Sink:" + sink);
 	}
 	
 	public static void log(Object msg) {
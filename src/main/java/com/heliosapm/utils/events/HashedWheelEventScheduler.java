@@ -0,0 +1,610 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.events;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.ObjectName;
+
+import com.heliosapm.utils.config.ConfigurationHelper;
+import com.heliosapm.utils.jmx.JMXHelper;
+import com.heliosapm.utils.jmx.JMXManagedScheduler;
+import com.heliosapm.utils.jmx.JMXManagedThreadPool;
+import com.heliosapm.utils.unsafe.UnsafeAdapter;
+
+import jsr166e.LongAdder;
+
+/**
+ * <p>Title: HashedWheelEventScheduler</p>
+ * <p>Description: A hashed timing wheel {@link EventScheduler}. Scheduling and cancelling are O(1) and a
+ * {@link #reschedule(ScheduledFuture, long, TimeUnit)} to a later time just moves the timeout's deadline in place;
+ * the wheel thread re-buckets it when its old bucket comes round. Timeouts fire within one tick of their deadline.</p>
+ * <p>Select it as the event scheduler by setting {@link EventScheduler#PROP_PREFERRED_SCHEDULER} to this class name.
+ * The tick duration in ms and the number of buckets are configured with {@link #CONFIG_TICK} and {@link #CONFIG_WHEEL_SIZE}.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.events.HashedWheelEventScheduler</code></p>
+ */
+
+public class HashedWheelEventScheduler implements ReschedulingEventScheduler, HashedWheelEventSchedulerMBean, Runnable {
+	/** The configuration property for the tick duration in ms */
+	public static final String CONFIG_TICK = "heliosutils.events.wheel.tick";
+	/** The default tick duration in ms */
+	public static final int DEFAULT_TICK = 100;
+	/** The configuration property for the number of buckets in the wheel, rounded up to a power of 2 */
+	public static final String CONFIG_WHEEL_SIZE = "heliosutils.events.wheel.size";
+	/** The default number of buckets in the wheel */
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+	/** The maximum number of new timeouts moved into the wheel per tick */
+	private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+	/** The deadline of a cancelled timeout */
+	private static final long CANCELLED = -1L;
+	/** The deadline of an expired timeout */
+	private static final long EXPIRED = -2L;
+
+	/** Instance logger */
+	protected final Logger log = Logger.getLogger(getClass().getName());
+	/** The scheduler's JMX ObjectName */
+	protected final ObjectName objectName = JMXHelper.objectName(getClass());
+	/** The tick duration in nanos */
+	protected final long tickNanos;
+	/** The wheel size mask */
+	protected final int mask;
+	/** The head of each bucket's timeout list. Only accessed by the wheel thread. */
+	protected final Timeout[] wheel;
+	/** The number of timeouts in each bucket */
+	protected final int[] occupancy;
+	/** The nano time the wheel started at. Deadlines are nanos since this time. */
+	protected final long startNanos = System.nanoTime();
+	/** The current tick. Only accessed by the wheel thread. */
+	protected long tick = 0;
+	/** Timeouts scheduled but not yet moved into the wheel */
+	protected final ConcurrentLinkedQueue<Timeout> newTimeouts = new ConcurrentLinkedQueue<Timeout>();
+	/** The executor the expired tasks are run in */
+	protected final JMXManagedThreadPool executor;
+	/** The wheel thread */
+	protected final Thread wheelThread;
+	/** The running flag */
+	protected final AtomicBoolean running = new AtomicBoolean(true);
+
+	/** The number of timeouts in the wheel */
+	protected volatile int inWheel = 0;
+	/** The number of timeouts not yet moved into the wheel */
+	protected final LongAdder queued = new LongAdder();
+	/** The last tick lag in nanos */
+	protected volatile long lastTickLag = 0;
+	/** The max tick lag in nanos */
+	protected volatile long maxTickLag = 0;
+	/** The scheduled task count */
+	protected final LongAdder scheduled = new LongAdder();
+	/** The re-armed task count */
+	protected final LongAdder rearmed = new LongAdder();
+	/** The expired task count */
+	protected final LongAdder expired = new LongAdder();
+	/** The cancelled task count */
+	protected final LongAdder cancelled = new LongAdder();
+
+	/**
+	 * Creates a new HashedWheelEventScheduler using the configured tick duration and wheel size
+	 */
+	public HashedWheelEventScheduler() {
+		this(ConfigurationHelper.getIntSystemThenEnvProperty(CONFIG_TICK, DEFAULT_TICK), TimeUnit.MILLISECONDS,
+			ConfigurationHelper.getIntSystemThenEnvProperty(CONFIG_WHEEL_SIZE, DEFAULT_WHEEL_SIZE));
+	}
+
+	/**
+	 * Creates a new HashedWheelEventScheduler
+	 * @param tickDuration The tick duration, which is the resolution of the scheduler
+	 * @param unit The unit of the tick duration
+	 * @param wheelSize The number of buckets in the wheel, rounded up to a power of 2
+	 */
+	public HashedWheelEventScheduler(final long tickDuration, final TimeUnit unit, final int wheelSize) {
+		if(tickDuration < 1) throw new IllegalArgumentException("Invalid tick duration [" + tickDuration + "]");
+		if(wheelSize < 1) throw new IllegalArgumentException("Invalid wheel size [" + wheelSize + "]");
+		tickNanos = unit.toNanos(tickDuration);
+		final int size = UnsafeAdapter.findNextPositivePowerOfTwo(wheelSize);
+		mask = size - 1;
+		wheel = new Timeout[size];
+		occupancy = new int[size];
+		final int cores = ManagementFactory.getOperatingSystemMXBean().getAvailableProcessors();
+		final ObjectName executorObjectName = JMXHelper.objectName(objectName.toString() + ",type=Executor");
+		if(JMXHelper.isRegistered(executorObjectName)) {
+			try { JMXHelper.unregisterMBean(executorObjectName); } catch (Exception x) {/* No Op */}
+		}
+		executor = new JMXManagedThreadPool(executorObjectName, "WheelEventScheduler", cores, cores, 10000, 60000, 128, 99, true);
+		wheelThread = new Thread(this, "HashedWheelEventScheduler");
+		wheelThread.setDaemon(true);
+		wheelThread.start();
+		if(JMXHelper.isRegistered(objectName)) {
+			try { JMXHelper.unregisterMBean(objectName); } catch (Exception x) {/* No Op */}
+		}
+		JMXHelper.registerMBean(this, objectName);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.EventScheduler#schedule(java.lang.Runnable, long, java.util.concurrent.TimeUnit)
+	 */
+	@Override
+	public ScheduledFuture<?> schedule(final Runnable task, final long delay, final TimeUnit unit) {
+		if(task==null) throw new IllegalArgumentException("The passed task was null");
+		if(!running.get()) throw new RejectedExecutionException("The scheduler is stopped");
+		final Timeout t = new Timeout(task, deadline(delay, unit));
+		queued.increment();
+		newTimeouts.add(t);
+		scheduled.increment();
+		return t;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.EventScheduler#schedule(java.lang.Runnable, long)
+	 */
+	@Override
+	public ScheduledFuture<?> schedule(final Runnable task, final long delaySecs) {
+		return schedule(task, delaySecs, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.ReschedulingEventScheduler#reschedule(java.util.concurrent.ScheduledFuture, long, java.util.concurrent.TimeUnit)
+	 */
+	@Override
+	public ScheduledFuture<?> reschedule(final ScheduledFuture<?> handle, final long delay, final TimeUnit unit) {
+		if(handle instanceof Timeout && ((Timeout)handle).scheduler()==this) {
+			final Timeout t = (Timeout)handle;
+			final long newDeadline = deadline(delay, unit);
+			for(;;) {
+				final long d = t.deadline;
+				// gone, or earlier than its bucket: schedule anew
+				if(d < 0 || newDeadline < d) break;
+				if(DEADLINE.compareAndSet(t, d, newDeadline)) {
+					rearmed.increment();
+					return t;
+				}
+			}
+			t.cancel(false);
+			return schedule(t.task, delay, unit);
+		}
+		if(handle!=null) handle.cancel(false);
+		throw new IllegalArgumentException("The passed handle was not issued by this scheduler");
+	}
+
+	private long deadline(final long delay, final TimeUnit unit) {
+		return System.nanoTime() - startNanos + Math.max(0L, unit.toNanos(delay));
+	}
+
+	/**
+	 * Stops the scheduler. Pending tasks are discarded.
+	 */
+	public void shutdown() {
+		if(running.compareAndSet(true, false)) {
+			wheelThread.interrupt();
+			executor.shutdown();
+			try { JMXHelper.unregisterMBean(objectName); } catch (Exception x) {/* No Op */}
+		}
+	}
+
+	/**
+	 * The wheel thread's tick loop
+	 */
+	@Override
+	public void run() {
+		while(running.get()) {
+			final long tickEnd = (tick + 1) * tickNanos;
+			long now = System.nanoTime() - startNanos;
+			while(now < tickEnd) {
+				final long sleepNanos = tickEnd - now;
+				try {
+					Thread.sleep(sleepNanos / 1000000L, (int)(sleepNanos % 1000000L));
+				} catch (InterruptedException iex) {
+					if(!running.get()) return;
+				}
+				now = System.nanoTime() - startNanos;
+			}
+			final long lag = now - tickEnd;
+			lastTickLag = lag;
+			if(lag > maxTickLag) maxTickLag = lag;
+			try {
+				transfer();
+				expire((int)(tick & mask), tickEnd);
+			} catch (Throwable t) {
+				log.log(Level.WARNING, "Wheel tick failed", t);
+			}
+			tick++;
+		}
+	}
+
+	/**
+	 * Moves newly scheduled timeouts into the wheel
+	 */
+	private void transfer() {
+		for(int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+			final Timeout t = newTimeouts.poll();
+			if(t==null) break;
+			queued.decrement();
+			if(t.deadline >= 0) place(t, t.deadline);
+		}
+	}
+
+	/**
+	 * Links a timeout into the bucket for the passed deadline
+	 * @param t The timeout
+	 * @param d The deadline
+	 */
+	private void place(final Timeout t, final long d) {
+		// tick k expires deadlines up to (k+1) * tickNanos
+		final long target = Math.max(d==0 ? 0 : (d - 1) / tickNanos, tick);
+		final int idx = (int)(target & mask);
+		t.bucket = idx;
+		t.prev = null;
+		t.next = wheel[idx];
+		if(t.next!=null) t.next.prev = t;
+		wheel[idx] = t;
+		occupancy[idx]++;
+		inWheel++;
+	}
+
+	/**
+	 * Unlinks a timeout from its bucket
+	 * @param t The timeout
+	 */
+	private void unlink(final Timeout t) {
+		final int idx = t.bucket;
+		if(t.prev!=null) t.prev.next = t.next;
+		else wheel[idx] = t.next;
+		if(t.next!=null) t.next.prev = t.prev;
+		t.prev = null;
+		t.next = null;
+		t.bucket = -1;
+		occupancy[idx]--;
+		inWheel--;
+	}
+
+	/**
+	 * Expires the due timeouts in the passed bucket, drops cancelled ones and re-buckets re-armed ones
+	 * @param idx The bucket index
+	 * @param tickEnd The end time of the current tick
+	 */
+	private void expire(final int idx, final long tickEnd) {
+		Timeout t = wheel[idx];
+		while(t!=null) {
+			final Timeout next = t.next;
+			for(;;) {
+				final long d = t.deadline;
+				if(d < 0) {
+					unlink(t);
+				} else if(d <= tickEnd) {
+					if(!DEADLINE.compareAndSet(t, d, EXPIRED)) {
+						// re-armed or cancelled concurrently: re-read the deadline
+						continue;
+					}
+					unlink(t);
+					expired.increment();
+					try {
+						executor.execute(t);
+					} catch (RejectedExecutionException rex) {
+						t.run();
+					}
+				} else {
+					final long target = (d - 1) / tickNanos;
+					if((target & mask)!=idx) {
+						// re-armed: move to the bucket for the new deadline
+						unlink(t);
+						place(t, d);
+					}
+					// otherwise a later round of this bucket
+				}
+				break;
+			}
+			t = next;
+		}
+	}
+
+	/** The deadline updater */
+	private static final AtomicLongFieldUpdater<Timeout> DEADLINE = AtomicLongFieldUpdater.newUpdater(Timeout.class, "deadline");
+
+	/**
+	 * <p>Title: Timeout</p>
+	 * <p>Description: A task scheduled in the wheel. The deadline holds the state: a cancelled or expired timeout has a negative deadline.</p>
+	 */
+	private final class Timeout implements ScheduledFuture<Object>, Runnable {
+		/** The task to run */
+		final Runnable task;
+		/** The deadline in nanos since the wheel start, or {@link HashedWheelEventScheduler#CANCELLED} or {@link HashedWheelEventScheduler#EXPIRED} */
+		volatile long deadline;
+		/** The bucket the timeout is linked in, or -1. Only accessed by the wheel thread. */
+		int bucket = -1;
+		/** The previous timeout in the bucket */
+		Timeout prev;
+		/** The next timeout in the bucket */
+		Timeout next;
+		/** Set when the task has run */
+		private boolean done = false;
+		/** The task's exception */
+		private Throwable failure = null;
+
+		Timeout(final Runnable task, final long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		HashedWheelEventScheduler scheduler() {
+			return HashedWheelEventScheduler.this;
+		}
+
+		@Override
+		public void run() {
+			Throwable thrown = null;
+			try {
+				task.run();
+			} catch (Throwable t) {
+				thrown = t;
+				log.log(Level.WARNING, "Scheduled task failed", t);
+			}
+			synchronized(this) {
+				failure = thrown;
+				done = true;
+				notifyAll();
+			}
+		}
+
+		@Override
+		public long getDelay(final TimeUnit unit) {
+			final long d = deadline;
+			if(d < 0) return 0;
+			return unit.convert(d - (System.nanoTime() - startNanos), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(final Delayed o) {
+			if(o==this) return 0;
+			final long diff = getDelay(TimeUnit.NANOSECONDS) - o.getDelay(TimeUnit.NANOSECONDS);
+			return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+		}
+
+		@Override
+		public boolean cancel(final boolean mayInterruptIfRunning) {
+			for(;;) {
+				final long d = deadline;
+				if(d < 0) return false;
+				if(DEADLINE.compareAndSet(this, d, CANCELLED)) {
+					cancelled.increment();
+					synchronized(this) {
+						notifyAll();
+					}
+					return true;
+				}
+			}
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return deadline==CANCELLED;
+		}
+
+		@Override
+		public boolean isDone() {
+			return deadline < 0;
+		}
+
+		@Override
+		public synchronized Object get() throws InterruptedException, ExecutionException {
+			while(!done) {
+				if(isCancelled()) throw new CancellationException();
+				wait();
+			}
+			if(failure!=null) throw new ExecutionException(failure);
+			return null;
+		}
+
+		@Override
+		public synchronized Object get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			final long end = System.nanoTime() + unit.toNanos(timeout);
+			while(!done) {
+				if(isCancelled()) throw new CancellationException();
+				final long wait = end - System.nanoTime();
+				if(wait <= 0) throw new TimeoutException();
+				TimeUnit.NANOSECONDS.timedWait(this, wait);
+			}
+			if(failure!=null) throw new ExecutionException(failure);
+			return null;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.HashedWheelEventSchedulerMBean#getTickDuration()
+	 */
+	@Override
+	public long getTickDuration() {
+		return TimeUnit.NANOSECONDS.toMillis(tickNanos);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.HashedWheelEventSchedulerMBean#getWheelSize()
+	 */
+	@Override
+	public int getWheelSize() {
+		return wheel.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.HashedWheelEventSchedulerMBean#getPendingCount()
+	 */
+	@Override
+	public long getPendingCount() {
+		return inWheel + queued.longValue();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.HashedWheelEventSchedulerMBean#getBucketOccupancy()
+	 */
+	@Override
+	public int[] getBucketOccupancy() {
+		return occupancy.clone();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.HashedWheelEventSchedulerMBean#getMaxBucketOccupancy()
+	 */
+	@Override
+	public int getMaxBucketOccupancy() {
+		int max = 0;
+		for(int i = 0; i < occupancy.length; i++) {
+			if(occupancy[i] > max) max = occupancy[i];
+		}
+		return max;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.HashedWheelEventSchedulerMBean#getTickLag()
+	 */
+	@Override
+	public long getTickLag() {
+		return TimeUnit.NANOSECONDS.toMicros(lastTickLag);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.HashedWheelEventSchedulerMBean#getMaxTickLag()
+	 */
+	@Override
+	public long getMaxTickLag() {
+		return TimeUnit.NANOSECONDS.toMicros(maxTickLag);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.HashedWheelEventSchedulerMBean#getScheduledCount()
+	 */
+	@Override
+	public long getScheduledCount() {
+		return scheduled.longValue();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.HashedWheelEventSchedulerMBean#getRearmCount()
+	 */
+	@Override
+	public long getRearmCount() {
+		return rearmed.longValue();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.HashedWheelEventSchedulerMBean#getExpiredCount()
+	 */
+	@Override
+	public long getExpiredCount() {
+		return expired.longValue();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.HashedWheelEventSchedulerMBean#getCancelledCount()
+	 */
+	@Override
+	public long getCancelledCount() {
+		return cancelled.longValue();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.HashedWheelEventSchedulerMBean#resetStats()
+	 */
+	@Override
+	public void resetStats() {
+		maxTickLag = 0;
+		scheduled.reset();
+		rearmed.reset();
+		expired.reset();
+		cancelled.reset();
+	}
+
+	/**
+	 * Benchmarks re-arming a population of decay timers on the wheel against cancel and reschedule on a {@link JMXManagedScheduler}
+	 * @param args Optional timer count, default 50,000
+	 */
+	public static void main(final String[] args) {
+		final int timers = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+		final int rounds = 20;
+		final Runnable noop = new Runnable() { public void run() { /* No Op */ } };
+		final long threadId = Thread.currentThread().getId();
+		final HashedWheelEventScheduler wheel = new HashedWheelEventScheduler();
+		final JMXManagedScheduler stpe = new JMXManagedScheduler(JMXHelper.objectName("com.heliosapm.utils.events:service=BenchScheduler"), "BenchScheduler", 2, false);
+		for(int pass = 0; pass < 2; pass++) {
+			final ScheduledFuture<?>[] wh = new ScheduledFuture<?>[timers];
+			final ScheduledFuture<?>[] sh = new ScheduledFuture<?>[timers];
+			for(int i = 0; i < timers; i++) {
+				wh[i] = wheel.schedule(noop, 60, TimeUnit.SECONDS);
+				sh[i] = stpe.schedule(noop, 60, TimeUnit.SECONDS);
+			}
+			long bytes = JMXHelper.getThreadAllocatedBytes(threadId);
+			long start = System.nanoTime();
+			for(int r = 0; r < rounds; r++) {
+				for(int i = 0; i < timers; i++) {
+					sh[i].cancel(true);
+					sh[i] = stpe.schedule(noop, 60, TimeUnit.SECONDS);
+				}
+			}
+			final long stpeNs = (System.nanoTime() - start) / (timers * rounds);
+			final long stpeBytes = (JMXHelper.getThreadAllocatedBytes(threadId) - bytes) / (timers * rounds);
+			bytes = JMXHelper.getThreadAllocatedBytes(threadId);
+			start = System.nanoTime();
+			for(int r = 0; r < rounds; r++) {
+				for(int i = 0; i < timers; i++) {
+					wh[i] = wheel.reschedule(wh[i], 60, TimeUnit.SECONDS);
+				}
+			}
+			final long wheelNs = (System.nanoTime() - start) / (timers * rounds);
+			final long wheelBytes = (JMXHelper.getThreadAllocatedBytes(threadId) - bytes) / (timers * rounds);
+			if(pass==1) {
+				System.out.println(String.format("Timers: %d, ScheduledThreadPoolExecutor cancel+schedule: %d ns, %d bytes/op, queue: %d", timers, stpeNs, stpeBytes, stpe.getQueue().size()));
+				System.out.println(String.format("Timers: %d, HashedWheel reschedule:                    %d ns, %d bytes/op, pending: %d", timers, wheelNs, wheelBytes, wheel.getPendingCount()));
+			}
+			for(int i = 0; i < timers; i++) {
+				wh[i].cancel(false);
+				sh[i].cancel(false);
+			}
+			stpe.purge();
+		}
+		stpe.shutdownNow();
+		wheel.shutdown();
+	}
+}
@@ -0,0 +1,99 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.events;
+
+/**
+ * <p>Title: HashedWheelEventSchedulerMBean</p>
+ * <p>Description: JMX interface for {@link HashedWheelEventScheduler}</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.events.HashedWheelEventSchedulerMBean</code></p>
+ */
+public interface HashedWheelEventSchedulerMBean {
+	/**
+	 * Returns the tick duration in ms
+	 * @return the tick duration in ms
+	 */
+	public long getTickDuration();
+	
+	/**
+	 * Returns the number of buckets in the wheel
+	 * @return the number of buckets in the wheel
+	 */
+	public int getWheelSize();
+	
+	/**
+	 * Returns the number of timeouts in the wheel or waiting to be added to it
+	 * @return the number of pending timeouts
+	 */
+	public long getPendingCount();
+	
+	/**
+	 * Returns the number of timeouts in each bucket of the wheel
+	 * @return the number of timeouts in each bucket
+	 */
+	public int[] getBucketOccupancy();
+	
+	/**
+	 * Returns the number of timeouts in the fullest bucket of the wheel
+	 * @return the number of timeouts in the fullest bucket
+	 */
+	public int getMaxBucketOccupancy();
+	
+	/**
+	 * Returns the lag of the last tick behind its scheduled time in microseconds
+	 * @return the last tick lag in microseconds
+	 */
+	public long getTickLag();
+	
+	/**
+	 * Returns the highest tick lag since the last reset in microseconds
+	 * @return the highest tick lag in microseconds
+	 */
+	public long getMaxTickLag();
+	
+	/**
+	 * Returns the number of tasks scheduled since the last reset
+	 * @return the number of tasks scheduled
+	 */
+	public long getScheduledCount();
+	
+	/**
+	 * Returns the number of tasks re-armed in place since the last reset
+	 * @return the number of tasks re-armed
+	 */
+	public long getRearmCount();
+	
+	/**
+	 * Returns the number of tasks run since the last reset
+	 * @return the number of tasks run
+	 */
+	public long getExpiredCount();
+	
+	/**
+	 * Returns the number of tasks cancelled since the last reset
+	 * @return the number of tasks cancelled
+	 */
+	public long getCancelledCount();
+	
+	/**
+	 * Resets the counters and the max tick lag
+	 */
+	public void resetStats();
+}
@@ -0,0 +1,281 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.events;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.heliosapm.utils.unsafe.UnsafeAdapter;
+
+import jsr166e.LongAdder;
+
+/**
+ * <p>Title: PipelineIngestQueue</p>
+ * <p>Description: A bounded ring in front of a {@link TriggerPipeline}'s starter trigger. Producers enqueue without
+ * running the pipeline and a single drain task, submitted to the pipeline executor when the ring becomes non-empty,
+ * feeds the queued events to the starter in batches and in order.</p>
+ * <p>The ring is a bounded array queue with a sequence per slot, so producers never lock. It allows multiple
+ * consumers so a producer can discard the oldest event under {@link BackpressureMode#DROP_OLDEST}.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.events.PipelineIngestQueue</code></p>
+ * @param <E> The pipeline entry type
+ */
+
+class PipelineIngestQueue<E> implements Runnable {
+	/** The slot sequences */
+	private final AtomicLongArray sequences;
+	/** The queued events */
+	private final Object[] events;
+	/** The nano time each event was enqueued */
+	private final long[] enqueueTimes;
+	/** The ring mask */
+	private final int mask;
+	/** The next enqueue position */
+	private final AtomicLong enqueuePos = new AtomicLong(0);
+	/** The next dequeue position */
+	private final AtomicLong dequeuePos = new AtomicLong(0);
+	/** Indicates a drain task is scheduled or running */
+	private final AtomicBoolean draining = new AtomicBoolean(false);
+
+	/** The starter trigger events are fed to */
+	private final Trigger<?, E> starter;
+	/** The executor the drain task runs in */
+	private final ExecutorService executor;
+	/** The backpressure mode */
+	final BackpressureMode mode;
+	/** The maximum number of events fed per drain task run */
+	final int batchSize;
+	/** Instance logger */
+	private final Logger log;
+
+	/** The number of events enqueued */
+	final LongAdder ingested = new LongAdder();
+	/** The number of events dropped */
+	final LongAdder drops = new LongAdder();
+	/** The number of events coalesced */
+	final LongAdder coalesced = new LongAdder();
+	/** The number of times a producer had to wait for space */
+	final LongAdder blocks = new LongAdder();
+	/** The number of events delivered */
+	final LongAdder delivered = new LongAdder();
+	/** The total end to end latency of delivered events in nanos */
+	final LongAdder totalLatency = new LongAdder();
+	/** The max end to end latency in nanos */
+	volatile long maxLatency = 0L;
+
+	/**
+	 * Creates a new PipelineIngestQueue
+	 * @param starter The starter trigger events are fed to
+	 * @param executor The executor the drain task runs in
+	 * @param capacity The ring capacity, rounded up to a power of 2
+	 * @param mode The backpressure mode
+	 * @param batchSize The maximum number of events fed per drain task run
+	 * @param log The pipeline's logger
+	 */
+	PipelineIngestQueue(final Trigger<?, E> starter, final ExecutorService executor, final int capacity, final BackpressureMode mode, final int batchSize, final Logger log) {
+		if(capacity < 2) throw new IllegalArgumentException("Invalid capacity [" + capacity + "]");
+		if(batchSize < 1) throw new IllegalArgumentException("Invalid batch size [" + batchSize + "]");
+		if(mode==null) throw new IllegalArgumentException("The passed backpressure mode was null");
+		final int size = UnsafeAdapter.findNextPositivePowerOfTwo(capacity);
+		mask = size - 1;
+		sequences = new AtomicLongArray(size);
+		for(int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+		events = new Object[size];
+		enqueueTimes = new long[size];
+		this.starter = starter;
+		this.executor = executor;
+		this.mode = mode;
+		this.batchSize = batchSize;
+		this.log = log;
+	}
+
+	/**
+	 * Enqueues an event, applying the backpressure mode if the ring is full, and schedules a drain if none is pending
+	 * @param e The event
+	 */
+	void ingest(final E e) {
+		final long now = System.nanoTime();
+		if(mode==BackpressureMode.COALESCE && isQueuedTail(e)) {
+			coalesced.increment();
+			return;
+		}
+		if(!offer(e, now)) {
+			if(mode==BackpressureMode.BLOCK) {
+				blocks.increment();
+				scheduleDrain();
+				while(!offer(e, now)) {
+					LockSupport.parkNanos(10000L);
+				}
+			} else {
+				do {
+					if(poll(null)!=null) drops.increment();
+				} while(!offer(e, now));
+			}
+		}
+		ingested.increment();
+		scheduleDrain();
+	}
+
+	private boolean offer(final Object e, final long now) {
+		long pos = enqueuePos.get();
+		for(;;) {
+			final int idx = (int)(pos & mask);
+			final long dif = sequences.get(idx) - pos;
+			if(dif==0) {
+				if(enqueuePos.compareAndSet(pos, pos + 1)) {
+					events[idx] = e;
+					enqueueTimes[idx] = now;
+					sequences.set(idx, pos + 1);
+					return true;
+				}
+				pos = enqueuePos.get();
+			} else if(dif < 0) {
+				return false;
+			} else {
+				pos = enqueuePos.get();
+			}
+		}
+	}
+
+	/**
+	 * Determines if the passed event is the last enqueued event and is not yet delivered.
+	 * The event is read from the tail slot between two reads of the slot's sequence, so it is
+	 * the event published at the tail position, and the tail is re-read to check no event was enqueued after it.
+	 * @param e The event
+	 * @return true if the event is queued at the tail
+	 */
+	private boolean isQueuedTail(final Object e) {
+		final long tail = enqueuePos.get() - 1;
+		if(tail < 0 || dequeuePos.get() > tail) return false;
+		final int idx = (int)(tail & mask);
+		if(sequences.get(idx)!=tail + 1) return false;
+		final boolean same = events[idx]==e;
+		return same && sequences.get(idx)==tail + 1 && enqueuePos.get()==tail + 1;
+	}
+
+	/** The enqueue time of the event last polled by the drain task */
+	private final long[] polledTime = new long[1];
+
+	@SuppressWarnings("unchecked")
+	private E poll(final long[] enqueueTime) {
+		long pos = dequeuePos.get();
+		for(;;) {
+			final int idx = (int)(pos & mask);
+			final long dif = sequences.get(idx) - (pos + 1);
+			if(dif==0) {
+				if(dequeuePos.compareAndSet(pos, pos + 1)) {
+					final E e = (E)events[idx];
+					if(enqueueTime!=null) enqueueTime[0] = enqueueTimes[idx];
+					events[idx] = null;
+					sequences.set(idx, pos + mask + 1);
+					return e;
+				}
+				pos = dequeuePos.get();
+			} else if(dif < 0) {
+				return null;
+			} else {
+				pos = dequeuePos.get();
+			}
+		}
+	}
+
+	private void scheduleDrain() {
+		if(draining.compareAndSet(false, true)) {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException rex) {
+				// the executor is saturated: drain on the producer's thread
+				run();
+			}
+		}
+	}
+
+	/**
+	 * The drain task. Feeds up to a batch of events to the starter trigger then resubmits itself if more events are queued.
+	 */
+	@Override
+	public void run() {
+		try {
+			for(int i = 0; i < batchSize; i++) {
+				final E e = poll(polledTime);
+				if(e==null) break;
+				final long enqueued = polledTime[0];
+				try {
+					starter.in(e);
+				} catch (Exception ex) {
+					log.log(Level.WARNING, "Pipeline starter failed on event [" + e + "]", ex);
+				}
+				final long latency = System.nanoTime() - enqueued;
+				delivered.increment();
+				totalLatency.add(latency);
+				if(latency > maxLatency) maxLatency = latency;
+			}
+		} finally {
+			draining.set(false);
+		}
+		if(depth() > 0) scheduleDrain();
+	}
+
+	/**
+	 * Returns the number of queued events
+	 * @return the number of queued events
+	 */
+	long depth() {
+		return Math.max(0L, enqueuePos.get() - dequeuePos.get());
+	}
+
+	/**
+	 * Returns the ring capacity
+	 * @return the ring capacity
+	 */
+	int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Returns the average end to end latency in microseconds
+	 * @return the average end to end latency
+	 */
+	long averageLatencyMicros() {
+		final long count = delivered.longValue();
+		return count==0 ? 0L : totalLatency.longValue() / count / 1000L;
+	}
+
+	/**
+	 * Resets the counters
+	 */
+	void reset() {
+		ingested.reset();
+		drops.reset();
+		coalesced.reset();
+		blocks.reset();
+		delivered.reset();
+		totalLatency.reset();
+		maxLatency = 0L;
+	}
+}
@@ -0,0 +1,44 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.events;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Title: ReschedulingEventScheduler</p>
+ * <p>Description: An {@link EventScheduler} that can re-arm a scheduled task in place rather than cancelling it and scheduling a new one</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.events.ReschedulingEventScheduler</code></p>
+ */
+public interface ReschedulingEventScheduler extends EventScheduler {
+	/**
+	 * Re-arms a scheduled task to run after the passed delay from now.
+	 * If the handle has already run or was cancelled, the task is scheduled anew.
+	 * A handle not issued by this scheduler does not expose its task, so it cannot be re-armed: it is cancelled
+	 * and an {@link IllegalArgumentException} is thrown.
+	 * @param handle The handle returned when the task was scheduled
+	 * @param delay The delay from now
+	 * @param unit The unit of the delay
+	 * @return the handle for the re-armed task, which is the passed handle if it was re-armed in place
+	 * @throws IllegalArgumentException thrown if the handle was not issued by this scheduler
+	 */
+	public ScheduledFuture<?> reschedule(ScheduledFuture<?> handle, long delay, TimeUnit unit);
+}
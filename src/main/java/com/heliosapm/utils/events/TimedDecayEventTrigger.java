@@ -193,6 +193,10 @@ public class TimedDecayEventTrigger<E extends Enum<E> & BitMasked> implements De
 
 	@Override
 	public void reset() {
+		if(handle!=null && scheduler instanceof ReschedulingEventScheduler) {
+			handle = ((ReschedulingEventScheduler)scheduler).reschedule(handle, period, unit);
+			return;
+		}
 		if(handle!=null) {
 			handle.cancel(true);
 			//System.out.println("Cancelled Decay Timer. Rescheduling for [" + period + ":" + unit + "]");
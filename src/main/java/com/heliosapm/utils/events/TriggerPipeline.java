@@ -91,6 +91,8 @@ public class TriggerPipeline<R, E> implements PipelineContext, NotificationEmitt
 	protected final AtomicInteger functionIdSerial = new AtomicInteger(0);
 	/** Map iof registered {@link EventNotificationEnricher}s keyed by the assigned function id */
 	protected final Map<Integer, EventNotificationEnricher> enrichers = new ConcurrentSkipListMap<Integer, EventNotificationEnricher>();
+	/** The asynchronous ingestion queue, null when events are fed to the starter on the caller's thread */
+	protected volatile PipelineIngestQueue<E> ingestQueue = null;
 	
 	
 	/** Instance logger */
@@ -103,6 +105,8 @@ public class TriggerPipeline<R, E> implements PipelineContext, NotificationEmitt
 	public static final String NOTIF_STOPPED = NOTIF_PREFIX + ".stopped";
 	/** The JMX notification type for a pipeline advisory message */
 	public static final String NOTIF_ADVISORY = NOTIF_PREFIX + ".advisory";
+	/** The default maximum number of events fed to the starter per asynchronous drain */
+	public static final int DEFAULT_INGEST_BATCH = 64;
 	
 	
 	private static final MBeanNotificationInfo[] NOTIF_INFOS = new MBeanNotificationInfo[]{
@@ -261,8 +265,144 @@ public class TriggerPipeline<R, E> implements PipelineContext, NotificationEmitt
 		if(log.isLoggable(Level.FINE)) log.log(Level.FINE, "Event Sunk by [" + triggerId + "] --> [" + event + "]");		
 	}
 	
+	/**
+	 * Submits an event to the pipeline. If asynchronous ingestion is enabled the event is queued
+	 * and fed to the starter trigger on the pipeline executor, otherwise it is fed on the caller's thread.
+	 * @param e The event
+	 */
 	public void in(final E e) {
-		starter.in(e);
+		final PipelineIngestQueue<E> q = ingestQueue;
+		if(q!=null) {
+			q.ingest(e);
+		} else {
+			starter.in(e);
+		}
+	}
+	
+	/**
+	 * Enables asynchronous ingestion, putting a bounded queue in front of the starter trigger which is drained in batches on the pipeline executor
+	 * @param capacity The queue capacity, rounded up to a power of 2
+	 * @param mode The backpressure mode applied when the queue is full
+	 * @param batchSize The maximum number of events fed to the starter per drain
+	 */
+	public void enableAsyncIngestion(final int capacity, final BackpressureMode mode, final int batchSize) {
+		ingestQueue = new PipelineIngestQueue<E>(starter, pipelineExecutor, capacity, mode, batchSize, log);
+	}
+	
+	/**
+	 * Disables asynchronous ingestion. Events already queued are still delivered.
+	 */
+	public void disableAsyncIngestion() {
+		ingestQueue = null;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.TriggerPipelineMBean#isAsyncIngestion()
+	 */
+	@Override
+	public boolean isAsyncIngestion() {
+		return ingestQueue!=null;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.TriggerPipelineMBean#getBackpressureMode()
+	 */
+	@Override
+	public String getBackpressureMode() {
+		final PipelineIngestQueue<E> q = ingestQueue;
+		return q==null ? null : q.mode.name();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.TriggerPipelineMBean#getIngestQueueDepth()
+	 */
+	@Override
+	public long getIngestQueueDepth() {
+		final PipelineIngestQueue<E> q = ingestQueue;
+		return q==null ? -1L : q.depth();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.TriggerPipelineMBean#getIngestQueueCapacity()
+	 */
+	@Override
+	public int getIngestQueueCapacity() {
+		final PipelineIngestQueue<E> q = ingestQueue;
+		return q==null ? -1 : q.capacity();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.TriggerPipelineMBean#getIngestedCount()
+	 */
+	@Override
+	public long getIngestedCount() {
+		final PipelineIngestQueue<E> q = ingestQueue;
+		return q==null ? 0L : q.ingested.longValue();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.TriggerPipelineMBean#getDropCount()
+	 */
+	@Override
+	public long getDropCount() {
+		final PipelineIngestQueue<E> q = ingestQueue;
+		return q==null ? 0L : q.drops.longValue();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.TriggerPipelineMBean#getCoalescedCount()
+	 */
+	@Override
+	public long getCoalescedCount() {
+		final PipelineIngestQueue<E> q = ingestQueue;
+		return q==null ? 0L : q.coalesced.longValue();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.TriggerPipelineMBean#getBlockedCount()
+	 */
+	@Override
+	public long getBlockedCount() {
+		final PipelineIngestQueue<E> q = ingestQueue;
+		return q==null ? 0L : q.blocks.longValue();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.TriggerPipelineMBean#getAverageIngestLatency()
+	 */
+	@Override
+	public long getAverageIngestLatency() {
+		final PipelineIngestQueue<E> q = ingestQueue;
+		return q==null ? -1L : q.averageLatencyMicros();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.TriggerPipelineMBean#getMaxIngestLatency()
+	 */
+	@Override
+	public long getMaxIngestLatency() {
+		final PipelineIngestQueue<E> q = ingestQueue;
+		return q==null ? -1L : q.maxLatency / 1000L;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.events.TriggerPipelineMBean#resetIngestStats()
+	 */
+	@Override
+	public void resetIngestStats() {
+		final PipelineIngestQueue<E> q = ingestQueue;
+		if(q!=null) q.reset();
 	}
 	
 	@SuppressWarnings("rawtypes")
@@ -56,6 +56,13 @@ public class TriggerPipelineBuilder<R, E> {
 	/** The pipeline's ObjectName */
 	protected final ObjectName objectName;
 	
+	/** The asynchronous ingestion queue capacity, zero for synchronous ingestion */
+	protected int ingestCapacity = 0;
+	/** The asynchronous ingestion backpressure mode */
+	protected BackpressureMode backpressureMode = BackpressureMode.BLOCK;
+	/** The asynchronous ingestion batch size */
+	protected int ingestBatchSize = TriggerPipeline.DEFAULT_INGEST_BATCH;
+	
 	
 	/**
 	 * Creates a new pipeline builder
@@ -85,7 +92,28 @@ public class TriggerPipelineBuilder<R, E> {
 	}
 	
 	public TriggerPipeline<R, E> build() {
-		return new TriggerPipeline<R, E>(objectName, pipeline, threadPool);
+		final TriggerPipeline<R, E> tp = new TriggerPipeline<R, E>(objectName, pipeline, threadPool);
+		if(ingestCapacity > 0) {
+			tp.enableAsyncIngestion(ingestCapacity, backpressureMode, ingestBatchSize);
+		}
+		return tp;
+	}
+	
+	/**
+	 * Configures the pipeline to queue submitted events and feed them to the starter trigger asynchronously on the pipeline executor
+	 * @param capacity The queue capacity, rounded up to a power of 2
+	 * @param mode The backpressure mode applied when the queue is full
+	 * @param batchSize The maximum number of events fed to the starter per drain
+	 * @return this builder
+	 */
+	public TriggerPipelineBuilder<R,E> asyncIngestion(final int capacity, final BackpressureMode mode, final int batchSize) {
+		if(capacity < 2) throw new IllegalArgumentException("Invalid capacity [" + capacity + "]");
+		if(mode==null) throw new IllegalArgumentException("The passed backpressure mode was null");
+		if(batchSize < 1) throw new IllegalArgumentException("Invalid batch size [" + batchSize + "]");
+		this.ingestCapacity = capacity;
+		this.backpressureMode = mode;
+		this.ingestBatchSize = batchSize;
+		return this;
 	}
 	
 	/**
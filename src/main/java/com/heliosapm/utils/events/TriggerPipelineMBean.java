@@ -126,6 +126,71 @@ public interface TriggerPipelineMBean {
 	 */
 	public void forceState(final String state);
 	
+	/**
+	 * Indicates if events are queued and fed to the pipeline asynchronously
+	 * @return true if asynchronous ingestion is enabled
+	 */
+	public boolean isAsyncIngestion();
+	
+	/**
+	 * Returns the backpressure mode of the ingestion queue
+	 * @return the backpressure mode name, or null if asynchronous ingestion is not enabled
+	 */
+	public String getBackpressureMode();
+	
+	/**
+	 * Returns the number of events in the ingestion queue
+	 * @return the ingestion queue depth, or -1 if asynchronous ingestion is not enabled
+	 */
+	public long getIngestQueueDepth();
+	
+	/**
+	 * Returns the capacity of the ingestion queue
+	 * @return the ingestion queue capacity, or -1 if asynchronous ingestion is not enabled
+	 */
+	public int getIngestQueueCapacity();
+	
+	/**
+	 * Returns the number of events queued since the last reset
+	 * @return the number of queued events
+	 */
+	public long getIngestedCount();
+	
+	/**
+	 * Returns the number of queued events discarded to make space since the last reset
+	 * @return the number of dropped events
+	 */
+	public long getDropCount();
+	
+	/**
+	 * Returns the number of events merged into an identical pending event since the last reset
+	 * @return the number of coalesced events
+	 */
+	public long getCoalescedCount();
+	
+	/**
+	 * Returns the number of times a producer waited for queue space since the last reset
+	 * @return the number of blocked producers
+	 */
+	public long getBlockedCount();
+	
+	/**
+	 * Returns the average time from queueing an event to the starter trigger completing it, in microseconds
+	 * @return the average end to end latency in microseconds, or -1 if asynchronous ingestion is not enabled
+	 */
+	public long getAverageIngestLatency();
+	
+	/**
+	 * Returns the highest time from queueing an event to the starter trigger completing it, in microseconds
+	 * @return the max end to end latency in microseconds, or -1 if asynchronous ingestion is not enabled
+	 */
+	public long getMaxIngestLatency();
+	
+	/**
+	 * Resets the ingestion counters and latencies
+	 */
+	public void resetIngestStats();
+	
 	
 	
 	
@@ -19,10 +19,17 @@ under the License.
 package com.heliosapm.utils.file;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -35,7 +42,10 @@ import com.heliosapm.utils.time.SystemClock;
 
 /**
  * <p>Title: FileChangeWatcher</p>
- * <p>Description: </p> 
+ * <p>Description: Watches the files located by a {@link FileFinder} and notifies registered listeners of new, modified and deleted files.
+ * By default the finder's result set is rescanned every scan period. In WatchService mode (see {@link #startWatcher(int, boolean)})
+ * the finder's directories are registered with a <code>java.nio.file.WatchService</code> (inotify on Linux) and changes are
+ * processed as they are reported, with a full rescan only when the watch service reports lost events.</p> 
  * <p>Company: Helios Development Group LLC</p>
  * @author Whitehead (nwhitehead AT heliosdev DOT org)
  * <p><code>com.heliosapm.utils.file.FileChangeWatcher</code></p>
@@ -50,6 +60,12 @@ public class FileChangeWatcher extends Thread {
 	protected final AtomicBoolean dead = new AtomicBoolean(false);
 	protected final boolean initBeforeFire;
 	protected int scanPeriod = DEFAULT_SCAN_PERIOD;
+	/** Indicates if the watcher is running in WatchService mode */
+	protected boolean watchServiceMode = false;
+	/** The directories registered with the watch service and their depth below the search directory they were found in */
+	protected final Map<File, Integer> watchedDirs = new HashMap<File, Integer>();
+	/** The number of rescans triggered by watch service overflows */
+	protected volatile long reconcileCount = 0;
 	
 	private static final AtomicInteger serial = new AtomicInteger(0);
 	
@@ -100,15 +116,51 @@ public class FileChangeWatcher extends Thread {
 	}
 	
 	public FileChangeWatcher startWatcher(final int period) {
+		return startWatcher(period, false);
+	}
+	
+	/**
+	 * Starts the watcher
+	 * @param period The scan period in seconds. In WatchService mode, this is the maximum time the watcher blocks waiting for events.
+	 * @param useWatchService true to be notified of changes by a <code>java.nio.file.WatchService</code> rather than rescanning every period.
+	 * Ignored, falling back to periodic scans, if the WatchService API is not available in this JVM.
+	 * @return this watcher
+	 */
+	public FileChangeWatcher startWatcher(final int period, final boolean useWatchService) {
 		if(dead.get()) throw new IllegalStateException("The FileChangeWatcher is dead");
 		if(period < 1) throw new IllegalArgumentException("Invalid scan period [" + period + "]");
 		if(running.compareAndSet(false, true)) {
 			this.scanPeriod = period;
+			this.watchServiceMode = useWatchService && WatchServiceAdapter.isAvailable();
 			start();
 		}
 		return this;
 	}
 	
+	/**
+	 * Indicates if the WatchService API is available in this JVM
+	 * @return true if WatchService mode is available
+	 */
+	public static boolean isWatchServiceAvailable() {
+		return WatchServiceAdapter.isAvailable();
+	}
+	
+	/**
+	 * Indicates if this watcher is running in WatchService mode
+	 * @return true if this watcher is running in WatchService mode
+	 */
+	public boolean isWatchServiceMode() {
+		return watchServiceMode;
+	}
+	
+	/**
+	 * Returns the number of full rescans triggered by watch service overflows
+	 * @return the number of overflow rescans
+	 */
+	public long getReconcileCount() {
+		return reconcileCount;
+	}
+	
 	public void stopWatcher() {
 		if(running.compareAndSet(true, false)) {
 			dead.set(true);
@@ -125,6 +177,10 @@ public class FileChangeWatcher extends Thread {
 	}
 	
 	public void run() {
+		if(watchServiceMode) {
+			runWatchService();
+			return;
+		}
 		doIt(!initBeforeFire);
 		while(running.get()) {
 			try {
@@ -133,7 +189,8 @@ public class FileChangeWatcher extends Thread {
 				if(Thread.interrupted()) Thread.interrupted();
 				/* No Op */
 			} finally {
-				SystemClock.sleep(scanPeriod, TimeUnit.SECONDS);
+				// stopWatcher interrupts the sleep
+				try { SystemClock.sleep(scanPeriod, TimeUnit.SECONDS); } catch (RuntimeException rex) {/* No Op */}
 			}
 		}
 	}
@@ -185,6 +242,146 @@ public class FileChangeWatcher extends Thread {
 		}
 	}
 
+	/**
+	 * Runs the watcher in WatchService mode. Directories are registered before the initial scan
+	 * so no change made during the scan is missed.
+	 */
+	protected void runWatchService() {
+		final WatchServiceAdapter adapter = new WatchServiceAdapter();
+		try {
+			for(File dir: finder.dirsToSearch) {
+				registerTree(adapter, dir, 0);
+			}
+			doIt(!initBeforeFire);
+			final List<WatchServiceAdapter.Change> changes = new ArrayList<WatchServiceAdapter.Change>();
+			while(running.get()) {
+				changes.clear();
+				try {
+					if(!adapter.poll(scanPeriod, TimeUnit.SECONDS, changes)) break;
+				} catch (InterruptedException iex) {
+					if(!running.get()) break;
+					continue;
+				}
+				try {
+					boolean overflow = false;
+					for(WatchServiceAdapter.Change change: changes) {
+						if(change.isOverflow()) {
+							overflow = true;
+							continue;
+						}
+						switch(change.event) {
+						case NEW:
+							if(change.file.isDirectory()) {
+								final Integer parentDepth = watchedDirs.get(change.dir);
+								if(parentDepth!=null && parentDepth + 1 <= finder.maxLevel) {
+									registerTree(adapter, change.file, parentDepth + 1);
+									// files created before the directory was registered raise no events
+									scanTree(change.file, parentDepth + 1);
+								}
+							}
+							check(change.file);
+							break;
+						case MODIFIED:
+							check(change.file);
+							break;
+						case DELETED:
+							if(watchedDirs.containsKey(change.file)) {
+								removeTree(adapter, change.file);
+							}
+							if(trackedFiles.remove(change.file)!=null) {
+								fireEvent(FileChangeEvent.DELETED, change.file);
+							}
+							break;
+						default:
+							break;
+						}
+					}
+					if(overflow) {
+						reconcileCount++;
+						for(File dir: finder.dirsToSearch) {
+							registerTree(adapter, dir, 0);
+						}
+						doIt(true);
+					}
+				} catch (Exception ex) {
+					/* No Op */
+				}
+			}
+		} finally {
+			adapter.close();
+			watchedDirs.clear();
+		}
+	}
+	
+	/**
+	 * Registers the passed directory and its sub-directories down to the finder's maximum depth
+	 * @param adapter The watch service adapter
+	 * @param dir The directory to register
+	 * @param depth The depth of the directory below its search directory
+	 */
+	protected void registerTree(final WatchServiceAdapter adapter, final File dir, final int depth) {
+		adapter.register(dir);
+		watchedDirs.put(dir, depth);
+		if(depth + 1 > finder.maxLevel) return;
+		final File[] files = dir.listFiles();
+		if(files==null) return;
+		for(File f: files) {
+			if(f.isDirectory()) registerTree(adapter, f, depth + 1);
+		}
+	}
+	
+	/**
+	 * Checks every entry in the passed directory and its sub-directories down to the finder's maximum depth
+	 * @param dir The directory to scan
+	 * @param depth The depth of the directory below its search directory
+	 */
+	protected void scanTree(final File dir, final int depth) {
+		final File[] files = dir.listFiles();
+		if(files==null) return;
+		for(File f: files) {
+			check(f);
+			if(f.isDirectory() && depth + 1 <= finder.maxLevel) scanTree(f, depth + 1);
+		}
+	}
+	
+	/**
+	 * Cancels the watch of a deleted directory and fires deletes for the tracked files below it
+	 * @param adapter The watch service adapter
+	 * @param dir The deleted directory
+	 */
+	protected void removeTree(final WatchServiceAdapter adapter, final File dir) {
+		adapter.unregister(dir);
+		final String prefix = dir.getPath() + File.separator;
+		for(Iterator<File> iter = watchedDirs.keySet().iterator(); iter.hasNext();) {
+			final File d = iter.next();
+			if(d.equals(dir) || d.getPath().startsWith(prefix)) iter.remove();
+		}
+		for(File f: new ArrayList<File>(trackedFiles.keySet())) {
+			if(f.getPath().startsWith(prefix) && trackedFiles.remove(f)!=null) {
+				fireEvent(FileChangeEvent.DELETED, f);
+			}
+		}
+	}
+	
+	/**
+	 * Checks a file reported by the watch service against the finder's filter and the tracked modification time
+	 * @param f The file to check
+	 */
+	protected void check(final File f) {
+		if(!finder.filter.accept(f)) return;
+		final long lastMod = f.lastModified();
+		if(lastMod==0L) return;  // gone already
+		final Long trackedTime = trackedFiles.get(f);
+		if(trackedTime==null) {
+			if(trackedFiles.size() >= finder.maxFiles) return;
+			trackedFiles.put(f, lastMod);
+			fireEvent(FileChangeEvent.NEW, f);
+		} else if(lastMod!=trackedTime.longValue()) {
+			trackedFiles.put(f, lastMod);
+			fireEvent(FileChangeEvent.MODIFIED, f);
+		}
+	}
+
 	/**
 	 * Returns 
 	 * @return the finder
@@ -194,4 +391,72 @@ public class FileChangeWatcher extends Thread {
 	}
 	
 	
+	/**
+	 * Benchmarks the change detection latency of periodic scan and WatchService mode against directory size
+	 * @param args None
+	 */
+	public static void main(final String[] args) {
+		final int[] sizes = {100, 1000, 10000, 50000};
+		final int samples = 10;
+		final Random r = new Random();
+		for(int size: sizes) {
+			final File root = new File(System.getProperty("java.io.tmpdir"), "fcw-bench-" + System.nanoTime());
+			final File[] files = new File[size];
+			try {
+				for(int i = 0; i < size; i++) {
+					final File dir = new File(root, "d" + (i / 1000));
+					dir.mkdirs();
+					files[i] = new File(dir, "f" + i + ".conf");
+					write(files[i]);
+				}
+				for(boolean ws: new boolean[]{false, true}) {
+					if(ws && !isWatchServiceAvailable()) continue;
+					final CountDownLatch[] latch = new CountDownLatch[1];
+					final File[] target = new File[1];
+					final FileChangeWatcher watcher = FileFinder.newFileFinder(root.getAbsolutePath()).maxFiles(Integer.MAX_VALUE)
+						.watch(1, true, new EmptyFileChangeEventListener(FileChangeEvent.MODIFIED) {
+							@Override
+							public void onChange(final File file) {
+								if(file.equals(target[0])) latch[0].countDown();
+							}
+						});
+					watcher.startWatcher(1, ws);
+					SystemClock.sleep(2000);
+					long total = 0, max = 0;
+					for(int i = 0; i < samples; i++) {
+						latch[0] = new CountDownLatch(1);
+						target[0] = files[r.nextInt(size)];
+						// ensure the modification time moves on file systems with coarse timestamps
+						SystemClock.sleep(r.nextInt(200) + 1000);
+						final long start = System.nanoTime();
+						write(target[0]);
+						latch[0].await(30, TimeUnit.SECONDS);
+						final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+						total += elapsed;
+						if(elapsed > max) max = elapsed;
+					}
+					watcher.stopWatcher();
+					System.out.println(String.format("Files: %6d, Mode: %-12s Avg Latency: %5d ms, Max Latency: %5d ms", size, ws ? "WatchService" : "Scan", total / samples, max));
+				}
+			} catch (Exception ex) {
+				ex.printStackTrace(System.err);
+			} finally {
+				for(File f: files) {
+					if(f!=null) f.delete();
+				}
+				final File[] dirs = root.listFiles();
+				if(dirs!=null) for(File d: dirs) d.delete();
+				root.delete();
+			}
+		}
+	}
+	
+	private static void write(final File f) throws Exception {
+		final FileOutputStream fos = new FileOutputStream(f);
+		try {
+			fos.write(String.valueOf(System.nanoTime()).getBytes());
+		} finally {
+			fos.close();
+		}
+	}
 }
@@ -20,15 +20,26 @@ package com.heliosapm.utils.file;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.heliosapm.utils.config.ConfigurationHelper;
+import com.heliosapm.utils.jmx.JMXHelper;
+import com.heliosapm.utils.jmx.ManagedForkJoinPool;
 import com.heliosapm.utils.url.URLHelper;
 
+import jsr166y.RecursiveAction;
+
 /**
  * <p>Title: FileFinder</p>
- * <p>Description: Scans a given directory for files matching a file filter</p> 
+ * <p>Description: Scans a given directory for files matching a file filter. The search directories have a depth of zero
+ * and sub-directories are scanned down to the maximum depth. Scans keep no state in the finder, so one finder can run concurrent scans.
+ * A {@link #parallel(boolean) parallel} finder fans sub-directories out across a shared fork join pool, which pays off on network mounted disks.</p> 
  * <p>Company: Helios Development Group LLC</p>
  * @author Whitehead (nwhitehead AT heliosdev DOT org)
  * <p><code>com.heliosapm.utils.file.FileFinder</code></p>
@@ -41,11 +52,14 @@ public class FileFinder {
 	protected FileFilter filter = DEFAULT_FILTER;
 	protected int maxLevel = Integer.MAX_VALUE;
 	protected int maxFiles = 1024;	
-	protected int actualLevel = 0;
-	protected int actualCount = 0;
-	protected final Set<File> foundFiles = new LinkedHashSet<File>();
+	protected boolean parallel = false;
 	protected final Set<File> dirsToSearch = new LinkedHashSet<File>();
 	
+	/** The config property name for the parallelism of the shared scanning pool */
+	public static final String CONFIG_PARALLELISM = "heliosutils.filefinder.parallelism";
+	/** The default parallelism of the shared scanning pool. Scans block on IO, so this exceeds the core count. */
+	public static final int DEFAULT_PARALLELISM = Math.max(4, ManagedForkJoinPool.CORES * 2);
+	
 	private FileFinder(final String...dirs) {
 		addSearchDir(dirs);
 	}
@@ -98,17 +112,63 @@ public class FileFinder {
 		return this;
 	}
 	
+	/**
+	 * Sets whether sub-directories are scanned in parallel
+	 * @param parallel true to scan sub-directories in parallel, false to scan them on the calling thread
+	 * @return this finder
+	 */
+	public FileFinder parallel(final boolean parallel) {
+		this.parallel = parallel;
+		return this;
+	}
+	
+	/**
+	 * Scans the search directories and returns the matched files. Parallel scans return the files in no particular order.
+	 * @return the matched files
+	 */
 	public File[] find() {
-		foundFiles.clear();
-		actualCount = 0;
-		actualLevel = 0;
 		if(dirsToSearch.isEmpty() || maxFiles==0) return EMPTY_FILE_ARR;
-		for(File dir: dirsToSearch) {
-			doIt(dir);
-			actualLevel = 0;
-			if(actualCount==maxFiles) break;
+		final List<File> found = new ArrayList<File>();
+		find(new FileFinderCallback() {
+			@Override
+			public void onFile(final File file) {
+				synchronized(found) {
+					found.add(file);
+				}
+			}
+		});
+		final Set<File> foundFiles = new LinkedHashSet<File>(found);
+		return foundFiles.toArray(new File[foundFiles.size()]);
+	}
+	
+	/**
+	 * Scans the search directories and streams the matched files to the passed callback
+	 * @param callback The callback to stream matched files to
+	 * @return the number of matched files
+	 */
+	public int find(final FileFinderCallback callback) {
+		if(callback==null) throw new IllegalArgumentException("The passed callback was null");
+		if(dirsToSearch.isEmpty() || maxFiles==0) return 0;
+		final Scan scan = new Scan(callback);
+		if(parallel) {
+			final List<ScanTask> tasks = new ArrayList<ScanTask>(dirsToSearch.size());
+			for(File dir: dirsToSearch) {
+				tasks.add(new ScanTask(scan, dir, 0));
+			}
+			PoolHolder.POOL.invoke(new RecursiveAction() {
+				private static final long serialVersionUID = -3283410212575346025L;
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		} else {
+			for(File dir: dirsToSearch) {
+				scanSerial(scan, dir, 0);
+				if(scan.isDone()) break;
+			}
 		}
-		return foundFiles.toArray(new File[actualCount]);
+		return Math.min(scan.count.get(), maxFiles);
 	}
 	
 	public URL[] findAsURLs() {
@@ -121,22 +181,99 @@ public class FileFinder {
 		return urls;
 	}
 	
-	protected void doIt(final File dir) {
-		if(actualCount==maxFiles) return;
-		for(File f: dir.listFiles()) {
-			if(actualCount==maxFiles) return;
-			if(filter.accept(f)) {
-				foundFiles.add(f);
-				actualCount++;
-				if(actualCount==maxFiles) return;
+	/**
+	 * <p>Title: Scan</p>
+	 * <p>Description: The state of one scan</p>
+	 */
+	protected class Scan {
+		/** The callback matched files are streamed to */
+		final FileFinderCallback callback;
+		/** The number of matched files */
+		final AtomicInteger count = new AtomicInteger(0);
+		
+		Scan(final FileFinderCallback callback) {
+			this.callback = callback;
+		}
+		
+		/**
+		 * Indicates if the maximum number of files has been matched
+		 * @return true if the scan is done
+		 */
+		boolean isDone() {
+			return count.get() >= maxFiles;
+		}
+		
+		/**
+		 * Tests the passed file and streams it to the callback if it is matched and the maximum has not been reached
+		 * @param f The file to test
+		 */
+		void test(final File f) {
+			if(filter.accept(f) && count.incrementAndGet() <= maxFiles) {
+				callback.onFile(f);
 			}
-			if(f.isDirectory() && actualLevel <= maxLevel) {
-				actualLevel++;				
-				doIt(f);
+		}
+	}
+	
+	/**
+	 * Scans the passed directory and its sub-directories on the calling thread
+	 * @param scan The scan
+	 * @param dir The directory to scan
+	 * @param depth The depth of the directory below its search directory
+	 */
+	protected void scanSerial(final Scan scan, final File dir, final int depth) {
+		final File[] files = dir.listFiles();
+		if(files==null) return;
+		for(File f: files) {
+			if(scan.isDone()) return;
+			scan.test(f);
+			if(depth + 1 <= maxLevel && f.isDirectory()) scanSerial(scan, f, depth + 1);
+		}
+	}
+	
+	/**
+	 * <p>Title: ScanTask</p>
+	 * <p>Description: Scans one directory and forks a task for each of its sub-directories</p>
+	 */
+	protected class ScanTask extends RecursiveAction {
+		private static final long serialVersionUID = 5497815364339532547L;
+		final Scan scan;
+		final File dir;
+		final int depth;
+		
+		ScanTask(final Scan scan, final File dir, final int depth) {
+			this.scan = scan;
+			this.dir = dir;
+			this.depth = depth;
+		}
+		
+		@Override
+		protected void compute() {
+			final File[] files = dir.listFiles();
+			if(files==null) return;
+			final boolean descend = depth + 1 <= maxLevel;
+			List<ScanTask> subTasks = null;
+			for(File f: files) {
+				if(scan.isDone()) break;
+				scan.test(f);
+				if(descend && f.isDirectory()) {
+					if(subTasks==null) subTasks = new ArrayList<ScanTask>();
+					subTasks.add(new ScanTask(scan, f, depth + 1));
+				}
 			}
+			if(subTasks!=null) invokeAll(subTasks);
 		}
 	}
 	
+	/**
+	 * <p>Title: PoolHolder</p>
+	 * <p>Description: Lazy holder for the shared scanning pool</p>
+	 */
+	private static class PoolHolder {
+		static final ManagedForkJoinPool POOL = new ManagedForkJoinPool("FileFinder", 
+			ConfigurationHelper.getIntSystemThenEnvProperty(CONFIG_PARALLELISM, DEFAULT_PARALLELISM), false,
+			JMXHelper.objectName("com.heliosapm.utils.file:service=FileFinder,type=ForkJoinPool"));
+	}
+	
 	/**
 	 * Initializes a file change watcher
 	 * @param scanPeriodSecs The scan period in seconds
@@ -148,6 +285,61 @@ public class FileFinder {
 		return new FileChangeWatcher(this, scanPeriodSecs, initBeforeFire, listeners); 
 	}
 	
+	/**
+	 * Serial vs. parallel scan benchmark on a generated tree of 100,000 files
+	 * @param args Optional: the root directory to generate the tree in
+	 * @throws IOException thrown on any IO error building the tree
+	 */
+	public static void main(final String[] args) throws IOException {
+		final File root = new File(args.length > 0 ? args[0] : System.getProperty("java.io.tmpdir"), "filefinder-bench-" + System.nanoTime());
+		int created = 0;
+		for(int a = 0; a < 100; a++) {
+			for(int b = 0; b < 10; b++) {
+				final File dir = new File(root, "a" + a + File.separator + "b" + b);
+				dir.mkdirs();
+				for(int c = 0; c < 100; c++) {
+					if(new File(dir, "f" + c + ".txt").createNewFile()) created++;
+				}
+			}
+		}
+		System.out.println("Created " + created + " files under [" + root + "]");
+		try {
+			final FileFinder finder = newFileFinder(root.getAbsolutePath()).maxFiles(Integer.MAX_VALUE);
+			final AtomicInteger streamed = new AtomicInteger();
+			final FileFinderCallback counter = new FileFinderCallback() {
+				@Override
+				public void onFile(final File file) {
+					streamed.incrementAndGet();
+				}
+			};
+			for(int loop = 0; loop < 5; loop++) {
+				long start = System.nanoTime();
+				final int serial = finder.parallel(false).find(counter);
+				final long serialMs = (System.nanoTime() - start) / 1000000;
+				start = System.nanoTime();
+				final int par = finder.parallel(true).find(counter);
+				final long parallelMs = (System.nanoTime() - start) / 1000000;
+				start = System.nanoTime();
+				final int arr = finder.parallel(false).find().length;
+				final long arrayMs = (System.nanoTime() - start) / 1000000;
+				System.out.println("Entries: serial " + serial + " in " + serialMs + " ms, parallel " + par + " in " + parallelMs + " ms, serial find() array " + arr + " in " + arrayMs + " ms");
+			}
+			final int depth1 = newFileFinder(root.getAbsolutePath()).maxFiles(Integer.MAX_VALUE).maxDepth(1).find().length;
+			System.out.println("maxDepth(1) entries: " + depth1);
+		} finally {
+			delete(root);
+		}
+		System.exit(0);
+	}
+	
+	private static void delete(final File f) {
+		final File[] files = f.listFiles();
+		if(files!=null) {
+			for(File c: files) delete(c);
+		}
+		f.delete();
+	}
+	
 	private static class NOFILTER implements FileFilter {
 		@Override
 		public boolean accept(final File pathname) {
@@ -0,0 +1,36 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.file;
+
+import java.io.File;
+
+/**
+ * <p>Title: FileFinderCallback</p>
+ * <p>Description: Defines a callback streamed the files matched by a {@link FileFinder} scan</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.file.FileFinderCallback</code></p>
+ */
+public interface FileFinderCallback {
+	/**
+	 * Callback fired for each matched file. Parallel scans fire this callback concurrently from the scanning threads.
+	 * @param file The matched file
+	 */
+	public void onFile(final File file);
+}
@@ -0,0 +1,265 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.file;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Title: WatchServiceAdapter</p>
+ * <p>Description: A reflective adapter onto the Java 7 <code>java.nio.file.WatchService</code>, which is backed by inotify on Linux.
+ * The library is built for Java 6 so the API is bound at runtime, and {@link #isAvailable()} returns false on a Java 6 JVM.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.file.WatchServiceAdapter</code></p>
+ */
+
+class WatchServiceAdapter {
+	/** The watch service */
+	private final Object watchService;
+	/** The registered directories keyed by their watch key */
+	private final Map<Object, File> keys = new HashMap<Object, File>();
+	/** The registered watch keys keyed by their directory */
+	private final Map<File, Object> dirs = new HashMap<File, Object>();
+
+	/** Indicates if the WatchService API is available */
+	private static final boolean AVAILABLE;
+	private static Method NEW_WATCH_SERVICE, TO_PATH, REGISTER, REGISTER_MODIFIERS, POLL, POLL_EVENTS, KIND, CONTEXT, RESET, CANCEL, CLOSE, RESOLVE, TO_FILE;
+	private static Object FILE_SYSTEM, KINDS, MODIFIERS, CREATE, DELETE, MODIFY, OVERFLOW;
+	private static Class<?> CLOSED_EXCEPTION;
+
+	static {
+		boolean available = false;
+		try {
+			final Class<?> fileSystems = Class.forName("java.nio.file.FileSystems");
+			final Class<?> fileSystem = Class.forName("java.nio.file.FileSystem");
+			final Class<?> path = Class.forName("java.nio.file.Path");
+			final Class<?> ws = Class.forName("java.nio.file.WatchService");
+			final Class<?> key = Class.forName("java.nio.file.WatchKey");
+			final Class<?> event = Class.forName("java.nio.file.WatchEvent");
+			final Class<?> kind = Class.forName("java.nio.file.WatchEvent$Kind");
+			final Class<?> modifier = Class.forName("java.nio.file.WatchEvent$Modifier");
+			final Class<?> kinds = Class.forName("java.nio.file.StandardWatchEventKinds");
+			FILE_SYSTEM = fileSystems.getMethod("getDefault").invoke(null);
+			NEW_WATCH_SERVICE = fileSystem.getMethod("newWatchService");
+			TO_PATH = File.class.getMethod("toPath");
+			REGISTER = path.getMethod("register", ws, Array.newInstance(kind, 0).getClass());
+			REGISTER_MODIFIERS = path.getMethod("register", ws, Array.newInstance(kind, 0).getClass(), Array.newInstance(modifier, 0).getClass());
+			POLL = ws.getMethod("poll", long.class, TimeUnit.class);
+			CLOSE = ws.getMethod("close");
+			POLL_EVENTS = key.getMethod("pollEvents");
+			RESET = key.getMethod("reset");
+			CANCEL = key.getMethod("cancel");
+			KIND = event.getMethod("kind");
+			CONTEXT = event.getMethod("context");
+			RESOLVE = path.getMethod("resolve", path);
+			TO_FILE = path.getMethod("toFile");
+			CREATE = kinds.getField("ENTRY_CREATE").get(null);
+			DELETE = kinds.getField("ENTRY_DELETE").get(null);
+			MODIFY = kinds.getField("ENTRY_MODIFY").get(null);
+			OVERFLOW = kinds.getField("OVERFLOW").get(null);
+			KINDS = Array.newInstance(kind, 3);
+			Array.set(KINDS, 0, CREATE);
+			Array.set(KINDS, 1, DELETE);
+			Array.set(KINDS, 2, MODIFY);
+			CLOSED_EXCEPTION = Class.forName("java.nio.file.ClosedWatchServiceException");
+			// The polling implementation used where there is no native support defaults to a 10s poll
+			try {
+				final Class<?> sensitivity = Class.forName("com.sun.nio.file.SensitivityWatchEventModifier");
+				MODIFIERS = Array.newInstance(modifier, 1);
+				Array.set(MODIFIERS, 0, sensitivity.getField("HIGH").get(null));
+			} catch (Throwable t) {
+				MODIFIERS = null;
+			}
+			available = true;
+		} catch (Throwable t) {
+			available = false;
+		}
+		AVAILABLE = available;
+	}
+
+	/**
+	 * Indicates if the WatchService API is available in this JVM
+	 * @return true if the WatchService API is available
+	 */
+	static boolean isAvailable() {
+		return AVAILABLE;
+	}
+
+	/**
+	 * <p>Title: Change</p>
+	 * <p>Description: A change reported by the watch service</p>
+	 */
+	static class Change {
+		/** The change event, or null for an overflow */
+		final FileChangeEvent event;
+		/** The changed file, or null for an overflow */
+		final File file;
+		/** The directory the change was reported in, or null for an overflow */
+		final File dir;
+
+		Change(final FileChangeEvent event, final File file, final File dir) {
+			this.event = event;
+			this.file = file;
+			this.dir = dir;
+		}
+
+		/**
+		 * Indicates if this change is an overflow, meaning events were lost and the watched directories must be rescanned
+		 * @return true if this change is an overflow
+		 */
+		boolean isOverflow() {
+			return event==null;
+		}
+	}
+
+	/**
+	 * Creates a new WatchServiceAdapter
+	 */
+	WatchServiceAdapter() {
+		if(!AVAILABLE) throw new UnsupportedOperationException("The WatchService API is not available in this JVM");
+		watchService = invoke(NEW_WATCH_SERVICE, FILE_SYSTEM);
+	}
+
+	/**
+	 * Registers the passed directory for create, delete and modify events.
+	 * Directories that are already registered are ignored.
+	 * @param dir The directory to register
+	 * @return true if the directory was registered, false if it was already registered or could not be registered
+	 */
+	synchronized boolean register(final File dir) {
+		if(dirs.containsKey(dir)) return false;
+		try {
+			final Object path = invoke(TO_PATH, dir);
+			final Object key = MODIFIERS==null ? invoke(REGISTER, path, watchService, KINDS) : invoke(REGISTER_MODIFIERS, path, watchService, KINDS, MODIFIERS);
+			keys.put(key, dir);
+			dirs.put(dir, key);
+			return true;
+		} catch (RuntimeException rex) {
+			// the directory was deleted before it could be registered
+			return false;
+		}
+	}
+
+	/**
+	 * Cancels the registrations of the passed directory and all directories below it
+	 * @param dir The directory to unregister
+	 */
+	synchronized void unregister(final File dir) {
+		final String prefix = dir.getPath() + File.separator;
+		for(Object key: new ArrayList<Object>(keys.keySet())) {
+			final File d = keys.get(key);
+			if(d.equals(dir) || d.getPath().startsWith(prefix)) {
+				invoke(CANCEL, key);
+				keys.remove(key);
+				dirs.remove(d);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of registered directories
+	 * @return the number of registered directories
+	 */
+	synchronized int size() {
+		return dirs.size();
+	}
+
+	/**
+	 * Waits for the next watch key to be signalled and returns its changes
+	 * @param timeout The maximum time to wait
+	 * @param unit The unit of the timeout
+	 * @param changes The collection the changes are added to
+	 * @return false if the watch service was closed, true otherwise
+	 * @throws InterruptedException thrown if the calling thread is interrupted while waiting
+	 */
+	boolean poll(final long timeout, final TimeUnit unit, final Collection<Change> changes) throws InterruptedException {
+		Object key;
+		try {
+			key = POLL.invoke(watchService, timeout, unit);
+		} catch (InvocationTargetException ite) {
+			final Throwable t = ite.getCause();
+			if(t instanceof InterruptedException) throw (InterruptedException)t;
+			if(CLOSED_EXCEPTION.isInstance(t)) return false;
+			throw new RuntimeException("WatchService poll failed", t);
+		} catch (Exception ex) {
+			throw new RuntimeException("WatchService poll failed", ex);
+		}
+		while(key!=null) {
+			final File dir;
+			synchronized(this) {
+				dir = keys.get(key);
+			}
+			final List<?> events = (List<?>)invoke(POLL_EVENTS, key);
+			if(dir!=null) {
+				final Object dirPath = invoke(TO_PATH, dir);
+				for(Object event: events) {
+					final Object kind = invoke(KIND, event);
+					if(kind==OVERFLOW) {
+						changes.add(new Change(null, null, null));
+						continue;
+					}
+					final File file = (File)invoke(TO_FILE, invoke(RESOLVE, dirPath, invoke(CONTEXT, event)));
+					changes.add(new Change(kind==CREATE ? FileChangeEvent.NEW : kind==DELETE ? FileChangeEvent.DELETED : FileChangeEvent.MODIFIED, file, dir));
+				}
+			}
+			if(!(Boolean)invoke(RESET, key)) {
+				// the directory is gone or no longer accessible
+				synchronized(this) {
+					final File gone = keys.remove(key);
+					if(gone!=null) dirs.remove(gone);
+				}
+			}
+			// drain any other signalled keys without waiting
+			try {
+				key = POLL.invoke(watchService, 0L, TimeUnit.MILLISECONDS);
+			} catch (Exception ex) {
+				key = null;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Closes the watch service
+	 */
+	void close() {
+		try { CLOSE.invoke(watchService); } catch (Exception x) {/* No Op */}
+	}
+
+	private static Object invoke(final Method method, final Object target, final Object...args) {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException ite) {
+			final Throwable t = ite.getCause();
+			if(t instanceof RuntimeException) throw (RuntimeException)t;
+			throw new RuntimeException("WatchService call [" + method.getName() + "] failed", t);
+		} catch (Exception ex) {
+			throw new RuntimeException("WatchService call [" + method.getName() + "] failed", ex);
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.bind.DatatypeConverter;
+
+import com.heliosapm.utils.io.NIOHelper;
+
+/**
+ * <p>Title: CachedContent</p>
+ * <p>Description: Content served by the {@link HTTPJarServer}, held in direct buffers as an identity variant and a gzip variant
+ * which is compressed once when the content is registered. Each variant has its own strong ETag.</p>
+ * <p>Variants are written through {@link #writeTo(boolean, WritableByteChannel)} so a NIO server backend writing to a
+ * socket channel can send the direct buffers without copying through the heap.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.http.CachedContent</code></p>
+ */
+
+public class CachedContent {
+	/** The identity content */
+	private final ByteBuffer identity;
+	/** The gzipped content, or null if gzip did not reduce the size */
+	private final ByteBuffer gzip;
+	/** The identity ETag */
+	private final String identityETag;
+	/** The gzip ETag */
+	private final String gzipETag;
+
+	/**
+	 * Creates a new CachedContent, compressing the passed content
+	 * @param content The identity content. Heap buffers are copied into a direct buffer.
+	 */
+	public CachedContent(final ByteBuffer content) {
+		if(content==null) throw new IllegalArgumentException("The passed buffer was null");
+		final ByteBuffer src = content.duplicate();
+		src.clear();
+		if(src.isDirect()) {
+			identity = src;
+		} else {
+			identity = ByteBuffer.allocateDirect(src.remaining());
+			identity.put(src);
+			identity.flip();
+		}
+		final byte[] bytes = new byte[identity.remaining()];
+		identity.duplicate().get(bytes);
+		identityETag = etag(bytes);
+		final byte[] gzipped = gzip(bytes);
+		if(gzipped.length < bytes.length) {
+			gzip = ByteBuffer.allocateDirect(gzipped.length);
+			gzip.put(gzipped);
+			gzip.flip();
+			gzipETag = identityETag.substring(0, identityETag.length() - 1) + "-gz\"";
+		} else {
+			gzip = null;
+			gzipETag = null;
+		}
+	}
+
+	private static String etag(final byte[] bytes) {
+		try {
+			final MessageDigest md = MessageDigest.getInstance("MD5");
+			return "\"" + DatatypeConverter.printHexBinary(md.digest(bytes)).toLowerCase() + "\"";
+		} catch (Exception ex) {
+			throw new RuntimeException("Failed to compute ETag", ex);
+		}
+	}
+
+	private static byte[] gzip(final byte[] bytes) {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length / 2 + 64);
+		try {
+			final GZIPOutputStream gos = new GZIPOutputStream(baos, 8192);
+			gos.write(bytes);
+			gos.close();
+			return baos.toByteArray();
+		} catch (IOException iex) {
+			throw new RuntimeException("Failed to gzip content", iex);
+		}
+	}
+
+	/**
+	 * Indicates if a gzip variant is available
+	 * @return true if a gzip variant is available
+	 */
+	public boolean hasGzip() {
+		return gzip!=null;
+	}
+
+	/**
+	 * Returns the length of the selected variant in bytes
+	 * @param gzipped true for the gzip variant, false for identity
+	 * @return the length in bytes
+	 */
+	public int length(final boolean gzipped) {
+		return gzipped ? gzip.capacity() : identity.capacity();
+	}
+
+	/**
+	 * Returns the ETag of the selected variant
+	 * @param gzipped true for the gzip variant, false for identity
+	 * @return the quoted ETag
+	 */
+	public String etag(final boolean gzipped) {
+		return gzipped ? gzipETag : identityETag;
+	}
+
+	/**
+	 * Determines if the passed If-None-Match header value matches either variant
+	 * @param ifNoneMatch The If-None-Match header value
+	 * @return true if the client's copy is current
+	 */
+	public boolean matches(final String ifNoneMatch) {
+		if(ifNoneMatch==null) return false;
+		for(String tag: ifNoneMatch.split(",")) {
+			String t = tag.trim();
+			if("*".equals(t)) return true;
+			if(t.startsWith("W/")) t = t.substring(2);
+			if(t.equals(identityETag) || t.equals(gzipETag)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a read only view of the selected variant
+	 * @param gzipped true for the gzip variant, false for identity
+	 * @return the variant's content
+	 */
+	public ByteBuffer variant(final boolean gzipped) {
+		return (gzipped ? gzip : identity).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Writes the selected variant to the passed channel
+	 * @param gzipped true for the gzip variant, false for identity
+	 * @param channel The channel to write to
+	 * @return the number of bytes written
+	 * @throws IOException thrown on any IO error
+	 */
+	public long writeTo(final boolean gzipped, final WritableByteChannel channel) throws IOException {
+		final ByteBuffer bb = (gzipped ? gzip : identity).duplicate();
+		long written = 0;
+		while(bb.hasRemaining()) {
+			written += channel.write(bb);
+		}
+		return written;
+	}
+
+	/**
+	 * Writes the selected variant to the passed stream through a channel adapter
+	 * @param gzipped true for the gzip variant, false for identity
+	 * @param os The stream to write to
+	 * @return the number of bytes written
+	 * @throws IOException thrown on any IO error
+	 */
+	public long writeTo(final boolean gzipped, final java.io.OutputStream os) throws IOException {
+		return writeTo(gzipped, Channels.newChannel(os));
+	}
+
+	/**
+	 * Returns the identity content
+	 * @return the identity content
+	 */
+	public ByteBuffer getContent() {
+		return identity.duplicate();
+	}
+
+	/**
+	 * Releases the direct buffers
+	 */
+	public void clean() {
+		NIOHelper.clean(identity, gzip);
+	}
+}
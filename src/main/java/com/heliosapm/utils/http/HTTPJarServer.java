@@ -25,7 +25,6 @@ import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URL;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -45,7 +44,6 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPOutputStream;
 
 import javax.management.ObjectName;
 import javax.management.remote.JMXServiceURL;
@@ -92,7 +90,7 @@ public class HTTPJarServer implements HttpHandler, HTTPJarServerMBean, Runnable
 	/** The http server's management mbean ObjectName */
 	public final ObjectName objectName = JMXHelper.objectName("com.heliosapm.http:service=HttpJarServer");
 	/** The registered jar files keyed by the http path */
-	public final NonBlockingHashMap<String, ByteBuffer> cachedContent = new NonBlockingHashMap<String, ByteBuffer>(); 
+	public final NonBlockingHashMap<String, CachedContent> cachedContent = new NonBlockingHashMap<String, CachedContent>(); 
 	/** The Http Server */
 	private HttpServer server;
 	/** The listening port */
@@ -111,6 +109,8 @@ public class HTTPJarServer implements HttpHandler, HTTPJarServerMBean, Runnable
 	private final LongAdder expiryCount = new LongAdder();
 	/** A long adder to track the number of completions */
 	private final LongAdder completionCount = new LongAdder();
+	/** A long adder to track the number of conditional requests answered with a 304 */
+	private final LongAdder notModifiedCount = new LongAdder();
 	/** A map of served content buffers counts keyed by the content name */
 	private final NonBlockingHashMap<String, LongAdder> servedContentCounts = new NonBlockingHashMap<String, LongAdder>(); 
 	/** The request executor */
@@ -246,7 +246,7 @@ public class HTTPJarServer implements HttpHandler, HTTPJarServerMBean, Runnable
 			synchronized(cachedContent) {
 				if(!cachedContent.containsKey(key)) {
 					final ByteBuffer bb = NIOHelper.load(jarFile, false);		
-					cachedContent.put(key, bb);
+					cachedContent.put(key, new CachedContent(bb));
 					this.servedContentCounts.put(key, new LongAdder());
 					added = true;
 				}
@@ -269,7 +269,8 @@ public class HTTPJarServer implements HttpHandler, HTTPJarServerMBean, Runnable
 		if(name==null || name.trim().isEmpty()) throw new IllegalArgumentException("The passed name was null or empty");
 		if(content==null) throw new IllegalArgumentException("The passed buffer was null");
 		final String key = JAR_CONTEXT + "/" + name.trim();
-		if(cachedContent.putIfAbsent(key, content)!=null) throw new RuntimeException("The context [" + key + "] is already registered");
+		if(cachedContent.putIfAbsent(key, new CachedContent(content))!=null) throw new RuntimeException("The context [" + key + "] is already registered");
+		servedContentCounts.put(key, new LongAdder());
 		server.createContext(key, this);
 		return key;		
 	}
@@ -286,7 +287,7 @@ public class HTTPJarServer implements HttpHandler, HTTPJarServerMBean, Runnable
 			synchronized(cachedContent) {
 				if(!cachedContent.containsKey(key)) {
 					final ByteBuffer bb = NIOHelper.load(url);		
-					cachedContent.put(key, bb);
+					cachedContent.put(key, new CachedContent(bb));
 					this.servedContentCounts.put(key, new LongAdder());
 					added = true;
 				}
@@ -305,13 +306,13 @@ public class HTTPJarServer implements HttpHandler, HTTPJarServerMBean, Runnable
 	 */
 	public boolean unregister(final String key) {
 		if(key==null || key.trim().isEmpty()) return false;
-		final ByteBuffer bb = cachedContent.remove(key);
-		if(bb!=null) {
-			NIOHelper.clean(bb);
+		final CachedContent cc = cachedContent.remove(key);
+		if(cc!=null) {
+			cc.clean();
 		}
 		server.removeContext(key);
 		servedContentCounts.remove(key);
-		return bb!=null;
+		return cc!=null;
 	}
 	
 	
@@ -326,39 +327,13 @@ public class HTTPJarServer implements HttpHandler, HTTPJarServerMBean, Runnable
 		if(!jarFile.canRead()) throw new IllegalArgumentException("The passed file [" + jarFile + "] cannot be read");
 		final ByteBuffer bb = NIOHelper.load(jarFile, false);
 		final String key = JAR_CONTEXT + "/" + jarFile.getName();
-		cachedContent.put(key, bb);
-		server.createContext(key, new HttpHandler(){
-			@Override
-			public void handle(final HttpExchange exch) throws IOException {
-				final boolean acceptsGZip = supportsGZip(exch);
-				final Headers hdrs = exch.getResponseHeaders();				
-//				hdrs.add("Content-Type", "application/octet-stream");//"application/java-archive");
-				
-				hdrs.add("Access-Control-Allow-Origin", "*");
-				hdrs.add("Access-Control-Allow-Methods", "GET");
-				hdrs.add("Access-Control-Allow-Headers", "Authorization, Content-Type, Accept, Origin, User-Agent, DNT, Cache-Control, X-Mx-ReqToken, Keep-Alive, X-Requested-With, If-Modified-Since");
-				if(acceptsGZip) {
-					hdrs.add("Content-Encoding", "gzip");
-				}
-				exch.sendResponseHeaders(200, bb.capacity());
-				final OutputStream os = exch.getResponseBody();
-				final ByteBuffer dup = bb.duplicate();
-				log.info("Bytes Remaining:" + dup.remaining());
-				final InstrumentedOutputStream instros = new InstrumentedOutputStream(os, bytesDown, null);
-				if(acceptsGZip) {
-					final GZIPOutputStream gzip = new GZIPOutputStream(instros);
-					Channels.newChannel(gzip).write(dup);
-					gzip.flush();					
-					gzip.close();
-				} else {
-					Channels.newChannel(instros).write(dup);
-				}
-				instros.flush();
-				instros.close();				
-				os.flush();
-				os.close();
-			}
-		});
+		final CachedContent prior = cachedContent.put(key, new CachedContent(bb));
+		if(prior!=null) {
+			server.removeContext(key);
+			prior.clean();
+		}
+		servedContentCounts.putIfAbsent(key, new LongAdder());
+		server.createContext(key, this);
 		return URLHelper.toURL(new StringBuilder("http://127.0.0.1:").append(port).append(key));
 	}
 	
@@ -381,6 +356,7 @@ public class HTTPJarServer implements HttpHandler, HTTPJarServerMBean, Runnable
 		bytesDown.reset();		
 		expiryCount.reset();
 		completionCount.reset();
+		notModifiedCount.reset();
 		for(LongAdder ad: this.servedContentCounts.values()) {
 			ad.reset();
 		}
@@ -559,33 +535,36 @@ public class HTTPJarServer implements HttpHandler, HTTPJarServerMBean, Runnable
 		hdrs.add("Access-Control-Allow-Origin", "*");
 		hdrs.add("Access-Control-Allow-Methods", "GET");
 		hdrs.add("Access-Control-Allow-Headers", "Authorization, Content-Type, Accept, Origin, User-Agent, DNT, Cache-Control, X-Mx-ReqToken, Keep-Alive, X-Requested-With, If-Modified-Since");
-		final boolean acceptsGZip = supportsGZip(exch);
-		if(acceptsGZip) {
-			hdrs.add("Content-Encoding", "gzip");
-		}
-		
-		final ByteBuffer bb = cachedContent.get(path);
-		if(bb==null) {
+		final CachedContent cc = cachedContent.get(path);
+		if(cc==null) {
 			log.severe("CachedContent for path [" + path + "] not found");
-			exch.sendResponseHeaders(404, 0);
+			exch.sendResponseHeaders(404, -1);
+			exch.close();
+			return;
+		}
+		final boolean gzipped = cc.hasGzip() && supportsGZip(exch);
+		hdrs.add("Vary", "Accept-Encoding");
+		hdrs.add("ETag", cc.etag(gzipped));
+		if(cc.matches(exch.getRequestHeaders().getFirst("If-None-Match"))) {
+			notModifiedCount.increment();
+			exch.sendResponseHeaders(304, -1);
 			exch.close();
+			return;
+		}
+		if(gzipped) {
+			hdrs.add("Content-Encoding", "gzip");
+		}
+		final boolean head = "HEAD".equalsIgnoreCase(exch.getRequestMethod());
+		exch.sendResponseHeaders(200, head ? -1 : cc.length(gzipped));
+		if(!head) {
+			final OutputStream os = exch.getResponseBody();
+			final InstrumentedOutputStream instros = new InstrumentedOutputStream(os, bytesDown, null);
+			cc.writeTo(gzipped, instros);
+			instros.flush();
+			instros.close();
+			os.flush();
+			os.close();
 		}
-		exch.sendResponseHeaders(200, bb.capacity());
-		final OutputStream os = exch.getResponseBody();
-		final ByteBuffer dup = bb.duplicate();
-		final InstrumentedOutputStream instros = new InstrumentedOutputStream(os, bytesDown, null);
-		if(acceptsGZip) {
-			final GZIPOutputStream gzip = new GZIPOutputStream(instros);
-			Channels.newChannel(gzip).write(dup);
-			gzip.flush();					
-			gzip.close();
-		} else {
-			Channels.newChannel(instros).write(dup);
-		}
-		instros.flush();
-		instros.close();				
-		os.flush();
-		os.close();		
 		try { exch.close(); } catch (Exception x) {/* No Op */}
 		if(completionKey!=null) {
 			for(Iterator<CompletionKey> iter = completionKeyExpirations.iterator(); iter.hasNext();) {
@@ -617,6 +596,15 @@ public class HTTPJarServer implements HttpHandler, HTTPJarServerMBean, Runnable
 	public long getCompletionCount() {
 		return completionCount.longValue();
 	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.http.HTTPJarServerMBean#getNotModifiedCount()
+	 */
+	@Override
+	public long getNotModifiedCount() {
+		return notModifiedCount.longValue();
+	}
 
 	/**
 	 * {@inheritDoc}
@@ -637,6 +625,7 @@ public class HTTPJarServer implements HttpHandler, HTTPJarServerMBean, Runnable
 			final URI queryURI = exch.getRequestURI();
 			if(queryURI!=null) {
 				final String queryString = queryURI.getQuery();
+				if(queryString==null || queryString.isEmpty()) return args;
 				final String[] argPairs = AMP_SPLIT.split(queryString);
 				for(String argPair : argPairs) {
 					if(argPair==null || argPair.trim().isEmpty()) continue;
@@ -82,6 +82,12 @@ public interface HTTPJarServerMBean {
 	 */
 	public long getCompletionCount();	
 	
+	/**
+	 * Returns the cummulative number of conditional requests answered with a 304 (Not Modified) since the last reset
+	 * @return the cummulative number of 304 responses since the last reset
+	 */
+	public long getNotModifiedCount();
+	
 	/**
 	 * Returns the number of served content buffers by content name
 	 * @return the number of served content buffers by content name
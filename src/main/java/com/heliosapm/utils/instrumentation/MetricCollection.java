@@ -23,6 +23,7 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +41,7 @@ import com.heliosapm.utils.instrumentation.measure.Measurer;
 import com.heliosapm.utils.instrumentation.measure.NoopThreadAllocatedBytesReader;
 import com.heliosapm.utils.instrumentation.measure.ThreadAllocatedBytesReader;
 import com.heliosapm.utils.time.SystemClock;
+import com.heliosapm.utils.unsafe.UnsafeAdapter;
 
 /**
  * <p>Title: MetricCollection</p>
@@ -299,6 +301,82 @@ public enum MetricCollection implements ICollector<MetricCollection>, BitMasked
 		return values;				
 	}
 	
+	// ==================================================================================================
+	//  Allocation free frame based collection
+	// ==================================================================================================
+	
+	/**
+	 * Executes the measurements for all the metrics enabled in the passed bitMask against an off-heap frame.
+	 * Unlike the array based collection, the current ThreadInfo is cleared rather than removed so the
+	 * thread local entry is reused.
+	 * @param frame The frame address
+	 * @param bitMask the bitMask indicating which metrics are enabled
+	 * @param isStart true if the collection is starting, false if it is stopping.
+	 */
+	private static void measureFrame(final long frame, final int bitMask, final boolean isStart) {
+		final boolean ti = isRequiresTI(bitMask);
+		if(ti) {
+			currentThreadInfo.set(threadMXBean.getThreadInfo(Thread.currentThread().getId()));
+		}
+		try {
+			for(MetricCollection m: values) {
+				if(m.isEnabled(bitMask)) {
+					m.measurer.measure(isStart, frame);
+				}
+			}
+		} finally {
+			if(ti) currentThreadInfo.set(null);
+		}
+	}
+	
+	/**
+	 * Captures method entry metric baselines into a reusable frame from the calling thread's {@link ThreadMetricSlab}.
+	 * Every call must be matched by a call to {@link #exitFrame(long)} or {@link #exceptionFrame(long)} on the same thread.
+	 * @param bitMask the bitMask indicating which metrics are enabled.
+	 * @return the address of the frame
+	 */
+	public static long enterFrame(final int bitMask) {
+		final long frame = ThreadMetricSlab.get().push();
+		UnsafeAdapter.putLong(frame + (bitMaskIndex << 3), bitMask);
+		UnsafeAdapter.putLong(frame + (openCloseIndex << 3), 1L);
+		measureFrame(frame, bitMask, true);
+		return frame;
+	}
+	
+	/**
+	 * Captures method normal exit metrics into the passed frame. If {@link #RETURN_COUNT} is enabled, it will be incremented.
+	 * The frame's values can be read with {@link ThreadMetricSlab#get(long, MetricCollection)} until the thread enters another frame.
+	 * @param frame The address of the frame returned from {@link #enterFrame(int)}
+	 * @return the address of the frame
+	 */
+	public static long exitFrame(final long frame) {
+		return closeFrame(frame, RETURN_COUNT);
+	}
+	
+	/**
+	 * Captures exit metrics for an exception throwing method exit into the passed frame. If {@link #EXCEPTION_COUNT} is enabled, it will be incremented.
+	 * @param frame The address of the frame returned from {@link #enterFrame(int)}
+	 * @return the address of the frame
+	 */
+	public static long exceptionFrame(final long frame) {
+		return closeFrame(frame, EXCEPTION_COUNT);
+	}
+	
+	private static long closeFrame(final long frame, final MetricCollection counter) {
+		final int bitMask = ThreadMetricSlab.getBitMask(frame);
+		try {
+			measureFrame(frame, bitMask, false);
+			if(counter.isEnabled(bitMask)) {
+				final long slot = frame + (counter.ordinal() << 3);
+				UnsafeAdapter.putLong(slot, UnsafeAdapter.getLong(slot) + 1);
+			}
+			UnsafeAdapter.putLong(frame + (openCloseIndex << 3), 0L);
+		} finally {
+			ThreadMetricSlab.get().pop();
+		}
+		return frame;
+	}
+	
 	/**
 	 * Captures exit metrics for an exception throwing method exit. If {@link #EXCEPTION_COUNT} is enabled, it will be incremented.
 	 * @param values The method entry caputed baseline
@@ -394,8 +472,11 @@ public enum MetricCollection implements ICollector<MetricCollection>, BitMasked
 	 */
 	@Override
 	public void preFlush(final long address, final int bitMask) {
-		// TODO Auto-generated method stub
-		
+		if(ds.size==3 && UnsafeAdapter.getLong(address)==Long.MAX_VALUE) {
+			// No samples in this interval, so replace the min/max sentinels
+			UnsafeAdapter.putLong(address, -1L);
+			UnsafeAdapter.putLong(address + 8, -1L);
+		}
 	}
 	
 	/**
@@ -403,19 +484,32 @@ public enum MetricCollection implements ICollector<MetricCollection>, BitMasked
 	 * @see com.heliosapm.utils.instrumentation.ICollector#resetMemSpace(long, int)
 	 */
 	@Override
-	public void resetMemSpace(long address, int bitMask) {
-		// TODO Auto-generated method stub
-		
+	public void resetMemSpace(final long address, final int bitMask) {
+		UnsafeAdapter.copyMemory(ds.defaultValues, UnsafeAdapter.LONG_ARRAY_OFFSET, null, address, ds.byteSize);
 	}
 	
 	/**
 	 * {@inheritDoc}
+	 * <p>Min/Max/Avg metrics maintain a running average weighted by the accumulated {@link #INVOCATION_COUNT}
+	 * written back by {@link #preApply(long, long[])}. Single value metrics are summed.</p>
 	 * @see com.heliosapm.utils.instrumentation.ICollector#apply(long, long[])
 	 */
 	@Override
 	public void apply(final long address, final long[] collectedValues) {
-		// TODO Auto-generated method stub
-		
+		final long v = collectedValues[ordinal()];
+		if(ds.size==3) {
+			if(v < UnsafeAdapter.getLong(address)) UnsafeAdapter.putLong(address, v);
+			if(v > UnsafeAdapter.getLong(address + 8)) UnsafeAdapter.putLong(address + 8, v);
+			final long avg = UnsafeAdapter.getLong(address + 16);
+			final long count = INVOCATION_COUNT.isEnabled((int)collectedValues[bitMaskIndex]) ? collectedValues[INVOCATION_COUNT.ordinal()] : 0L;
+			if(avg==-1L || count<=1L) {
+				UnsafeAdapter.putLong(address + 16, avg==-1L ? v : (avg + v) >> 1);
+			} else {
+				UnsafeAdapter.putLong(address + 16, avg + ((v - avg) / count));
+			}
+		} else {
+			UnsafeAdapter.putLong(address, UnsafeAdapter.getLong(address) + v);
+		}
 	}
 
 	/**
@@ -424,8 +518,8 @@ public enum MetricCollection implements ICollector<MetricCollection>, BitMasked
 	 */
 	@Override
 	public void preApply(final long address, final long[] collectedValues) {
-		// TODO Auto-generated method stub
-		
+		apply(address, collectedValues);
+		collectedValues[ordinal()] = UnsafeAdapter.getLong(address);
 	}
 	
 	/**
@@ -434,8 +528,15 @@ public enum MetricCollection implements ICollector<MetricCollection>, BitMasked
 	 */
 	@Override
 	public Map<MetricCollection, Long> getOffsets(final int bitMask) {
-		// TODO Auto-generated method stub
-		return null;
+		final Map<MetricCollection, Long> offsets = new EnumMap<MetricCollection, Long>(MetricCollection.class);
+		long offset = 0;
+		for(MetricCollection mc: values) {
+			if(mc.isEnabled(bitMask)) {
+				offsets.put(mc, offset);
+				offset += mc.ds.byteSize;
+			}
+		}
+		return offsets;
 	}
 	
 	
@@ -534,7 +635,7 @@ public enum MetricCollection implements ICollector<MetricCollection>, BitMasked
 	@SuppressWarnings("unchecked")
 	@Override
 	public <E extends Enum<E> & BitMasked> Set<MetricCollection> getEnabledCollectors(final int bitMask) {
-		return (Set<MetricCollection>) EnumSupport.getEnabled((Class<E>)getClass(), bitMask);
+		return (Set<MetricCollection>)(Set<?>) EnumSupport.getEnabled((Class<E>)getClass(), bitMask);
 	}
 
 
@@ -0,0 +1,386 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.instrumentation;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.heliosapm.utils.config.ConfigurationHelper;
+import com.heliosapm.utils.jmx.SharedScheduler;
+import com.heliosapm.utils.unsafe.DeAllocateMe;
+import com.heliosapm.utils.unsafe.UnsafeAdapter;
+
+/**
+ * <p>Title: StripedMemSpace</p>
+ * <p>Description: An instrumentation memory space for one joinpoint, striped across cache line padded
+ * per-thread stripes so concurrent recording threads do not contend on the same cache lines.
+ * The stripes are periodically folded into an aggregate memory space laid out per {@link MetricCollection#getOffsets(int)},
+ * which is then flushed through {@link MetricCollection#preFlush(long, int)} and reset through {@link MetricCollection#resetMemSpace(long, int)}.</p>
+ * <p>Stripes hold raw accumulations: <b>[min, max, sum]</b> for min/max/avg metrics and a running total for single value metrics,
+ * preceded by a sample count. The recording thread is selected by thread id, so a stripe is normally written by one thread,
+ * but all stripe updates are CAS based so threads hashing to the same stripe are still safe. Each slot is drained atomically,
+ * but a fold can see a sample's count and its values in different intervals.</p>
+ * <p>The memory is freed once the mem space is no longer reachable, as there is no point at which a recording thread
+ * could be known to be done with it. A scheduled fold keeps the mem space reachable until it is cancelled.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.instrumentation.StripedMemSpace</code></p>
+ */
+
+public class StripedMemSpace implements DeAllocateMe {
+	/** The config property name for the number of stripes */
+	public static final String CONFIG_STRIPES = "heliosutils.metrics.stripes";
+	/** The default number of stripes, the next power of two at or above the number of cores */
+	public static final int DEFAULT_STRIPES = UnsafeAdapter.findNextPositivePowerOfTwo(SharedScheduler.CORES);
+	/** The cache line size used to pad stripes */
+	public static final int CACHE_LINE = 64;
+
+	/** The bitMask of the enabled metrics */
+	public final int bitMask;
+	/** The enabled metrics */
+	private final MetricCollection[] metrics;
+	/** The offsets of the enabled metrics, indexed the same as {@link #metrics} */
+	private final long[] offsets;
+	/** The number of stripes */
+	private final int stripes;
+	/** The stripe index mask */
+	private final int stripeMask;
+	/** The padded size of one stripe in bytes */
+	private final long stripeSize;
+	/** The size of the aggregate memory space in bytes */
+	private final long memSize;
+	/** The raw allocation address, for deallocation */
+	private final long[][] addresses = new long[1][1];
+	/** The cache line aligned address of the first stripe */
+	private final long stripeBase;
+	/** The address of the aggregate memory space */
+	private final long aggregate;
+	/** The number of samples folded into the aggregate */
+	private long aggregateSamples = 0;
+
+	/**
+	 * Creates a new StripedMemSpace with the configured number of stripes
+	 * @param bitMask The bitMask of the metrics to record
+	 */
+	public StripedMemSpace(final int bitMask) {
+		this(bitMask, ConfigurationHelper.getIntSystemThenEnvProperty(CONFIG_STRIPES, DEFAULT_STRIPES));
+	}
+
+	/**
+	 * Creates a new StripedMemSpace
+	 * @param bitMask The bitMask of the metrics to record
+	 * @param stripes The number of stripes, rounded up to the next power of two
+	 */
+	public StripedMemSpace(final int bitMask, final int stripes) {
+		if(stripes < 1) throw new IllegalArgumentException("Invalid number of stripes [" + stripes + "]");
+		this.bitMask = bitMask;
+		this.stripes = UnsafeAdapter.findNextPositivePowerOfTwo(stripes);
+		stripeMask = this.stripes - 1;
+		final Map<MetricCollection, Long> offsetMap = MetricCollection.INVOCATION_COUNT.getOffsets(bitMask);
+		metrics = offsetMap.keySet().toArray(new MetricCollection[offsetMap.size()]);
+		offsets = new long[metrics.length];
+		long size = 0;
+		for(int i = 0; i < metrics.length; i++) {
+			offsets[i] = offsetMap.get(metrics[i]);
+			size += metrics[i].ds.byteSize;
+		}
+		memSize = size;
+		stripeSize = ((memSize + 8 + CACHE_LINE - 1) / CACHE_LINE) * CACHE_LINE;
+		final long address = UnsafeAdapter.allocateMemory(CACHE_LINE + (stripeSize * this.stripes) + memSize);
+		addresses[0][0] = address;
+		stripeBase = (address + CACHE_LINE - 1) & ~((long)CACHE_LINE - 1);
+		aggregate = stripeBase + (stripeSize * this.stripes);
+		for(int s = 0; s < this.stripes; s++) {
+			resetStripe(stripeBase + (s * stripeSize));
+		}
+		for(int i = 0; i < metrics.length; i++) {
+			metrics[i].resetMemSpace(aggregate + offsets[i], bitMask);
+		}
+		UnsafeAdapter.registerForDeAlloc(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.DeAllocateMe#getAddresses()
+	 */
+	@Override
+	public long[][] getAddresses() {
+		return addresses;
+	}
+
+	/**
+	 * Returns the calling thread's stripe address
+	 * @return the stripe address
+	 */
+	private long stripe() {
+		return stripeBase + ((Thread.currentThread().getId() & stripeMask) * stripeSize);
+	}
+
+	/**
+	 * Writes the raw accumulation defaults into a stripe
+	 * @param stripe The stripe address
+	 */
+	private void resetStripe(final long stripe) {
+		UnsafeAdapter.putLong(stripe, 0L);
+		for(int i = 0; i < metrics.length; i++) {
+			final long slot = stripe + 8 + offsets[i];
+			if(metrics[i].ds.size==3) {
+				UnsafeAdapter.putLong(slot, Long.MAX_VALUE);
+				UnsafeAdapter.putLong(slot + 8, Long.MIN_VALUE);
+				UnsafeAdapter.putLong(slot + 16, 0L);
+			} else {
+				UnsafeAdapter.putLong(slot, 0L);
+			}
+		}
+	}
+
+	/**
+	 * Records the collected values returned from {@link MetricCollection#methodExit(long[])} into the calling thread's stripe
+	 * @param collectedValues The collected values
+	 */
+	public void record(final long[] collectedValues) {
+		final long stripe = stripe();
+		final int mask = (int)collectedValues[MetricCollection.bitMaskIndex];
+		add(stripe, 1L);
+		for(int i = 0; i < metrics.length; i++) {
+			final MetricCollection mc = metrics[i];
+			if(mc.isEnabled(mask)) {
+				accumulate(stripe + 8 + offsets[i], mc.ds.size, collectedValues[mc.ordinal()]);
+			}
+		}
+	}
+
+	/**
+	 * Records the collected values of a frame returned from {@link MetricCollection#exitFrame(long)} into the calling thread's stripe
+	 * @param frame The frame address
+	 */
+	public void record(final long frame) {
+		final long stripe = stripe();
+		final int mask = ThreadMetricSlab.getBitMask(frame);
+		add(stripe, 1L);
+		for(int i = 0; i < metrics.length; i++) {
+			final MetricCollection mc = metrics[i];
+			if(mc.isEnabled(mask)) {
+				accumulate(stripe + 8 + offsets[i], mc.ds.size, ThreadMetricSlab.get(frame, mc));
+			}
+		}
+	}
+
+	private static void accumulate(final long slot, final int size, final long v) {
+		if(size==3) {
+			long current;
+			while(v < (current = UnsafeAdapter.getLongVolatile(null, slot))) {
+				if(UnsafeAdapter.compareAndSwapLong(null, slot, current, v)) break;
+			}
+			while(v > (current = UnsafeAdapter.getLongVolatile(null, slot + 8))) {
+				if(UnsafeAdapter.compareAndSwapLong(null, slot + 8, current, v)) break;
+			}
+			add(slot + 16, v);
+		} else {
+			add(slot, v);
+		}
+	}
+
+	private static void add(final long slot, final long v) {
+		long current;
+		do {
+			current = UnsafeAdapter.getLongVolatile(null, slot);
+		} while(!UnsafeAdapter.compareAndSwapLong(null, slot, current, current + v));
+	}
+
+	private static long drain(final long slot, final long reset) {
+		long current;
+		do {
+			current = UnsafeAdapter.getLongVolatile(null, slot);
+		} while(!UnsafeAdapter.compareAndSwapLong(null, slot, current, reset));
+		return current;
+	}
+
+	/**
+	 * Folds all the stripes into the aggregate memory space, resetting the stripes
+	 */
+	public synchronized void fold() {
+		for(int s = 0; s < stripes; s++) {
+			final long stripe = stripeBase + (s * stripeSize);
+			final long samples = drain(stripe, 0L);
+			if(samples==0L) continue;
+			for(int i = 0; i < metrics.length; i++) {
+				final long slot = stripe + 8 + offsets[i];
+				final long agg = aggregate + offsets[i];
+				if(metrics[i].ds.size==3) {
+					final long min = drain(slot, Long.MAX_VALUE);
+					final long max = drain(slot + 8, Long.MIN_VALUE);
+					final long sum = drain(slot + 16, 0L);
+					if(min < UnsafeAdapter.getLong(agg)) UnsafeAdapter.putLong(agg, min);
+					if(max > UnsafeAdapter.getLong(agg + 8)) UnsafeAdapter.putLong(agg + 8, max);
+					final long avg = UnsafeAdapter.getLong(agg + 16);
+					if(avg==-1L || aggregateSamples==0L) {
+						UnsafeAdapter.putLong(agg + 16, sum / samples);
+					} else {
+						UnsafeAdapter.putLong(agg + 16, (long)(((double)avg * aggregateSamples + sum) / (aggregateSamples + samples)));
+					}
+				} else {
+					UnsafeAdapter.putLong(agg, UnsafeAdapter.getLong(agg) + drain(slot, 0L));
+				}
+			}
+			aggregateSamples += samples;
+		}
+	}
+
+	/**
+	 * Folds the stripes, reads the aggregate through each metric's {@link MetricCollection#preFlush(long, int)}
+	 * and then resets the aggregate through {@link MetricCollection#resetMemSpace(long, int)}.
+	 * @return a map of the interval's values keyed by metric, each in the order of the metric's sub names
+	 */
+	public synchronized Map<MetricCollection, long[]> flush() {
+		final Map<MetricCollection, long[]> flushed = new EnumMap<MetricCollection, long[]>(MetricCollection.class);
+		fold();
+		for(int i = 0; i < metrics.length; i++) {
+			final MetricCollection mc = metrics[i];
+			final long agg = aggregate + offsets[i];
+			mc.preFlush(agg, bitMask);
+			final long[] v = new long[mc.ds.size];
+			UnsafeAdapter.copyMemory(null, agg, v, UnsafeAdapter.LONG_ARRAY_OFFSET, mc.ds.byteSize);
+			flushed.put(mc, v);
+			mc.resetMemSpace(agg, bitMask);
+		}
+		aggregateSamples = 0L;
+		return flushed;
+	}
+
+	/**
+	 * Returns the number of samples folded into the aggregate since the last flush
+	 * @return the number of aggregated samples
+	 */
+	public synchronized long getAggregateSamples() {
+		return aggregateSamples;
+	}
+
+	/**
+	 * Schedules a background fold of the stripes into the aggregate on the {@link SharedScheduler}
+	 * @param period The fold period
+	 * @param unit The unit of the period
+	 * @return the scheduled fold handle
+	 */
+	public ScheduledFuture<?> scheduleFold(final long period, final TimeUnit unit) {
+		return SharedScheduler.getInstance().scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				fold();
+			}
+		}, period, period, unit);
+	}
+
+	/**
+	 * Returns the number of stripes
+	 * @return the number of stripes
+	 */
+	public int getStripes() {
+		return stripes;
+	}
+
+	/**
+	 * Compares concurrent recording into one shared memory space through {@link MetricCollection#apply(long, long[])}
+	 * against recording into a StripedMemSpace.
+	 * @param args Optional: [0]: the number of records per thread
+	 */
+	public static void main(String[] args) {
+		final int loops = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+		final int mask = MetricCollection.defaultMetricsMask;
+		final long[] sample = new long[MetricCollection.itemCount + 2];
+		sample[MetricCollection.bitMaskIndex] = mask;
+		sample[MetricCollection.ELAPSED.ordinal()] = 1000;
+		sample[MetricCollection.INVOCATION_COUNT.ordinal()] = 1;
+		final StripedMemSpace striped = new StripedMemSpace(mask);
+		final Map<MetricCollection, Long> offsetMap = MetricCollection.ELAPSED.getOffsets(mask);
+		final long shared = UnsafeAdapter.allocateMemory(MetricCollection.ELAPSED.getAllocationFor(mask));
+		for(Map.Entry<MetricCollection, Long> e: offsetMap.entrySet()) {
+			e.getKey().resetMemSpace(shared + e.getValue(), mask);
+		}
+		final List<MetricCollection> pre = new ArrayList<MetricCollection>();
+		final List<MetricCollection> post = new ArrayList<MetricCollection>();
+		for(MetricCollection mc: offsetMap.keySet()) {
+			if(mc.isPreApply()) pre.add(mc);
+			else post.add(mc);
+		}
+		final MetricCollection[] preApplies = pre.toArray(new MetricCollection[pre.size()]);
+		final MetricCollection[] applies = post.toArray(new MetricCollection[post.size()]);
+		final long[] preOffsets = new long[preApplies.length];
+		final long[] applyOffsets = new long[applies.length];
+		for(int i = 0; i < preApplies.length; i++) preOffsets[i] = offsetMap.get(preApplies[i]);
+		for(int i = 0; i < applies.length; i++) applyOffsets[i] = offsetMap.get(applies[i]);
+		try {
+			for(int pass = 0; pass < 2; pass++) {
+				for(final int threads: new int[]{1, 4, 16}) {
+					final long sharedNs = run(threads, new Runnable() {
+						@Override
+						public void run() {
+							final long[] values = sample.clone();
+							for(int i = 0; i < loops; i++) {
+								values[MetricCollection.INVOCATION_COUNT.ordinal()] = 1;
+								// the pre-applies, such as INVOCATION_COUNT, write back the values the others apply with
+								for(int p = 0; p < preApplies.length; p++) {
+									preApplies[p].preApply(shared + preOffsets[p], values);
+								}
+								for(int a = 0; a < applies.length; a++) {
+									applies[a].apply(shared + applyOffsets[a], values);
+								}
+							}
+						}
+					});
+					final long stripedNs = run(threads, new Runnable() {
+						@Override
+						public void run() {
+							for(int i = 0; i < loops; i++) {
+								striped.record(sample);
+							}
+						}
+					});
+					if(pass==1) {
+						MetricCollection.log(String.format("Threads: %s   shared: %s ns/op   striped: %s ns/op",
+							threads, sharedNs / loops, stripedNs / loops));
+					}
+				}
+			}
+			MetricCollection.log("Striped flush: " + striped.flush().get(MetricCollection.INVOCATION_COUNT)[0] + " invocations");
+		} finally {
+			UnsafeAdapter.freeMemory(shared);
+		}
+	}
+
+	private static long run(final int threads, final Runnable r) {
+		final CountDownLatch latch = new CountDownLatch(threads);
+		final long start = System.nanoTime();
+		for(int t = 0; t < threads; t++) {
+			new Thread("StripedMemSpaceBench#" + t) {
+				@Override
+				public void run() {
+					try { r.run(); } finally { latch.countDown(); }
+				}
+			}.start();
+		}
+		try { latch.await(); } catch (InterruptedException iex) { throw new RuntimeException(iex); }
+		return System.nanoTime() - start;
+	}
+}
@@ -0,0 +1,191 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.instrumentation;
+
+import com.heliosapm.utils.config.ConfigurationHelper;
+import com.heliosapm.utils.instrumentation.measure.ThreadMemAlloc;
+import com.heliosapm.utils.unsafe.DeAllocateMe;
+import com.heliosapm.utils.unsafe.UnsafeAdapter;
+
+/**
+ * <p>Title: ThreadMetricSlab</p>
+ * <p>Description: A per-thread, off-heap stack of reusable metric value frames, indexed by instrumented call depth.
+ * Each frame has the same layout as the <b><code>long[]</code></b> returned by {@link MetricCollection#methodEnter(int)}
+ * so measurements can be captured on method entry and exit without allocating.</p>
+ * <p>Frames are allocated in chunks of {@link #CHUNK_DEPTH} which are never moved once allocated, so a frame address
+ * stays valid while the thread is deeper in the call stack. The slab's memory is released when the owning thread's
+ * slab is garbage collected.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.instrumentation.ThreadMetricSlab</code></p>
+ */
+
+public class ThreadMetricSlab implements DeAllocateMe {
+	/** The config property name for the number of frames allocated in each slab chunk */
+	public static final String CONFIG_CHUNK_DEPTH = "heliosutils.metrics.slab.depth";
+	/** The default number of frames allocated in each slab chunk */
+	public static final int DEFAULT_CHUNK_DEPTH = 32;
+	/** The number of frames allocated in each slab chunk */
+	public static final int CHUNK_DEPTH = ConfigurationHelper.getIntSystemThenEnvProperty(CONFIG_CHUNK_DEPTH, DEFAULT_CHUNK_DEPTH);
+	/** The maximum number of chunks per thread */
+	public static final int MAX_CHUNKS = 64;
+	/** The size of one frame in bytes */
+	public static final int FRAME_SIZE = (MetricCollection.itemCount + 2) << 3;
+	/** The size of one chunk in bytes */
+	private static final long CHUNK_SIZE = (long)FRAME_SIZE * CHUNK_DEPTH;
+
+	/** The per thread slabs */
+	private static final ThreadLocal<ThreadMetricSlab> slabs = new ThreadLocal<ThreadMetricSlab>() {
+		@Override
+		protected ThreadMetricSlab initialValue() {
+			return new ThreadMetricSlab();
+		}
+	};
+
+	/** The chunk addresses, pre-sized so the deallocator sees chunks allocated after registration */
+	private final long[][] addresses = new long[MAX_CHUNKS][1];
+	/** The current call depth */
+	private int depth = 0;
+
+	/**
+	 * Returns the calling thread's slab
+	 * @return the calling thread's slab
+	 */
+	public static ThreadMetricSlab get() {
+		return slabs.get();
+	}
+
+	/**
+	 * Creates a new ThreadMetricSlab
+	 */
+	private ThreadMetricSlab() {
+		addresses[0][0] = UnsafeAdapter.allocateMemory(CHUNK_SIZE);
+		UnsafeAdapter.registerForDeAlloc(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.DeAllocateMe#getAddresses()
+	 */
+	@Override
+	public long[][] getAddresses() {
+		return addresses;
+	}
+
+	/**
+	 * Pushes a new zeroed frame onto the slab
+	 * @return the address of the frame
+	 */
+	long push() {
+		final int chunk = depth / CHUNK_DEPTH;
+		if(chunk >= MAX_CHUNKS) throw new IllegalStateException("Instrumented call depth exceeded [" + (MAX_CHUNKS * CHUNK_DEPTH) + "]. Are frames being exited ?");
+		if(addresses[chunk][0]==0) {
+			addresses[chunk][0] = UnsafeAdapter.allocateMemory(CHUNK_SIZE);
+		}
+		final long frame = addresses[chunk][0] + ((long)(depth % CHUNK_DEPTH) * FRAME_SIZE);
+		depth++;
+		UnsafeAdapter.setMemory(frame, FRAME_SIZE, (byte)0);
+		return frame;
+	}
+
+	/**
+	 * Pops the current frame off the slab. The popped frame's values remain readable until the next push.
+	 */
+	void pop() {
+		if(depth > 0) depth--;
+	}
+
+	/**
+	 * Returns the current instrumented call depth of this slab's thread
+	 * @return the current call depth
+	 */
+	public int depth() {
+		return depth;
+	}
+
+	/**
+	 * Returns the value for the passed metric from a frame
+	 * @param frame The frame address
+	 * @param mc The metric to read
+	 * @return the metric value
+	 */
+	public static long get(final long frame, final MetricCollection mc) {
+		return UnsafeAdapter.getLong(frame + (mc.ordinal() << 3));
+	}
+
+	/**
+	 * Returns the bit mask the frame was captured with
+	 * @param frame The frame address
+	 * @return the bit mask
+	 */
+	public static int getBitMask(final long frame) {
+		return (int)UnsafeAdapter.getLong(frame + (MetricCollection.bitMaskIndex << 3));
+	}
+
+	/**
+	 * Copies a frame's values into the passed array which must have a length of at least <b><code>{@link MetricCollection#itemCount} + 2</code></b>
+	 * @param frame The frame address
+	 * @param values The array to copy into
+	 * @return the passed array
+	 */
+	public static long[] copy(final long frame, final long[] values) {
+		UnsafeAdapter.copyMemory(null, frame, values, UnsafeAdapter.LONG_ARRAY_OFFSET, FRAME_SIZE);
+		return values;
+	}
+
+	/**
+	 * Compares the time and heap allocation per call of {@link MetricCollection#methodEnter(int)}/{@link MetricCollection#methodExit(long[])}
+	 * against {@link MetricCollection#enterFrame(int)}/{@link MetricCollection#exitFrame(long)}
+	 * @param args Optional: [0]: the number of calls per run
+	 */
+	public static void main(String[] args) {
+		final int loops = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		final ThreadMemAlloc alloc = new ThreadMemAlloc();
+		final long id = Thread.currentThread().getId();
+		final int cpuMask = MetricCollection.SYS_CPU.enableFor(MetricCollection.USER_CPU.enableFor(MetricCollection.RETURN_COUNT.enableFor(MetricCollection.defaultMetricsMask)));
+		final int tiMask = MetricCollection.WAIT_COUNT.enableFor(MetricCollection.BLOCK_COUNT.enableFor(cpuMask));
+		final int[] masks = {MetricCollection.defaultMetricsMask, cpuMask, tiMask};
+		final String[] names = {"default", "cpu", "cpu+threadinfo"};
+		long sink = 0;
+		for(int pass = 0; pass < 2; pass++) {
+			for(int m = 0; m < masks.length; m++) {
+				final int mask = masks[m];
+				long bytes = alloc.getThreadAllocatedBytes(id);
+				long start = System.nanoTime();
+				for(int i = 0; i < loops; i++) {
+					sink += MetricCollection.methodExit(MetricCollection.methodEnter(mask))[MetricCollection.ELAPSED.ordinal()];
+				}
+				final long arrElapsed = System.nanoTime() - start;
+				final long arrBytes = alloc.getThreadAllocatedBytes(id) - bytes;
+				bytes = alloc.getThreadAllocatedBytes(id);
+				start = System.nanoTime();
+				for(int i = 0; i < loops; i++) {
+					sink += get(MetricCollection.exitFrame(MetricCollection.enterFrame(mask)), MetricCollection.ELAPSED);
+				}
+				final long slabElapsed = System.nanoTime() - start;
+				final long slabBytes = alloc.getThreadAllocatedBytes(id) - bytes;
+				if(pass==1) {
+					MetricCollection.log(String.format("[%s]  long[]: %s ns/op, %s bytes/op    slab: %s ns/op, %s bytes/op",
+						names[m], arrElapsed/loops, arrBytes/loops, slabElapsed/loops, slabBytes/loops));
+				}
+			}
+		}
+		MetricCollection.log("(sink:" + sink + ")");
+	}
+}
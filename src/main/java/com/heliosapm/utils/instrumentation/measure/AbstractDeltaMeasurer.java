@@ -3,6 +3,7 @@
  */
 package com.heliosapm.utils.instrumentation.measure;
 
+import com.heliosapm.utils.unsafe.UnsafeAdapter;
 
 /**
  * <p>Title: AbstractDeltaMeasurer</p>
@@ -33,6 +34,18 @@ public abstract class AbstractDeltaMeasurer extends AbstractMeasurer {
 		return v;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.instrumentation.measure.Measurer#measure(boolean, long)
+	 */
+	@Override
+	public long measure(final boolean open, final long address) {
+		final long v = sample();
+		final long slot = address + (metricOrdinal << 3);
+		UnsafeAdapter.putLong(slot, open ? v : v-UnsafeAdapter.getLong(slot));
+		return v;
+	}
+	
 	/**
 	 * Collects the opening and/or closing raw metric sample
 	 * @return the sampled value
@@ -31,6 +31,15 @@ public class DefaultMeasurer extends AbstractMeasurer {
 //		return -1L;
 		return 0;
 	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.instrumentation.measure.Measurer#measure(boolean, long)
+	 */
+	@Override
+	public long measure(boolean open, long address) {
+		return 0;
+	}
 
 
 }
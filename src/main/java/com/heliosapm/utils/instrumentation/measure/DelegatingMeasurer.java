@@ -32,6 +32,15 @@ public class DelegatingMeasurer implements Measurer {
 	public long measure(boolean open, long[] values) {
 		return delegate.measure(open, values);
 	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.instrumentation.measure.Measurer#measure(boolean, long)
+	 */
+	@Override
+	public long measure(boolean open, long address) {
+		return delegate.measure(open, address);
+	}
 
 	/**
 	 * {@inheritDoc}
@@ -3,6 +3,7 @@
  */
 package com.heliosapm.utils.instrumentation.measure;
 
+import com.heliosapm.utils.unsafe.UnsafeAdapter;
 
 /**
  * <p>Title: InvocationMeasurer</p>
@@ -32,6 +33,18 @@ public class InvocationMeasurer extends AbstractMeasurer {
 		values[metricOrdinal] = values[metricOrdinal] + v; 
 		return v;
 	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.instrumentation.measure.Measurer#measure(boolean, long)
+	 */
+	@Override
+	public long measure(boolean open, long address) {
+		int v = open ? 1 : 0;
+		final long slot = address + (metricOrdinal << 3);
+		UnsafeAdapter.putLong(slot, UnsafeAdapter.getLong(slot) + v);
+		return v;
+	}
 
 
 
@@ -17,6 +17,15 @@ public interface Measurer {
 	 */
 	public long measure(boolean open, long[] values);
 	
+	/**
+	 * Capture a measurement against an off-heap values frame and return the value.
+	 * The frame has the same layout as the values array, so this measurer's value is at <b><code>address + (ordinal &lt;&lt; 3)</code></b>.
+	 * @param open if true, this is a opening measurement, if false, it is closing.
+	 * @param address The address of the values frame to measure against
+	 * @return the value of the measurement
+	 */
+	public long measure(boolean open, long address);
+	
 	/**
 	 * Returns the ordinal this measurer is set to
 	 * @return the ordinal this measurer is set to
@@ -18,25 +18,40 @@ under the License.
  */
 package com.heliosapm.utils.jar;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
 
+import com.heliosapm.utils.config.ConfigurationHelper;
 import com.heliosapm.utils.file.FileFilterBuilder;
+import com.heliosapm.utils.jmx.JMXHelper;
+import com.heliosapm.utils.jmx.ManagedForkJoinPool;
 import com.heliosapm.utils.url.URLHelper;
 
 /**
@@ -48,12 +63,12 @@ import com.heliosapm.utils.url.URLHelper;
  */
 
 public class JarBuilder {
-	/** The file we will write the jar to */
-	final File jarFile;
+	/** The file we will write the jar to, or null until {@link #build()} creates a temp file */
+	File jarFile;
 	/** The content specifiers */
 	final Set<ResourceFilter> specifiers = new LinkedHashSet<ResourceFilter>();
-	/** The resources that will be written to the jar */
-	final Map<URL, String> foundResources = new HashMap<URL, String>();
+	/** The resources that will be written to the jar, in the order they were found */
+	final Map<URL, String> foundResources = new LinkedHashMap<URL, String>();
 	/** The resource names to track uniqueness */
 	final Set<String> resourceNames = new HashSet<String>();
 	/** Duplicate resources  */
@@ -64,6 +79,21 @@ public class JarBuilder {
 	
 	/** The manifest */
 	Manifest manifest = null;
+	/** The deflate level */
+	int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+	/** Indicates if entries are stored uncompressed */
+	boolean stored = false;
+	/** Indicates if entries are read and compressed in parallel */
+	boolean parallel = false;
+
+	/** The default deflate level */
+	public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.BEST_COMPRESSION;
+	/** The config property name for the parallelism of the shared compression pool */
+	public static final String CONFIG_PARALLELISM = "heliosutils.jarbuilder.parallelism";
+	/** The default parallelism of the shared compression pool */
+	public static final int DEFAULT_PARALLELISM = ManagedForkJoinPool.CORES;
+	/** The number of entries compressed ahead of the writer, per pool thread */
+	private static final int ENTRIES_AHEAD = 4;
 
 	/** Static class logger */
 	private final static Logger log = Logger.getLogger(JarBuilder.class.getName()); 
@@ -77,10 +107,11 @@ public class JarBuilder {
 	}
 
 	/**
-	 * Creates a new JarBuilder to write a jar to to a temp file
+	 * Creates a new JarBuilder without a file. {@link #buildBuffer()} builds the jar in memory
+	 * without touching the disk, and {@link #build()} writes the jar to a temp file created at that point.
 	 */
 	public JarBuilder() {
-		this(tmpFile(), true);
+		jarFile = null;
 	}
 	
 	private static File tmpFile() {
@@ -110,6 +141,38 @@ public class JarBuilder {
 		return this;
 	}
 	
+	/**
+	 * Sets the deflate level entries are compressed at. The default is {@link #DEFAULT_COMPRESSION_LEVEL}.
+	 * @param level The deflate level, from {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION}
+	 * @return this jar builder
+	 */
+	public JarBuilder compressionLevel(final int level) {
+		if(level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) throw new IllegalArgumentException("Invalid compression level [" + level + "]");
+		this.compressionLevel = level;
+		return this;
+	}
+	
+	/**
+	 * Indicates if entries should be stored without compression, which is the fastest build for jars that are only used locally
+	 * @param stored true to store entries, false to deflate them
+	 * @return this jar builder
+	 */
+	public JarBuilder stored(final boolean stored) {
+		this.stored = stored;
+		return this;
+	}
+	
+	/**
+	 * Indicates if entries should be read and compressed in parallel on a shared pool.
+	 * The entries are still written in the order they were found.
+	 * @param parallel true to compress in parallel, false to compress on the calling thread
+	 * @return this jar builder
+	 */
+	public JarBuilder parallel(final boolean parallel) {
+		this.parallel = parallel;
+		return this;
+	}
+	
 	/**
 	 * Adds a resource merger
 	 * @param merger the merger to add
@@ -163,52 +226,39 @@ public class JarBuilder {
 //			.res("org.json").classLoader(JSONObject.class).apply()
 			.build();
 		System.out.println(f);
+		// build time of a jar of this library in each mode
+		final String base = args.length > 0 ? args[0] : "com.heliosapm";
+		final int loops = 10;
+		final String[] modes = {"serial, level 9", "parallel, level 9", "parallel, level 6", "parallel, stored", "parallel, level 6, buffer"};
+		for(int m = 0; m < modes.length; m++) {
+			long total = 0L, size = 0L;
+			for(int i = 0; i < loops + 2; i++) {
+				final JarBuilder jb = new JarBuilder(new File("/tmp/bench.jar"), true)
+					.res(base).classLoader(JarBuilder.class).apply()
+					.parallel(m > 0).compressionLevel(m < 2 ? 9 : 6).stored(m==3);
+				final long start = System.nanoTime();
+				size = m==4 ? jb.buildBuffer().capacity() : jb.build().length();
+				if(i >= 2) total += System.nanoTime() - start;
+			}
+			System.out.println(String.format("%-26s: %6d us, %d bytes", modes[m], total / loops / 1000, size));
+		}
 	}
 	
+	/**
+	 * Scans the configured resources and writes the jar to this builder's file, or to a new temp file
+	 * if this builder was created without one
+	 * @return the written jar file
+	 */
 	public File build() {
-		for(ResourceFilter rs: this.specifiers) {
-			rs.find();
-		}
+		if(jarFile==null) jarFile = tmpFile();
 		FileOutputStream fos = null;
-		JarOutputStream jos = null;
 		try {
 			fos = new FileOutputStream(jarFile, false);
-			if(manifest==null) {
-				manifest = new ManifestBuilder(this).autoCreatedBy().build();
-			}
-			jos = new JarOutputStream(fos, manifest);
-			jos.setLevel(9);
-			
-			final byte[] buf = new byte[8192];
-			int bytesRead = 0;
-			for(Map.Entry<URL, String> entry: foundResources.entrySet()) {
-				JarEntry je = new JarEntry(entry.getValue());
-				jos.putNextEntry(je);
-				bytesRead = 0;
-				InputStream is = null;
-				try {
-					is = entry.getKey().openStream();
-					while((bytesRead=is.read(buf))!=-1) {
-						jos.write(buf, 0, bytesRead);
-					}
-					jos.flush();
-					jos.closeEntry();
-					if(log.isLoggable(Level.FINE)) log.log(Level.FINE, "Wrote entry [" + entry.getValue() + "]"); 					
-				} catch (Exception ex) {
-					throw new RuntimeException("Failed to write entry [" + entry.getValue() + "]", ex);
-				} finally {
-					if(is!=null) try { is.close(); } catch (Exception x) {/* No Op */}
-				}
-				//jos.putNextEntry(new ZipEntry(clazz.getName().replace('.', '/') + ".class"));
-			}
-			jos.flush();
-			for(ResourceMerger rm: mergers) {
-				rm.writeMerged(jos);
-			}
-			jos.close();
-			fos.flush();
+			final OutputStream os = new BufferedOutputStream(fos, 65536);
+			final int entries = write(os);
+			os.flush();
 			fos.close();
-			if(log.isLoggable(Level.FINE)) log.fine(String.format("Jar Complete: [%s], Size: [%s] bytes", jarFile.getAbsolutePath(), jarFile.length()));
+			if(log.isLoggable(Level.FINE)) log.fine(String.format("Jar Complete: [%s], Entries: [%s], Size: [%s] bytes", jarFile.getAbsolutePath(), entries, jarFile.length()));
 			return jarFile;
 		} catch (Exception e) {
 			log.log(Level.SEVERE, "Failed to write Jar [" + jarFile + "]", e);
@@ -216,7 +266,220 @@ public class JarBuilder {
 		} finally {
 			if(fos!=null) try { fos.close(); } catch (Exception e) {}
 		}
+	}
+	
+	/**
+	 * Scans the configured resources and writes the jar into a heap buffer without touching the disk,
+	 * e.g. for {@link com.heliosapm.utils.http.HTTPJarServer#register(String, ByteBuffer)}.
+	 * @return a buffer containing the jar, whose capacity is the jar size
+	 */
+	public ByteBuffer buildBuffer() {
+		try {
+			final JarStitcher.BufferOutputStream bos = new JarStitcher.BufferOutputStream(65536);
+			final int entries = write(bos);
+			final ByteBuffer bb = bos.toBuffer();
+			if(log.isLoggable(Level.FINE)) log.fine(String.format("Jar Buffer Complete: Entries: [%s], Size: [%s] bytes", entries, bb.capacity()));
+			return bb;
+		} catch (Exception e) {
+			log.log(Level.SEVERE, "Failed to write Jar buffer", e);
+			throw new RuntimeException("Failed to write Jar buffer", e);
+		}
+	}
+	
+	/**
+	 * Scans the configured resources and writes the jar to the passed stream.
+	 * The manifest is written first, then the found resources in the order they were found, then the merged resources.
+	 * @param os The stream to write to
+	 * @return the number of entries written
+	 * @throws IOException thrown on any IO error
+	 */
+	protected int write(final OutputStream os) throws IOException {
+		for(ResourceFilter rs: this.specifiers) {
+			rs.find();
+		}
+		if(manifest==null) {
+			manifest = new ManifestBuilder(this).autoCreatedBy().build();
+		}
+		final long time = System.currentTimeMillis();
+		final JarStitcher stitcher = new JarStitcher(os);
+		final ByteArrayOutputStream mf = new ByteArrayOutputStream(1024);
+		manifest.write(mf);
+		stitcher.write(JarStitcher.compress(JarFile.MANIFEST_NAME, mf.toByteArray(), time, compressionLevel, stored));
+		if(parallel) {
+			writeParallel(stitcher, time);
+		} else {
+			for(Map.Entry<URL, String> entry: foundResources.entrySet()) {
+				stitcher.write(new EntryTask(entry.getKey(), entry.getValue(), time).call());
+				if(log.isLoggable(Level.FINE)) log.log(Level.FINE, "Wrote entry [" + entry.getValue() + "]");
+			}
+		}
+		if(!mergers.isEmpty()) {
+			final MergerCapture capture = new MergerCapture();
+			for(ResourceMerger rm: mergers) {
+				rm.writeMerged(capture);
+			}
+			capture.closeEntry();
+			for(Map.Entry<String, byte[]> entry: capture.entries.entrySet()) {
+				stitcher.write(JarStitcher.compress(entry.getKey(), entry.getValue(), time, compressionLevel, stored));
+			}
+		}
+		stitcher.finish();
+		return stitcher.entries();
+	}
+	
+	/**
+	 * Reads and compresses the found resources on the shared pool, keeping a bounded number of entries in flight,
+	 * and writes them in order as they complete
+	 * @param stitcher The stitcher to write the entries to
+	 * @param time The entry timestamp
+	 * @throws IOException thrown on any IO error
+	 */
+	private void writeParallel(final JarStitcher stitcher, final long time) throws IOException {
+		final ManagedForkJoinPool pool = PoolHolder.POOL;
+		final int ahead = Math.max(2, pool.getParallelism() * ENTRIES_AHEAD);
+		final LinkedList<Future<JarStitcher.Entry>> inFlight = new LinkedList<Future<JarStitcher.Entry>>();
+		final LinkedList<String> names = new LinkedList<String>();
+		try {
+			for(Map.Entry<URL, String> entry: foundResources.entrySet()) {
+				if(inFlight.size()==ahead) {
+					stitcher.write(next(inFlight, names));
+				}
+				inFlight.add(pool.submit(new EntryTask(entry.getKey(), entry.getValue(), time)));
+				names.add(entry.getValue());
+			}
+			while(!inFlight.isEmpty()) {
+				stitcher.write(next(inFlight, names));
+			}
+		} finally {
+			for(Future<JarStitcher.Entry> f: inFlight) {
+				f.cancel(false);
+			}
+		}
+	}
+	
+	private JarStitcher.Entry next(final LinkedList<Future<JarStitcher.Entry>> inFlight, final LinkedList<String> names) throws IOException {
+		final String name = names.removeFirst();
+		try {
+			final JarStitcher.Entry e = inFlight.getFirst().get();
+			inFlight.removeFirst();
+			if(log.isLoggable(Level.FINE)) log.log(Level.FINE, "Wrote entry [" + name + "]");
+			return e;
+		} catch (ExecutionException eex) {
+			final Throwable t = eex.getCause();
+			if(t instanceof RuntimeException) throw (RuntimeException)t;
+			throw new RuntimeException("Failed to write entry [" + name + "]", t);
+		} catch (InterruptedException iex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while writing entry [" + name + "]", iex);
+		}
+	}
+	
+	/**
+	 * <p>Title: EntryTask</p>
+	 * <p>Description: Reads and compresses one found resource</p>
+	 */
+	private class EntryTask implements Callable<JarStitcher.Entry> {
+		final URL url;
+		final String name;
+		final long time;
 		
+		EntryTask(final URL url, final String name, final long time) {
+			this.url = url;
+			this.name = name;
+			this.time = time;
+		}
+
+		@Override
+		public JarStitcher.Entry call() {
+			if(name.endsWith("/")) {
+				return JarStitcher.compress(name, new byte[0], time, compressionLevel, stored);
+			}
+			InputStream is = null;
+			try {
+				is = url.openStream();
+				final ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
+				final byte[] buf = new byte[16384];
+				int bytesRead = 0;
+				while((bytesRead=is.read(buf))!=-1) {
+					baos.write(buf, 0, bytesRead);
+				}
+				return JarStitcher.compress(name, baos.toByteArray(), time, compressionLevel, stored);
+			} catch (Exception ex) {
+				throw new RuntimeException("Failed to write entry [" + name + "]", ex);
+			} finally {
+				if(is!=null) try { is.close(); } catch (Exception x) {/* No Op */}
+			}
+		}
+	}
+	
+	/**
+	 * <p>Title: MergerCapture</p>
+	 * <p>Description: The jar output stream passed to {@link ResourceMerger#writeMerged(JarOutputStream)}, which
+	 * captures the merged entries so they can be compressed and stitched into the jar like any other entry.</p>
+	 */
+	private static class MergerCapture extends JarOutputStream {
+		/** The captured entry content keyed by entry name */
+		final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+		/** The name of the current entry */
+		String name = null;
+		/** The content of the current entry */
+		final ByteArrayOutputStream content = new ByteArrayOutputStream(1024);
+
+		MergerCapture() throws IOException {
+			super(new ByteArrayOutputStream(0));
+		}
+
+		@Override
+		public void putNextEntry(final ZipEntry ze) throws IOException {
+			closeEntry();
+			name = ze.getName();
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			if(name==null) throw new IOException("No current entry");
+			content.write(b, off, len);
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			if(name==null) throw new IOException("No current entry");
+			content.write(b);
+		}
+
+		@Override
+		public void closeEntry() {
+			if(name!=null) {
+				entries.put(name, content.toByteArray());
+				content.reset();
+				name = null;
+			}
+		}
+
+		@Override
+		public void flush() {
+			/* No Op */
+		}
+
+		@Override
+		public void finish() {
+			closeEntry();
+		}
+
+		@Override
+		public void close() {
+			closeEntry();
+		}
+	}
+	
+	/**
+	 * <p>Title: PoolHolder</p>
+	 * <p>Description: Lazy holder for the shared compression pool</p>
+	 */
+	private static class PoolHolder {
+		static final ManagedForkJoinPool POOL = new ManagedForkJoinPool("JarBuilder", 
+			ConfigurationHelper.getIntSystemThenEnvProperty(CONFIG_PARALLELISM, DEFAULT_PARALLELISM), true,
+			JMXHelper.objectName("com.heliosapm.utils.jar:service=JarBuilder,type=ForkJoinPool"));
 	}
 	
 	public static String binToRes(final String path) {
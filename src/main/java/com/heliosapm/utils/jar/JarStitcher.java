@@ -0,0 +1,290 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.jar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * <p>Title: JarStitcher</p>
+ * <p>Description: Writes entries that have already been compressed into a zip archive, in the order they are passed.
+ * <code>JarOutputStream</code> insists on deflating entry data itself, so {@link JarBuilder} compresses entries
+ * with {@link #compress(String, byte[], long, int, boolean)}, possibly on several threads, and stitches the results
+ * together here with the local headers, central directory and end record written directly.</p>
+ * <p>Zip64 is not supported, so archives are limited to 65535 entries and 4GB.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.jar.JarStitcher</code></p>
+ */
+
+class JarStitcher {
+	/** The stream the archive is written to */
+	private final OutputStream out;
+	/** The central directory, accumulated as entries are written so entry data is not retained */
+	private final ByteArrayOutputStream cen = new ByteArrayOutputStream(8192);
+	/** The number of entries written */
+	private int count = 0;
+	/** The written entry names, to reject duplicates */
+	private final Set<String> names = new HashSet<String>();
+	/** Header scratch buffer */
+	private final byte[] header = new byte[46];
+	/** The number of bytes written so far */
+	private long offset = 0L;
+
+	/** The UTF-8 charset entry names are encoded in */
+	static final Charset UTF8 = Charset.forName("UTF-8");
+	/** The general purpose flag indicating UTF-8 names */
+	private static final int FLAG_UTF8 = 0x0800;
+	/** The largest offset or size that fits without zip64 */
+	private static final long MAX_ZIP32 = 0xFFFFFFFFL;
+
+	/** Per thread deflaters so compressing threads do not allocate native zlib state for every entry */
+	private static final ThreadLocal<Deflater> DEFLATERS = new ThreadLocal<Deflater>() {
+		@Override
+		protected Deflater initialValue() {
+			return new Deflater(Deflater.BEST_COMPRESSION, true);
+		}
+	};
+
+	/**
+	 * <p>Title: Entry</p>
+	 * <p>Description: A compressed entry ready to be stitched into the archive</p>
+	 */
+	static final class Entry {
+		/** The encoded entry name */
+		final byte[] name;
+		/** The entry name */
+		final String entryName;
+		/** The compression method, {@link Deflater#DEFLATED} or zero for stored */
+		final int method;
+		/** The CRC32 of the uncompressed data */
+		final long crc;
+		/** The uncompressed size */
+		final long size;
+		/** The entry data as it will be written */
+		final byte[] data;
+		/** The length of the entry data */
+		final int length;
+		/** The DOS timestamp */
+		final long dosTime;
+
+		Entry(final String entryName, final int method, final long crc, final long size, final byte[] data, final int length, final long dosTime) {
+			this.entryName = entryName;
+			this.name = entryName.getBytes(UTF8);
+			this.method = method;
+			this.crc = crc;
+			this.size = size;
+			this.data = data;
+			this.length = length;
+			this.dosTime = dosTime;
+		}
+	}
+
+	/**
+	 * Creates a new JarStitcher
+	 * @param out The stream the archive is written to
+	 */
+	JarStitcher(final OutputStream out) {
+		if(out==null) throw new IllegalArgumentException("The passed output stream was null");
+		this.out = out;
+	}
+
+	/**
+	 * Compresses the passed content into an entry. Entries with names ending in <code>/</code> are written as
+	 * directories, and content that does not shrink when deflated is stored.
+	 * @param name The entry name
+	 * @param content The uncompressed content
+	 * @param time The entry timestamp in ms
+	 * @param level The deflate level
+	 * @param stored true to store the entry without compressing it
+	 * @return the compressed entry
+	 */
+	static Entry compress(final String name, final byte[] content, final long time, final int level, final boolean stored) {
+		final long dosTime = dosTime(time);
+		final int size = content.length;
+		if(name.endsWith("/")) {
+			return new Entry(name, 0, 0L, 0L, content, 0, dosTime);
+		}
+		final CRC32 crc = new CRC32();
+		crc.update(content, 0, size);
+		if(stored || size==0) {
+			return new Entry(name, 0, crc.getValue(), size, content, size, dosTime);
+		}
+		final Deflater deflater = DEFLATERS.get();
+		deflater.reset();
+		deflater.setLevel(level);
+		deflater.setInput(content, 0, size);
+		deflater.finish();
+		byte[] buf = new byte[size + (size >> 3) + 64];
+		int len = 0;
+		while(!deflater.finished()) {
+			if(len==buf.length) {
+				final byte[] tmp = new byte[buf.length * 2];
+				System.arraycopy(buf, 0, tmp, 0, len);
+				buf = tmp;
+			}
+			len += deflater.deflate(buf, len, buf.length - len);
+		}
+		if(len >= size) {
+			return new Entry(name, 0, crc.getValue(), size, content, size, dosTime);
+		}
+		return new Entry(name, Deflater.DEFLATED, crc.getValue(), size, buf, len, dosTime);
+	}
+
+	/**
+	 * Writes the passed entry's local header and data
+	 * @param entry The entry to write
+	 * @throws IOException thrown on any IO error, or if the entry is a duplicate or the archive would need zip64
+	 */
+	void write(final Entry entry) throws IOException {
+		if(!names.add(entry.entryName)) throw new ZipException("duplicate entry: " + entry.entryName);
+		if(count==0xFFFF) throw new ZipException("Too many entries for a zip without zip64");
+		final int version = entry.method==0 ? 10 : 20;
+		final byte[] h = header;
+		putInt(h, 0, 0x02014b50L);
+		putShort(h, 4, 20);
+		putShort(h, 6, version);
+		putShort(h, 8, FLAG_UTF8);
+		putShort(h, 10, entry.method);
+		putInt(h, 12, entry.dosTime);
+		putInt(h, 16, entry.crc);
+		putInt(h, 20, entry.length);
+		putInt(h, 24, entry.size);
+		putShort(h, 28, entry.name.length);
+		putShort(h, 30, 0);
+		putShort(h, 32, 0);
+		putShort(h, 34, 0);
+		putShort(h, 36, 0);
+		putInt(h, 38, 0);
+		putInt(h, 42, offset);
+		cen.write(h, 0, 46);
+		cen.write(entry.name);
+		putInt(h, 0, 0x04034b50L);
+		putShort(h, 4, version);
+		putShort(h, 6, FLAG_UTF8);
+		putShort(h, 8, entry.method);
+		putInt(h, 10, entry.dosTime);
+		putInt(h, 14, entry.crc);
+		putInt(h, 18, entry.length);
+		putInt(h, 22, entry.size);
+		putShort(h, 26, entry.name.length);
+		putShort(h, 28, 0);
+		out.write(h, 0, 30);
+		out.write(entry.name);
+		out.write(entry.data, 0, entry.length);
+		count++;
+		advance(30L + entry.name.length + entry.length);
+	}
+
+	/**
+	 * Writes the central directory and end record. The underlying stream is flushed but not closed.
+	 * @throws IOException thrown on any IO error
+	 */
+	void finish() throws IOException {
+		final long cenOffset = offset;
+		cen.writeTo(out);
+		advance(cen.size());
+		final byte[] h = header;
+		putInt(h, 0, 0x06054b50L);
+		putShort(h, 4, 0);
+		putShort(h, 6, 0);
+		putShort(h, 8, count);
+		putShort(h, 10, count);
+		putInt(h, 12, cen.size());
+		putInt(h, 16, cenOffset);
+		putShort(h, 20, 0);
+		out.write(h, 0, 22);
+		advance(22L);
+		out.flush();
+	}
+
+	/**
+	 * Returns the number of bytes written so far
+	 * @return the number of bytes written
+	 */
+	long size() {
+		return offset;
+	}
+
+	/**
+	 * Returns the number of entries written so far
+	 * @return the number of entries written
+	 */
+	int entries() {
+		return count;
+	}
+
+	private void advance(final long bytes) throws IOException {
+		offset += bytes;
+		if(offset > MAX_ZIP32) throw new ZipException("Archive exceeds 4GB, which requires zip64");
+	}
+
+	private static void putShort(final byte[] b, final int off, final int v) {
+		b[off] = (byte)v;
+		b[off + 1] = (byte)(v >>> 8);
+	}
+
+	private static void putInt(final byte[] b, final int off, final long v) {
+		b[off] = (byte)v;
+		b[off + 1] = (byte)(v >>> 8);
+		b[off + 2] = (byte)(v >>> 16);
+		b[off + 3] = (byte)(v >>> 24);
+	}
+
+	/**
+	 * Converts a java timestamp to a DOS date and time, the date in the high 16 bits
+	 * @param time The java timestamp in ms
+	 * @return the DOS date and time
+	 */
+	static long dosTime(final long time) {
+		final Calendar cal = Calendar.getInstance();
+		cal.setTimeInMillis(time);
+		final int year = cal.get(Calendar.YEAR);
+		if(year < 1980) return (1 << 21) | (1 << 16);
+		return ((long)(year - 1980) << 25) | ((cal.get(Calendar.MONTH) + 1) << 21) | (cal.get(Calendar.DAY_OF_MONTH) << 16)
+			| (cal.get(Calendar.HOUR_OF_DAY) << 11) | (cal.get(Calendar.MINUTE) << 5) | (cal.get(Calendar.SECOND) >> 1);
+	}
+
+	/**
+	 * <p>Title: BufferOutputStream</p>
+	 * <p>Description: A byte array output stream that hands out its content as a buffer without copying</p>
+	 */
+	static class BufferOutputStream extends ByteArrayOutputStream {
+		BufferOutputStream(final int size) {
+			super(size);
+		}
+
+		/**
+		 * Returns the written content as a buffer whose capacity is the content length
+		 * @return the written content
+		 */
+		ByteBuffer toBuffer() {
+			return ByteBuffer.wrap(buf, 0, count).slice();
+		}
+	}
+}
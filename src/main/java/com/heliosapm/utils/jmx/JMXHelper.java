@@ -107,6 +107,7 @@ import javax.management.remote.jmxmp.JMXMPConnectorServer;
 import com.heliosapm.utils.config.ConfigurationHelper;
 import com.heliosapm.utils.enums.EnumSupport.EnumCardinality;
 import com.heliosapm.utils.io.CloseableService;
+import com.heliosapm.utils.jmx.bulk.BulkJMXService;
 import com.heliosapm.utils.lang.StringHelper;
 import com.heliosapm.utils.reflect.PrivateAccessor;
 import com.heliosapm.utils.url.URLHelper;
@@ -1521,12 +1522,7 @@ public class JMXHelper {
 		if(objectName==null) throw new IllegalArgumentException("The passed objectname was null", new Throwable());
 		if(connection==null) connection = getHeliosMBeanServer();		
 		try {
-			MBeanAttributeInfo[] infos = connection.getMBeanInfo(objectName).getAttributes();
-			String[] names = new String[infos.length];
-			for(int i = 0; i < infos.length; i++) {
-				names[i] = infos[i].getName();
-			}
-			return names;
+			return MBeanInfoCache.getInstance(connection).getAttributeNames(objectName);
 		} catch (Exception ex) {
 			return new String[0];
 		}
@@ -2096,13 +2092,33 @@ while(m.find()) {
 //			rootNames[i] = rootKey;
 //		}
 		Map<ObjectName, Map<String, Object>> map = new HashMap<ObjectName, Map<String, Object>>();		
-		try {
+		final MBeanInfoCache infoCache = MBeanInfoCache.getInstance(server);
+		final boolean allAttributes = attributeNames.length==1 && "*".equals(attributeNames[0]);
+		try {
+			final Map<ObjectName, Map<String, Object>> bulkValues = infoCache.getBulkAttributes(objectName, attributeNames);
+			if(bulkValues!=null) {
+				final Map<ObjectName, Map<String, MBeanAttributeInfo>> prefetched = infoCache.prefetch(bulkValues.keySet());
+				for(Map.Entry<ObjectName, Map<String, Object>> entry: bulkValues.entrySet()) {
+					final Map<String, Object> values = entry.getValue();
+					if(values==null || values.isEmpty() || values.get("EX") instanceof Throwable) continue;
+					final ObjectName on = entry.getKey();
+					Map<String, Object> attrMap = new HashMap<String, Object>();
+					map.put(on, attrMap);
+					Map<String, MBeanAttributeInfo> attrInfos = prefetched.get(on);
+					if(attrInfos==null) attrInfos = infoCache.getAttributeInfos(on);
+					for(Map.Entry<String, Object> attr: values.entrySet()) {
+						if(BulkJMXService.STALE_KEY.equals(attr.getKey())) continue;
+						indexAttribute(attrMap, attr.getKey(), attr.getValue(), delimeter, attrInfos);
+					}
+				}
+				return map;
+			}
 			for(ObjectName on: server.queryNames(objectName, null)) {
 				AttributeList attrs = null;
 				try {
 					String[] anames = null;
-					if(attributeNames!=null && attributeNames.length==1 && "*".equals(attributeNames[0])) {
-						anames = getAttributeNames(on, server);
+					if(allAttributes) {
+						anames = infoCache.getAttributeNames(on);
 					} else {
 						anames = attributeNames;
 					}
@@ -2113,23 +2129,9 @@ while(m.find()) {
 				}				
 				Map<String, Object> attrMap = new HashMap<String, Object>();
 				map.put(on, attrMap);
-				final MBeanInfo mbeanInfo = getMBeanInfo(server, on);
-				final Map<String, MBeanAttributeInfo> attrInfos = indexAttributes(mbeanInfo);
+				final Map<String, MBeanAttributeInfo> attrInfos = infoCache.getAttributeInfos(on);
 				for(Attribute attr: attrs.asList()) {
-					Object value = attr.getValue();
-					if(value==null) continue;
-					String name = attr.getName();
-					MBeanAttributeInfo attrInfo = attrInfos.get(name);
-					if(value instanceof CompositeData || value instanceof TabularData) {
-						try {
-							Map<String, Object> indexedData = indexOpenData(name, value, delimeter, attrInfo);
-							attrMap.putAll(indexedData);
-						} catch (Exception e) {
-							continue;
-						}
-					} else {
-						attrMap.put(name, value);
-					}
+					indexAttribute(attrMap, attr.getName(), attr.getValue(), delimeter, attrInfos);
 				}
 			}
 		} catch (Exception e) {
@@ -2139,6 +2141,27 @@ while(m.find()) {
 		return map;
 	}
 	
+	/**
+	 * Adds an attribute value to the passed attribute map, expanding open data values into compound names
+	 * @param attrMap The attribute map to add to
+	 * @param name The attribute name
+	 * @param value The attribute value. Ignored if null.
+	 * @param delimeter The delimeter for composite type compound names
+	 * @param attrInfos The MBeanAttributeInfos of the source MBean keyed by name
+	 */
+	private static void indexAttribute(final Map<String, Object> attrMap, final String name, final Object value, final String delimeter, final Map<String, MBeanAttributeInfo> attrInfos) {
+		if(value==null) return;
+		if(value instanceof CompositeData || value instanceof TabularData) {
+			try {
+				attrMap.putAll(indexOpenData(name, value, delimeter, attrInfos.get(name)));
+			} catch (Exception e) {
+				/* No Op */
+			}
+		} else {
+			attrMap.put(name, value);
+		}
+	}
+	
 	/**
 	 * Retrieves maps of attribute values keyed by attribute name, in turn keyed by the ObjectName of the MBean.
 	 * @param server An MBeanServerConnection
@@ -23,6 +23,7 @@ import java.lang.management.ManagementFactory;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
@@ -41,6 +42,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import javax.management.ObjectName;
 
 import com.heliosapm.utils.config.ConfigurationHelper;
+import com.heliosapm.utils.unsafe.collections.LongHistogram;
 
 /**
  * <p>Title: JMXManagedThreadPool</p>
@@ -74,6 +76,10 @@ public class JMXManagedThreadPool extends ThreadPoolExecutor implements ThreadFa
 	};
 	/** An externally added exception handler */
 	protected UncaughtExceptionHandler exceptionHandler = null;
+	/** The histogram of successful task elapsed times in ns. */
+	protected final LongHistogram taskElapsedTimes = new LongHistogram();
+	/** The default percentile reported in the metrics management */
+	protected final int metricDefaultPercentile;
 
 	
 	/**
@@ -162,7 +168,7 @@ public class JMXManagedThreadPool extends ThreadPoolExecutor implements ThreadFa
 	 * @param maximumPoolSize the maximum number of threads to allow in the pool.
 	 * @param queueSize The maximum number of pending tasks to queue
 	 * @param keepAliveTimeMs when the number of threads is greater than the core, this is the maximum time in ms. that excess idle threads will wait for new tasks before terminating.
-	 * @param metricWindowSize The maximum size of the metrics sliding window
+	 * @param metricWindowSize Retained for compatibility. Task elapsed times are tracked in a fixed size {@link LongHistogram}.
 	 * @param metricDefaultPercentile The default percentile reported in the metrics management  
 	 * @param publishJMX If true, publishes the management interface
 	 */
@@ -174,6 +180,7 @@ public class JMXManagedThreadPool extends ThreadPoolExecutor implements ThreadFa
 		setRejectedExecutionHandler(this);		
 		this.objectName = objectName;
 		this.poolName = poolName;
+		this.metricDefaultPercentile = metricDefaultPercentile;
 		workQueue = (BlockingQueue<Runnable>)getQueue();
 		if(publishJMX) {
 			try {			
@@ -200,7 +207,7 @@ public class JMXManagedThreadPool extends ThreadPoolExecutor implements ThreadFa
 	 */
 	@Override
 	protected void beforeExecute(Thread t, Runnable r) {
-		taskStartTime.get()[0] = System.currentTimeMillis();
+		taskStartTime.get()[0] = System.nanoTime();
 		super.beforeExecute(t, r);
 	}
 	
@@ -211,8 +218,7 @@ public class JMXManagedThreadPool extends ThreadPoolExecutor implements ThreadFa
 	@Override
 	protected void afterExecute(Runnable r, Throwable t) {
 		if(t==null) {
-			@SuppressWarnings("unused")  // TODO: tabulate task elapsed times
-			long elapsed = System.currentTimeMillis() - taskStartTime.get()[0]; 
+			taskElapsedTimes.record(System.nanoTime() - taskStartTime.get()[0]);
 		}
 		super.afterExecute(r, t);
 	}
@@ -337,6 +343,50 @@ public class JMXManagedThreadPool extends ThreadPoolExecutor implements ThreadFa
 //		return b.append("</table>").toString();
 //	}
 
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.JMXManagedThreadPoolMBean#getTaskElapsedTimes()
+	 */
+	@Override
+	public Map<String, Long> getTaskElapsedTimes() {
+		return taskElapsedTimes.getSummary();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.JMXManagedThreadPoolMBean#getTaskElapsedDefaultPercentile()
+	 */
+	@Override
+	public long getTaskElapsedDefaultPercentile() {
+		return taskElapsedTimes.getValueAtPercentile(metricDefaultPercentile);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.JMXManagedThreadPoolMBean#getMetricDefaultPercentile()
+	 */
+	@Override
+	public int getMetricDefaultPercentile() {
+		return metricDefaultPercentile;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.JMXManagedThreadPoolMBean#resetTaskElapsedTimes()
+	 */
+	@Override
+	public void resetTaskElapsedTimes() {
+		taskElapsedTimes.reset();
+	}
+	
+	/**
+	 * Returns the task elapsed times recorded since the last call and resets them.
+	 * @return the interval histogram of task elapsed times in ns.
+	 */
+	public LongHistogram getIntervalTaskElapsedTimes() {
+		return taskElapsedTimes.intervalSnapshot();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see com.heliosapm.jmx.concurrency.JMXManagedThreadPoolMBean#getExecutingTaskCount()
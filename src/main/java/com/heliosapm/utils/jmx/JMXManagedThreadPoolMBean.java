@@ -20,6 +20,7 @@ package com.heliosapm.utils.jmx;
 
 import java.lang.management.ManagementFactory;
 import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.Future;
 
 import javax.management.ObjectName;
@@ -51,7 +52,7 @@ public interface JMXManagedThreadPoolMBean {
 	/** The  Config property name suffix to specify the pool's metric sliding window size */
 	public static final String CONFIG_WINDOW_SIZE = "-windowsize";
 	/** The  Config property name suffix to specify the pool's metric default percentile */
-	public static final String CONFIG_WINDOW_PERCENTILE = "-windowsize";
+	public static final String CONFIG_WINDOW_PERCENTILE = "-windowpercentile";
 	/** The  Config property name suffix to specify the number of core threads to prestart */
 	public static final String CONFIG_CORE_PRESTART = "-coreprestart";
 	
@@ -156,6 +157,29 @@ public interface JMXManagedThreadPoolMBean {
 	 */
 	public long getExecutingTaskCount();
 	
+	/**
+	 * Returns the count, min, max, mean, p50, p90, p99 and p999 of successful task elapsed times in ns.
+	 * @return a map of task elapsed time stats keyed by stat name
+	 */
+	public Map<String, Long> getTaskElapsedTimes();
+	
+	/**
+	 * Returns the task elapsed time in ns. at the configured default percentile
+	 * @return the task elapsed time at the default percentile
+	 */
+	public long getTaskElapsedDefaultPercentile();
+	
+	/**
+	 * Returns the configured default percentile
+	 * @return the default percentile
+	 */
+	public int getMetricDefaultPercentile();
+	
+	/**
+	 * Resets the task elapsed time stats
+	 */
+	public void resetTaskElapsedTimes();
+	
 	
 	/**
 	 * Returns the pool's core size
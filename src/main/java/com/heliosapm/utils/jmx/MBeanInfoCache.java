@@ -0,0 +1,437 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.jmx;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Descriptor;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import javax.management.relation.MBeanServerNotificationFilter;
+import javax.management.remote.JMXConnectionNotification;
+import javax.management.remote.JMXConnector;
+
+import com.heliosapm.utils.jmx.bulk.BulkJMXServiceInstaller;
+
+/**
+ * <p>Title: MBeanInfoCache</p>
+ * <p>Description: A per connection cache of MBeanInfo and indexed attribute names, invalidated by the
+ * registration and unregistration notifications of the connection's {@link MBeanServerDelegate}.
+ * Only MBeanInfo whose descriptor declares <b><code>immutableInfo=true</code></b> is cached, as that of other
+ * dynamic MBeans may change without the MBean being re-registered. If the delegate listener cannot be registered,
+ * nothing is cached. A cache obtained through {@link #getInstance(JMXConnector)} also listens to the connector's
+ * connection notifications and is cleared when notifications are lost or the connection fails, as an invalidating
+ * notification may have been missed.</p>
+ * <p>When the connection's MBeanServer has a {@link com.heliosapm.utils.jmx.bulk.BulkJMXService} installed, attribute
+ * values for a whole query and the MBeanInfo for all uncached MBeans in the result are each fetched in one call.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.jmx.MBeanInfoCache</code></p>
+ */
+
+public class MBeanInfoCache implements NotificationListener {
+	/** The caches keyed by the connection they cache for */
+	private static final Map<MBeanServerConnection, MBeanInfoCache> caches = new WeakHashMap<MBeanServerConnection, MBeanInfoCache>();
+
+	/** The MBeanInfo descriptor field indicating the MBeanInfo never changes */
+	public static final String IMMUTABLE_INFO = "immutableInfo";
+	/** The default domain the BulkJMXService registers MBeanServers without one under */
+	public static final String DEFAULT_DOMAIN = "DefaultDomain";
+
+	/** The bulk attribute lookup signature */
+	private static final String[] BULK_ATTRS_SIG = {String.class.getName(), Map.class.getName()};
+	/** The bulk MBeanInfo lookup signature */
+	private static final String[] BULK_INFOS_SIG = {String.class.getName(), ObjectName[].class.getName()};
+
+	/** The connection, weakly referenced so the cache does not keep it reachable */
+	private final WeakReference<MBeanServerConnection> connRef;
+	/** The cached entries keyed by ObjectName */
+	private final Map<ObjectName, CachedInfo> infos = new ConcurrentHashMap<ObjectName, CachedInfo>(128);
+	/** The number of invalidating notifications received, used to discard MBeanInfo fetched across one */
+	private final AtomicLong invalidations = new AtomicLong(0L);
+	/** The cache hit count */
+	private final AtomicLong hits = new AtomicLong(0L);
+	/** The cache miss count */
+	private final AtomicLong misses = new AtomicLong(0L);
+	/** Indicates if the delegate listener is registered, and so if entries can be cached */
+	private final boolean listening;
+	/** Indicates if the BulkJMXService is registered, or null if not checked since the last (un)registration */
+	private volatile Boolean bulk = null;
+	/** Indicates if the registered BulkJMXService supports bulk MBeanInfo lookups */
+	private volatile boolean bulkInfos = true;
+	/** The default domain of the connection's MBeanServer */
+	private volatile String defaultDomain = null;
+	/** Indicates if this cache listens to its connector's connection notifications, guarded by the caches lock */
+	private boolean connectorListening = false;
+
+	/**
+	 * Returns the MBeanInfo cache for the passed connection, creating it if necessary
+	 * @param connection The connection to get the cache for
+	 * @return the cache
+	 */
+	public static MBeanInfoCache getInstance(final MBeanServerConnection connection) {
+		if(connection==null) throw new IllegalArgumentException("The passed MBeanServerConnection was null");
+		synchronized(caches) {
+			MBeanInfoCache cache = caches.get(connection);
+			if(cache==null) {
+				cache = new MBeanInfoCache(connection);
+				caches.put(connection, cache);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Returns the MBeanInfo cache for the passed connector's connection, creating it if necessary.
+	 * The cache is cleared when the connector reports lost notifications or a failed connection.
+	 * @param connector The connected connector to get the cache for
+	 * @return the cache
+	 * @throws IOException thrown if the connector's connection cannot be acquired
+	 */
+	public static MBeanInfoCache getInstance(final JMXConnector connector) throws IOException {
+		if(connector==null) throw new IllegalArgumentException("The passed JMXConnector was null");
+		final MBeanInfoCache cache = getInstance(connector.getMBeanServerConnection());
+		synchronized(caches) {
+			if(!cache.connectorListening) {
+				connector.addConnectionNotificationListener(cache, null, null);
+				cache.connectorListening = true;
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Creates a new MBeanInfoCache and registers it as a listener on the connection's MBeanServerDelegate
+	 * @param connection The connection to cache for
+	 */
+	private MBeanInfoCache(final MBeanServerConnection connection) {
+		connRef = new WeakReference<MBeanServerConnection>(connection);
+		final MBeanServerNotificationFilter filter = new MBeanServerNotificationFilter();
+		filter.enableAllObjectNames();
+		boolean registered = false;
+		try {
+			connection.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, this, filter, null);
+			registered = true;
+		} catch (Exception ex) {
+			/* No Op. Nothing will be cached */
+		}
+		listening = registered;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see javax.management.NotificationListener#handleNotification(javax.management.Notification, java.lang.Object)
+	 */
+	@Override
+	public void handleNotification(final Notification notification, final Object handback) {
+		if(notification instanceof JMXConnectionNotification) {
+			final String type = notification.getType();
+			if(JMXConnectionNotification.NOTIFS_LOST.equals(type) || JMXConnectionNotification.FAILED.equals(type)) {
+				clear();
+				bulk = null;
+			}
+			return;
+		}
+		if(!(notification instanceof MBeanServerNotification)) return;
+		final ObjectName on = ((MBeanServerNotification)notification).getMBeanName();
+		invalidations.incrementAndGet();
+		infos.remove(on);
+		if(BulkJMXServiceInstaller.BULK_SERVICE_OBJECT_NAME.equals(on)) {
+			bulk = null;
+			bulkInfos = true;
+		}
+	}
+
+	/**
+	 * Returns the MBeanInfo for the passed ObjectName
+	 * @param objectName The ObjectName of the MBean
+	 * @return the MBeanInfo
+	 */
+	public MBeanInfo getMBeanInfo(final ObjectName objectName) {
+		return entry(objectName).info;
+	}
+
+	/**
+	 * Returns the attribute names of the MBean registered under the passed ObjectName
+	 * @param objectName The ObjectName of the MBean
+	 * @return an array of attribute names
+	 */
+	public String[] getAttributeNames(final ObjectName objectName) {
+		return entry(objectName).attributeNames.clone();
+	}
+
+	/**
+	 * Returns the MBeanAttributeInfos of the MBean registered under the passed ObjectName
+	 * @param objectName The ObjectName of the MBean
+	 * @return an unmodifiable map of MBeanAttributeInfos keyed by attribute name
+	 */
+	public Map<String, MBeanAttributeInfo> getAttributeInfos(final ObjectName objectName) {
+		return entry(objectName).attributes;
+	}
+
+	/**
+	 * Returns the MBeanAttributeInfos of the passed ObjectNames, fetching the MBeanInfo of those not already cached
+	 * in one call if the connection's MBeanServer has a BulkJMXService installed. Fetched MBeanInfo that cannot be cached
+	 * is still returned, so the caller's current poll does not fetch it again. Without a BulkJMXService only the cached
+	 * entries are returned, and uncached MBeanInfo is fetched as it is requested.
+	 * @param objectNames The ObjectNames of the MBeans to fetch MBeanInfo for
+	 * @return an unmodifiable map of MBeanAttributeInfos keyed by attribute name, keyed by ObjectName, for the cached and fetched MBeans
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<ObjectName, Map<String, MBeanAttributeInfo>> prefetch(final Collection<ObjectName> objectNames) {
+		if(objectNames==null || objectNames.isEmpty()) return Collections.emptyMap();
+		final Map<ObjectName, Map<String, MBeanAttributeInfo>> result = new HashMap<ObjectName, Map<String, MBeanAttributeInfo>>(objectNames.size() * 2);
+		final List<ObjectName> missing = new ArrayList<ObjectName>();
+		for(ObjectName on: objectNames) {
+			final CachedInfo ci = infos.get(on);
+			if(ci!=null) {
+				hits.incrementAndGet();
+				result.put(on, ci.attributes);
+			} else {
+				missing.add(on);
+			}
+		}
+		if(missing.isEmpty() || !bulkInfos || !isBulk()) return Collections.unmodifiableMap(result);
+		final MBeanServerConnection conn = connection();
+		final long gen = invalidations.get();
+		final Map<ObjectName, MBeanInfo> fetched;
+		try {
+			fetched = (Map<ObjectName, MBeanInfo>)conn.invoke(BulkJMXServiceInstaller.BULK_SERVICE_OBJECT_NAME, "getMBeanInfos",
+				new Object[]{defaultDomain, missing.toArray(new ObjectName[missing.size()])}, BULK_INFOS_SIG);
+		} catch (Exception ex) {
+			bulkFailed(ex);
+			if(ex instanceof ReflectionException) bulkInfos = false;
+			return Collections.unmodifiableMap(result);
+		}
+		for(Map.Entry<ObjectName, MBeanInfo> entry: fetched.entrySet()) {
+			if(entry.getValue()==null) continue;
+			final CachedInfo ci = new CachedInfo(entry.getValue());
+			cache(entry.getKey(), ci, gen);
+			result.put(entry.getKey(), ci.attributes);
+		}
+		misses.addAndGet(fetched.size());
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * Retrieves the named attribute values of all MBeans matching the passed ObjectName in one call
+	 * through the BulkJMXService installed in the connection's MBeanServer.
+	 * Values are returned as read by {@link com.heliosapm.utils.jmx.bulk.BulkJMXService#getAttributes(String, Map)}.
+	 * @param objectName The [optionally pattern based] ObjectName of the MBeans to read
+	 * @param attributeNames The names of the attributes to read, or <b><code>{"*"}</code></b> for all
+	 * @return A map of attribute values keyed by attribute name, in turn keyed by ObjectName, or null
+	 * if the connection's MBeanServer has no BulkJMXService installed or the call failed
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<ObjectName, Map<String, Object>> getBulkAttributes(final ObjectName objectName, final String...attributeNames) {
+		if(!isBulk()) return null;
+		try {
+			return (Map<ObjectName, Map<String, Object>>)connection().invoke(BulkJMXServiceInstaller.BULK_SERVICE_OBJECT_NAME, "getAttributes",
+				new Object[]{defaultDomain, Collections.singletonMap(objectName, attributeNames)}, BULK_ATTRS_SIG);
+		} catch (Exception ex) {
+			bulkFailed(ex);
+			return null;
+		}
+	}
+
+	/**
+	 * Indicates if the connection's MBeanServer has a BulkJMXService installed
+	 * @return true if bulk calls can be made, false otherwise
+	 */
+	public boolean isBulk() {
+		Boolean b = bulk;
+		if(b==null) {
+			try {
+				final MBeanServerConnection conn = connection();
+				b = conn.isRegistered(BulkJMXServiceInstaller.BULK_SERVICE_OBJECT_NAME);
+				if(b && defaultDomain==null) {
+					final String dd = conn.getDefaultDomain();
+					defaultDomain = (dd==null || dd.trim().isEmpty()) ? DEFAULT_DOMAIN : dd;
+				}
+			} catch (Exception ex) {
+				return false;
+			}
+			// without the listener, a later install or uninstall would not be noticed
+			if(listening) bulk = b;
+		}
+		return b;
+	}
+
+	/**
+	 * Removes the cached entry for the passed ObjectName
+	 * @param objectName The ObjectName to invalidate
+	 */
+	public void invalidate(final ObjectName objectName) {
+		invalidations.incrementAndGet();
+		infos.remove(objectName);
+	}
+
+	/**
+	 * Removes all cached entries
+	 */
+	public void clear() {
+		invalidations.incrementAndGet();
+		infos.clear();
+	}
+
+	/**
+	 * Returns the number of cached MBeanInfos
+	 * @return the number of cached MBeanInfos
+	 */
+	public int size() {
+		return infos.size();
+	}
+
+	/**
+	 * Returns the number of lookups served from the cache
+	 * @return the cache hit count
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of MBeanInfos fetched from the connection
+	 * @return the cache miss count
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Indicates if the cache is invalidated by MBeanServerDelegate notifications and so caches entries
+	 * @return true if entries are cached, false if every lookup is passed to the connection
+	 */
+	public boolean isListening() {
+		return listening;
+	}
+
+	/**
+	 * Returns the cached entry for the passed ObjectName, fetching it if it is not cached
+	 * @param objectName The ObjectName of the MBean
+	 * @return the entry
+	 */
+	private CachedInfo entry(final ObjectName objectName) {
+		if(objectName==null) throw new IllegalArgumentException("The passed ObjectName was null");
+		CachedInfo ci = infos.get(objectName);
+		if(ci!=null) {
+			hits.incrementAndGet();
+			return ci;
+		}
+		misses.incrementAndGet();
+		final long gen = invalidations.get();
+		try {
+			ci = new CachedInfo(connection().getMBeanInfo(objectName));
+		} catch (Exception ex) {
+			throw new RuntimeException("Failed to get MBeanInfo for [" + objectName + "]", ex);
+		}
+		cache(objectName, ci, gen);
+		return ci;
+	}
+
+	/**
+	 * Caches the passed entry if it is immutable and no invalidation arrived since it was fetched
+	 * @param objectName The ObjectName of the MBean
+	 * @param ci The entry to cache
+	 * @param gen The invalidation count read before the entry was fetched
+	 */
+	private void cache(final ObjectName objectName, final CachedInfo ci, final long gen) {
+		if(listening && isImmutable(ci.info) && invalidations.get()==gen) {
+			infos.put(objectName, ci);
+		}
+	}
+
+	/**
+	 * Handles a failed bulk call. If the BulkJMXService is no longer registered, stops using it
+	 * until it is registered again.
+	 * @param ex The failure
+	 */
+	private void bulkFailed(final Exception ex) {
+		if(ex instanceof InstanceNotFoundException) bulk = Boolean.FALSE;
+		else if(!(ex instanceof IOException) && !(ex instanceof ReflectionException)) bulk = null;
+	}
+
+	/**
+	 * Returns the connection
+	 * @return the connection
+	 */
+	private MBeanServerConnection connection() {
+		final MBeanServerConnection conn = connRef.get();
+		if(conn==null) throw new IllegalStateException("The MBeanServerConnection has been reclaimed");
+		return conn;
+	}
+
+	/**
+	 * Determines if the passed MBeanInfo declares itself immutable
+	 * @param info The MBeanInfo to test
+	 * @return true if immutable, false otherwise
+	 */
+	public static boolean isImmutable(final MBeanInfo info) {
+		if(info==null) return false;
+		final Descriptor d = info.getDescriptor();
+		if(d==null) return false;
+		final Object v = d.getFieldValue(IMMUTABLE_INFO);
+		return v!=null && "true".equalsIgnoreCase(v.toString());
+	}
+
+	/**
+	 * <p>Title: CachedInfo</p>
+	 * <p>Description: An MBeanInfo with its attribute names and indexed attribute infos</p>
+	 */
+	private static final class CachedInfo {
+		/** The MBeanInfo */
+		final MBeanInfo info;
+		/** The attribute names */
+		final String[] attributeNames;
+		/** The MBeanAttributeInfos keyed by name */
+		final Map<String, MBeanAttributeInfo> attributes;
+
+		/**
+		 * Creates a new CachedInfo
+		 * @param info The MBeanInfo
+		 */
+		CachedInfo(final MBeanInfo info) {
+			this.info = info;
+			final MBeanAttributeInfo[] attrInfos = info.getAttributes();
+			attributeNames = new String[attrInfos.length];
+			for(int i = 0; i < attrInfos.length; i++) {
+				attributeNames[i] = attrInfos[i].getName();
+			}
+			attributes = Collections.unmodifiableMap(JMXHelper.indexAttributes(info));
+		}
+	}
+}
@@ -85,7 +85,7 @@ public class ManagedForkJoinPool extends ForkJoinPool implements ManagedForkJoin
 		);
 		poolName = name;
 		this.objectName = objectName==null ? JMXHelper.objectName(String.format(OBJECT_NAME_TEMPLATE, poolName)) : objectName;
-		JMXHelper.registerMBean(this, objectName);
+		JMXHelper.registerMBean(this, this.objectName);
 	}
 	
 	/**
@@ -61,6 +61,7 @@ import com.heliosapm.utils.jmx.annotations.ManagedOperationImpl;
 import com.heliosapm.utils.jmx.annotations.ManagedResource;
 import com.heliosapm.utils.jmx.annotations.ManagedResourceImpl;
 import com.heliosapm.utils.jmx.annotations.MetricType;
+import com.heliosapm.utils.jmx.managed.Dispatcher;
 import com.heliosapm.utils.jmx.managed.Invoker;
 import com.heliosapm.utils.lang.StringHelper;
 /**
@@ -100,6 +101,21 @@ public class Reflector {
 	 * @return the MBeanInfo generated for the class
 	 */
 	public static MBeanInfo from(Class<?> targetClass, final NonBlockingHashMapLong<Invoker[]> metricInvokers) {
+		return from(targetClass, metricInvokers, null);
+	}
+	
+	/**
+	 * Analyzes the passed target class and builds:<ol>
+	 * 	<li>An MBeanInfo built from the @ManagedX annotations on the class or its parents</li>
+	 * 	<li>Invokers for the attribute accessors and operations, dispatched through a generated {@link Dispatcher} shared by all instances of the class</li>
+	 * </ol>
+	 * @param targetClass The target class to analyze
+	 * @param attrInvokers The attribute accessor invokers keyed by {@link #attributeKey(String)} are placed in this provided map if it is not null.
+	 * Each value is a pair of the getter (index 0) and setter (index 1) invoker, either of which may be null.
+	 * @param opInvokers The operation invokers keyed by {@link #operationKey(String, String[])} are placed in this provided map if it is not null
+	 * @return the MBeanInfo generated for the class
+	 */
+	public static MBeanInfo from(Class<?> targetClass, final NonBlockingHashMapLong<Invoker[]> attrInvokers, final NonBlockingHashMapLong<Invoker> opInvokers) {
 		Class<?> annotatedClass = null;
 		ManagedResource mr = targetClass.getAnnotation(ManagedResource.class);
 		if(mr!=null) {
@@ -114,7 +130,7 @@ public class Reflector {
 		final Set<MBeanNotificationInfo> notificationInfo = new TreeSet<MBeanNotificationInfo>(NOTIF_COMP);
 		final Set<MBeanAttributeInfo> attrInfos = new HashSet<MBeanAttributeInfo>();
 		Collections.addAll(attrInfos, getManagedAttributeInfos(targetClass, notificationInfo, methodMap.get(ManagedAttribute.class)));
-		Collections.addAll(attrInfos, getManagedMetricInfos(targetClass, notificationInfo, methodMap.get(ManagedMetric.class), metricInvokers));
+		Collections.addAll(attrInfos, getManagedMetricInfos(targetClass, notificationInfo, methodMap.get(ManagedMetric.class), attrInvokers));
 		final Set<MBeanOperationInfo> opInfos = new HashSet<MBeanOperationInfo>(Arrays.asList(
 				getManagedOperationInfos(targetClass, notificationInfo, methodMap.get(ManagedOperation.class))
 		));
@@ -129,6 +145,9 @@ public class Reflector {
 		}
 		if(description==null) description = annotatedClass.getName() + " Management Interface";
 		if(on == null)  on = JMXHelper.objectName(targetClass);
+		if(attrInvokers!=null || opInvokers!=null) {
+			dispatch(targetClass, methodMap, attrInvokers, opInvokers);
+		}
 		Map<String, Object> dmap = new HashMap<String, Object>();
 		dmap.put("immutableInfo", false);
 		dmap.put("interfaceClassName", annotatedClass.getName());
@@ -147,6 +166,88 @@ public class Reflector {
 		);
 	}
 	
+	/**
+	 * Returns the key of an attribute's invokers
+	 * @param attributeName The attribute name
+	 * @return the key
+	 */
+	public static long attributeKey(final String attributeName) {
+		return StringHelper.longHashCode(attributeName);
+	}
+	
+	/**
+	 * Returns the key of an operation's invoker
+	 * @param opName The operation name
+	 * @param signature The class names of the operation's parameters
+	 * @return the key
+	 */
+	public static long operationKey(final String opName, final String[] signature) {
+		final StringBuilder b = new StringBuilder(opName).append('(');
+		if(signature!=null) {
+			for(int i = 0; i < signature.length; i++) {
+				if(i > 0) b.append(',');
+				b.append(signature[i]);
+			}
+		}
+		return StringHelper.longHashCode(b.append(')').toString());
+	}
+	
+	/**
+	 * Creates invokers for the annotated attribute accessors and operations of the passed class, all dispatched through one {@link Dispatcher}
+	 * @param targetClass The target concrete class
+	 * @param methodMap The annotated methods keyed by the annotation type
+	 * @param attrInvokers The map to place the attribute invokers in, or null
+	 * @param opInvokers The map to place the operation invokers in, or null
+	 */
+	private static void dispatch(final Class<?> targetClass, final Map<Class<? extends Annotation>, Set<Method>> methodMap, final NonBlockingHashMapLong<Invoker[]> attrInvokers, final NonBlockingHashMapLong<Invoker> opInvokers) {
+		final List<Method> methods = new ArrayList<Method>();
+		final List<String> names = new ArrayList<String>();
+		final List<Long> keys = new ArrayList<Long>();
+		final List<Integer> slots = new ArrayList<Integer>();		// 0: getter, 1: setter, -1: operation
+		if(attrInvokers!=null) {
+			for(Method annotatedMethod: methodMap.get(ManagedAttribute.class)) {
+				final Method concreteMethod = getTargetMethodMatching(targetClass, annotatedMethod);
+				final int slot = concreteMethod.getParameterTypes().length;
+				if(slot > 1) continue;
+				final String name = new ManagedAttributeImpl(concreteMethod, annotatedMethod.getAnnotation(ManagedAttribute.class)).getName();
+				methods.add(concreteMethod); names.add(name); keys.add(attributeKey(name)); slots.add(slot);
+			}
+			for(Method annotatedMethod: methodMap.get(ManagedMetric.class)) {
+				final Method concreteMethod = getTargetMethodMatching(targetClass, annotatedMethod);
+				if(concreteMethod.getParameterTypes().length!=0) continue;
+				final String name = new ManagedMetricImpl(concreteMethod, annotatedMethod.getAnnotation(ManagedMetric.class)).getDisplayName();
+				methods.add(concreteMethod); names.add(name); keys.add(attributeKey(name)); slots.add(0);
+			}
+		}
+		if(opInvokers!=null) {
+			for(Method annotatedMethod: methodMap.get(ManagedOperation.class)) {
+				final Method concreteMethod = getTargetMethodMatching(targetClass, annotatedMethod);
+				final String name = new ManagedOperationImpl(annotatedMethod.getName(), annotatedMethod.getAnnotation(ManagedOperation.class)).getName();
+				final Class<?>[] params = concreteMethod.getParameterTypes();
+				final String[] signature = new String[params.length];
+				for(int i = 0; i < params.length; i++) signature[i] = params[i].getName();
+				methods.add(concreteMethod); names.add(name); keys.add(operationKey(name, signature)); slots.add(-1);
+			}
+		}
+		if(methods.isEmpty()) return;
+		final Dispatcher dispatcher = Dispatcher.dispatcher(targetClass, methods.toArray(new Method[methods.size()]));
+		for(int i = 0; i < methods.size(); i++) {
+			final Invoker invoker = dispatcher.invoker(names.get(i), i);
+			final long key = keys.get(i);
+			final int slot = slots.get(i);
+			if(slot < 0) {
+				opInvokers.put(key, invoker);
+			} else {
+				Invoker[] pair = attrInvokers.get(key);
+				if(pair==null) {
+					pair = new Invoker[2];
+					attrInvokers.put(key, pair);
+				}
+				pair[slot] = invoker;
+			}
+		}
+	}
+	
 	/**
 	 * Extracts the names of the popable attributes in the passed class 
 	 * @param targetClass The class to extract from
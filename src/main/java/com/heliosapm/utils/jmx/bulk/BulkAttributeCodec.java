@@ -0,0 +1,502 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.jmx.bulk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.Deflater;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeType;
+
+import com.heliosapm.utils.jmx.JMXHelper;
+
+/**
+ * <p>Title: BulkAttributeCodec</p>
+ * <p>Description: Compact columnar binary encoder for bulk attribute maps returned from {@link BulkJMXService}.
+ * Decoded by {@link BulkAttributeDecoder}.</p>
+ * <p>The encoded layout is:<ol>
+ * 	<li><b>Header</b>: the magic int, a version byte and a flags byte. If {@link #FLAG_DEFLATED} is set, the raw body length
+ * 	follows as a varint and the rest of the payload is a raw deflate stream.</li>
+ *  <li><b>String dictionary</b>: every ObjectName, attribute name and string value, written once.</li>
+ *  <li><b>ObjectName dictionary</b>: string dictionary indexes of the MBean ObjectNames.</li>
+ *  <li><b>Type blob</b>: the distinct {@link CompositeType}s, java serialized once.</li>
+ *  <li><b>Object blob</b>: values with no native encoding, java serialized in one stream.</li>
+ *  <li><b>Columns</b>: one column per attribute name and value type, holding delta encoded ObjectName indexes
+ *  and the packed values. Integral values are zig-zag varints.</li>
+ * </ol></p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.jmx.bulk.BulkAttributeCodec</code></p>
+ */
+
+public class BulkAttributeCodec {
+	/** The encoded payload magic */
+	public static final int MAGIC = 0x48424A43;  // "HBJC"
+	/** The current encoding version */
+	public static final byte VERSION = 1;
+	/** The flag indicating the body is deflated */
+	public static final byte FLAG_DEFLATED = 1;
+	/** The UTF-8 character set */
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** The null value tag */
+	static final byte T_NULL = 0;
+	/** The boolean value tag */
+	static final byte T_BOOLEAN = 1;
+	/** The byte value tag */
+	static final byte T_BYTE = 2;
+	/** The short value tag */
+	static final byte T_SHORT = 3;
+	/** The char value tag */
+	static final byte T_CHAR = 4;
+	/** The int value tag */
+	static final byte T_INT = 5;
+	/** The long value tag */
+	static final byte T_LONG = 6;
+	/** The float value tag */
+	static final byte T_FLOAT = 7;
+	/** The double value tag */
+	static final byte T_DOUBLE = 8;
+	/** The string value tag */
+	static final byte T_STRING = 9;
+	/** The ObjectName value tag */
+	static final byte T_OBJECTNAME = 10;
+	/** The CompositeData value tag */
+	static final byte T_COMPOSITE = 11;
+	/** The long array value tag */
+	static final byte T_LONG_ARRAY = 12;
+	/** The int array value tag */
+	static final byte T_INT_ARRAY = 13;
+	/** The double array value tag */
+	static final byte T_DOUBLE_ARRAY = 14;
+	/** The string array value tag */
+	static final byte T_STRING_ARRAY = 15;
+	/** The java serialized fallback value tag */
+	static final byte T_OBJECT = 16;
+
+	/** The string dictionary */
+	private final Map<String, Integer> strings = new LinkedHashMap<String, Integer>(256);
+	/** The composite type dictionary */
+	private final Map<CompositeType, Integer> types = new LinkedHashMap<CompositeType, Integer>();
+	/** The fallback objects */
+	private final List<Object> objects = new ArrayList<Object>();
+	/** The column buffer */
+	private final Buf columns = new Buf(4096);
+
+	/**
+	 * Encodes the passed bulk attribute map
+	 * @param map The map to encode
+	 * @param deflate true to deflate the encoded body, false otherwise
+	 * @return the encoded bytes
+	 * @throws IOException thrown if a fallback value cannot be serialized
+	 */
+	public static byte[] encode(final Map<ObjectName, Map<String, Object>> map, final boolean deflate) throws IOException {
+		return new BulkAttributeCodec().doEncode(map, deflate);
+	}
+
+	/**
+	 * Creates a new BulkAttributeCodec
+	 */
+	private BulkAttributeCodec() {
+	}
+
+	/**
+	 * A column of values for one attribute name and value type
+	 */
+	private static class Column {
+		final int attr;
+		final byte tag;
+		int size = 0;
+		int[] rows = new int[16];
+		Object[] values = new Object[16];
+
+		Column(final int attr, final byte tag) {
+			this.attr = attr;
+			this.tag = tag;
+		}
+
+		void add(final int row, final Object value) {
+			if(size==rows.length) {
+				final int[] r = new int[size << 1];
+				System.arraycopy(rows, 0, r, 0, size);
+				rows = r;
+				final Object[] v = new Object[size << 1];
+				System.arraycopy(values, 0, v, 0, size);
+				values = v;
+			}
+			rows[size] = row;
+			values[size] = value;
+			size++;
+		}
+	}
+
+	private byte[] doEncode(final Map<ObjectName, Map<String, Object>> map, final boolean deflate) throws IOException {
+		final int[] names = new int[map.size()];
+		final Map<Long, Column> cols = new LinkedHashMap<Long, Column>();
+		int row = 0;
+		for(Map.Entry<ObjectName, Map<String, Object>> entry: map.entrySet()) {
+			names[row] = string(entry.getKey().toString());
+			for(Map.Entry<String, Object> attr: entry.getValue().entrySet()) {
+				final Object value = attr.getValue();
+				final byte tag = tagOf(value);
+				final int attrIdx = string(attr.getKey());
+				final Long key = ((long)attrIdx << 8) | tag;
+				Column col = cols.get(key);
+				if(col==null) {
+					col = new Column(attrIdx, tag);
+					cols.put(key, col);
+				}
+				col.add(row, value);
+			}
+			row++;
+		}
+		columns.varint(cols.size());
+		for(Column col: cols.values()) {
+			columns.varint(col.attr);
+			columns.put(col.tag);
+			columns.varint(col.size);
+			int last = 0;
+			for(int i = 0; i < col.size; i++) {
+				columns.varint(col.rows[i] - last);
+				last = col.rows[i];
+			}
+			for(int i = 0; i < col.size; i++) {
+				writeValue(columns, col.tag, col.values[i]);
+			}
+		}
+		final Buf body = new Buf(columns.size + (strings.size() * 32) + 64);
+		body.varint(strings.size());
+		for(String s: strings.keySet()) {
+			final byte[] b = s.getBytes(UTF8);
+			body.varint(b.length);
+			body.put(b, 0, b.length);
+		}
+		body.varint(names.length);
+		for(int i = 0; i < names.length; i++) {
+			body.varint(names[i]);
+		}
+		blob(body, types.isEmpty() ? null : types.keySet().toArray(new CompositeType[types.size()]));
+		blob(body, objects.isEmpty() ? null : objects.toArray());
+		body.put(columns.bytes, 0, columns.size);
+
+		final Buf out = new Buf(deflate ? (body.size >> 1) + 16 : body.size + 16);
+		out.putInt(MAGIC);
+		out.put(VERSION);
+		out.put(deflate ? FLAG_DEFLATED : 0);
+		if(deflate) {
+			out.varint(body.size);
+			final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+			try {
+				deflater.setInput(body.bytes, 0, body.size);
+				deflater.finish();
+				final byte[] chunk = new byte[8192];
+				while(!deflater.finished()) {
+					final int len = deflater.deflate(chunk);
+					out.put(chunk, 0, len);
+				}
+			} finally {
+				deflater.end();
+			}
+		} else {
+			out.put(body.bytes, 0, body.size);
+		}
+		return out.toByteArray();
+	}
+
+	private static void blob(final Buf buf, final Object[] items) throws IOException {
+		if(items==null) {
+			buf.varint(0);
+			return;
+		}
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+		final ObjectOutputStream oos = new ObjectOutputStream(baos);
+		oos.writeObject(items);
+		oos.close();
+		final byte[] b = baos.toByteArray();
+		buf.varint(b.length);
+		buf.put(b, 0, b.length);
+	}
+
+	private int string(final String s) {
+		Integer idx = strings.get(s);
+		if(idx==null) {
+			idx = strings.size();
+			strings.put(s, idx);
+		}
+		return idx;
+	}
+
+	private int type(final CompositeType t) {
+		Integer idx = types.get(t);
+		if(idx==null) {
+			idx = types.size();
+			types.put(t, idx);
+		}
+		return idx;
+	}
+
+	/**
+	 * Determines the tag for the passed value
+	 * @param value The value
+	 * @return the tag
+	 */
+	static byte tagOf(final Object value) {
+		if(value==null) return T_NULL;
+		final Class<?> clazz = value.getClass();
+		if(clazz==Long.class) return T_LONG;
+		if(clazz==Integer.class) return T_INT;
+		if(clazz==String.class) return T_STRING;
+		if(clazz==Double.class) return T_DOUBLE;
+		if(clazz==Boolean.class) return T_BOOLEAN;
+		if(clazz==Float.class) return T_FLOAT;
+		if(clazz==Short.class) return T_SHORT;
+		if(clazz==Byte.class) return T_BYTE;
+		if(clazz==Character.class) return T_CHAR;
+		if(clazz==ObjectName.class) return T_OBJECTNAME;
+		if(clazz==long[].class) return T_LONG_ARRAY;
+		if(clazz==int[].class) return T_INT_ARRAY;
+		if(clazz==double[].class) return T_DOUBLE_ARRAY;
+		if(clazz==String[].class) return T_STRING_ARRAY;
+		if(value instanceof CompositeData) return T_COMPOSITE;
+		return T_OBJECT;
+	}
+
+	private void writeValue(final Buf buf, final byte tag, final Object value) {
+		switch(tag) {
+			case T_NULL:
+				break;
+			case T_BOOLEAN:
+				buf.put(((Boolean)value).booleanValue() ? (byte)1 : (byte)0);
+				break;
+			case T_BYTE:
+				buf.put(((Byte)value).byteValue());
+				break;
+			case T_SHORT:
+				buf.zigzag(((Short)value).longValue());
+				break;
+			case T_CHAR:
+				buf.varint(((Character)value).charValue());
+				break;
+			case T_INT:
+				buf.zigzag(((Integer)value).longValue());
+				break;
+			case T_LONG:
+				buf.zigzag(((Long)value).longValue());
+				break;
+			case T_FLOAT:
+				buf.putInt(Float.floatToRawIntBits(((Float)value).floatValue()));
+				break;
+			case T_DOUBLE:
+				buf.putLong(Double.doubleToRawLongBits(((Double)value).doubleValue()));
+				break;
+			case T_STRING:
+				buf.varint(string((String)value));
+				break;
+			case T_OBJECTNAME:
+				buf.varint(string(value.toString()));
+				break;
+			case T_LONG_ARRAY:
+				final long[] la = (long[])value;
+				buf.varint(la.length);
+				for(int i = 0; i < la.length; i++) buf.zigzag(la[i]);
+				break;
+			case T_INT_ARRAY:
+				final int[] ia = (int[])value;
+				buf.varint(ia.length);
+				for(int i = 0; i < ia.length; i++) buf.zigzag(ia[i]);
+				break;
+			case T_DOUBLE_ARRAY:
+				final double[] da = (double[])value;
+				buf.varint(da.length);
+				for(int i = 0; i < da.length; i++) buf.putLong(Double.doubleToRawLongBits(da[i]));
+				break;
+			case T_STRING_ARRAY:
+				final String[] sa = (String[])value;
+				buf.varint(sa.length);
+				for(int i = 0; i < sa.length; i++) {
+					if(sa[i]==null) buf.varint(0);
+					else buf.varint(string(sa[i]) + 1);
+				}
+				break;
+			case T_COMPOSITE:
+				final CompositeData cd = (CompositeData)value;
+				final CompositeType ct = cd.getCompositeType();
+				buf.varint(type(ct));
+				for(String key: new TreeSet<String>(ct.keySet())) {
+					final Object item = cd.get(key);
+					final byte itemTag = tagOf(item);
+					buf.put(itemTag);
+					writeValue(buf, itemTag, item);
+				}
+				break;
+			default:
+				buf.varint(objects.size());
+				objects.add(value);
+		}
+	}
+
+	/**
+	 * A minimal growable byte buffer
+	 */
+	static class Buf {
+		byte[] bytes;
+		int size = 0;
+
+		Buf(final int initialSize) {
+			bytes = new byte[Math.max(16, initialSize)];
+		}
+
+		private void ensure(final int more) {
+			if(size + more > bytes.length) {
+				final byte[] b = new byte[Math.max(bytes.length << 1, size + more)];
+				System.arraycopy(bytes, 0, b, 0, size);
+				bytes = b;
+			}
+		}
+
+		void put(final byte b) {
+			ensure(1);
+			bytes[size++] = b;
+		}
+
+		void put(final byte[] b, final int off, final int len) {
+			ensure(len);
+			System.arraycopy(b, off, bytes, size, len);
+			size += len;
+		}
+
+		void putInt(final int v) {
+			ensure(4);
+			bytes[size++] = (byte)(v >>> 24);
+			bytes[size++] = (byte)(v >>> 16);
+			bytes[size++] = (byte)(v >>> 8);
+			bytes[size++] = (byte)v;
+		}
+
+		void putLong(final long v) {
+			putInt((int)(v >>> 32));
+			putInt((int)v);
+		}
+
+		void varint(long v) {
+			ensure(10);
+			while((v & ~0x7FL) != 0) {
+				bytes[size++] = (byte)((v & 0x7F) | 0x80);
+				v >>>= 7;
+			}
+			bytes[size++] = (byte)v;
+		}
+
+		void zigzag(final long v) {
+			varint((v << 1) ^ (v >> 63));
+		}
+
+		byte[] toByteArray() {
+			final byte[] b = new byte[size];
+			System.arraycopy(bytes, 0, b, 0, size);
+			return b;
+		}
+	}
+
+	/**
+	 * <p>Title: BenchMBean</p>
+	 * <p>Description: Benchmark MBean interface</p>
+	 */
+	public static interface BenchMBean {
+		/** @return a long */
+		public long getCount();
+		/** @return an int */
+		public int getActive();
+		/** @return a double */
+		public double getRate();
+		/** @return a string */
+		public String getState();
+		/** @return a boolean */
+		public boolean isEnabled();
+		/** @return a long array */
+		public long[] getIds();
+	}
+
+	/**
+	 * <p>Title: Bench</p>
+	 * <p>Description: Benchmark MBean</p>
+	 */
+	public static class Bench implements BenchMBean {
+		private final int id;
+		Bench(final int id) { this.id = id; }
+		public long getCount() { return System.nanoTime(); }
+		public int getActive() { return id % 17; }
+		public double getRate() { return id / 3.0D; }
+		public String getState() { return (id % 3)==0 ? "RUNNING" : "STOPPED"; }
+		public boolean isEnabled() { return (id & 1)==0; }
+		public long[] getIds() { return new long[]{id, id + 1, id + 2}; }
+	}
+
+	/**
+	 * Benchmarks the gzipped java serialization of {@link BulkJMXService#compress(Map)} against this codec
+	 * for a poll of the platform MBeans plus a number of synthetic MBeans.
+	 * @param args Optional: [0]: the number of synthetic MBeans to register, [1]: the number of iterations
+	 */
+	public static void main(String[] args) {
+		final int mbeans = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		final int loops = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for(int i = 0; i < mbeans; i++) {
+			JMXHelper.registerMBean(server, JMXHelper.objectName("com.heliosapm.bench:type=Bench,id=" + i), new Bench(i));
+		}
+		final BulkJMXService service = new BulkJMXService();
+		final Map<ObjectName, Map<String, Object>> map = service.getAttributes(server.getDefaultDomain(), JMXHelper.objectName("*:*"), null, new String[]{"*"});
+		try {
+			for(int pass = 0; pass < 2; pass++) {
+				long start = System.nanoTime();
+				int gzipSize = 0, rawSize = 0, deflateSize = 0;
+				for(int i = 0; i < loops; i++) gzipSize = service.compress(map).length;
+				final long gzipNs = System.nanoTime() - start;
+				start = System.nanoTime();
+				for(int i = 0; i < loops; i++) rawSize = encode(map, false).length;
+				final long rawNs = System.nanoTime() - start;
+				start = System.nanoTime();
+				byte[] encoded = null;
+				for(int i = 0; i < loops; i++) { encoded = encode(map, true); deflateSize = encoded.length; }
+				final long deflateNs = System.nanoTime() - start;
+				start = System.nanoTime();
+				Map<ObjectName, Map<String, Object>> decoded = null;
+				for(int i = 0; i < loops; i++) decoded = BulkAttributeDecoder.decode(encoded);
+				final long decodeNs = System.nanoTime() - start;
+				if(pass==1) {
+					System.out.println(String.format("MBeans: %s\n\tgzip serialization: %s ms, %s bytes\n\tcolumnar: %s ms, %s bytes\n\tcolumnar+deflate: %s ms, %s bytes\n\tdecode: %s ms, %s mbeans",
+						map.size(), gzipNs / loops / 1000000D, gzipSize, rawNs / loops / 1000000D, rawSize, deflateNs / loops / 1000000D, deflateSize, decodeNs / loops / 1000000D, decoded.size()));
+				}
+			}
+		} catch (Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+}
@@ -0,0 +1,265 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.jmx.bulk;
+
+import static com.heliosapm.utils.jmx.bulk.BulkAttributeCodec.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+
+/**
+ * <p>Title: BulkAttributeDecoder</p>
+ * <p>Description: Decodes bulk attribute maps encoded by {@link BulkAttributeCodec} back into
+ * the map returned by {@link BulkJMXService#getAttributes(String, Map)}. Intended for remote pollers of
+ * {@link BulkJMXServiceMBean#getEncodedAttributes(String, Map, boolean)}.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.jmx.bulk.BulkAttributeDecoder</code></p>
+ */
+
+public class BulkAttributeDecoder {
+	/** The body being decoded */
+	private final byte[] bytes;
+	/** The read position */
+	private int pos;
+	/** The string dictionary */
+	private String[] strings;
+	/** The ObjectName cache, indexed by string dictionary index */
+	private ObjectName[] objectNames;
+	/** The composite types */
+	private CompositeType[] types;
+	/** The fallback objects */
+	private Object[] objects;
+
+	/**
+	 * Determines if the passed bytes were encoded by {@link BulkAttributeCodec}
+	 * @param bytes The bytes to test
+	 * @return true if the bytes start with the codec magic, false otherwise
+	 */
+	public static boolean isEncoded(final byte[] bytes) {
+		return bytes!=null && bytes.length >= 6 && readInt(bytes, 0)==MAGIC;
+	}
+
+	/**
+	 * Decodes the passed bytes
+	 * @param encoded The bytes encoded by {@link BulkAttributeCodec#encode(Map, boolean)}
+	 * @return the decoded map of key/value attributes keyed by the absolute ObjectName of the MBean they were read from
+	 * @throws IOException thrown if the bytes are not a valid encoding
+	 */
+	public static Map<ObjectName, Map<String, Object>> decode(final byte[] encoded) throws IOException {
+		if(encoded==null || encoded.length==0) return BulkJMXService.EMPTY_BULK_MAP;
+		if(!isEncoded(encoded)) throw new IOException("Not a bulk attribute encoding");
+		if(encoded[4] > VERSION) throw new IOException("Unsupported bulk attribute encoding version [" + encoded[4] + "]");
+		if((encoded[5] & FLAG_DEFLATED)!=0) {
+			final BulkAttributeDecoder header = new BulkAttributeDecoder(encoded, 6);
+			final int rawSize = (int)header.varint();
+			final byte[] raw = new byte[rawSize];
+			final Inflater inflater = new Inflater(true);
+			try {
+				inflater.setInput(encoded, header.pos, encoded.length - header.pos);
+				int read = 0;
+				while(read < rawSize) {
+					final int r = inflater.inflate(raw, read, rawSize - read);
+					if(r==0 && (inflater.finished() || inflater.needsInput())) break;
+					read += r;
+				}
+				if(read!=rawSize) throw new IOException("Truncated bulk attribute encoding. Expected [" + rawSize + "] but inflated [" + read + "]");
+			} catch (DataFormatException dex) {
+				throw new IOException("Corrupt bulk attribute encoding:" + dex);
+			} finally {
+				inflater.end();
+			}
+			return new BulkAttributeDecoder(raw, 0).decodeBody();
+		}
+		return new BulkAttributeDecoder(encoded, 6).decodeBody();
+	}
+
+	/**
+	 * Creates a new BulkAttributeDecoder
+	 * @param bytes The bytes to decode
+	 * @param pos The starting position
+	 */
+	private BulkAttributeDecoder(final byte[] bytes, final int pos) {
+		this.bytes = bytes;
+		this.pos = pos;
+	}
+
+	private Map<ObjectName, Map<String, Object>> decodeBody() throws IOException {
+		try {
+			strings = new String[(int)varint()];
+			objectNames = new ObjectName[strings.length];
+			for(int i = 0; i < strings.length; i++) {
+				final int len = (int)varint();
+				strings[i] = new String(bytes, pos, len, UTF8);
+				pos += len;
+			}
+			final int rowCount = (int)varint();
+			final ObjectName[] rows = new ObjectName[rowCount];
+			final Map<ObjectName, Map<String, Object>> map = new HashMap<ObjectName, Map<String, Object>>(rowCount);
+			for(int i = 0; i < rowCount; i++) {
+				rows[i] = objectName((int)varint());
+				map.put(rows[i], new HashMap<String, Object>());
+			}
+			final Object[] t = blob();
+			types = t==null ? new CompositeType[0] : (CompositeType[])t;
+			objects = blob();
+			final int columnCount = (int)varint();
+			int[] rowIndexes = new int[16];
+			for(int c = 0; c < columnCount; c++) {
+				final String attr = strings[(int)varint()];
+				final byte tag = bytes[pos++];
+				final int size = (int)varint();
+				if(rowIndexes.length < size) rowIndexes = new int[size];
+				int row = 0;
+				for(int i = 0; i < size; i++) {
+					row += (int)varint();
+					rowIndexes[i] = row;
+				}
+				for(int i = 0; i < size; i++) {
+					map.get(rows[rowIndexes[i]]).put(attr, readValue(tag));
+				}
+			}
+			return map;
+		} catch (IOException iex) {
+			throw iex;
+		} catch (Exception ex) {
+			throw new IOException("Failed to decode bulk attributes:" + ex);
+		}
+	}
+
+	private ObjectName objectName(final int idx) throws Exception {
+		ObjectName on = objectNames[idx];
+		if(on==null) {
+			on = ObjectName.getInstance(strings[idx]);
+			objectNames[idx] = on;
+		}
+		return on;
+	}
+
+	private Object[] blob() throws Exception {
+		final int len = (int)varint();
+		if(len==0) return null;
+		final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes, pos, len));
+		try {
+			return (Object[])ois.readObject();
+		} finally {
+			pos += len;
+			try { ois.close(); } catch (Exception x) {/* No Op */}
+		}
+	}
+
+	private Object readValue(final byte tag) throws Exception {
+		switch(tag) {
+			case T_NULL:
+				return null;
+			case T_BOOLEAN:
+				return bytes[pos++]!=0;
+			case T_BYTE:
+				return bytes[pos++];
+			case T_SHORT:
+				return (short)zigzag();
+			case T_CHAR:
+				return (char)varint();
+			case T_INT:
+				return (int)zigzag();
+			case T_LONG:
+				return zigzag();
+			case T_FLOAT:
+				final int fbits = readInt(bytes, pos);
+				pos += 4;
+				return Float.intBitsToFloat(fbits);
+			case T_DOUBLE:
+				return Double.longBitsToDouble(readLong());
+			case T_STRING:
+				return strings[(int)varint()];
+			case T_OBJECTNAME:
+				return objectName((int)varint());
+			case T_LONG_ARRAY:
+				final long[] la = new long[(int)varint()];
+				for(int i = 0; i < la.length; i++) la[i] = zigzag();
+				return la;
+			case T_INT_ARRAY:
+				final int[] ia = new int[(int)varint()];
+				for(int i = 0; i < ia.length; i++) ia[i] = (int)zigzag();
+				return ia;
+			case T_DOUBLE_ARRAY:
+				final double[] da = new double[(int)varint()];
+				for(int i = 0; i < da.length; i++) da[i] = Double.longBitsToDouble(readLong());
+				return da;
+			case T_STRING_ARRAY:
+				final String[] sa = new String[(int)varint()];
+				for(int i = 0; i < sa.length; i++) {
+					final int idx = (int)varint();
+					sa[i] = idx==0 ? null : strings[idx - 1];
+				}
+				return sa;
+			case T_COMPOSITE:
+				final CompositeType ct = types[(int)varint()];
+				final TreeSet<String> keys = new TreeSet<String>(ct.keySet());
+				final String[] names = keys.toArray(new String[keys.size()]);
+				final Object[] items = new Object[names.length];
+				for(int i = 0; i < names.length; i++) {
+					items[i] = readValue(bytes[pos++]);
+				}
+				return new CompositeDataSupport(ct, names, items);
+			case T_OBJECT:
+				return objects[(int)varint()];
+			default:
+				throw new IOException("Unknown value tag [" + tag + "] at position [" + (pos - 1) + "]");
+		}
+	}
+
+	private long varint() {
+		long v = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = bytes[pos++];
+			v |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		} while((b & 0x80)!=0);
+		return v;
+	}
+
+	private long zigzag() {
+		final long v = varint();
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	private long readLong() {
+		final long hi = readInt(bytes, pos) & 0xFFFFFFFFL;
+		final long lo = readInt(bytes, pos + 4) & 0xFFFFFFFFL;
+		pos += 8;
+		return (hi << 32) | lo;
+	}
+
+	private static int readInt(final byte[] b, final int p) {
+		return ((b[p] & 0xFF) << 24) | ((b[p + 1] & 0xFF) << 16) | ((b[p + 2] & 0xFF) << 8) | (b[p + 3] & 0xFF);
+	}
+}
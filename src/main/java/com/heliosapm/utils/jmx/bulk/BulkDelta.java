@@ -0,0 +1,219 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.jmx.bulk;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.ObjectName;
+
+/**
+ * <p>Title: BulkDelta</p>
+ * <p>Description: The result of a {@link BulkJMXServiceMBean#pollDelta(String)}: the attributes that changed since the polled token,
+ * the MBeans that were added or removed, and the token for the next poll. The changed attribute map is
+ * externalized using the {@link BulkAttributeCodec}.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.jmx.bulk.BulkDelta</code></p>
+ */
+
+public class BulkDelta implements Externalizable {
+	/**  */
+	private static final long serialVersionUID = -1405876297396364575L;
+	/** The token to pass on the next poll */
+	private String token = null;
+	/** Indicates if this delta is a full snapshot rather than a delta */
+	private boolean full = false;
+	/** The changed attribute values keyed by the ObjectName of the MBean they were read from. Added MBeans include all their attributes. */
+	private Map<ObjectName, Map<String, Object>> changed = BulkJMXService.EMPTY_BULK_MAP;
+	/** The ObjectNames of MBeans added since the last poll */
+	private Set<ObjectName> added = Collections.emptySet();
+	/** The ObjectNames of MBeans removed since the last poll */
+	private Set<ObjectName> removed = Collections.emptySet();
+	/** The names of attributes no longer returned, keyed by the ObjectName of the MBean */
+	private Map<ObjectName, Set<String>> removedAttributes = Collections.emptyMap();
+
+	/**
+	 * Creates a new BulkDelta for externalization
+	 */
+	public BulkDelta() {
+	}
+
+	/**
+	 * Creates a new BulkDelta
+	 * @param token The token to pass on the next poll
+	 * @param full true if this delta is a full snapshot
+	 * @param changed The changed attribute values
+	 * @param added The ObjectNames of the added MBeans
+	 * @param removed The ObjectNames of the removed MBeans
+	 * @param removedAttributes The names of attributes no longer returned
+	 */
+	BulkDelta(final String token, final boolean full, final Map<ObjectName, Map<String, Object>> changed, final Set<ObjectName> added, final Set<ObjectName> removed, final Map<ObjectName, Set<String>> removedAttributes) {
+		this.token = token;
+		this.full = full;
+		this.changed = changed;
+		this.added = added;
+		this.removed = removed;
+		this.removedAttributes = removedAttributes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(final ObjectOutput out) throws IOException {
+		out.writeUTF(token);
+		out.writeBoolean(full);
+		writeNames(out, added);
+		writeNames(out, removed);
+		out.writeInt(removedAttributes.size());
+		for(Map.Entry<ObjectName, Set<String>> entry: removedAttributes.entrySet()) {
+			out.writeUTF(entry.getKey().toString());
+			out.writeInt(entry.getValue().size());
+			for(String s: entry.getValue()) {
+				out.writeUTF(s);
+			}
+		}
+		final byte[] bytes = changed.isEmpty() ? BulkJMXService.EMPTY_BYTE_ARR : BulkAttributeCodec.encode(changed, true);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+		token = in.readUTF();
+		full = in.readBoolean();
+		added = readNames(in);
+		removed = readNames(in);
+		final int attrCount = in.readInt();
+		removedAttributes = new HashMap<ObjectName, Set<String>>(attrCount);
+		for(int i = 0; i < attrCount; i++) {
+			final ObjectName on = objectName(in.readUTF());
+			final int size = in.readInt();
+			final Set<String> names = new HashSet<String>(size);
+			for(int x = 0; x < size; x++) {
+				names.add(in.readUTF());
+			}
+			removedAttributes.put(on, names);
+		}
+		final byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		changed = BulkAttributeDecoder.decode(bytes);
+	}
+
+	private static void writeNames(final ObjectOutput out, final Set<ObjectName> names) throws IOException {
+		out.writeInt(names.size());
+		for(ObjectName on: names) {
+			out.writeUTF(on.toString());
+		}
+	}
+
+	private static Set<ObjectName> readNames(final ObjectInput in) throws IOException {
+		final int size = in.readInt();
+		final Set<ObjectName> names = new HashSet<ObjectName>(size);
+		for(int i = 0; i < size; i++) {
+			names.add(objectName(in.readUTF()));
+		}
+		return names;
+	}
+
+	private static ObjectName objectName(final String name) throws IOException {
+		try {
+			return ObjectName.getInstance(name);
+		} catch (Exception ex) {
+			throw new IOException("Invalid ObjectName [" + name + "]:" + ex);
+		}
+	}
+
+	/**
+	 * Returns the token to pass on the next poll
+	 * @return the next token
+	 */
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * Indicates if this delta is a full snapshot, which is returned on the first poll
+	 * and whenever the polled token was not the subscription's latest
+	 * @return true if this delta is a full snapshot
+	 */
+	public boolean isFull() {
+		return full;
+	}
+
+	/**
+	 * Returns the changed attribute values keyed by the ObjectName of the MBean they were read from.
+	 * Added MBeans include all their attributes.
+	 * @return the changed attribute values
+	 */
+	public Map<ObjectName, Map<String, Object>> getChanged() {
+		return changed;
+	}
+
+	/**
+	 * Returns the ObjectNames of the MBeans added since the last poll
+	 * @return the added ObjectNames
+	 */
+	public Set<ObjectName> getAdded() {
+		return added;
+	}
+
+	/**
+	 * Returns the ObjectNames of the MBeans removed since the last poll
+	 * @return the removed ObjectNames
+	 */
+	public Set<ObjectName> getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * Returns the names of attributes no longer returned, keyed by the ObjectName of the MBean
+	 * @return the removed attribute names
+	 */
+	public Map<ObjectName, Set<String>> getRemovedAttributes() {
+		return removedAttributes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return new StringBuilder("BulkDelta [token:").append(token)
+			.append(", full:").append(full)
+			.append(", changed:").append(changed.size())
+			.append(", added:").append(added.size())
+			.append(", removed:").append(removed.size())
+			.append("]").toString();
+	}
+}
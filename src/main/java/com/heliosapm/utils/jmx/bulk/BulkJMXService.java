@@ -26,24 +26,36 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import java.util.zip.GZIPOutputStream;
 
 import javax.management.Attribute;
 import javax.management.AttributeList;
 import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
 import javax.management.MBeanRegistration;
 import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
 import javax.management.MBeanServerFactory;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationListener;
 import javax.management.ObjectName;
 import javax.management.QueryExp;
 
+import com.heliosapm.utils.config.ConfigurationHelper;
+
 /**
  * <p>Title: BulkJMXService</p>
  * <p>Description: Provides bulk JMX Ops</p> 
@@ -70,6 +82,14 @@ public class BulkJMXService implements MBeanRegistration, BulkJMXServiceMBean {
 	
 	/** Empty bulk map const */ 
 	public static final Map<ObjectName, Map<String, Object>> EMPTY_BULK_MAP = Collections.unmodifiableMap(new HashMap<ObjectName, Map<String, Object>>(0));
+	/** The attribute key set in MBean values returned stale by a parallel collection timeout. The value is the age of the values in ms, or -1 if none were ever collected. */
+	public static final String STALE_KEY = "STALE";
+	/** The config property name for the parallel collection pool's parallelism */
+	public static final String CONFIG_PARALLELISM = "heliosutils.bulkjmx.parallelism";
+	/** The default parallel collection pool parallelism. MBean getters may block, so this is well above the core count. */
+	public static final int DEFAULT_PARALLELISM = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+	/** The default parallel collection per MBean timeout in ms */
+	public static final long DEFAULT_MBEAN_TIMEOUT = 2000L;
 	/** Empty string array const */
 	public static final String[] EMPTY_STR_ARR = {};
 	/** Empty byte array const */
@@ -78,6 +98,33 @@ public class BulkJMXService implements MBeanRegistration, BulkJMXServiceMBean {
 	public static final Object[] EMPTY_OBJ_ARR = {};
 	/** A map of MBeanServers keyed by their default domain names */
 	final Map<String, MBeanServer> mbeanServers;
+	/** The per MBean collection stats keyed by ObjectName */
+	protected final Map<ObjectName, MBeanCollectionStats> collectionStats = new ConcurrentHashMap<ObjectName, MBeanCollectionStats>();
+	/** Indicates if {@link #getAttributes(String, Map)} collects in parallel */
+	protected volatile boolean parallel = false;
+	/** The parallel collection per MBean timeout in ms */
+	protected volatile long mbeanTimeout = DEFAULT_MBEAN_TIMEOUT;
+	/** The lazily created parallel collector */
+	private volatile ParallelCollector parallelCollector = null;
+	/** The delta lookup subscriptions keyed by subscription id */
+	protected final Map<String, DeltaSubscription> deltaSubscriptions = new ConcurrentHashMap<String, DeltaSubscription>();
+	/** The delta subscription id factory */
+	protected final AtomicLong deltaSubscriptionIds = new AtomicLong(0L);
+	/** The MBeanServers with a registered registration listener */
+	protected final Set<MBeanServer> listeningServers = Collections.newSetFromMap(new ConcurrentHashMap<MBeanServer, Boolean>());
+	/** Marks delta subscriptions on the notifying MBeanServer as needing their patterns re-expanded */
+	protected final NotificationListener registrationListener = new NotificationListener() {
+		@Override
+		public void handleNotification(final Notification notification, final Object handback) {
+			final MBeanServer server = (MBeanServer)handback;
+			for(DeltaSubscription sub: deltaSubscriptions.values()) {
+				if(sub.server==server) sub.dirty.set(true);
+			}
+			if(MBeanServerNotification.UNREGISTRATION_NOTIFICATION.equals(notification.getType())) {
+				collectionStats.remove(((MBeanServerNotification)notification).getMBeanName());
+			}
+		}
+	};
 	
 	/**
 	 * Creates a new BulkJMXService
@@ -123,6 +170,7 @@ public class BulkJMXService implements MBeanRegistration, BulkJMXServiceMBean {
 	@Override
 	public Map<ObjectName, Map<String, Object>> getAttributes(final String mbs, final Map<ObjectName, String[]> lookups) {
 		if(lookups==null || lookups.isEmpty()) return EMPTY_BULK_MAP;
+		if(parallel) return getAttributesParallel(mbs, lookups, mbeanTimeout);
 		final MBeanServer server = mbs(mbs);
 		final Map<ObjectName, Map<String, Object>> map = new HashMap<ObjectName, Map<String, Object>>();
 		for(Map.Entry<ObjectName, String[]> entry: lookups.entrySet()) {
@@ -143,6 +191,178 @@ public class BulkJMXService implements MBeanRegistration, BulkJMXServiceMBean {
 		return map;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.bulk.BulkJMXServiceMBean#getMBeanInfos(java.lang.String, javax.management.ObjectName[])
+	 */
+	@Override
+	public Map<ObjectName, MBeanInfo> getMBeanInfos(final String mbs, final ObjectName[] objectNames) {
+		if(objectNames==null || objectNames.length==0) return Collections.emptyMap();
+		final MBeanServer server = mbs(mbs);
+		final Set<ObjectName> names = new LinkedHashSet<ObjectName>(objectNames.length);
+		for(ObjectName on: objectNames) {
+			if(on==null) continue;
+			if(on.isPattern()) {
+				names.addAll(server.queryNames(on, null));
+			} else {
+				names.add(on);
+			}
+		}
+		final Map<ObjectName, MBeanInfo> map = new HashMap<ObjectName, MBeanInfo>(names.size());
+		for(ObjectName on: names) {
+			try {
+				map.put(on, server.getMBeanInfo(on));
+			} catch (Exception ex) {
+				log.warning("Failed to get MBeanInfo for [" + on + "]:" + ex);
+			}
+		}
+		return map;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.bulk.BulkJMXServiceMBean#getAttributesParallel(java.lang.String, java.util.Map, long)
+	 */
+	@Override
+	public Map<ObjectName, Map<String, Object>> getAttributesParallel(final String mbs, final Map<ObjectName, String[]> lookups, final long timeoutMs) {
+		if(lookups==null || lookups.isEmpty()) return EMPTY_BULK_MAP;
+		final MBeanServer server = mbs(mbs);
+		listenForRegistrations(server);
+		final Map<ObjectName, String[]> targets = new LinkedHashMap<ObjectName, String[]>(lookups.size());
+		for(Map.Entry<ObjectName, String[]> entry: lookups.entrySet()) {
+			final ObjectName target = entry.getKey();
+			final String[] attrs = cleanAttrs(entry.getValue());
+			if(target.isPattern()) {
+				for(ObjectName on: server.queryNames(target, null)) {
+					targets.put(on, expand(server, on, attrs));
+				}
+			} else if(attrs.length > 0) {
+				targets.put(target, attrs);
+			}
+		}
+		if(targets.isEmpty()) return EMPTY_BULK_MAP;
+		return parallelCollector().collect(this, server, targets, timeoutMs < 1 ? mbeanTimeout : timeoutMs);
+	}
+	
+	/**
+	 * Returns the parallel collector, creating it if necessary
+	 * @return the parallel collector
+	 */
+	private ParallelCollector parallelCollector() {
+		if(parallelCollector==null) {
+			synchronized(this) {
+				if(parallelCollector==null) {
+					parallelCollector = new ParallelCollector(ConfigurationHelper.getIntSystemThenEnvProperty(CONFIG_PARALLELISM, DEFAULT_PARALLELISM));
+				}
+			}
+		}
+		return parallelCollector;
+	}
+	
+	/**
+	 * Returns the collection stats for the passed ObjectName, creating them if necessary
+	 * @param on The ObjectName of the MBean
+	 * @return the collection stats
+	 */
+	MBeanCollectionStats stats(final ObjectName on) {
+		MBeanCollectionStats stats = collectionStats.get(on);
+		if(stats==null) {
+			synchronized(collectionStats) {
+				stats = collectionStats.get(on);
+				if(stats==null) {
+					stats = new MBeanCollectionStats();
+					collectionStats.put(on, stats);
+				}
+			}
+		}
+		return stats;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.bulk.BulkJMXServiceMBean#isParallel()
+	 */
+	@Override
+	public boolean isParallel() {
+		return parallel;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.bulk.BulkJMXServiceMBean#setParallel(boolean)
+	 */
+	@Override
+	public void setParallel(final boolean parallel) {
+		this.parallel = parallel;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.bulk.BulkJMXServiceMBean#getMBeanTimeout()
+	 */
+	@Override
+	public long getMBeanTimeout() {
+		return mbeanTimeout;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.bulk.BulkJMXServiceMBean#setMBeanTimeout(long)
+	 */
+	@Override
+	public void setMBeanTimeout(final long timeoutMs) {
+		if(timeoutMs < 1) throw new IllegalArgumentException("Invalid MBean timeout [" + timeoutMs + "]");
+		mbeanTimeout = timeoutMs;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.bulk.BulkJMXServiceMBean#getCollectionLatencies()
+	 */
+	@Override
+	public Map<ObjectName, long[]> getCollectionLatencies() {
+		final Map<ObjectName, long[]> map = new HashMap<ObjectName, long[]>(collectionStats.size());
+		for(Map.Entry<ObjectName, MBeanCollectionStats> entry: collectionStats.entrySet()) {
+			map.put(entry.getKey(), entry.getValue().toArray());
+		}
+		return map;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.bulk.BulkJMXServiceMBean#getSlowestMBeans(int)
+	 */
+	@Override
+	public String[] getSlowestMBeans(final int topN) {
+		final List<Map.Entry<ObjectName, long[]>> entries = new ArrayList<Map.Entry<ObjectName, long[]>>(getCollectionLatencies().entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<ObjectName, long[]>>() {
+			@Override
+			public int compare(final Map.Entry<ObjectName, long[]> a, final Map.Entry<ObjectName, long[]> b) {
+				final long x = a.getValue()[MBeanCollectionStats.AVG], y = b.getValue()[MBeanCollectionStats.AVG];
+				return x < y ? 1 : x > y ? -1 : 0;
+			}
+		});
+		final int size = Math.min(Math.max(topN, 0), entries.size());
+		final String[] slowest = new String[size];
+		for(int i = 0; i < size; i++) {
+			final long[] s = entries.get(i).getValue();
+			slowest[i] = String.format("%s: avg=%sus, max=%sus, last=%sus, count=%s, timeouts=%s", entries.get(i).getKey(),
+				s[MBeanCollectionStats.AVG], s[MBeanCollectionStats.MAX], s[MBeanCollectionStats.LAST], s[MBeanCollectionStats.COUNT], s[MBeanCollectionStats.TIMEOUTS]);
+		}
+		return slowest;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.bulk.BulkJMXServiceMBean#resetCollectionLatencies()
+	 */
+	@Override
+	public void resetCollectionLatencies() {
+		for(MBeanCollectionStats stats: collectionStats.values()) {
+			stats.reset();
+		}
+	}
+	
 	/**
 	 * Locates all registered MBeans matching the criteria defined by the passed ObjectName and query
 	 * and returns a bulk value map for all through {@link #getAttributes(String, Map)}.
@@ -224,6 +444,40 @@ public class BulkJMXService implements MBeanRegistration, BulkJMXServiceMBean {
 		return compress(map);
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.bulk.BulkJMXServiceMBean#getEncodedAttributes(java.lang.String, java.util.Map, boolean)
+	 */
+	@Override
+	public byte[] getEncodedAttributes(final String mbs, final Map<ObjectName, String[]> lookups, final boolean deflate) {
+		return encode(getAttributes(mbs, lookups), deflate);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.bulk.BulkJMXServiceMBean#getEncodedAttributes(java.lang.String, javax.management.ObjectName, javax.management.QueryExp, java.lang.String[], boolean)
+	 */
+	@Override
+	public byte[] getEncodedAttributes(final String mbs, final ObjectName on, final QueryExp query, final String[] attrNames, final boolean deflate) {
+		return encode(getAttributes(mbs, on, query, attrNames), deflate);
+	}
+	
+	/**
+	 * Encodes the passed map to a byte array using the {@link BulkAttributeCodec}
+	 * @param map The map to encode
+	 * @param deflate true to deflate the encoded bytes
+	 * @return the encoded byte array
+	 */
+	protected byte[] encode(final Map<ObjectName, Map<String, Object>> map, final boolean deflate) {
+		if(map==null || map.isEmpty()) return EMPTY_BYTE_ARR;
+		try {
+			return BulkAttributeCodec.encode(map, deflate);
+		} catch (Exception ex) {
+			log.warning("Failed to encode result map:" + ex);
+			return EMPTY_BYTE_ARR;
+		}
+	}
+	
 	/**
 	 * Compresses the passed map to a byte array
 	 * @param map The map to compress
@@ -303,6 +557,9 @@ public class BulkJMXService implements MBeanRegistration, BulkJMXServiceMBean {
 		if(!server.isRegistered(on) || on.isPattern() || attrs.length==0) return EMPTY_ATTR_MAP;
 		final String[] _attrs = expand(server, on, attrs);
 		final Map<String, Object> map = new ExternalizableMap();
+		// collection stats are only kept while unregistered MBeans are dropped from them
+		final boolean recordStats = listenForRegistrations(server);
+		final long start = System.nanoTime();
 		if(server.isRegistered(on)) {
 			try {
 				final AttributeList al = server.getAttributes(on, _attrs);
@@ -317,6 +574,7 @@ public class BulkJMXService implements MBeanRegistration, BulkJMXServiceMBean {
 				map.put("EX", ex);
 			}
 		}
+		if(recordStats) stats(on).record(System.nanoTime() - start);
 		return map;
 	}
 	
@@ -397,6 +655,87 @@ public class BulkJMXService implements MBeanRegistration, BulkJMXServiceMBean {
 		return attrNames;
 	}
 	
+	/**
+	 * Registers the MBean registration listener with the passed MBeanServer if not already registered
+	 * @param server The MBeanServer to listen to
+	 * @return true if the listener is registered, false if it could not be
+	 */
+	protected boolean listenForRegistrations(final MBeanServer server) {
+		if(listeningServers.contains(server)) return true;
+		synchronized(listeningServers) {
+			if(!listeningServers.contains(server)) {
+				try {
+					server.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, registrationListener, null, server);
+					listeningServers.add(server);
+				} catch (Exception ex) {
+					log.warning("Failed to register MBean registration listener. Patterns will be expanded on every poll:" + ex);
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.bulk.BulkJMXServiceMBean#registerLookup(java.lang.String, java.util.Map)
+	 */
+	@Override
+	public String registerLookup(final String mbs, final Map<ObjectName, String[]> lookups) {
+		if(lookups==null || lookups.isEmpty()) throw new IllegalArgumentException("The passed lookups were null or empty");
+		final MBeanServer server = mbs(mbs);
+		final Map<ObjectName, String[]> cleaned = new LinkedHashMap<ObjectName, String[]>(lookups.size());
+		for(Map.Entry<ObjectName, String[]> entry: lookups.entrySet()) {
+			cleaned.put(entry.getKey(), cleanAttrs(entry.getValue()));
+		}
+		listenForRegistrations(server);
+		final DeltaSubscription sub = new DeltaSubscription(String.valueOf(deltaSubscriptionIds.incrementAndGet()), server, cleaned);
+		deltaSubscriptions.put(sub.id, sub);
+		return sub.token();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.bulk.BulkJMXServiceMBean#pollDelta(java.lang.String)
+	 */
+	@Override
+	public BulkDelta pollDelta(final String token) {
+		final int sep = token==null ? -1 : token.lastIndexOf('-');
+		if(sep < 1) throw new IllegalArgumentException("Invalid delta token [" + token + "]");
+		final DeltaSubscription sub = deltaSubscriptions.get(token.substring(0, sep));
+		if(sub==null) throw new IllegalArgumentException("No delta lookup registered for token [" + token + "]");
+		final long seq;
+		try {
+			seq = Long.parseLong(token.substring(sep + 1));
+		} catch (NumberFormatException nex) {
+			throw new IllegalArgumentException("Invalid delta token [" + token + "]");
+		}
+		if(!listeningServers.contains(sub.server)) {
+			sub.dirty.set(true);
+		}
+		return sub.poll(this, seq);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.bulk.BulkJMXServiceMBean#unregisterLookup(java.lang.String)
+	 */
+	@Override
+	public boolean unregisterLookup(final String token) {
+		if(token==null) return false;
+		final int sep = token.lastIndexOf('-');
+		return deltaSubscriptions.remove(sep < 1 ? token : token.substring(0, sep))!=null;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.bulk.BulkJMXServiceMBean#getDeltaSubscriptionCount()
+	 */
+	@Override
+	public int getDeltaSubscriptionCount() {
+		return deltaSubscriptions.size();
+	}
+	
 	/**
 	 * Returns the number of cached MBean attribute name arrays
 	 * @return the number of cached MBean attribute name arrays
@@ -445,7 +784,17 @@ public class BulkJMXService implements MBeanRegistration, BulkJMXServiceMBean {
 	 */
 	@Override
 	public void postDeregister() {
-		/* No Op */
+		synchronized(listeningServers) {
+			for(MBeanServer server: listeningServers) {
+				try { server.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, registrationListener); } catch (Exception x) {/* No Op */}
+			}
+			listeningServers.clear();
+		}
+		deltaSubscriptions.clear();
+		if(parallelCollector!=null) {
+			parallelCollector.shutdown();
+			parallelCollector = null;
+		}
 	}
 	
 	/**
@@ -21,6 +21,7 @@ package com.heliosapm.utils.jmx.bulk;
 import java.util.Map;
 import java.util.Set;
 
+import javax.management.MBeanInfo;
 import javax.management.ObjectName;
 import javax.management.QueryExp;
 
@@ -47,6 +48,68 @@ public interface BulkJMXServiceMBean {
 	 */
 	public Map<ObjectName, Map<String, Object>> getAttributes(final String mbs, final Map<ObjectName, String[]> lookups);
 	
+	/**
+	 * Bulk MBeanInfo lookup, resolving the metadata for a whole query result in one call
+	 * @param mbs The default domain name of the target MBeanServer
+	 * @param objectNames The [optionally pattern based] ObjectNames of the MBeans to get the MBeanInfo for
+	 * @return A map of MBeanInfos keyed by the absolute ObjectName of the MBean they were read from
+	 */
+	public Map<ObjectName, MBeanInfo> getMBeanInfos(final String mbs, final ObjectName[] objectNames);
+	
+	/**
+	 * Bulk attribute lookup, collecting each MBean's attributes in parallel. An MBean that does not deliver its attributes
+	 * within the timeout is returned with its last collected values and a {@link BulkJMXService#STALE_KEY} entry
+	 * rather than blocking the batch.
+	 * @param mbs The default domain name of the target MBeanServer
+	 * @param lookups A map of attribute names to lookup keyed by the [optionally pattern based] ObjectName of the MBeans to look them up from
+	 * @param timeoutMs The per MBean timeout in ms. Values less than 1 use the configured {@link #getMBeanTimeout()}.
+	 * @return A map of key/value attributes keyed by the absolute ObjectName of the MBean they were read from
+	 */
+	public Map<ObjectName, Map<String, Object>> getAttributesParallel(final String mbs, final Map<ObjectName, String[]> lookups, final long timeoutMs);
+	
+	/**
+	 * Indicates if {@link #getAttributes(String, Map)} collects in parallel
+	 * @return true if parallel, false if serial
+	 */
+	public boolean isParallel();
+	
+	/**
+	 * Sets the collection mode of {@link #getAttributes(String, Map)}
+	 * @param parallel true to collect in parallel, false to collect serially
+	 */
+	public void setParallel(final boolean parallel);
+	
+	/**
+	 * Returns the parallel collection per MBean timeout in ms
+	 * @return the per MBean timeout in ms
+	 */
+	public long getMBeanTimeout();
+	
+	/**
+	 * Sets the parallel collection per MBean timeout in ms
+	 * @param timeoutMs the per MBean timeout in ms
+	 */
+	public void setMBeanTimeout(final long timeoutMs);
+	
+	/**
+	 * Returns the attribute collection latency stats for each collected MBean as an array of
+	 * <b><code>[count, last, avg, max, timeouts]</code></b> with times in microseconds
+	 * @return the collection latency stats keyed by ObjectName
+	 */
+	public Map<ObjectName, long[]> getCollectionLatencies();
+	
+	/**
+	 * Returns a summary of the MBeans with the highest average attribute collection latency
+	 * @param topN The number of MBeans to return
+	 * @return the slowest MBean summaries, slowest first
+	 */
+	public String[] getSlowestMBeans(final int topN);
+	
+	/**
+	 * Resets the attribute collection latency stats
+	 */
+	public void resetCollectionLatencies();
+	
 	/**
 	 * Locates all registered MBeans matching the criteria defined by the passed ObjectName and query
 	 * and returns a bulk value map for all through {@link #getAttributes(String, Map)}.
@@ -94,6 +157,60 @@ public interface BulkJMXServiceMBean {
 	 */
 	public byte[] getCompressedAttributes(final String mbs, final Map<ObjectName, String[]> lookups);
 	
+	/**
+	 * Bulk attribute lookup with a compact columnar binary response. Same op as {@link #getAttributes(String, Map)} and
+	 * returns the result encoded by {@link BulkAttributeCodec}, decodable with {@link BulkAttributeDecoder}.
+	 * @param mbs The default domain name of the target MBeanServer
+	 * @param lookups A map of attribute names to lookup keyed by the [optionally pattern based] ObjectName of the MBeans to look them up from
+	 * @param deflate true to deflate the encoded response
+	 * @return A map of key/value attributes keyed by the absolute ObjectName of the MBean they were read from
+	 * encoded into a byte array
+	 */
+	public byte[] getEncodedAttributes(final String mbs, final Map<ObjectName, String[]> lookups, final boolean deflate);
+	
+	/**
+	 * Locates all registered MBeans matching the criteria defined by the passed ObjectName and query
+	 * and returns a byte array containing the bulk value map for all encoded by {@link BulkAttributeCodec}.
+	 * @param mbs The default domain name of the target MBeanServer
+	 * @param on The object name to match
+	 * @param query The query to match
+	 * @param attrNames The attribute names of the attributes to retrieve
+	 * @param deflate true to deflate the encoded response
+	 * @return A map of key/value attributes keyed by the absolute ObjectName of the MBean they were read from
+	 * encoded into a byte array
+	 */
+	public byte[] getEncodedAttributes(final String mbs, final ObjectName on, final QueryExp query, final String[] attrNames, final boolean deflate);
+	
+	/**
+	 * Registers a lookup set for delta polling through {@link #pollDelta(String)}.
+	 * @param mbs The default domain name of the target MBeanServer
+	 * @param lookups A map of attribute names to lookup keyed by the [optionally pattern based] ObjectName of the MBeans to look them up from
+	 * @return the token for the first poll
+	 */
+	public String registerLookup(final String mbs, final Map<ObjectName, String[]> lookups);
+	
+	/**
+	 * Polls a registered lookup set, returning only the attributes that changed since the passed token was issued,
+	 * and the MBeans that were added or removed. The first poll, and any poll with a token that is not the latest
+	 * issued for the lookup set, returns a full snapshot.
+	 * @param token The token returned from {@link #registerLookup(String, Map)} or from the last poll's {@link BulkDelta#getToken()}
+	 * @return the delta
+	 */
+	public BulkDelta pollDelta(final String token);
+	
+	/**
+	 * Unregisters a lookup set registered through {@link #registerLookup(String, Map)}
+	 * @param token Any token issued for the lookup set
+	 * @return true if the lookup set was unregistered, false if it was not found
+	 */
+	public boolean unregisterLookup(final String token);
+	
+	/**
+	 * Returns the number of registered delta lookup sets
+	 * @return the number of registered delta lookup sets
+	 */
+	public int getDeltaSubscriptionCount();
+	
 	/**
 	 * Returns the number of cached MBean attribute name arrays
 	 * @return the number of cached MBean attribute name arrays
@@ -0,0 +1,171 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.jmx.bulk;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * <p>Title: DeltaSubscription</p>
+ * <p>Description: A registered lookup set polled through {@link BulkJMXService#pollDelta(String)}.
+ * Retains the last polled values to compute deltas, and caches the expansion of pattern ObjectNames
+ * until the MBeanServer reports an MBean registration or unregistration.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.jmx.bulk.DeltaSubscription</code></p>
+ */
+
+class DeltaSubscription {
+	/** The subscription id */
+	final String id;
+	/** The target MBeanServer */
+	final MBeanServer server;
+	/** The cleaned lookups */
+	final Map<ObjectName, String[]> lookups;
+	/** Indicates the pattern expansions are stale */
+	final AtomicBoolean dirty = new AtomicBoolean(true);
+	/** The cached pattern expansions keyed by the pattern */
+	private final Map<ObjectName, Set<ObjectName>> expansions = new HashMap<ObjectName, Set<ObjectName>>();
+	/** The sequence of the last poll */
+	private long seq = 0;
+	/** The values from the last poll */
+	private Map<ObjectName, Map<String, Object>> last = BulkJMXService.EMPTY_BULK_MAP;
+
+	/**
+	 * Creates a new DeltaSubscription
+	 * @param id The subscription id
+	 * @param server The target MBeanServer
+	 * @param lookups The cleaned lookups
+	 */
+	DeltaSubscription(final String id, final MBeanServer server, final Map<ObjectName, String[]> lookups) {
+		this.id = id;
+		this.server = server;
+		this.lookups = lookups;
+	}
+
+	/**
+	 * Returns the token for the current sequence
+	 * @return the current token
+	 */
+	synchronized String token() {
+		return id + "-" + seq;
+	}
+
+	/**
+	 * Polls the lookups and computes the delta against the last poll
+	 * @param service The service to read attributes through
+	 * @param tokenSeq The sequence of the polled token. If it is not the current sequence, a full snapshot is returned.
+	 * @return the delta
+	 */
+	synchronized BulkDelta poll(final BulkJMXService service, final long tokenSeq) {
+		final Map<ObjectName, Map<String, Object>> current = resolve(service);
+		final boolean full = seq==0 || tokenSeq!=seq;
+		final BulkDelta delta;
+		if(full) {
+			delta = new BulkDelta(id + "-" + (seq + 1), true, current, new HashSet<ObjectName>(current.keySet()),
+				Collections.<ObjectName>emptySet(), Collections.<ObjectName, Set<String>>emptyMap());
+		} else {
+			final Map<ObjectName, Map<String, Object>> changed = new HashMap<ObjectName, Map<String, Object>>();
+			final Set<ObjectName> added = new HashSet<ObjectName>();
+			final Map<ObjectName, Set<String>> removedAttributes = new HashMap<ObjectName, Set<String>>();
+			for(Map.Entry<ObjectName, Map<String, Object>> entry: current.entrySet()) {
+				final ObjectName on = entry.getKey();
+				final Map<String, Object> prev = last.get(on);
+				if(prev==null) {
+					added.add(on);
+					changed.put(on, entry.getValue());
+					continue;
+				}
+				Map<String, Object> attrs = null;
+				for(Map.Entry<String, Object> attr: entry.getValue().entrySet()) {
+					if(!prev.containsKey(attr.getKey()) || !valueEquals(prev.get(attr.getKey()), attr.getValue())) {
+						if(attrs==null) attrs = new HashMap<String, Object>();
+						attrs.put(attr.getKey(), attr.getValue());
+					}
+				}
+				if(attrs!=null) changed.put(on, attrs);
+				if(prev.size() > entry.getValue().size() || !entry.getValue().keySet().containsAll(prev.keySet())) {
+					final Set<String> gone = new HashSet<String>(prev.keySet());
+					gone.removeAll(entry.getValue().keySet());
+					if(!gone.isEmpty()) removedAttributes.put(on, gone);
+				}
+			}
+			final Set<ObjectName> removed = new HashSet<ObjectName>(last.keySet());
+			removed.removeAll(current.keySet());
+			delta = new BulkDelta(id + "-" + (seq + 1), false, changed, added, removed, removedAttributes);
+		}
+		seq++;
+		last = current;
+		return delta;
+	}
+
+	/**
+	 * Reads the current values for all the lookups, re-expanding patterns if the MBean registry changed
+	 * @param service The service to read attributes through
+	 * @return the current values
+	 */
+	private Map<ObjectName, Map<String, Object>> resolve(final BulkJMXService service) {
+		if(dirty.getAndSet(false)) {
+			expansions.clear();
+		}
+		final Map<ObjectName, Map<String, Object>> map = new LinkedHashMap<ObjectName, Map<String, Object>>(last.size() + 16);
+		for(Map.Entry<ObjectName, String[]> entry: lookups.entrySet()) {
+			final ObjectName target = entry.getKey();
+			if(target.isPattern()) {
+				Set<ObjectName> names = expansions.get(target);
+				if(names==null) {
+					names = server.queryNames(target, null);
+					expansions.put(target, names);
+				}
+				for(ObjectName on: names) {
+					final Map<String, Object> attrMap = service.getAttributes(server, on, service.expand(server, on, entry.getValue()));
+					if(!attrMap.isEmpty()) map.put(on, attrMap);
+				}
+			} else {
+				final Map<String, Object> attrMap = service.getAttributes(server, target, service.expand(server, target, entry.getValue()));
+				if(!attrMap.isEmpty()) map.put(target, attrMap);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Compares two attribute values, including array contents
+	 * @param a The first value
+	 * @param b The second value
+	 * @return true if the values are equal
+	 */
+	static boolean valueEquals(final Object a, final Object b) {
+		if(a==b) return true;
+		if(a==null || b==null) return false;
+		if(a.getClass().isArray()) {
+			return Arrays.deepEquals(new Object[]{a}, new Object[]{b});
+		}
+		return a.equals(b);
+	}
+}
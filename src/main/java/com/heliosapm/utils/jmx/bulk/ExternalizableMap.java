@@ -42,29 +42,35 @@ public class ExternalizableMap extends HashMap<String, Object> implements Extern
 	@Override
 	public void writeExternal(final ObjectOutput out) throws IOException {		
 		final HashMap<String, Object> tmp = new HashMap<String, Object>(this); 
-		out.writeInt(tmp.size());
-		if(!tmp.isEmpty()) {
-			for(Map.Entry<String, Object> entry: tmp.entrySet()) {
-				try {
-					final byte[] bytes = serialize(entry.getValue());
-					out.writeUTF(entry.getKey());
-					out.writeInt(bytes.length);
-					out.write(bytes);										
-				} catch (Exception x) {/* No Op */}
-			}
-			tmp.clear();
-		}		
+		// entries that fail to serialize are dropped, so the count is only known once all are serialized
+		final String[] keys = new String[tmp.size()];
+		final byte[][] values = new byte[tmp.size()][];
+		int size = 0;
+		for(Map.Entry<String, Object> entry: tmp.entrySet()) {
+			try {
+				values[size] = serialize(entry.getValue());
+				keys[size] = entry.getKey();
+				size++;
+			} catch (Exception x) {/* No Op */}
+		}
+		tmp.clear();
+		out.writeInt(size);
+		for(int i = 0; i < size; i++) {
+			out.writeUTF(keys[i]);
+			out.writeInt(values[i].length);
+			out.write(values[i]);
+		}
 	}
 	
 	@Override
 	public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
 		final int size = in.readInt();
 		for(int x = 0; x < size; x++) {
+			String key = in.readUTF();
+			int len = in.readInt();
+			byte[] bytes = new byte[len];
+			in.readFully(bytes);
 			try {
-				String key = in.readUTF();
-				int len = in.readInt();
-				byte[] bytes = new byte[len];
-				in.read(bytes);
 				final Object o = deserialize(bytes);
 				put(key, o);
 			} catch (Exception ex) {/* No Op */}
@@ -78,11 +84,7 @@ public class ExternalizableMap extends HashMap<String, Object> implements Extern
 		ObjectOutputStream oos = null;
 		try {
 			oos = new ObjectOutputStream(baos);
-			if(obj instanceof Externalizable) {
-				((Externalizable)obj).writeExternal(oos);
-			} else {
-				oos.writeObject(obj);
-			}
+			oos.writeObject(obj);
 			oos.flush();
 			baos.flush();
 			return baos.toByteArray();
@@ -0,0 +1,115 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.jmx.bulk;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Title: MBeanCollectionStats</p>
+ * <p>Description: Attribute collection latency and timeout counts for one MBean, plus the last collected values
+ * which are returned, marked as stale, when a parallel collection times out.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.jmx.bulk.MBeanCollectionStats</code></p>
+ */
+
+class MBeanCollectionStats {
+	/** The index of the collection count in {@link #toArray()} */
+	static final int COUNT = 0;
+	/** The index of the last collection time in microseconds in {@link #toArray()} */
+	static final int LAST = 1;
+	/** The index of the average collection time in microseconds in {@link #toArray()} */
+	static final int AVG = 2;
+	/** The index of the maximum collection time in microseconds in {@link #toArray()} */
+	static final int MAX = 3;
+	/** The index of the timeout count in {@link #toArray()} */
+	static final int TIMEOUTS = 4;
+
+	private long count = 0;
+	private long total = 0;
+	private long last = 0;
+	private long max = 0;
+	private long timeouts = 0;
+	/** The last collected values */
+	private Map<String, Object> lastValues = null;
+	/** The UTC time of the last collected values */
+	private long lastValuesTime = 0;
+
+	/**
+	 * Records a completed collection
+	 * @param elapsedNanos The elapsed time of the collection in nanos
+	 */
+	synchronized void record(final long elapsedNanos) {
+		final long micros = elapsedNanos / 1000;
+		count++;
+		total += micros;
+		last = micros;
+		if(micros > max) max = micros;
+	}
+
+	/**
+	 * Retains the last collected values
+	 * @param values The collected values
+	 */
+	synchronized void collected(final Map<String, Object> values) {
+		lastValues = values;
+		lastValuesTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Records a timed out collection and returns the last collected values with the
+	 * {@link BulkJMXService#STALE_KEY} entry set to the age of the values in ms, or -1 if no values were ever collected.
+	 * @return the stale values
+	 */
+	synchronized Map<String, Object> stale() {
+		timeouts++;
+		final Map<String, Object> values = new HashMap<String, Object>(lastValues==null ? 2 : lastValues.size() + 1);
+		if(lastValues!=null) {
+			values.putAll(lastValues);
+			values.put(BulkJMXService.STALE_KEY, System.currentTimeMillis() - lastValuesTime);
+		} else {
+			values.put(BulkJMXService.STALE_KEY, -1L);
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the average collection time in microseconds
+	 * @return the average collection time
+	 */
+	synchronized long average() {
+		return count==0 ? 0 : total / count;
+	}
+
+	/**
+	 * Returns the stats as an array indexed by {@link #COUNT}, {@link #LAST}, {@link #AVG}, {@link #MAX} and {@link #TIMEOUTS}
+	 * @return the stats array
+	 */
+	synchronized long[] toArray() {
+		return new long[]{count, last, count==0 ? 0 : total / count, max, timeouts};
+	}
+
+	/**
+	 * Resets the latency stats
+	 */
+	synchronized void reset() {
+		count = 0; total = 0; last = 0; max = 0; timeouts = 0;
+	}
+}
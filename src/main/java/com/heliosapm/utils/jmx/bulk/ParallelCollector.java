@@ -0,0 +1,140 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.jmx.bulk;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.heliosapm.utils.jmx.JMXHelper;
+import com.heliosapm.utils.jmx.ManagedForkJoinPool;
+
+/**
+ * <p>Title: ParallelCollector</p>
+ * <p>Description: Fans bulk attribute collection out across a {@link ManagedForkJoinPool}, one task per MBean.
+ * An MBean that does not deliver within the timeout is returned as stale rather than blocking the batch.
+ * Loaded only when {@link BulkJMXService} parallel collection is used, so the serial service has no dependency on the pool.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.jmx.bulk.ParallelCollector</code></p>
+ */
+
+class ParallelCollector {
+	/** The collection pool */
+	private final ManagedForkJoinPool pool;
+
+	/**
+	 * Creates a new ParallelCollector
+	 * @param parallelism The parallelism of the collection pool
+	 */
+	ParallelCollector(final int parallelism) {
+		pool = new ManagedForkJoinPool("BulkJMXService", parallelism, true,
+			JMXHelper.objectName("com.heliosapm.utils.jmx.bulk:service=BulkJMXService,type=ForkJoinPool"));
+	}
+
+	/**
+	 * A collection of one MBean's attributes
+	 */
+	private static class MBeanCollection implements Callable<Map<String, Object>> {
+		final BulkJMXService service;
+		final MBeanServer server;
+		final ObjectName on;
+		final String[] attrs;
+		/** The start time of the collection, zero until started */
+		volatile long startNanos = 0L;
+
+		MBeanCollection(final BulkJMXService service, final MBeanServer server, final ObjectName on, final String[] attrs) {
+			this.service = service;
+			this.server = server;
+			this.on = on;
+			this.attrs = attrs;
+		}
+
+		@Override
+		public Map<String, Object> call() throws Exception {
+			startNanos = System.nanoTime();
+			final Map<String, Object> values = service.getAttributes(server, on, attrs);
+			if(!values.containsKey("EX")) service.stats(on).collected(values);
+			return values;
+		}
+	}
+
+	/**
+	 * Collects the attributes of the passed targets in parallel
+	 * @param service The service to read attributes through
+	 * @param server The target MBeanServer
+	 * @param targets The expanded attribute names keyed by the absolute ObjectName of the MBean to read them from
+	 * @param timeoutMs The per MBean timeout in ms, measured from the start of the MBean's collection.
+	 * An MBean that has not started within the timeout of the batch starting is also returned as stale.
+	 * @return A map of key/value attributes keyed by the absolute ObjectName of the MBean they were read from
+	 */
+	Map<ObjectName, Map<String, Object>> collect(final BulkJMXService service, final MBeanServer server, final Map<ObjectName, String[]> targets, final long timeoutMs) {
+		final long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		final List<MBeanCollection> tasks = new ArrayList<MBeanCollection>(targets.size());
+		final List<Future<Map<String, Object>>> futures = new ArrayList<Future<Map<String, Object>>>(targets.size());
+		final long batchStart = System.nanoTime();
+		for(Map.Entry<ObjectName, String[]> entry: targets.entrySet()) {
+			final MBeanCollection task = new MBeanCollection(service, server, entry.getKey(), entry.getValue());
+			tasks.add(task);
+			futures.add(pool.submit(task));
+		}
+		final Map<ObjectName, Map<String, Object>> map = new HashMap<ObjectName, Map<String, Object>>(targets.size());
+		for(int i = 0; i < tasks.size(); i++) {
+			final MBeanCollection task = tasks.get(i);
+			final Future<Map<String, Object>> future = futures.get(i);
+			Map<String, Object> values = null;
+			for(;;) {
+				final long started = task.startNanos;
+				final long wait = (started==0L ? batchStart : started) + timeoutNanos - System.nanoTime();
+				try {
+					values = future.get(Math.max(0L, wait), TimeUnit.NANOSECONDS);
+				} catch (TimeoutException tex) {
+					if(started==0L && task.startNanos!=0L) continue;  // started while waiting, so give it the full timeout
+					future.cancel(false);
+					values = service.stats(task.on).stale();
+				} catch (ExecutionException eex) {
+					values = new HashMap<String, Object>(1);
+					values.put("EX", eex.getCause());
+				} catch (InterruptedException iex) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("Interrupted while collecting bulk attributes", iex);
+				}
+				break;
+			}
+			if(!values.isEmpty()) map.put(task.on, values);
+		}
+		return map;
+	}
+
+	/**
+	 * Shuts down the collection pool
+	 */
+	void shutdown() {
+		pool.shutdownNow();
+	}
+}
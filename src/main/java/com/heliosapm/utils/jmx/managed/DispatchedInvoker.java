@@ -0,0 +1,65 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.jmx.managed;
+
+import java.lang.reflect.Method;
+
+/**
+ * <p>Title: DispatchedInvoker</p>
+ * <p>Description: An invoker which invokes its method through a {@link Dispatcher}</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.jmx.managed.DispatchedInvoker</code></p>
+ */
+public class DispatchedInvoker extends AbstractInvoker {
+	/** The dispatcher */
+	protected final Dispatcher dispatcher;
+	/** The index of the invoked method in the dispatcher */
+	protected final int index;
+
+	/**
+	 * Creates a new DispatchedInvoker
+	 * @param name The logical name of the invoker's target object.
+	 * Typically a JMX attribute name or operation action
+	 * @param dispatcher The dispatcher
+	 * @param index The index of the invoked method in the dispatcher
+	 */
+	public DispatchedInvoker(final String name, final Dispatcher dispatcher, final int index) {
+		super(name);
+		this.dispatcher = dispatcher;
+		this.index = index;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.managed.Invoker#invoke(java.lang.Object[])
+	 */
+	@Override
+	public Object invoke(final Object... args) {
+		return dispatcher.invoke(target, index, args);
+	}
+
+	/**
+	 * Returns the invoked method
+	 * @return the invoked method
+	 */
+	public Method getMethod() {
+		return dispatcher.getMethod(index);
+	}
+}
@@ -0,0 +1,197 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.jmx.managed;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Title: Dispatcher</p>
+ * <p>Description: Dispatches invocations of a fixed set of a class's methods by index. Dispatchers created through {@link #dispatcher(Class, Method...)}
+ * make direct calls through a generated switch on the method index, so reading an attribute costs a virtual call and the boxing of the result,
+ * with no reflective access checks or argument array copies.</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.jmx.managed.Dispatcher</code></p>
+ */
+public abstract class Dispatcher {
+	/** The dispatched methods, in index order */
+	protected final Method[] methods;
+
+	/** The dispatchers keyed by the target class, then by the signatures of the dispatched methods. Weakly held so the classes and their dispatchers can be unloaded. */
+	private static final Map<Class<?>, Map<String, WeakReference<Dispatcher>>> dispatchers = new WeakHashMap<Class<?>, Map<String, WeakReference<Dispatcher>>>();
+
+	/**
+	 * Creates a new Dispatcher
+	 * @param methods The dispatched methods, in index order
+	 */
+	protected Dispatcher(final Method[] methods) {
+		this.methods = methods;
+	}
+
+	/**
+	 * Invokes the method at the passed index
+	 * @param target The target object, ignored for static methods
+	 * @param index The index of the method to invoke
+	 * @param args The invocation arguments
+	 * @return the return value of the invocation, or null for void methods
+	 */
+	public abstract Object invoke(Object target, int index, Object[] args);
+
+	/**
+	 * Returns the dispatched method at the passed index
+	 * @param index The method index
+	 * @return the method
+	 */
+	public Method getMethod(final int index) {
+		return methods[index];
+	}
+
+	/**
+	 * Returns the number of dispatched methods
+	 * @return the number of dispatched methods
+	 */
+	public int size() {
+		return methods.length;
+	}
+
+	/**
+	 * Indicates if this dispatcher makes direct calls through generated byte code, or reflective calls
+	 * @return true if this dispatcher is generated
+	 */
+	public boolean isGenerated() {
+		return true;
+	}
+
+	/**
+	 * Creates an unbound invoker for the method at the passed index
+	 * @param name The logical name of the invoker's target, typically a JMX attribute name or operation action
+	 * @param index The method index
+	 * @return the invoker
+	 */
+	public Invoker invoker(final String name, final int index) {
+		if(index < 0 || index >= methods.length) throw new IllegalArgumentException("Invalid method index [" + index + "]");
+		return new DispatchedInvoker(name, this, index);
+	}
+
+	/**
+	 * Returns a dispatcher for the passed methods of the passed class, generating one if the class does not already have one for the same methods.
+	 * The dispatcher makes direct calls if the class, the methods and their parameter types are public, and reflective calls otherwise.
+	 * @param targetClass The class the methods are invoked against
+	 * @param methods The methods to dispatch, in index order
+	 * @return the dispatcher
+	 */
+	public static Dispatcher dispatcher(final Class<?> targetClass, final Method...methods) {
+		if(targetClass==null) throw new IllegalArgumentException("The passed target class was null");
+		if(methods==null) throw new IllegalArgumentException("The passed method array was null");
+		final String key = key(methods);
+		synchronized(dispatchers) {
+			final Map<String, WeakReference<Dispatcher>> classDispatchers = dispatchers.get(targetClass);
+			final WeakReference<Dispatcher> ref = classDispatchers==null ? null : classDispatchers.get(key);
+			final Dispatcher d = ref==null ? null : ref.get();
+			if(d!=null && Arrays.equals(d.methods, methods)) return d;
+		}
+		final Method[] dmethods = methods.clone();
+		Dispatcher d = null;
+		if(DispatcherGenerator.canGenerate(targetClass, dmethods)) {
+			try {
+				d = DispatcherGenerator.generate(targetClass, dmethods);
+			} catch (Throwable t) {
+				d = null;
+			}
+		}
+		if(d==null) d = new ReflectiveDispatcher(dmethods);
+		synchronized(dispatchers) {
+			Map<String, WeakReference<Dispatcher>> classDispatchers = dispatchers.get(targetClass);
+			if(classDispatchers==null) {
+				classDispatchers = new HashMap<String, WeakReference<Dispatcher>>();
+				dispatchers.put(targetClass, classDispatchers);
+			}
+			final WeakReference<Dispatcher> ref = classDispatchers.get(key);
+			final Dispatcher existing = ref==null ? null : ref.get();
+			if(existing!=null && Arrays.equals(existing.methods, methods)) return existing;
+			classDispatchers.put(key, new WeakReference<Dispatcher>(d));
+		}
+		return d;
+	}
+
+	/**
+	 * Returns the cache key of the passed methods. Signatures are used rather than the methods
+	 * so the cache holds no strong reference to the target class.
+	 * @param methods The dispatched methods, in index order
+	 * @return the cache key
+	 */
+	private static String key(final Method[] methods) {
+		final StringBuilder b = new StringBuilder();
+		for(Method m: methods) {
+			if(m==null) throw new IllegalArgumentException("The passed method array contained a null");
+			if(b.length()!=0) b.append('|');
+			b.append(m.toString());
+		}
+		return b.toString();
+	}
+
+	/**
+	 * Benchmarks getter and setter calls through a generated dispatcher against reflective calls and direct calls
+	 * @param args None
+	 */
+	public static void main(final String[] args) throws Exception {
+		final Method getter = AtomicLong.class.getMethod("get");
+		final Method setter = AtomicLong.class.getMethod("set", long.class);
+		final Method adder = AtomicLong.class.getMethod("addAndGet", long.class);
+		final Method[] methods = {getter, setter, adder};
+		final Dispatcher generated = dispatcher(AtomicLong.class, methods);
+		final Dispatcher reflective = new ReflectiveDispatcher(methods);
+		final AtomicLong target = new AtomicLong();
+		final Object[] noArgs = {};
+		final Object[] oneArg = {Long.valueOf(1L)};
+		final int ops = 20000000;
+		System.out.println("Generated: " + generated.isGenerated());
+		for(int loop = 0; loop < 5; loop++) {
+			long sink = 0;
+			long start = System.nanoTime();
+			for(int i = 0; i < ops; i++) {
+				target.set(i);
+				sink += target.get();
+			}
+			final long direct = System.nanoTime() - start;
+			start = System.nanoTime();
+			for(int i = 0; i < ops; i++) {
+				reflective.invoke(target, 1, oneArg);
+				sink += (Long)reflective.invoke(target, 0, noArgs);
+			}
+			final long reflect = System.nanoTime() - start;
+			start = System.nanoTime();
+			for(int i = 0; i < ops; i++) {
+				generated.invoke(target, 1, oneArg);
+				sink += (Long)generated.invoke(target, 0, noArgs);
+			}
+			final long gen = System.nanoTime() - start;
+			if(loop==4) {
+				System.out.println(String.format("set+get per pair: direct %.1f ns, reflective %.1f ns, generated %.1f ns (%s)",
+					(double)direct/ops, (double)reflect/ops, (double)gen/ops, sink));
+			}
+		}
+	}
+}
@@ -0,0 +1,403 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.jmx.managed;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Title: DispatcherGenerator</p>
+ * <p>Description: Generates the byte code of {@link Dispatcher} subclasses. The generated <b><code>invoke</code></b> is a table switch on the method index,
+ * each case unboxing the arguments, calling the method directly and boxing the return value.</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.jmx.managed.DispatcherGenerator</code></p>
+ */
+final class DispatcherGenerator {
+	/** Serial number for generated class names */
+	private static final AtomicInteger serial = new AtomicInteger(0);
+	/** The internal name of the dispatcher super class */
+	private static final String SUPER = Dispatcher.class.getName().replace('.', '/');
+	/** The class file major version. Java 5 class files are verified without stack map frames. */
+	private static final int MAJOR_VERSION = 49;
+
+	/** The box class internal names keyed by primitive type */
+	private static final Map<Class<?>, String> BOXES = new HashMap<Class<?>, String>(16);
+	/** The unboxing method names keyed by primitive type */
+	private static final Map<Class<?>, String> UNBOX_METHODS = new HashMap<Class<?>, String>(16);
+
+	static {
+		BOXES.put(boolean.class, "java/lang/Boolean");
+		BOXES.put(byte.class, "java/lang/Byte");
+		BOXES.put(short.class, "java/lang/Short");
+		BOXES.put(char.class, "java/lang/Character");
+		BOXES.put(int.class, "java/lang/Integer");
+		BOXES.put(long.class, "java/lang/Long");
+		BOXES.put(float.class, "java/lang/Float");
+		BOXES.put(double.class, "java/lang/Double");
+		UNBOX_METHODS.put(boolean.class, "booleanValue");
+		UNBOX_METHODS.put(byte.class, "byteValue");
+		UNBOX_METHODS.put(short.class, "shortValue");
+		UNBOX_METHODS.put(char.class, "charValue");
+		UNBOX_METHODS.put(int.class, "intValue");
+		UNBOX_METHODS.put(long.class, "longValue");
+		UNBOX_METHODS.put(float.class, "floatValue");
+		UNBOX_METHODS.put(double.class, "doubleValue");
+	}
+
+	private DispatcherGenerator() {}
+
+	/**
+	 * Determines if a direct call dispatcher can be generated for the passed methods.
+	 * The target class, the methods and their parameter types must be public.
+	 * @param targetClass The class the methods are invoked against
+	 * @param methods The methods to dispatch
+	 * @return true if a dispatcher can be generated
+	 */
+	static boolean canGenerate(final Class<?> targetClass, final Method[] methods) {
+		if(methods.length==0 || !isPublic(targetClass)) return false;
+		for(Method m: methods) {
+			if(!Modifier.isPublic(m.getModifiers())) return false;
+			if(!m.getDeclaringClass().isAssignableFrom(targetClass)) return false;
+			for(Class<?> p: m.getParameterTypes()) {
+				if(!isPublic(p)) return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isPublic(final Class<?> clazz) {
+		Class<?> c = clazz;
+		while(c.isArray()) c = c.getComponentType();
+		return c.isPrimitive() || Modifier.isPublic(c.getModifiers());
+	}
+
+	/**
+	 * Generates and instantiates a dispatcher that makes direct calls to the passed methods through a switch on the method index
+	 * @param targetClass The class the methods are invoked against
+	 * @param methods The methods to dispatch, in index order
+	 * @return the dispatcher
+	 * @throws Exception thrown if the dispatcher class cannot be defined or instantiated
+	 */
+	static Dispatcher generate(final Class<?> targetClass, final Method[] methods) throws Exception {
+		final String className = Dispatcher.class.getPackage().getName() + ".gen." + targetClass.getSimpleName() + "Dispatcher" + serial.incrementAndGet();
+		final byte[] byteCode = classFile(className.replace('.', '/'), targetClass, methods);
+		final Class<?> clazz = new DispatcherClassLoader(targetClass.getClassLoader()).define(className, byteCode);
+		return (Dispatcher)clazz.getConstructor(Method[].class).newInstance(new Object[]{methods});
+	}
+
+	/**
+	 * <p>Title: DispatcherClassLoader</p>
+	 * <p>Description: Defines a generated dispatcher class, resolving the target class through the target's class loader
+	 * and the dispatcher super class through this library's class loader</p>
+	 */
+	private static class DispatcherClassLoader extends ClassLoader {
+		DispatcherClassLoader(final ClassLoader parent) {
+			super(parent);
+		}
+
+		@Override
+		protected synchronized Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+			if(Dispatcher.class.getName().equals(name)) return Dispatcher.class;
+			return super.loadClass(name, resolve);
+		}
+
+		Class<?> define(final String name, final byte[] byteCode) {
+			return defineClass(name, byteCode, 0, byteCode.length);
+		}
+	}
+
+	/**
+	 * Builds the class file of a dispatcher
+	 * @param internalName The internal name of the generated class
+	 * @param targetClass The class the methods are invoked against
+	 * @param methods The methods to dispatch, in index order
+	 * @return the class file bytes
+	 */
+	static byte[] classFile(final String internalName, final Class<?> targetClass, final Method[] methods) {
+		final ConstantPool cp = new ConstantPool();
+		final int thisClass = cp.classRef(internalName);
+		final int superClass = cp.classRef(SUPER);
+		final int codeName = cp.utf8("Code");
+		// constructor: super(methods)
+		final Bytes init = new Bytes();
+		init.u1(0x2a).u1(0x2b);																	// aload_0, aload_1
+		init.u1(0xb7).u2(cp.methodRef(SUPER, "<init>", "([Ljava/lang/reflect/Method;)V", false));	// invokespecial
+		init.u1(0xb1);																			// return
+		// invoke(Object target, int index, Object[] args)
+		final Bytes code = new Bytes();
+		code.u1(0x1c);																			// iload_2
+		final int switchPc = code.size();
+		code.u1(0xaa);																			// tableswitch
+		while(code.size() % 4 != 0) code.u1(0);
+		final int defaultPos = code.size();
+		code.u4(0).u4(0).u4(methods.length - 1);
+		final int offsetsPos = code.size();
+		for(int i = 0; i < methods.length; i++) code.u4(0);
+		final String targetName = targetClass.getName().replace('.', '/');
+		final boolean targetInterface = targetClass.isInterface();
+		int maxStack = 3;
+		for(int i = 0; i < methods.length; i++) {
+			code.putU4(offsetsPos + (i << 2), code.size() - switchPc);
+			final Method m = methods[i];
+			final boolean isStatic = Modifier.isStatic(m.getModifiers());
+			int stack = 0;
+			if(!isStatic) {
+				code.u1(0x2b);																	// aload_1
+				if(targetClass!=Object.class) code.u1(0xc0).u2(cp.classRef(targetName));	// checkcast
+				stack++;
+			}
+			final Class<?>[] params = m.getParameterTypes();
+			int argSlots = 0;
+			for(int p = 0; p < params.length; p++) {
+				code.u1(0x2d);																	// aload_3
+				pushInt(code, p);
+				code.u1(0x32);																	// aaload
+				unbox(code, cp, params[p]);
+				argSlots += (params[p]==long.class || params[p]==double.class) ? 2 : 1;
+			}
+			maxStack = Math.max(maxStack, stack + argSlots + 2);
+			final String desc = descriptor(m);
+			if(isStatic) {
+				code.u1(0xb8).u2(cp.methodRef(targetName, m.getName(), desc, targetInterface));			// invokestatic
+			} else if(targetInterface) {
+				code.u1(0xb9).u2(cp.methodRef(targetName, m.getName(), desc, true)).u1(1 + argSlots).u1(0);	// invokeinterface
+			} else {
+				code.u1(0xb6).u2(cp.methodRef(targetName, m.getName(), desc, false));					// invokevirtual
+			}
+			box(code, cp, m.getReturnType());
+			code.u1(0xb0);																		// areturn
+		}
+		code.putU4(defaultPos, code.size() - switchPc);
+		final int iae = cp.classRef("java/lang/IllegalArgumentException");
+		code.u1(0xbb).u2(iae).u1(0x59);															// new, dup
+		code.u1(0xb7).u2(cp.methodRef("java/lang/IllegalArgumentException", "<init>", "()V", false));
+		code.u1(0xbf);																			// athrow
+		maxStack = Math.max(maxStack, 2);
+
+		final int initName = cp.utf8("<init>");
+		final int initDesc = cp.utf8("([Ljava/lang/reflect/Method;)V");
+		final int invokeName = cp.utf8("invoke");
+		final int invokeDesc = cp.utf8("(Ljava/lang/Object;I[Ljava/lang/Object;)Ljava/lang/Object;");
+
+		final Bytes cf = new Bytes();
+		cf.u4(0xCAFEBABE).u2(0).u2(MAJOR_VERSION);
+		cp.writeTo(cf);
+		cf.u2(0x0001 | 0x0010 | 0x0020).u2(thisClass).u2(superClass);						// public final super
+		cf.u2(0);																				// interfaces
+		cf.u2(0);																				// fields
+		cf.u2(2);																				// methods
+		method(cf, 0x0001, initName, initDesc, codeName, 2, 2, init);
+		method(cf, 0x0001, invokeName, invokeDesc, codeName, maxStack, 4, code);
+		cf.u2(0);																				// attributes
+		return cf.toByteArray();
+	}
+
+	private static void method(final Bytes cf, final int access, final int name, final int desc, final int codeName, final int maxStack, final int maxLocals, final Bytes code) {
+		cf.u2(access).u2(name).u2(desc).u2(1);
+		cf.u2(codeName).u4(12 + code.size());
+		cf.u2(maxStack).u2(maxLocals).u4(code.size());
+		cf.bytes(code);
+		cf.u2(0).u2(0);																			// exception table, attributes
+	}
+
+	private static void pushInt(final Bytes code, final int value) {
+		if(value <= 5) code.u1(0x03 + value);													// iconst_n
+		else if(value <= Byte.MAX_VALUE) code.u1(0x10).u1(value);								// bipush
+		else code.u1(0x11).u2(value);															// sipush
+	}
+
+	private static void unbox(final Bytes code, final ConstantPool cp, final Class<?> type) {
+		if(type.isPrimitive()) {
+			final String owner = (type==boolean.class || type==char.class) ? BOXES.get(type) : "java/lang/Number";
+			code.u1(0xc0).u2(cp.classRef(owner));												// checkcast
+			code.u1(0xb6).u2(cp.methodRef(owner, UNBOX_METHODS.get(type), "()" + descriptor(type), false));
+		} else if(type!=Object.class) {
+			code.u1(0xc0).u2(cp.classRef(type.getName().replace('.', '/')));
+		}
+	}
+
+	private static void box(final Bytes code, final ConstantPool cp, final Class<?> type) {
+		if(type==void.class) {
+			code.u1(0x01);																		// aconst_null
+		} else if(type.isPrimitive()) {
+			final String box = BOXES.get(type);
+			code.u1(0xb8).u2(cp.methodRef(box, "valueOf", "(" + descriptor(type) + ")L" + box + ";", false));
+		}
+	}
+
+	/**
+	 * Returns the JVM descriptor of the passed method
+	 * @param m The method
+	 * @return the method descriptor
+	 */
+	static String descriptor(final Method m) {
+		final StringBuilder b = new StringBuilder("(");
+		for(Class<?> p: m.getParameterTypes()) {
+			b.append(descriptor(p));
+		}
+		return b.append(')').append(descriptor(m.getReturnType())).toString();
+	}
+
+	/**
+	 * Returns the JVM descriptor of the passed type
+	 * @param type The type
+	 * @return the type descriptor
+	 */
+	static String descriptor(final Class<?> type) {
+		if(type.isPrimitive()) {
+			if(type==void.class) return "V";
+			if(type==boolean.class) return "Z";
+			if(type==byte.class) return "B";
+			if(type==short.class) return "S";
+			if(type==char.class) return "C";
+			if(type==int.class) return "I";
+			if(type==long.class) return "J";
+			if(type==float.class) return "F";
+			return "D";
+		}
+		if(type.isArray()) return type.getName().replace('.', '/');
+		return "L" + type.getName().replace('.', '/') + ";";
+	}
+
+	/**
+	 * <p>Title: Bytes</p>
+	 * <p>Description: A growable big endian byte buffer</p>
+	 */
+	private static class Bytes {
+		private byte[] buf = new byte[256];
+		private int size = 0;
+
+		private void ensure(final int n) {
+			if(size + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length << 1, size + n));
+		}
+
+		Bytes u1(final int v) {
+			ensure(1);
+			buf[size++] = (byte)v;
+			return this;
+		}
+
+		Bytes u2(final int v) {
+			ensure(2);
+			buf[size++] = (byte)(v >>> 8);
+			buf[size++] = (byte)v;
+			return this;
+		}
+
+		Bytes u4(final int v) {
+			ensure(4);
+			putU4(size, v);
+			size += 4;
+			return this;
+		}
+
+		void putU4(final int pos, final int v) {
+			buf[pos] = (byte)(v >>> 24);
+			buf[pos + 1] = (byte)(v >>> 16);
+			buf[pos + 2] = (byte)(v >>> 8);
+			buf[pos + 3] = (byte)v;
+		}
+
+		Bytes bytes(final Bytes other) {
+			ensure(other.size);
+			System.arraycopy(other.buf, 0, buf, size, other.size);
+			size += other.size;
+			return this;
+		}
+
+		int size() {
+			return size;
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(buf, size);
+		}
+	}
+
+	/**
+	 * <p>Title: ConstantPool</p>
+	 * <p>Description: A de-duplicating class file constant pool</p>
+	 */
+	private static class ConstantPool {
+		private final Bytes entries = new Bytes();
+		private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+		private int count = 1;
+
+		private Integer lookup(final String key) {
+			return indexes.get(key);
+		}
+
+		private int add(final String key) {
+			final int index = count++;
+			indexes.put(key, index);
+			return index;
+		}
+
+		int utf8(final String value) {
+			final String key = "U" + value;
+			final Integer index = lookup(key);
+			if(index!=null) return index;
+			try {
+				final byte[] bytes = value.getBytes("UTF-8");
+				entries.u1(1).u2(bytes.length);
+				for(byte b: bytes) entries.u1(b);
+			} catch (UnsupportedEncodingException uex) {
+				throw new RuntimeException(uex);
+			}
+			return add(key);
+		}
+
+		int classRef(final String internalName) {
+			final String key = "C" + internalName;
+			final Integer index = lookup(key);
+			if(index!=null) return index;
+			final int name = utf8(internalName);
+			entries.u1(7).u2(name);
+			return add(key);
+		}
+
+		int methodRef(final String owner, final String name, final String desc, final boolean iface) {
+			final String key = (iface ? "I" : "M") + owner + "." + name + desc;
+			final Integer index = lookup(key);
+			if(index!=null) return index;
+			final int ownerIndex = classRef(owner);
+			final String ntKey = "N" + name + desc;
+			Integer nt = lookup(ntKey);
+			if(nt==null) {
+				final int n = utf8(name);
+				final int d = utf8(desc);
+				entries.u1(12).u2(n).u2(d);
+				nt = add(ntKey);
+			}
+			entries.u1(iface ? 11 : 10).u2(ownerIndex).u2(nt);
+			return add(key);
+		}
+
+		void writeTo(final Bytes out) {
+			out.u2(count);
+			out.bytes(entries);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.jmx.managed;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * <p>Title: ReflectiveDispatcher</p>
+ * <p>Description: A dispatcher which invokes its methods reflectively, used when a direct call dispatcher cannot be generated for a class</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.jmx.managed.ReflectiveDispatcher</code></p>
+ */
+class ReflectiveDispatcher extends Dispatcher {
+
+	/**
+	 * Creates a new ReflectiveDispatcher
+	 * @param methods The dispatched methods, in index order
+	 */
+	ReflectiveDispatcher(final Method[] methods) {
+		super(methods);
+		for(Method m: methods) {
+			try { m.setAccessible(true); } catch (SecurityException sex) {/* No Op */}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.managed.Dispatcher#invoke(java.lang.Object, int, java.lang.Object[])
+	 */
+	@Override
+	public Object invoke(final Object target, final int index, final Object[] args) {
+		try {
+			return methods[index].invoke(target, args);
+		} catch (InvocationTargetException ite) {
+			final Throwable t = ite.getCause();
+			if(t instanceof RuntimeException) throw (RuntimeException)t;
+			if(t instanceof Error) throw (Error)t;
+			throw new RuntimeException("Invocation of [" + methods[index].getName() + "] failed", t);
+		} catch (IllegalAccessException iae) {
+			throw new RuntimeException("Invocation of [" + methods[index].getName() + "] failed", iae);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.jmx.managed.Dispatcher#isGenerated()
+	 */
+	@Override
+	public boolean isGenerated() {
+		return false;
+	}
+}
@@ -20,6 +20,9 @@ package com.heliosapm.utils.jmx.protocol.proxy;
 
 import java.io.IOException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.management.Attribute;
 import javax.management.AttributeList;
@@ -47,15 +50,20 @@ import javax.management.RuntimeMBeanException;
 import javax.management.RuntimeOperationsException;
 import javax.management.remote.JMXConnector;
 
+import com.sun.jmx.remote.generic.AsyncMBeanServerConnection;
+
 /**
  * <p>Title: ProxyMBeanServerConnection</p>
- * <p>Description: </p> 
+ * <p>Description: A delegating MBeanServerConnection which also implements {@link AsyncMBeanServerConnection}.
+ * When the delegate connection is asynchronous, as the JMXMP connections are, the async calls return as soon as the
+ * request is written, so one poller can keep hundreds of requests in flight on one connection. Otherwise the call is
+ * executed in the calling thread and returns a completed future.</p> 
  * <p>Company: Helios Development Group LLC</p>
  * @author Whitehead (nwhitehead AT heliosdev DOT org)
  * <p><code>com.heliosapm.utils.jmx.protocol.proxy.ProxyMBeanServerConnection</code></p>
  */
 
-public class ProxyMBeanServerConnection implements ProxyMBeanServerConnectionMBean {
+public class ProxyMBeanServerConnection implements ProxyMBeanServerConnectionMBean, AsyncMBeanServerConnection {
 	/** The delegate connection */
 	private final MBeanServerConnection delegate;
 	/** The delegate connection's jmx connector */
@@ -1160,6 +1168,80 @@ public class ProxyMBeanServerConnection implements ProxyMBeanServerConnectionMBe
           throws InstanceNotFoundException, IOException {
   	return delegate.isInstanceOf(name, className);
   }
+
+	//=============================================================================
+	//  AsyncMBeanServerConnection Impl
+	//=============================================================================
+
+	/**
+	 * Indicates if the async calls are sent without waiting, or executed synchronously
+	 * @return true if the delegate connection is an {@link AsyncMBeanServerConnection}
+	 */
+	public boolean isAsync() {
+		return delegate instanceof AsyncMBeanServerConnection;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.sun.jmx.remote.generic.AsyncMBeanServerConnection#getAttributeAsync(javax.management.ObjectName, java.lang.String)
+	 */
+	@Override
+	public Future<Object> getAttributeAsync(final ObjectName name, final String attribute) throws IOException {
+		if(delegate instanceof AsyncMBeanServerConnection) {
+			return ((AsyncMBeanServerConnection)delegate).getAttributeAsync(name, attribute);
+		}
+		return completed(new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				return delegate.getAttribute(name, attribute);
+			}
+		});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.sun.jmx.remote.generic.AsyncMBeanServerConnection#getAttributesAsync(javax.management.ObjectName, java.lang.String[])
+	 */
+	@Override
+	public Future<AttributeList> getAttributesAsync(final ObjectName name, final String[] attributes) throws IOException {
+		if(delegate instanceof AsyncMBeanServerConnection) {
+			return ((AsyncMBeanServerConnection)delegate).getAttributesAsync(name, attributes);
+		}
+		return completed(new Callable<AttributeList>() {
+			@Override
+			public AttributeList call() throws Exception {
+				return delegate.getAttributes(name, attributes);
+			}
+		});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.sun.jmx.remote.generic.AsyncMBeanServerConnection#invokeAsync(javax.management.ObjectName, java.lang.String, java.lang.Object[], java.lang.String[])
+	 */
+	@Override
+	public Future<Object> invokeAsync(final ObjectName name, final String operationName, final Object[] params, final String[] signature) throws IOException {
+		if(delegate instanceof AsyncMBeanServerConnection) {
+			return ((AsyncMBeanServerConnection)delegate).invokeAsync(name, operationName, params, signature);
+		}
+		return completed(new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				return delegate.invoke(name, operationName, params, signature);
+			}
+		});
+	}
+
+	/**
+	 * Executes the passed call in the calling thread
+	 * @param call The call to execute
+	 * @return the completed future
+	 */
+	private static <T> Future<T> completed(final Callable<T> call) {
+		final FutureTask<T> task = new FutureTask<T>(call);
+		task.run();
+		return task;
+	}
 	
 
 }
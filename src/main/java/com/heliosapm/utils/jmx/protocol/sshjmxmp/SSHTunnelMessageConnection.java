@@ -54,6 +54,9 @@ import com.heliosapm.utils.ssh.terminal.ConnectInfo;
 import com.heliosapm.utils.ssh.terminal.SSHService;
 import com.heliosapm.utils.ssh.terminal.WrappedConnection;
 import com.heliosapm.utils.ssh.terminal.WrappedStreamForwarder;
+import com.sun.jmx.remote.codec.CodecConnectionIf;
+import com.sun.jmx.remote.codec.MessageCodec;
+import com.sun.jmx.remote.generic.BatchConnectionIf;
 import com.sun.jmx.remote.generic.DefaultConfig;
 
 /**
@@ -64,7 +67,7 @@ import com.sun.jmx.remote.generic.DefaultConfig;
  * <p><code>com.heliosapm.jmx.remote.protocol.tunnel.SSHTunnelMessageConnection</code></p>
  */
 
-public class SSHTunnelMessageConnection implements MessageConnection, JMXAddressable {
+public class SSHTunnelMessageConnection implements MessageConnection, CodecConnectionIf, BatchConnectionIf, JMXAddressable {
 	/** The buffered input stream */
 	protected BufferedInputStream bis = null;
 	/** The buffered output stream */
@@ -73,6 +76,10 @@ public class SSHTunnelMessageConnection implements MessageConnection, JMXAddress
 	private ObjectInputStream oin = null;
 	/** The buffered object output strea, */
 	private ObjectOutputStream oout;
+	/** The negotiated message codec encoder, or null if messages are serialized */
+	private MessageCodec.Encoder encoder = null;
+	/** The negotiated message codec decoder, or null if messages are serialized */
+	private MessageCodec.Decoder decoder = null;
 	
 	/** The original environment map */
 	protected final Map<String, Object> originalEnv;
@@ -195,6 +202,18 @@ public class SSHTunnelMessageConnection implements MessageConnection, JMXAddress
 		bos = new BufferedOutputStream(wsf.getOutputStream());
 		oin = new ObjectInputStreamWithLoader(bis, defaultClassLoader);
 		oout = new ObjectOutputStream(bos);
+		encoder = null;
+		decoder = null;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @see com.sun.jmx.remote.codec.CodecConnectionIf#setCodec(com.sun.jmx.remote.codec.MessageCodec)
+	 */
+	@Override
+	public void setCodec(final MessageCodec codec) throws IOException {
+		encoder = codec.newEncoder(bos);
+		decoder = codec.newDecoder(bis, defaultClassLoader);
 	}
 	
 	protected void checkState() {
@@ -219,6 +238,7 @@ public class SSHTunnelMessageConnection implements MessageConnection, JMXAddress
 	@Override
 	public Message readMessage() throws IOException, ClassNotFoundException {
 		checkState();
+		if(decoder!=null) return decoder.readMessage();
 		return (Message) oin.readObject();
 	}
 
@@ -229,11 +249,43 @@ public class SSHTunnelMessageConnection implements MessageConnection, JMXAddress
 	@Override
 	public void writeMessage(final Message msg) throws IOException {
 		checkState();
+		if(encoder!=null) {
+			encoder.writeMessage(msg);
+			return;
+		}
 		oout.writeObject(msg);
 		oout.flush();
 		oout.reset();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @see com.sun.jmx.remote.generic.BatchConnectionIf#writeMessages(javax.management.remote.message.Message[], int)
+	 */
+	@Override
+	public void writeMessages(final Message[] msgs, final int count) throws IOException {
+		checkState();
+		if(encoder!=null) {
+			if(encoder instanceof MessageCodec.BatchEncoder) {
+				final MessageCodec.BatchEncoder batchEncoder = (MessageCodec.BatchEncoder)encoder;
+				for(int i = 0; i < count; i++) {
+					batchEncoder.write(msgs[i]);
+				}
+				batchEncoder.flush();
+			} else {
+				for(int i = 0; i < count; i++) {
+					encoder.writeMessage(msgs[i]);
+				}
+			}
+			return;
+		}
+		for(int i = 0; i < count; i++) {
+			oout.writeObject(msgs[i]);
+			oout.reset();
+		}
+		oout.flush();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see javax.management.remote.generic.MessageConnection#close()
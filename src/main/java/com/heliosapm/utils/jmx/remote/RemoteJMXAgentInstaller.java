@@ -18,7 +18,6 @@ under the License.
  */
 package com.heliosapm.utils.jmx.remote;
 
-import java.io.File;
 import java.io.OutputStream;
 import java.net.URL;
 import java.nio.ByteBuffer;
@@ -46,7 +45,6 @@ import com.heliosapm.shorthand.attach.vm.agent.AgentBootstrap;
 import com.heliosapm.utils.http.HTTPJarServer;
 import com.heliosapm.utils.http.HTTPJarServer.CompletionKeyFuture;
 import com.heliosapm.utils.io.InstrumentedInputStream;
-import com.heliosapm.utils.io.NIOHelper;
 import com.heliosapm.utils.jar.JarBuilder;
 import com.heliosapm.utils.jmx.JMXHelper;
 
@@ -66,7 +64,6 @@ public class RemoteJMXAgentInstaller {
 	/** The singleton instance ctor lock */
 	private static final Object lock = new Object();
 	
-	private File installJar = null;
 	private ByteBuffer installJarBytes = null;
 	private String httpContentKey;
 	
@@ -122,7 +119,7 @@ public class RemoteJMXAgentInstaller {
 	 * Creates a new RemoteJMXAgentInstaller
 	 */
 	private RemoteJMXAgentInstaller() {
-		installJar = new JarBuilder()
+		installJarBytes = new JarBuilder()
 			.res("com.heliosapm.shorthand.attach").classLoader(AttachProvider.class).apply()
 			.res("javax.management.remote").classLoader(JMXMPConnector.class).apply()
 			.res("com.sun.jmx.remote").classLoader(JMXMPConnector.class).apply()
@@ -136,8 +133,8 @@ public class RemoteJMXAgentInstaller {
 				.name("HeliosAPM Remote JMX Agent Installer")
 				.implVersion(VERSION)
 			.done()
-			.build();		
-		installJarBytes = NIOHelper.load(installJar, true);		
+			.parallel(true)
+			.buildBuffer();		
 		httpContentKey = HTTPJarServer.getInstance().register(CONTENT_KEY, installJarBytes);
 		log.info("Installed [" + CONTENT_KEY + "] to the HTTPJarServer");
 	}
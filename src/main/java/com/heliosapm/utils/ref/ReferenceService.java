@@ -45,7 +45,7 @@ import org.cliffc.high_scale_lib.NonBlockingHashMapLong;
 import com.heliosapm.utils.jmx.JMXHelper;
 import com.heliosapm.utils.jmx.JMXManagedThreadPool;
 import com.heliosapm.utils.time.SystemClock;
-import com.heliosapm.utils.unsafe.collections.ConcurrentLongSlidingWindow;
+import com.heliosapm.utils.unsafe.collections.LongHistogram;
 
 import jsr166e.LongAdder;
 
@@ -91,8 +91,8 @@ public class ReferenceService implements Runnable, ReferenceServiceMXBean, Uncau
 	/** A map of counts of cleared references keyed by the reference class name */
 	private final NonBlockingHashMap<String, ReferenceTypeCountMBean> countsByType = new NonBlockingHashMap<String, ReferenceTypeCountMBean>(); 
 	
-	/** Elapsed time stats in ms. to process a ref clear */
-	private final ConcurrentLongSlidingWindow clearStats = new ConcurrentLongSlidingWindow(1000);
+	/** Elapsed time stats in ns. to process a ref clear */
+	private final LongHistogram clearStats = new LongHistogram();
 	/** A count of the number of cleared references */
 	private final LongAdder clearedRefCount = new LongAdder();	
 	/** A count of the clearing thread errors */
@@ -341,6 +341,7 @@ public class ReferenceService implements Runnable, ReferenceServiceMXBean, Uncau
 	public void resetStats() {		
 		clearingErrors.reset();
 		clearedRefCount.reset();
+		clearStats.reset();
 		for(ReferenceTypeCountMBean rtc: countsByType.values()) {
 			rtc.reset();
 		}
@@ -377,7 +378,7 @@ public class ReferenceService implements Runnable, ReferenceServiceMXBean, Uncau
 	/** The thread pool timing post-task */
 	private final Runnable postTask = new Runnable() {
 		public void run() {			
-			clearStats.insert(System.nanoTime() - taskStartTime.get()[0]);			
+			clearStats.record(System.nanoTime() - taskStartTime.get()[0]);			
 		}
 	};
 	
@@ -744,7 +745,7 @@ public class ReferenceService implements Runnable, ReferenceServiceMXBean, Uncau
      */
     @Override
     public double getAverage() {
-		return clearStats.avg();
+		return clearStats.getMean();
 	}
 
     /**
@@ -753,7 +754,7 @@ public class ReferenceService implements Runnable, ReferenceServiceMXBean, Uncau
      */
     @Override
     public double getMaximum() {
-		return clearStats.max();
+		return clearStats.getMax();
 	}
 
 
@@ -763,8 +764,17 @@ public class ReferenceService implements Runnable, ReferenceServiceMXBean, Uncau
      */
     @Override
 	public double getMinimum() {
-		return clearStats.min();
+		return clearStats.getMin();
 	}
+    
+    /**
+     * {@inheritDoc}
+     * @see com.heliosapm.utils.ref.ReferenceServiceMXBean#getPercentiles()
+     */
+    @Override
+    public Map<String, Long> getPercentiles() {
+    	return clearStats.getSummary();
+    }
 
 	/**
 	 * {@inheritDoc}
@@ -85,6 +85,12 @@ public interface ReferenceServiceMXBean {
 	 * @return the maximum recorded value 
 	 */
 	public double getMaximum();
+	
+	/**
+	 * Returns the count, min, max, mean, p50, p90, p99 and p999 of the ref clear elapsed times in ns. since the last reset
+	 * @return a map of the elapsed time stats keyed by stat name
+	 */
+	public Map<String, Long> getPercentiles();
 
 	
 	/**
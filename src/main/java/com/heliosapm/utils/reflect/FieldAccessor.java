@@ -0,0 +1,348 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.reflect;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import sun.misc.Unsafe;
+
+/**
+ * <p>Title: FieldAccessor</p>
+ * <p>Description: A resolved, typed accessor for one field, obtained from {@link PrivateAccessor#fieldAccessor(Class, String, Class)}.
+ * Where <code>sun.misc.Unsafe</code> is available the field is read and written at its offset, so once the accessor is held
+ * an access costs a type check on the target plus the field read itself, with no reflective access checks. Otherwise the
+ * accessor falls back to an accessible {@link Field}.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.reflect.FieldAccessor</code></p>
+ * @param <T> The field type, boxed for primitive fields
+ */
+
+public abstract class FieldAccessor<T> {
+	/** The accessed field */
+	protected final Field field;
+	/** The declaring class of the field, which instance field targets must be instances of */
+	protected final Class<?> declaringClass;
+	/** Indicates if the field is static */
+	protected final boolean isStatic;
+	/** Indicates if the field can be written: static final fields cannot */
+	protected final boolean writable;
+
+	/** The unsafe instance, or null if it is not available */
+	static final Unsafe UNSAFE;
+
+	static {
+		Unsafe u = null;
+		try {
+			final Field f = Unsafe.class.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			u = (Unsafe)f.get(null);
+		} catch (Throwable t) {
+			u = null;
+		}
+		UNSAFE = u;
+	}
+
+	/**
+	 * Creates a new accessor for the passed field
+	 * @param field The field to access
+	 * @return the accessor
+	 */
+	static <T> FieldAccessor<T> newAccessor(final Field field) {
+		field.setAccessible(true);
+		if(UNSAFE!=null) {
+			try {
+				return new UnsafeFieldAccessor<T>(field);
+			} catch (Throwable t) {
+				/* fall through to reflective access */
+			}
+		}
+		return new ReflectiveFieldAccessor<T>(field);
+	}
+
+	/**
+	 * Creates a new FieldAccessor
+	 * @param field The accessed field
+	 */
+	protected FieldAccessor(final Field field) {
+		this.field = field;
+		declaringClass = field.getDeclaringClass();
+		final int mod = field.getModifiers();
+		isStatic = Modifier.isStatic(mod);
+		writable = !(isStatic && Modifier.isFinal(mod));
+	}
+
+	/**
+	 * Reads the field
+	 * @param target The object to read the field from, ignored for static fields
+	 * @return the field value
+	 */
+	public abstract T get(Object target);
+
+	/**
+	 * Writes the field
+	 * @param target The object to write the field in, ignored for static fields
+	 * @param value The value to write
+	 */
+	public abstract void set(Object target, T value);
+
+	/**
+	 * Reads a <code>long</code>, or narrower integral, field without boxing
+	 * @param target The object to read the field from, ignored for static fields
+	 * @return the field value
+	 */
+	public long getLong(final Object target) {
+		try {
+			return field.getLong(isStatic ? null : target);
+		} catch (IllegalAccessException iae) {
+			throw new RuntimeException(failure("read"), iae);
+		}
+	}
+
+	/**
+	 * Reads an <code>int</code>, or narrower integral, field without boxing
+	 * @param target The object to read the field from, ignored for static fields
+	 * @return the field value
+	 */
+	public int getInt(final Object target) {
+		try {
+			return field.getInt(isStatic ? null : target);
+		} catch (IllegalAccessException iae) {
+			throw new RuntimeException(failure("read"), iae);
+		}
+	}
+
+	/**
+	 * Reads a <code>boolean</code> field without boxing
+	 * @param target The object to read the field from, ignored for static fields
+	 * @return the field value
+	 */
+	public boolean getBoolean(final Object target) {
+		try {
+			return field.getBoolean(isStatic ? null : target);
+		} catch (IllegalAccessException iae) {
+			throw new RuntimeException(failure("read"), iae);
+		}
+	}
+
+	/**
+	 * Returns the accessed field
+	 * @return the accessed field
+	 */
+	public Field getField() {
+		return field;
+	}
+
+	/**
+	 * Returns the field name
+	 * @return the field name
+	 */
+	public String getName() {
+		return field.getName();
+	}
+
+	/**
+	 * Returns the field type
+	 * @return the field type
+	 */
+	public Class<?> getType() {
+		return field.getType();
+	}
+
+	/**
+	 * Indicates if the field is static
+	 * @return true if the field is static
+	 */
+	public boolean isStatic() {
+		return isStatic;
+	}
+
+	/**
+	 * Checks that the passed target can hold this field
+	 * @param target The target object
+	 */
+	protected final void checkTarget(final Object target) {
+		if(!declaringClass.isInstance(target)) {
+			throw new IllegalArgumentException(target==null ?
+				"Field [" + declaringClass.getName() + "." + field.getName() + "] is not static and target was null" :
+				"Field [" + declaringClass.getName() + "." + field.getName() + "] is not declared by [" + target.getClass().getName() + "]");
+		}
+	}
+
+	/**
+	 * Builds a failure message
+	 * @param op The failed operation
+	 * @return the message
+	 */
+	protected final String failure(final String op) {
+		return "Failed to " + op + " field [" + declaringClass.getName() + "." + field.getName() + "]";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + declaringClass.getName() + "." + field.getName() + "]";
+	}
+
+	/**
+	 * <p>Title: UnsafeFieldAccessor</p>
+	 * <p>Description: Accesses the field at its offset</p>
+	 */
+	static final class UnsafeFieldAccessor<T> extends FieldAccessor<T> {
+		/** The base object for static fields */
+		private final Object base;
+		/** The field offset */
+		private final long offset;
+		/** The field type, or the boxed type for primitives */
+		private final Class<?> type;
+		/** The primitive kind of the field, or zero for references */
+		private final char kind;
+		/** Indicates if the field is volatile */
+		private final boolean isVolatile;
+
+		UnsafeFieldAccessor(final Field field) {
+			super(field);
+			base = isStatic ? UNSAFE.staticFieldBase(field) : null;
+			offset = isStatic ? UNSAFE.staticFieldOffset(field) : UNSAFE.objectFieldOffset(field);
+			final Class<?> t = field.getType();
+			isVolatile = Modifier.isVolatile(field.getModifiers());
+			if(t.isPrimitive()) {
+				// the first letter of the primitive name, except long ('J') and boolean ('Z') as in type descriptors
+				kind = t==long.class ? 'J' : t==boolean.class ? 'Z' : Character.toUpperCase(t.getName().charAt(0));
+				type = t==int.class ? Integer.class : t==long.class ? Long.class : t==boolean.class ? Boolean.class
+					: t==double.class ? Double.class : t==float.class ? Float.class : t==short.class ? Short.class
+					: t==byte.class ? Byte.class : Character.class;
+			} else {
+				kind = 0;
+				type = t;
+			}
+		}
+
+		private Object target(final Object target) {
+			if(isStatic) return base;
+			checkTarget(target);
+			return target;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T get(final Object target) {
+			final Object o = target(target);
+			switch(kind) {
+				case 0: return (T)(isVolatile ? UNSAFE.getObjectVolatile(o, offset) : UNSAFE.getObject(o, offset));
+				case 'I': return (T)Integer.valueOf(isVolatile ? UNSAFE.getIntVolatile(o, offset) : UNSAFE.getInt(o, offset));
+				case 'J': return (T)Long.valueOf(isVolatile ? UNSAFE.getLongVolatile(o, offset) : UNSAFE.getLong(o, offset));
+				case 'Z': return (T)Boolean.valueOf(isVolatile ? UNSAFE.getBooleanVolatile(o, offset) : UNSAFE.getBoolean(o, offset));
+				case 'D': return (T)Double.valueOf(isVolatile ? UNSAFE.getDoubleVolatile(o, offset) : UNSAFE.getDouble(o, offset));
+				case 'F': return (T)Float.valueOf(isVolatile ? UNSAFE.getFloatVolatile(o, offset) : UNSAFE.getFloat(o, offset));
+				case 'S': return (T)Short.valueOf(isVolatile ? UNSAFE.getShortVolatile(o, offset) : UNSAFE.getShort(o, offset));
+				case 'B': return (T)Byte.valueOf(isVolatile ? UNSAFE.getByteVolatile(o, offset) : UNSAFE.getByte(o, offset));
+				default: return (T)Character.valueOf(isVolatile ? UNSAFE.getCharVolatile(o, offset) : UNSAFE.getChar(o, offset));
+			}
+		}
+
+		@Override
+		public void set(final Object target, final T value) {
+			if(!writable) throw new RuntimeException(failure("write"), new IllegalAccessException("The field is static final"));
+			final Object o = target(target);
+			if(kind==0) {
+				// a value of the wrong type written at the offset would corrupt the heap
+				if(value!=null && !type.isInstance(value)) throw new IllegalArgumentException(failure("write") + ": value is a [" + value.getClass().getName() + "]");
+				if(isVolatile) UNSAFE.putObjectVolatile(o, offset, value);
+				else UNSAFE.putObject(o, offset, value);
+				return;
+			}
+			if(value==null || value.getClass()!=type) {
+				// widening conversions are left to reflection
+				try {
+					field.set(isStatic ? null : target, value);
+				} catch (IllegalAccessException iae) {
+					throw new RuntimeException(failure("write"), iae);
+				}
+				return;
+			}
+			switch(kind) {
+				case 'I': if(isVolatile) UNSAFE.putIntVolatile(o, offset, (Integer)value); else UNSAFE.putInt(o, offset, (Integer)value); break;
+				case 'J': if(isVolatile) UNSAFE.putLongVolatile(o, offset, (Long)value); else UNSAFE.putLong(o, offset, (Long)value); break;
+				case 'Z': if(isVolatile) UNSAFE.putBooleanVolatile(o, offset, (Boolean)value); else UNSAFE.putBoolean(o, offset, (Boolean)value); break;
+				case 'D': if(isVolatile) UNSAFE.putDoubleVolatile(o, offset, (Double)value); else UNSAFE.putDouble(o, offset, (Double)value); break;
+				case 'F': if(isVolatile) UNSAFE.putFloatVolatile(o, offset, (Float)value); else UNSAFE.putFloat(o, offset, (Float)value); break;
+				case 'S': if(isVolatile) UNSAFE.putShortVolatile(o, offset, (Short)value); else UNSAFE.putShort(o, offset, (Short)value); break;
+				case 'B': if(isVolatile) UNSAFE.putByteVolatile(o, offset, (Byte)value); else UNSAFE.putByte(o, offset, (Byte)value); break;
+				default: if(isVolatile) UNSAFE.putCharVolatile(o, offset, (Character)value); else UNSAFE.putChar(o, offset, (Character)value); break;
+			}
+		}
+
+		@Override
+		public long getLong(final Object target) {
+			if(kind!='J') return super.getLong(target);
+			final Object o = target(target);
+			return isVolatile ? UNSAFE.getLongVolatile(o, offset) : UNSAFE.getLong(o, offset);
+		}
+
+		@Override
+		public int getInt(final Object target) {
+			if(kind!='I') return super.getInt(target);
+			final Object o = target(target);
+			return isVolatile ? UNSAFE.getIntVolatile(o, offset) : UNSAFE.getInt(o, offset);
+		}
+
+		@Override
+		public boolean getBoolean(final Object target) {
+			if(kind!='Z') return super.getBoolean(target);
+			final Object o = target(target);
+			return isVolatile ? UNSAFE.getBooleanVolatile(o, offset) : UNSAFE.getBoolean(o, offset);
+		}
+	}
+
+	/**
+	 * <p>Title: ReflectiveFieldAccessor</p>
+	 * <p>Description: Accesses the field through reflection, where unsafe is not available</p>
+	 */
+	static final class ReflectiveFieldAccessor<T> extends FieldAccessor<T> {
+		ReflectiveFieldAccessor(final Field field) {
+			super(field);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T get(final Object target) {
+			if(!isStatic) checkTarget(target);
+			try {
+				return (T)field.get(target);
+			} catch (IllegalAccessException iae) {
+				throw new RuntimeException(failure("read"), iae);
+			}
+		}
+
+		@Override
+		public void set(final Object target, final T value) {
+			if(!isStatic) checkTarget(target);
+			try {
+				field.set(target, value);
+			} catch (IllegalAccessException iae) {
+				throw new RuntimeException(failure("write"), iae);
+			}
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.reflect;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import com.heliosapm.utils.jmx.managed.Dispatcher;
+
+/**
+ * <p>Title: MethodAccessor</p>
+ * <p>Description: A resolved accessor for one method, obtained from {@link PrivateAccessor#methodAccessor(Class, String, Class...)}.
+ * Public methods of public classes are invoked through a generated {@link Dispatcher} which makes a direct call.
+ * Other methods are invoked through an accessible {@link Method}.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.reflect.MethodAccessor</code></p>
+ */
+
+public class MethodAccessor {
+	/** The accessed method */
+	protected final Method method;
+	/** The dispatcher invoking the method */
+	protected final Dispatcher dispatcher;
+	/** The declaring class of the method, which instance method targets must be instances of */
+	protected final Class<?> declaringClass;
+	/** Indicates if the method is static */
+	protected final boolean isStatic;
+	/** The number of parameters */
+	protected final int arity;
+
+	/** An empty argument array */
+	private static final Object[] NO_ARGS = {};
+
+	/**
+	 * Creates a new MethodAccessor
+	 * @param method The accessed method
+	 */
+	MethodAccessor(final Method method) {
+		this.method = method;
+		method.setAccessible(true);
+		declaringClass = method.getDeclaringClass();
+		isStatic = Modifier.isStatic(method.getModifiers());
+		arity = method.getParameterTypes().length;
+		dispatcher = Dispatcher.dispatcher(declaringClass, method);
+	}
+
+	/**
+	 * Invokes the method. Runtime exceptions and errors thrown by the method are rethrown as is, checked exceptions are wrapped.
+	 * @param target The object to invoke against, ignored for static methods
+	 * @param args The invocation arguments
+	 * @return the return value of the invocation, or null for void methods
+	 */
+	public Object invoke(final Object target, final Object...args) {
+		final Object[] a = args==null ? NO_ARGS : args;
+		if(a.length!=arity) throw new IllegalArgumentException("Method [" + method.toGenericString() + "] expects " + arity + " arguments but was passed " + a.length);
+		if(!isStatic && !declaringClass.isInstance(target)) {
+			throw new IllegalArgumentException(target==null ?
+				"Method [" + method.toGenericString() + "] is not static and target was null" :
+				"Method [" + method.toGenericString() + "] is not declared by [" + target.getClass().getName() + "]");
+		}
+		try {
+			return dispatcher.invoke(isStatic ? null : target, 0, a);
+		} catch (RuntimeException rex) {
+			throw rex;
+		} catch (Error er) {
+			throw er;
+		} catch (Throwable t) {
+			// a generated dispatcher makes a direct call, so checked exceptions arrive unwrapped
+			throw new RuntimeException("Invocation of [" + method.toGenericString() + "] failed", t);
+		}
+	}
+
+	/**
+	 * Returns the accessed method
+	 * @return the accessed method
+	 */
+	public Method getMethod() {
+		return method;
+	}
+
+	/**
+	 * Indicates if the method is invoked through a direct call rather than reflection
+	 * @return true if the method is invoked through a direct call
+	 */
+	public boolean isDirect() {
+		return dispatcher.isGenerated();
+	}
+
+	/**
+	 * Indicates if the method is static
+	 * @return true if the method is static
+	 */
+	public boolean isStatic() {
+		return isStatic;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "MethodAccessor[" + method.toGenericString() + "]";
+	}
+}
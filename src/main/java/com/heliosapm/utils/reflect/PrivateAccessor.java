@@ -19,34 +19,36 @@ under the License.
 package com.heliosapm.utils.reflect;
 
 import java.io.PrintStream;
-import java.lang.ref.SoftReference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
-
-import com.heliosapm.utils.ref.ReferenceService;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * <p>Title: PrivateAccessor</p>
  * <p>Description: A helper class to wrap invocations to and fields in objects defined as protected or private.
  * All methods throw RuntimeExceptions only. The located accessible objects (methods, fields, constructors) are cached for performance.
- * The cache is implemented as a SoftReference map so cache entries will be garbage collected if memory is required.</p> 
+ * The cache is keyed by weakly referenced classes and the cached members are weakly referenced, so nothing in the cache
+ * keeps a class, and so its class loader, from unloading. A cached member is retained while any caller holds it.</p>
+ * <p>Fields and methods are cached as {@link FieldAccessor}s and {@link MethodAccessor}s, which callers making repeated accesses
+ * should acquire once through {@link #fieldAccessor(Class, String, Class)} and {@link #methodAccessor(Class, String, Class...)} and hold.</p> 
  * <p>Company: Helios Development Group LLC</p>
  * @author Whitehead (nwhitehead AT heliosdev DOT org)
  * <p><code>com.heliosapm.utils.reflect.PrivateAccessor</code></p>
  */
 
 public class PrivateAccessor {
-	/** The accessible object cache */
-	protected static Map<Integer, WeakReference<AccessibleObject>> accessibleObjects = new ConcurrentHashMap<Integer, WeakReference<AccessibleObject>>();
+	/** The member caches keyed by a {@link ClassKey} on the class the members were looked up in */
+	private static final ConcurrentHashMap<Object, ConcurrentHashMap<String, WeakReference<Object>>> members = new ConcurrentHashMap<Object, ConcurrentHashMap<String, WeakReference<Object>>>();
+	/** The queue the keys of unloaded classes are enqueued to */
+	private static final ReferenceQueue<Class<?>> unloaded = new ReferenceQueue<Class<?>>();
 	/** Logging DEBUG flag */
 	protected static AtomicBoolean DEBUG = new AtomicBoolean(false);
 	/** Debug Stream */
@@ -56,29 +58,237 @@ public class PrivateAccessor {
 	
 	
 	/**
-	 * Looks up the passed key in the accessibleObject cache.
-	 * @param key The accessibleObject cache key
-	 * @return The cached accessible object or null if not found, or gc'ed. 
+	 * <p>Title: ClassKey</p>
+	 * <p>Description: The weak key of a member cache, equal to the keys and {@link ClassLookup}s of the same class</p>
+	 */
+	private static final class ClassKey extends WeakReference<Class<?>> {
+		/** The identity hash code of the class */
+		private final int hash;
+		
+		/**
+		 * Creates a new ClassKey
+		 * @param clazz The class
+		 */
+		ClassKey(final Class<?> clazz) {
+			super(clazz, unloaded);
+			hash = System.identityHashCode(clazz);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(final Object obj) {
+			if(obj==this) return true;
+			final Class<?> clazz = get();
+			if(clazz==null) return false;
+			if(obj instanceof ClassLookup) return ((ClassLookup)obj).clazz==clazz;
+			return obj instanceof ClassKey && ((ClassKey)obj).get()==clazz;
+		}
+	}
+	
+	/**
+	 * <p>Title: ClassLookup</p>
+	 * <p>Description: The short lived key a member cache is looked up with, which unlike a {@link ClassKey} is not a reference object</p>
+	 */
+	private static final class ClassLookup {
+		/** The class */
+		private final Class<?> clazz;
+		
+		/**
+		 * Creates a new ClassLookup
+		 * @param clazz The class
+		 */
+		ClassLookup(final Class<?> clazz) {
+			this.clazz = clazz;
+		}
+		
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(clazz);
+		}
+		
+		@Override
+		public boolean equals(final Object obj) {
+			if(obj==this) return true;
+			if(obj instanceof ClassKey) return ((ClassKey)obj).get()==clazz;
+			return obj instanceof ClassLookup && ((ClassLookup)obj).clazz==clazz;
+		}
+	}
+	
+	/**
+	 * Returns the member cache for the passed class, creating it if it does not exist.
+	 * Lookups do not lock, and creating a cache first removes the caches of unloaded classes.
+	 * @param clazz The class the members are looked up in
+	 * @return the member cache
+	 */
+	private static ConcurrentHashMap<String, WeakReference<Object>> members(final Class<?> clazz) {
+		ConcurrentHashMap<String, WeakReference<Object>> m = members.get(new ClassLookup(clazz));
+		if(m==null) {
+			Object key;
+			while((key = unloaded.poll())!=null) {
+				members.remove(key);
+			}
+			final ConcurrentHashMap<String, WeakReference<Object>> created = new ConcurrentHashMap<String, WeakReference<Object>>();
+			m = members.putIfAbsent(new ClassKey(clazz), created);
+			if(m==null) m = created;
+		}
+		return m;
+	}
+	
+	/**
+	 * Returns the member cached under the passed key
+	 * @param cache The member cache
+	 * @param key The member cache key
+	 * @return the cached member or null if not found or gc'ed
+	 */
+	private static Object cached(final ConcurrentHashMap<String, WeakReference<Object>> cache, final String key) {
+		final WeakReference<Object> ref = cache.get(key);
+		return ref==null ? null : ref.get();
+	}
+	
+	/**
+	 * Caches the passed member unless another thread cached one under the same key first
+	 * @param cache The member cache
+	 * @param key The member cache key
+	 * @param member The member to cache
+	 * @return the cached member, which is the passed one or the one cached first
 	 */
-	protected static AccessibleObject cacheLookup(int key) {
-		WeakReference<AccessibleObject> sr = accessibleObjects.get(key);
-		if(sr==null) return null;
-		AccessibleObject ao = sr.get();
-		if(ao==null) {
-			accessibleObjects.remove(key);
+	private static Object cache(final ConcurrentHashMap<String, WeakReference<Object>> cache, final String key, final Object member) {
+		final WeakReference<Object> ref = new WeakReference<Object>(member);
+		while(true) {
+			final WeakReference<Object> prior = cache.putIfAbsent(key, ref);
+			if(prior==null) return member;
+			final Object p = prior.get();
+			if(p!=null) return p;
+			if(cache.replace(key, prior, ref)) return member;
 		}
-		return ao;
 	}
 	
 	/**
-	 * Adds an accessibleObject to cache.
-	 * @param key The accessibleObject cache key.
-	 * @param ao The accessibleObject to cache.
+	 * Looks up the passed key in the member cache of the passed class.
+	 * @param clazz The class the member was looked up in
+	 * @param key The member cache key
+	 * @return The cached accessor or constructor, or null if not found or gc'ed. 
 	 */
-	protected static void addToCache(int key, AccessibleObject ao) {
-		if(ao==null) throw new IllegalArgumentException("AccessibleObject to cache was null");
-		WeakReference<AccessibleObject> sr = ReferenceService.getInstance().newWeakReference(ao, null);
-		accessibleObjects.put(key, sr);
+	protected static Object cacheLookup(final Class<?> clazz, final String key) {
+		return cached(members(clazz), key);
+	}
+	
+	/**
+	 * Adds an accessor or constructor to the member cache of the passed class.
+	 * @param clazz The class the member was looked up in
+	 * @param key The member cache key.
+	 * @param member The accessor or constructor to cache.
+	 */
+	protected static void addToCache(final Class<?> clazz, final String key, final Object member) {
+		if(member==null) throw new IllegalArgumentException("Member to cache was null");
+		members(clazz).put(key, new WeakReference<Object>(member));
+	}
+	
+	/**
+	 * Returns a cached accessor for the named field of the passed class or the classes parents, resolving it if it is not cached
+	 * @param clazz The class to get the field from
+	 * @param fieldName The name of the field
+	 * @param type The field type, boxed for primitive fields. Must be assignable from the field's type.
+	 * @return the field accessor
+	 * @param <T> the field type
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> FieldAccessor<T> fieldAccessor(final Class<?> clazz, final String fieldName, final Class<T> type) {
+		final FieldAccessor<?> fa = fieldAccessor(clazz, fieldName);
+		if(type!=null && !type.isAssignableFrom(boxed(fa.getType()))) {
+			throw new IllegalArgumentException("The field [" + clazz.getName() + "." + fieldName + "] of type [" + fa.getType().getName() + "] is not a [" + type.getName() + "]");
+		}
+		return (FieldAccessor<T>)fa;
+	}
+	
+	/**
+	 * Returns a cached accessor for the named field of the passed class or the classes parents, resolving it if it is not cached
+	 * @param clazz The class to get the field from
+	 * @param fieldName The name of the field
+	 * @return the field accessor
+	 */
+	@SuppressWarnings("unchecked")
+	public static FieldAccessor<Object> fieldAccessor(final Class<?> clazz, final String fieldName) {
+		if(clazz==null) throw new IllegalArgumentException("Target Class Was Null");
+		if(fieldName==null || fieldName.trim().isEmpty()) throw new IllegalArgumentException("Field Name Was Null Or Empty");
+		final ConcurrentHashMap<String, WeakReference<Object>> cache = members(clazz);
+		final String key = fieldName;
+		FieldAccessor<Object> fa = (FieldAccessor<Object>)cached(cache, key);
+		if(fa==null) {
+			final String _fieldName = fieldName.trim();
+			Field field = null;
+			Class<?> c = clazz;
+			while(field==null) {		
+				try {
+					// try declared field
+					field = c.getDeclaredField(_fieldName);
+				} catch (NoSuchFieldException e) {
+					// try field
+					try {
+						field = c.getField(_fieldName);
+					} catch (NoSuchFieldException e2) {/* No Op */}
+				}
+				if(field!=null) break;
+				c = c.getSuperclass();
+				if(c==null || java.lang.Object.class.equals(c)) {
+					break;
+				}					
+			}
+			if(field==null) {
+				elog(null, "The field [" , _fieldName , "] was not found in the class [" , clazz.getName() , "]");
+				throw new RuntimeException("The field [" + _fieldName + "] was not found in the class [" + clazz.getName() + "]");
+			}
+			fa = FieldAccessor.newAccessor(field);
+			fa = (FieldAccessor<Object>)cache(cache, key, fa);
+		}
+		return fa;
+	}
+	
+	/**
+	 * Returns a cached accessor for the named method of the passed class or the classes parents, resolving it if it is not cached
+	 * @param clazz The class to get the method from
+	 * @param methodName The name of the method
+	 * @param signature The types of the method's parameters
+	 * @return the method accessor
+	 */
+	public static MethodAccessor methodAccessor(final Class<?> clazz, final String methodName, final Class<?>...signature) {
+		if(clazz==null) throw new IllegalArgumentException("Target Class Was Null");
+		if(methodName==null || methodName.trim().isEmpty()) throw new IllegalArgumentException("Method Name Was Null Or Empty");
+		final ConcurrentHashMap<String, WeakReference<Object>> cache = members(clazz);
+		final String key = memberKey(methodName, signature);
+		MethodAccessor ma = (MethodAccessor)cached(cache, key);
+		if(ma==null) {
+			final Method method = findMethodFromClass(clazz, methodName, signature==null ? new Class<?>[0] : signature);
+			if(method==null) {
+				elog(null, "The method [" , methodName , "] was not found in the class [" , clazz.getName() , "]");
+				throw new RuntimeException("The method [" + methodName + "] was not found in the class [" + clazz.getName() + "]");
+			}
+			ma = new MethodAccessor(method);
+			ma = (MethodAccessor)cache(cache, key, ma);
+		}
+		return ma;
+	}
+	
+	/**
+	 * Returns the boxed type for the passed primitive type, or the passed type if it is not primitive
+	 * @param type The type
+	 * @return the boxed type
+	 */
+	private static Class<?> boxed(final Class<?> type) {
+		if(!type.isPrimitive()) return type;
+		if(type==int.class) return Integer.class;
+		if(type==long.class) return Long.class;
+		if(type==boolean.class) return Boolean.class;
+		if(type==double.class) return Double.class;
+		if(type==float.class) return Float.class;
+		if(type==short.class) return Short.class;
+		if(type==byte.class) return Byte.class;
+		if(type==char.class) return Character.class;
+		return Void.class;
 	}
 	
 	/**
@@ -112,26 +322,13 @@ public class PrivateAccessor {
 		if(targetObject==null) throw new IllegalArgumentException("Target Object Was Null");	
 		Class<?> clazz = targetObject.getClass();
 		if(isDebug()) log("PrivateAccessor Invoking [" , clazz.getName() , "." , methodName , argsToString(arguments) , "]");
-		int key = invocationKey(clazz, methodName, signature);
-		Method method = (Method)cacheLookup(key);
-		if(method==null) {
-			method = findMethodFromClass(clazz, methodName, signature);
-			if(method==null) {
-				elog(null, "The method [" , methodName , "] was not found in the class [" , clazz.getName() , "]");
-				throw new RuntimeException("The method [" + methodName + "] was not found in the class [" + clazz.getName() + "]");
-			}
-			method.setAccessible(true);
-			addToCache(key, method);
-		}
+		final MethodAccessor method = methodAccessor(clazz, methodName, signature);
 		try {
 			if(isDebug()) log("[PrivateAccessor] Invoking [" , method , argsToString(arguments) , "].");
-			if(Modifier.isStatic(method.getModifiers())) {
-				return method.invoke(null, arguments);
-			}
 			return method.invoke(targetObject, arguments);
 		} catch (Exception e) {
-			elog(e, "Invocation Exception calling method [" , method.toGenericString() , "] in the class [" , clazz.getName() , "] with arguments:" , argsToIndentedString(arguments));
-			throw new RuntimeException("Invocation Exception calling method [" + method.toGenericString() + "] in the class [" + clazz.getName() + "] with arguments:" + argsToIndentedString(arguments), e);
+			elog(e, "Invocation Exception calling method [" , method.getMethod().toGenericString() , "] in the class [" , clazz.getName() , "] with arguments:" , argsToIndentedString(arguments));
+			throw new RuntimeException("Invocation Exception calling method [" + method.getMethod().toGenericString() + "] in the class [" + clazz.getName() + "] with arguments:" + argsToIndentedString(arguments), e);
 		}
 	}
 	
@@ -162,18 +359,7 @@ public class PrivateAccessor {
 	public static Object invokeStatic(Class<?> targetClass, String methodName, Object[] arguments, Class<?>[] signature) {
 		if(targetClass==null) throw new IllegalArgumentException("Target Class Was Null");
 		if(isDebug()) log("PrivateAccessor Invoking Static [" , targetClass.getName() , "." , methodName , argsToString(arguments) , "]");
-		int key = invocationKey(targetClass, methodName, signature);
-		Method method = (Method)cacheLookup(key);
-		if(method==null) {
-			method = findMethodFromClass(targetClass, methodName, signature);
-			if(method==null) {
-				elog(null, "The method [" , methodName , "] was not found in the class [" , targetClass.getName() , "]");
-				throw new RuntimeException("The method [" + methodName + "] was not found in the class [" + targetClass.getName() + "]");
-			} else {
-				method.setAccessible(true);
-				addToCache(key, method);
-			}
-		}
+		final MethodAccessor method = methodAccessor(targetClass, methodName, signature);
 		try {			
 			return method.invoke(null, arguments);
 		} catch (Exception e) {
@@ -254,19 +440,12 @@ public class PrivateAccessor {
 		if(fieldName==null || fieldName.trim().isEmpty()) throw new IllegalArgumentException("Field name was null or empty");
 		Class<?> clazz = targetObject.getClass();
 		if(isDebug()) log("PrivateAccessor Accessing Field [" , fieldName , "] in instance of [" , clazz.getName() , "]");
-		int key = invocationKey(clazz, fieldName);
-		Field field = (Field)cacheLookup(key);
-		if(field==null) {
-			field = getFieldFromClass(clazz, fieldName);
-			if(field==null) {
-				elog(null, "The field [" , fieldName , "] was not found in instance of the class [" , clazz.getName() , "]");
-				throw new RuntimeException("The field [" + fieldName + "] was not found in instance of the class [" + clazz.getName() + "]");
-			} else {
-				field.setAccessible(true);
-				addToCache(key, field);
-			}
+		final FieldAccessor<Object> field = fieldAccessor(clazz, fieldName);
+		try {
+			field.set(targetObject, value);
+		} catch (Exception e) {
+			throw new RuntimeException("Exception setting field [" + fieldName + "] in an instance of class [" + field.getField().getDeclaringClass().getName() + "]", e);
 		}
-		setFieldValue(targetObject, field, value);
 	}
 	
 	/**
@@ -328,18 +507,7 @@ public class PrivateAccessor {
 		if(targetObject==null) throw new IllegalArgumentException("Target Object Was Null");		
 		Class<?> clazz = targetObject.getClass();
 		if(isDebug()) log("PrivateAccessor Accessing Field [" , fieldName , "] in instance of [" , clazz.getName() , "]");
-		int key = invocationKey(clazz, fieldName);
-		Field field = (Field)cacheLookup(key);
-		if(field==null) {
-			field = getFieldFromClass(clazz, fieldName);
-			if(field==null) {
-				elog(null, "The field [" , fieldName , "] was not found in instance of the class [" , clazz.getName() , "]");
-				throw new RuntimeException("The field [" + fieldName + "] was not found in instance of the class [" + clazz.getName() + "]");
-			} else {
-				field.setAccessible(true);
-				addToCache(key, field);
-			}
-		}
+		final FieldAccessor<Object> field = fieldAccessor(clazz, fieldName);
 		try {			
 			return field.get(targetObject);
 		} catch (Exception e) {
@@ -358,18 +526,7 @@ public class PrivateAccessor {
 		if(targetObject==null) throw new IllegalArgumentException("Target Object Was Null");		
 		Class<?> clazz = targetObject.getClass();
 		if(isDebug()) log("PrivateAccessor Accessing Field [" , fieldName , "] in instance of [" , clazz.getName() , "]");
-		int key = invocationKey(clazz, fieldName);
-		Field field = (Field)cacheLookup(key);
-		if(field==null) {
-			field = getFieldFromClass(clazz, fieldName);
-			if(field==null) {
-				elog(null, "The field [" , fieldName , "] was not found in instance of the class [" , clazz.getName() , "]");
-				throw new RuntimeException("The field [" + fieldName + "] was not found in instance of the class [" + clazz.getName() + "]");
-			}
-			field.setAccessible(true);
-			addToCache(key, field);
-		}
-		return field;
+		return fieldAccessor(clazz, fieldName).getField();
     }
     
 	/**
@@ -379,32 +536,7 @@ public class PrivateAccessor {
 	 * @return The named field.
 	 */
 	public static Field getFieldFromClass(final Class<?> targetClass, final String fieldName) {
-		if(targetClass==null) throw new IllegalArgumentException("Target Class Was Null");
-		if(fieldName==null || fieldName.trim().isEmpty()) throw new IllegalArgumentException("Field Name Was Null Or Empty");
-		final String _fieldName = fieldName.trim();
-		final int key = invocationKey(targetClass, _fieldName);
-		Field field = (Field)cacheLookup(key);
-		Class<?> clazz = targetClass;
-		while(field==null) {		
-			try {
-				// try declared field
-				field = clazz.getDeclaredField(fieldName);
-			} catch (NoSuchFieldException e) {
-				// try field
-				try {
-					field = clazz.getField(fieldName);
-				} catch (NoSuchFieldException e2) {/* No Op */}
-			}
-			if(field!=null) break;
-			clazz = clazz.getSuperclass();
-			if(clazz==null || java.lang.Object.class.equals(clazz)) {
-				break;
-			}					
-		}
-		if(field==null) throw new RuntimeException("The field [" + _fieldName + "] was not found in the class [" + targetClass.getName() + "]");
-		field.setAccessible(true);
-		addToCache(key, field);
-		return field;	
+		return fieldAccessor(targetClass, fieldName).getField();
 	}
     
 	
@@ -418,17 +550,7 @@ public class PrivateAccessor {
 	public static Object getStaticFieldValue(Class<?> targetClass, String fieldName) {		
 		if(targetClass==null) throw new IllegalArgumentException("Target Class Was Null");
 		if(isDebug()) log("PrivateAccessor Accessing Static Field [" , fieldName , "] in class [" , targetClass.getName() , "]");
-		final int key = invocationKey(targetClass, fieldName);
-		Field field = (Field)cacheLookup(key);
-		if(field==null) {
-			field = getFieldFromClass(targetClass, fieldName);
-			if(field==null) {
-				elog(null, "The field [" , fieldName , "] was not found in the class [" , targetClass.getName() , "]");
-				throw new RuntimeException("The field [" + fieldName + "] was not found in the class [" + targetClass.getName() + "]");
-			}
-			field.setAccessible(true);
-			addToCache(key, field);
-		}
+		final FieldAccessor<Object> field = fieldAccessor(targetClass, fieldName);
 		try {			
 			return field.get(null);
 		} catch (Exception e) {
@@ -446,18 +568,7 @@ public class PrivateAccessor {
 	public static void setStaticFieldValue(Class<?> targetClass, String fieldName, Object value) {
 		if(targetClass==null) throw new IllegalArgumentException("Target Class Was Null");
 		if(isDebug()) log("PrivateAccessor Accessing Static Field [" , fieldName , "] in class [" , targetClass.getName() , "]");
-		int key = invocationKey(targetClass, fieldName);
-		Field field = (Field)cacheLookup(key);
-		if(field==null) {
-			field = getFieldFromClass(targetClass, fieldName);
-			if(field==null) {
-				elog(null, "The field [" , fieldName , "] was not found in the class [" , targetClass.getName() , "]");
-				throw new RuntimeException("The field [" + fieldName + "] was not found in the class [" + targetClass.getName() + "]");
-			} else {
-				field.setAccessible(true);
-				addToCache(key, field);
-			}
-		}
+		final FieldAccessor<Object> field = fieldAccessor(targetClass, fieldName);
 		try {			
 			field.set(null, value);
 		} catch (Exception e) {
@@ -489,9 +600,9 @@ public class PrivateAccessor {
 	public static Object getObjectInstance(Class<?> clazz, Object[] arguments, Class<?>[] signature) {
 		if(clazz==null) throw new IllegalArgumentException("Target Class Was Null");
 		if(isDebug()) log("PrivateAccessor Creating Instance of class [" , clazz.getName() , "] with arguments [" , argsToString(arguments) , "]");
-		int key = invocationKey(clazz, "CTOR", signature);
+		final String key = memberKey("<init>", signature);
 		Method staticCtor = null;
-		Constructor<?> constructor = (Constructor<?>)cacheLookup(key);
+		Constructor<?> constructor = (Constructor<?>)cacheLookup(clazz, key);
 		if(constructor==null) {
 			constructor = findConstructorFromClass(clazz, signature);
 			if(constructor==null) {
@@ -510,7 +621,7 @@ public class PrivateAccessor {
 			} else {
 				
 				constructor.setAccessible(true);
-				addToCache(key, constructor);
+				addToCache(clazz, key, constructor);
 			}
 		}
 		try {			
@@ -642,8 +753,8 @@ public class PrivateAccessor {
 	 * @return The located constructor.
 	 */
 	public static <T> Constructor<T> findConstructorFromClass(Class<T> targetClass, Class<?>...signature) {
-		int key = invocationKey(targetClass, "CTOR", signature);
-		Constructor<T> ctor = (Constructor<T>)cacheLookup(key);
+		final String key = memberKey("<init>", signature);
+		Constructor<T> ctor = (Constructor<T>)cacheLookup(targetClass, key);
 		if(ctor==null) {
 			Class<?> clazz = targetClass;
 			while(ctor==null) {				
@@ -665,7 +776,7 @@ public class PrivateAccessor {
 		}
 		if(ctor!=null) {
 			ctor.setAccessible(true);
-			addToCache(key, ctor);
+			addToCache(targetClass, key, ctor);
 		}
 		
 		return ctor;	
@@ -689,21 +800,20 @@ public class PrivateAccessor {
 	
 	
 	/**
-	 * Generates a unique cache key for the passed method or field.
-	 * @param clazz The class to which the accessibleObject is defined in.
-	 * @param objectName The name of the method or field, or "CTOR" if the accessibleObject is a constructor.
-	 * @param optionalSignature The types of the constructor's or method's parameters.
-	 * @return The accessibleObject cache key.
+	 * Generates a cache key for the passed method or constructor, unique within the class it is looked up in.
+	 * Field keys are the field name, which cannot contain a parenthesis.
+	 * @param name The name of the method, or "&lt;init&gt;" for a constructor.
+	 * @param signature The types of the constructor's or method's parameters.
+	 * @return The member cache key.
 	 */
-	protected static int invocationKey(Class<?> clazz, String objectName, Class<?>...optionalSignature) {
-		StringBuilder b = new StringBuilder(clazz.getName());
-		b.append(objectName);
-		if(optionalSignature != null) {
-			for (Class<?> sigClazz : optionalSignature) {
-				b.append(sigClazz.getName());
+	protected static String memberKey(final String name, final Class<?>...signature) {
+		final StringBuilder b = new StringBuilder(name).append('(');
+		if(signature != null) {
+			for (Class<?> sigClazz : signature) {
+				b.append(sigClazz.getName()).append(',');
 			}
 		}
-		return b.toString().hashCode();
+		return b.append(')').toString();
 	}
 	
 	/**
@@ -838,4 +948,78 @@ public class PrivateAccessor {
 		PrivateAccessor.err = err;
 	}
 
+	/**
+	 * <p>Title: BenchTarget</p>
+	 * <p>Description: The private field and method accessed by {@link PrivateAccessor#main(String[])}</p>
+	 */
+	private static class BenchTarget {
+		/** Benchmark field */
+		private long value = 0L;
+		
+		/**
+		 * Benchmark method
+		 * @param delta The amount to add to the benchmark field
+		 * @return the new value of the benchmark field
+		 */
+		@SuppressWarnings("unused")
+		private long add(final long delta) {
+			value += delta;
+			return value;
+		}
+	}
+	
+	/**
+	 * Compares direct, reflective, string keyed and held accessor access to a private field and method,
+	 * and to a public method of a public class, which a held accessor invokes through a generated dispatcher
+	 * @param args None
+	 */
+	public static void main(String[] args) {
+		final int loops = 2000000;
+		final BenchTarget target = new BenchTarget();
+		final Field field = getFieldFromClass(BenchTarget.class, "value");
+		final FieldAccessor<Long> fa = fieldAccessor(BenchTarget.class, "value", Long.class);
+		final MethodAccessor ma = methodAccessor(BenchTarget.class, "add", long.class);
+		final AtomicLong publicTarget = new AtomicLong();
+		final MethodAccessor pma = methodAccessor(AtomicLong.class, "addAndGet", long.class);
+		final Object[] margs = new Object[]{1L};
+		for(int w = 0; w < 3; w++) {
+			long sum = 0L;
+			long start = System.nanoTime();
+			for(int i = 0; i < loops; i++) sum += target.value;
+			final long direct = System.nanoTime() - start;
+			start = System.nanoTime();
+			try {
+				for(int i = 0; i < loops; i++) sum += field.getLong(target);
+			} catch (Exception ex) {
+				throw new RuntimeException(ex);
+			}
+			final long reflect = System.nanoTime() - start;
+			start = System.nanoTime();
+			for(int i = 0; i < loops; i++) sum += (Long)getFieldValue(target, "value");
+			final long keyed = System.nanoTime() - start;
+			start = System.nanoTime();
+			for(int i = 0; i < loops; i++) sum += fa.getLong(target);
+			final long held = System.nanoTime() - start;
+			start = System.nanoTime();
+			for(int i = 0; i < loops; i++) sum += (Long)invoke(target, "add", margs, long.class);
+			final long keyedInvoke = System.nanoTime() - start;
+			start = System.nanoTime();
+			for(int i = 0; i < loops; i++) sum += (Long)ma.invoke(target, margs);
+			final long heldInvoke = System.nanoTime() - start;
+			start = System.nanoTime();
+			for(int i = 0; i < loops; i++) sum += publicTarget.addAndGet(1L);
+			final long directPublic = System.nanoTime() - start;
+			start = System.nanoTime();
+			for(int i = 0; i < loops; i++) sum += (Long)invoke(publicTarget, "addAndGet", margs, long.class);
+			final long keyedPublic = System.nanoTime() - start;
+			start = System.nanoTime();
+			for(int i = 0; i < loops; i++) sum += (Long)pma.invoke(publicTarget, margs);
+			final long heldPublic = System.nanoTime() - start;
+			System.out.println(String.format("Field get ns/op: direct: %.2f, Field: %.2f, keyed: %.2f, accessor: %.2f  Private invoke ns/op: keyed: %.2f, accessor: %.2f  Public invoke ns/op: direct: %.2f, keyed: %.2f, accessor: %.2f  (%s)",
+				(double)direct/loops, (double)reflect/loops, (double)keyed/loops, (double)held/loops,
+				(double)keyedInvoke/loops, (double)heldInvoke/loops,
+				(double)directPublic/loops, (double)keyedPublic/loops, (double)heldPublic/loops, sum));
+		}
+	}
+
 }
@@ -0,0 +1,48 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.system;
+
+/**
+ * <p>Title: IProcessOutputListener</p>
+ * <p>Description: Defines a class that receives the output of one process stream pumped by the {@link ProcessStreamPump}.
+ * Callbacks are made on a pump thread which is shared with other processes' streams, so implementations should not block for long.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.system.IProcessOutputListener</code></p>
+ */
+
+public interface IProcessOutputListener {
+	/**
+	 * Called when data is read from the process stream
+	 * @param process The process the data was read from
+	 * @param out true if the stream is <b><code>System.out</code></b>, false if it is <b><code>System.err</code></b>
+	 * @param data The buffer holding the data, which is reused once this call returns
+	 * @param offset The offset of the data in the buffer
+	 * @param length The number of bytes read
+	 */
+	public void onData(final Process process, final boolean out, final byte[] data, final int offset, final int length);
+
+	/**
+	 * Called once when the process stream ends
+	 * @param process The process the stream was read from
+	 * @param out true if the stream is <b><code>System.out</code></b>, false if it is <b><code>System.err</code></b>
+	 * @param bytes The total number of bytes read from the stream
+	 */
+	public void onEnd(final Process process, final boolean out, final long bytes);
+}
@@ -22,7 +22,6 @@ import java.io.File;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import com.heliosapm.utils.system.ProcessStreamHandlers.StreamToFileHandler;
 import com.heliosapm.utils.system.ProcessStreamHandlers.StreamToStreamHandler;
@@ -56,9 +55,6 @@ public class ProcessLauncher {
 	public static final File JRE_EXE = new File(JAVA_HOME.getAbsolutePath() + File.separator + "bin" + File.separator + "java" + (IS_WIN ? ".exe" : ""));
 	/** The java (jdk) executable */
 	public static final File JDK_EXE = new File(JAVA_HOME.getAbsolutePath() + File.separator + ".." + File.separator + "bin" + File.separator + "java" + (IS_WIN ? ".exe" : ""));
-	
-	/** A process watcher thread serial factory */
-	private static final AtomicInteger threadSerial = new AtomicInteger();
 
 	
 	/**
@@ -251,7 +247,7 @@ public class ProcessLauncher {
 	 * @return the process
 	 */
 	public Process execute(final boolean streamHandler, final String prefix) {
-		pb = new ProcessBuilder(cmds);
+		pb = new ProcessBuilder(cmds).redirectErrorStream(redirectErr);
 		try {
 			final Process p = pb.start();
 			if(streamHandler) {
@@ -266,41 +262,20 @@ public class ProcessLauncher {
 	/**
 	 * Executes the configured process.
 	 * Note that no stream handlers are implicitly added.
+	 * The handlers are notified of the process end by the shared {@link ProcessStreamPump} rather than a watcher thread.
 	 * @return the process
 	 */
 	public Process execute() {
-		pb = new ProcessBuilder(cmds);
+		pb = new ProcessBuilder(cmds).redirectErrorStream(redirectErr);
 		try {
 			final Process p = pb.start();
-			boolean listeners = false;
 			if(outHandler!=null) {
 				outHandler.handleStream(p.getInputStream(), true, p);
-				listeners = true;
 			}
 			if(!pb.redirectErrorStream() && errHandler!=null) {
-				errHandler.handleStream(p.getErrorStream(), true, p);
-				listeners = true;
-			}
-			if(listeners) {
-				final Thread watcher = new Thread("ProcessWatcherThread " + cmds.toString()) {
-					public void run() {
-						try {
-							final int exitCode = p.waitFor();
-							try {
-								if(outHandler != null) outHandler.onProcessEnd(p, exitCode);
-							} catch (Exception x) {/* No Op */}
-							try {
-								if(errHandler != null) errHandler.onProcessEnd(p, exitCode);
-							} catch (Exception x) {/* No Op */}
-							
-						} catch (InterruptedException ex) {
-							System.err.println("Process Watcher Thread was interrupted:" + ex);
-						}
-					}
-				};
-				watcher.setDaemon(true);
-				watcher.start();
+				errHandler.handleStream(p.getErrorStream(), false, p);
 			}
+			ProcessStreamPump.getInstance().watch(p, outHandler, errHandler);
 			return p;
 		} catch (Exception ex) {
 			throw new RuntimeException("Failed to start process [" + cmds + "]", ex);
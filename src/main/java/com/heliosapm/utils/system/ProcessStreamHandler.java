@@ -18,15 +18,16 @@ under the License.
  */
 package com.heliosapm.utils.system;
 
-import java.io.InputStream;
 import java.io.PrintStream;
 import java.nio.charset.Charset;
-import java.util.concurrent.atomic.AtomicInteger;
+
+import com.heliosapm.utils.system.ProcessStreamPump.LineListener;
+import com.heliosapm.utils.system.ProcessStreamPump.PumpedStream;
 
 /**
  * <p>Title: ProcessStreamHandler</p>
- * <p>Description: Simple utility to sping up two threads and handle the incoming
- * out and err streams (such as from a process) and redirect to this JVM's stdout and stderr.</p> 
+ * <p>Description: Simple utility to handle the incoming out and err streams of a process
+ * and redirect them, line by line, to this JVM's stdout and stderr. The streams are read by the shared {@link ProcessStreamPump}.</p> 
  * <p>Company: Helios Development Group LLC</p>
  * @author Whitehead (nwhitehead AT heliosdev DOT org)
  * <p><code>com.heliosapm.utils.system.ProcessStreamHandler</code></p>
@@ -34,9 +35,11 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 public class ProcessStreamHandler {
 	final Process process;
-	final Thread outThread;
-	final Thread errThread;
 	final String prefix;
+	/** The pumped out stream, or null if not handled */
+	final PumpedStream outStream;
+	/** The pumped err stream, or null if not handled */
+	final PumpedStream errStream;
 	
 	/** The UTF character set */
 	public static final Charset UTF8 = Charset.forName("UTF8");
@@ -51,10 +54,9 @@ public class ProcessStreamHandler {
 	public ProcessStreamHandler(final Process process, final String prefix, final boolean handleOut, final boolean handleErr) {
 		this.process = process;
 		this.prefix = "[" + prefix + "]";
-		outThread = new StreamThread(process.getInputStream(), System.out);
-		errThread = new StreamThread(process.getErrorStream(), System.err);
-		outThread.start();
-		errThread.start();
+		final ProcessStreamPump pump = ProcessStreamPump.getInstance();
+		outStream = handleOut ? pump.pump(process, process.getInputStream(), true, new PrefixPrinter(System.out)) : null;
+		errStream = handleErr ? pump.pump(process, process.getErrorStream(), false, new PrefixPrinter(System.err)) : null;
 	}
 	
 	/**
@@ -66,42 +68,51 @@ public class ProcessStreamHandler {
 		this(process, prefix, true, true);
 	}
 	
+	/**
+	 * Returns the number of bytes read from the process's system.out so far
+	 * @return the number of bytes read, or -1 if system.out is not handled
+	 */
+	public long getOutBytes() {
+		return outStream==null ? -1L : outStream.getBytes();
+	}
+	
+	/**
+	 * Returns the number of bytes read from the process's system.err so far
+	 * @return the number of bytes read, or -1 if system.err is not handled
+	 */
+	public long getErrBytes() {
+		return errStream==null ? -1L : errStream.getBytes();
+	}
 	
-	private class StreamThread extends Thread {
-		/** The incoming stream */
-		final InputStream in;
-		/** The outbound print writer to redirect to */
+	/**
+	 * Indicates if all the handled streams have ended
+	 * @return true if all the handled streams have ended
+	 */
+	public boolean isDone() {
+		return (outStream==null || outStream.isDone()) && (errStream==null || errStream.isDone());
+	}
+	
+	
+	private class PrefixPrinter extends LineListener {
+		/** The outbound print stream to redirect to */
 		final PrintStream out;
 		
 		/**
-		 * Creates a new StreamThread
-		 * @param in The incoming stream
-		 * @param out The outbound print writer to redirect to
+		 * Creates a new PrefixPrinter
+		 * @param out The outbound print stream to redirect to
 		 */
-		public StreamThread(final InputStream in, final PrintStream out) {
-			super("Process Stream Handler for Process [" + process + "]");
-			this.setDaemon(true);
-			this.in = in;
+		PrefixPrinter(final PrintStream out) {
 			this.out = out;
 		}
 		
 		/**
 		 * {@inheritDoc}
-		 * @see java.lang.Thread#run()
+		 * @see com.heliosapm.utils.system.ProcessStreamPump.LineListener#onLine(java.lang.Process, boolean, java.lang.String)
 		 */
-		public void run() {
-			int bytesRead = 0;
-			byte[] buff = new byte[1024];
-			while(true) {
-				try {
-					while((bytesRead = in.read(buff))!=-1) {						
-						out.print(prefix + new String(buff, 0, bytesRead));
-					}
-				} catch (Exception x) {/* No Op */}
-			}
+		@Override
+		protected void onLine(final Process process, final boolean isOut, final String line) {
+			out.println(prefix + line);
 		}
-		
-		
 	}
 
 }
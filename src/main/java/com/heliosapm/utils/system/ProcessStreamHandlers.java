@@ -24,11 +24,13 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.heliosapm.utils.system.ProcessStreamPump.PumpedStream;
 
 /**
  * <p>Title: ProcessStreamHandlers</p>
- * <p>Description: Some commonly used {@link IProcessStreamHandler} implementations</p> 
+ * <p>Description: Some commonly used {@link IProcessStreamHandler} implementations.
+ * The redirecting handlers read their streams on the shared {@link ProcessStreamPump} rather than a thread each.</p> 
  * <p>Company: Helios Development Group LLC</p>
  * @author Whitehead (nwhitehead AT heliosdev DOT org)
  * <p><code>com.heliosapm.utils.system.ProcessStreamHandlers</code></p>
@@ -38,7 +40,7 @@ public class ProcessStreamHandlers {
 
 	/** The default {@link BufferedOutputStream} buffer size */
 	public static final int BOS_BUFFER_SIZE = 8192 * 3;
-	/** The default transfer byte array size */
+	/** The default transfer byte array size. Retained for compatibility: the transfer buffer now belongs to the {@link ProcessStreamPump} */
 	public static final int BA_BUFFER_SIZE = 8192;
 	
 	
@@ -83,10 +85,8 @@ public class ProcessStreamHandlers {
 		final BufferedOutputStream bos;
 		/** The transfer byte array size */
 		final int baSize;
-		/** Flag set to false when the process end is signalled */
-		final AtomicBoolean running = new AtomicBoolean(true);
-		/** The reader thread */
-		protected Thread readerThread = null;
+		/** The pumped stream */
+		protected volatile PumpedStream pumped = null;
 		
 		/**
 		 * Creates a new StreamToStreamHandler
@@ -118,25 +118,21 @@ public class ProcessStreamHandlers {
 		 */
 		@Override
 		public void handleStream(final InputStream in, final boolean out, final Process process) {
-			final byte[] transfer = new byte[baSize];
-			readerThread = new Thread("StreamHandler-" + os + (out ? "-out" : "-err") + "Thread") {
-				public void run() {
-					int bytesRead = -1;
-					while(running.get()) {
-						try {
-							bytesRead = in.read(transfer);
-							if(bytesRead == -1) break;
-							bos.write(transfer, 0, bytesRead);
-						} catch (IOException iex) {
-							// TODO: what do we do here ?
-						}
+			pumped = ProcessStreamPump.getInstance().pump(process, in, out, new IProcessOutputListener() {
+				@Override
+				public void onData(final Process process, final boolean out, final byte[] data, final int offset, final int length) {
+					try {
+						bos.write(data, offset, length);
+					} catch (IOException iex) {
+						// TODO: what do we do here ?
 					}
+				}
+				@Override
+				public void onEnd(final Process process, final boolean out, final long bytes) {
 					try { bos.flush(); } catch (Exception x) {/* No Op */} 
 					try { bos.close(); } catch (Exception x) {/* No Op */}
 				}
-			};
-			readerThread.setDaemon(true);
-			readerThread.start();
+			});
 		}
 		
 		/**
@@ -145,10 +141,16 @@ public class ProcessStreamHandlers {
 		 */
 		@Override
 		public void onProcessEnd(final Process process, final int exitCode) {			
-			running.set(false);
-			if(readerThread!=null) {
-				try { readerThread.interrupt(); } catch (Exception x) {/* No Op */}
-			}
+			/* No Op: the output is closed when the pump reaches the end of the stream */
+		}
+		
+		/**
+		 * Returns the number of bytes written so far
+		 * @return the number of bytes written
+		 */
+		public long getBytes() {
+			final PumpedStream ps = pumped;
+			return ps==null ? 0L : ps.getBytes();
 		}
 		
 		
@@ -172,10 +174,8 @@ public class ProcessStreamHandlers {
 		final BufferedOutputStream bos;
 		/** The transfer byte array size */
 		final int baSize;
-		/** Flag set to false when the process end is signalled */
-		final AtomicBoolean running = new AtomicBoolean(true);
-		/** The reader thread */
-		protected Thread readerThread = null;
+		/** The pumped stream */
+		protected volatile PumpedStream pumped = null;
 		
 		/**
 		 * Creates a new StreamToFileHandler
@@ -230,27 +230,23 @@ public class ProcessStreamHandlers {
 		 */
 		@Override
 		public void handleStream(final InputStream in, final boolean out, final Process process) {
-			final byte[] transfer = new byte[baSize];
-			readerThread = new Thread("StreamHandler-" + output + (out ? "-out" : "-err") + "Thread") {
-				public void run() {
-					int bytesRead = -1;
-					while(running.get()) {
-						try {
-							bytesRead = in.read(transfer);
-							if(bytesRead == -1) break;
-							bos.write(transfer, 0, bytesRead);
-						} catch (IOException iex) {
-							// TODO: what do we do here ?
-						}
+			pumped = ProcessStreamPump.getInstance().pump(process, in, out, new IProcessOutputListener() {
+				@Override
+				public void onData(final Process process, final boolean out, final byte[] data, final int offset, final int length) {
+					try {
+						bos.write(data, offset, length);
+					} catch (IOException iex) {
+						// TODO: what do we do here ?
 					}
+				}
+				@Override
+				public void onEnd(final Process process, final boolean out, final long bytes) {
 					try { bos.flush(); } catch (Exception x) {/* No Op */} 
 					try { fos.flush(); } catch (Exception x) {/* No Op */}
 					try { bos.close(); } catch (Exception x) {/* No Op */}
 					try { fos.close(); } catch (Exception x) {/* No Op */}
 				}
-			};
-			readerThread.setDaemon(true);
-			readerThread.start();
+			});
 		}
 		
 		/**
@@ -259,10 +255,16 @@ public class ProcessStreamHandlers {
 		 */
 		@Override
 		public void onProcessEnd(final Process process, final int exitCode) {			
-			running.set(false);
-			if(readerThread!=null) {
-				try { readerThread.interrupt(); } catch (Exception x) {/* No Op */}
-			}
+			/* No Op: the output is closed when the pump reaches the end of the stream */
+		}
+		
+		/**
+		 * Returns the number of bytes written so far
+		 * @return the number of bytes written
+		 */
+		public long getBytes() {
+			final PumpedStream ps = pumped;
+			return ps==null ? 0L : ps.getBytes();
 		}
 		
 		
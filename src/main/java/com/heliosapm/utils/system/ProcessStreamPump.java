@@ -0,0 +1,485 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.system;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.heliosapm.utils.config.ConfigurationHelper;
+import com.heliosapm.utils.jmx.JMXManagedThreadFactory;
+
+import jsr166e.LongAdder;
+
+/**
+ * <p>Title: ProcessStreamPump</p>
+ * <p>Description: Pumps the output streams of any number of processes from a small fixed set of shared pump threads,
+ * instead of a blocked reader thread per stream.</p>
+ * <p>Process pipes are not selectable channels, so each pump thread polls its streams' {@link InputStream#available()}
+ * and only reads what is available, parking with a backoff when none of its streams have data. A pump thread never blocks
+ * in a read, so once a stream's process has exited, the stream is drained of what becomes available until nothing has been
+ * available for the configured drain time, and is then closed. Each pass reads at most one transfer buffer per stream so a
+ * chatty process cannot starve the others, and the transfer buffer belongs to the pump thread, so memory does not grow with
+ * the number of processes. Nothing is queued: a listener that falls behind slows its pump thread and the process backs up
+ * into its own OS pipe.</p>
+ * <p>A stream whose pipe is inherited by a process that outlives the pumped process is closed once it has been idle for the
+ * drain time, and that process's later output is not pumped.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.system.ProcessStreamPump</code></p>
+ */
+
+public class ProcessStreamPump {
+	/** The singleton instance */
+	private static volatile ProcessStreamPump instance = null;
+	/** The singleton instance ctor lock */
+	private static final Object lock = new Object();
+
+	/** The config property name for the number of pump threads */
+	public static final String CONFIG_THREADS = "heliosutils.process.pump.threads";
+	/** The default number of pump threads */
+	public static final int DEFAULT_THREADS = 2;
+	/** The config property name for the pump thread transfer buffer size in bytes, which is also the maximum line length */
+	public static final String CONFIG_BUFFER_SIZE = "heliosutils.process.pump.buffersize";
+	/** The default transfer buffer size */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+	/** The config property name for the longest a pump thread parks for when its streams are idle, in ms */
+	public static final String CONFIG_MAX_IDLE_PARK = "heliosutils.process.pump.maxpark";
+	/** The default longest idle park in ms */
+	public static final int DEFAULT_MAX_IDLE_PARK = 10;
+	/** The config property name for how long an exited process's stream is drained after it was last found with data, in ms */
+	public static final String CONFIG_DRAIN_TIME = "heliosutils.process.pump.draintime";
+	/** The default drain time in ms */
+	public static final int DEFAULT_DRAIN_TIME = 100;
+
+	/** The pump threads */
+	private final Pumper[] pumpers;
+	/** The round robin pump thread selector */
+	private final AtomicInteger nextPumper = new AtomicInteger(0);
+	/** The transfer buffer size */
+	final int bufferSize;
+	/** The longest idle park in nanos */
+	private final long maxParkNanos;
+	/** The drain time in nanos */
+	private final long drainNanos;
+	/** The number of streams being pumped */
+	private final AtomicInteger activeStreams = new AtomicInteger(0);
+	/** The total number of streams pumped */
+	private final LongAdder totalStreams = new LongAdder();
+	/** The total number of bytes pumped */
+	private final LongAdder totalBytes = new LongAdder();
+
+	/**
+	 * Acquires the ProcessStreamPump singleton instance, starting the pump threads on first call
+	 * @return the ProcessStreamPump singleton instance
+	 */
+	public static ProcessStreamPump getInstance() {
+		if(instance==null) {
+			synchronized(lock) {
+				if(instance==null) {
+					instance = new ProcessStreamPump();
+				}
+			}
+		}
+		return instance;
+	}
+
+	private ProcessStreamPump() {
+		final int threads = Math.max(1, ConfigurationHelper.getIntSystemThenEnvProperty(CONFIG_THREADS, DEFAULT_THREADS));
+		bufferSize = Math.max(256, ConfigurationHelper.getIntSystemThenEnvProperty(CONFIG_BUFFER_SIZE, DEFAULT_BUFFER_SIZE));
+		maxParkNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, ConfigurationHelper.getIntSystemThenEnvProperty(CONFIG_MAX_IDLE_PARK, DEFAULT_MAX_IDLE_PARK)));
+		drainNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ConfigurationHelper.getIntSystemThenEnvProperty(CONFIG_DRAIN_TIME, DEFAULT_DRAIN_TIME)));
+		final ThreadFactory tf = JMXManagedThreadFactory.newThreadFactory("ProcessStreamPump", true);
+		pumpers = new Pumper[threads];
+		for(int i = 0; i < threads; i++) {
+			pumpers[i] = new Pumper();
+			pumpers[i].thread = tf.newThread(pumpers[i]);
+			pumpers[i].thread.start();
+		}
+	}
+
+	/**
+	 * Starts pumping a process stream to the passed listener
+	 * @param process The process the stream belongs to
+	 * @param in The stream to pump
+	 * @param out true if the stream is <b><code>System.out</code></b>, false if it is <b><code>System.err</code></b>
+	 * @param listener The listener the stream output is passed to
+	 * @return a handle on the pumped stream
+	 */
+	public PumpedStream pump(final Process process, final InputStream in, final boolean out, final IProcessOutputListener listener) {
+		if(process==null) throw new IllegalArgumentException("The passed process was null");
+		if(in==null) throw new IllegalArgumentException("The passed input stream was null");
+		if(listener==null) throw new IllegalArgumentException("The passed listener was null");
+		final PumpedStream ps = new PumpedStream(process, in, out, listener);
+		activeStreams.incrementAndGet();
+		totalStreams.increment();
+		assign(ps);
+		return ps;
+	}
+
+	/**
+	 * Calls {@link IProcessStreamHandler#onProcessEnd(Process, int)} on the passed handlers when the passed process exits.
+	 * The exit is detected by the pump threads so no watcher thread is started.
+	 * @param process The process to watch
+	 * @param handlers The handlers to notify. Nulls are ignored.
+	 */
+	public void watch(final Process process, final IProcessStreamHandler...handlers) {
+		if(process==null) throw new IllegalArgumentException("The passed process was null");
+		if(handlers==null || handlers.length==0) return;
+		assign(new ExitWatch(process, handlers));
+	}
+
+	private void assign(final Pumped p) {
+		final Pumper pumper = pumpers[(nextPumper.getAndIncrement() & Integer.MAX_VALUE) % pumpers.length];
+		pumper.incoming.add(p);
+		LockSupport.unpark(pumper.thread);
+	}
+
+	/**
+	 * Returns the number of pump threads
+	 * @return the number of pump threads
+	 */
+	public int getPumpThreads() {
+		return pumpers.length;
+	}
+
+	/**
+	 * Returns the number of streams being pumped
+	 * @return the number of streams being pumped
+	 */
+	public int getActiveStreams() {
+		return activeStreams.get();
+	}
+
+	/**
+	 * Returns the total number of streams pumped
+	 * @return the total number of streams pumped
+	 */
+	public long getTotalStreams() {
+		return totalStreams.longValue();
+	}
+
+	/**
+	 * Returns the total number of bytes pumped
+	 * @return the total number of bytes pumped
+	 */
+	public long getTotalBytes() {
+		return totalBytes.longValue();
+	}
+
+	/**
+	 * Determines if the passed process has exited
+	 * @param process The process to test
+	 * @return true if the process has exited
+	 */
+	static boolean exited(final Process process) {
+		try {
+			process.exitValue();
+			return true;
+		} catch (IllegalThreadStateException itse) {
+			return false;
+		}
+	}
+
+	/**
+	 * <p>Title: Pumped</p>
+	 * <p>Description: A unit of work serviced on every pass of a pump thread</p>
+	 */
+	private abstract static class Pumped {
+		/**
+		 * Services this unit of work
+		 * @param buf The pump thread's transfer buffer
+		 * @return the number of bytes pumped, or -1 if this unit of work is complete
+		 */
+		abstract int pump(byte[] buf);
+	}
+
+	/**
+	 * <p>Title: PumpedStream</p>
+	 * <p>Description: A handle on a pumped process stream</p>
+	 */
+	public final class PumpedStream extends Pumped {
+		/** The process the stream belongs to */
+		private final Process process;
+		/** The pumped stream */
+		private final InputStream in;
+		/** true for <b><code>System.out</code></b>, false for <b><code>System.err</code></b> */
+		private final boolean out;
+		/** The listener the output is passed to */
+		private final IProcessOutputListener listener;
+		/** The number of bytes read, only written by the owning pump thread */
+		private volatile long bytes = 0L;
+		/** Indicates the stream has ended */
+		private volatile boolean done = false;
+		/** The nano time the stream of the exited process is closed at unless more data is available, 0 while the process runs */
+		private long drainDeadline = 0L;
+
+		PumpedStream(final Process process, final InputStream in, final boolean out, final IProcessOutputListener listener) {
+			this.process = process;
+			this.in = in;
+			this.out = out;
+			this.listener = listener;
+		}
+
+		@Override
+		int pump(final byte[] buf) {
+			try {
+				final int available = in.available();
+				if(available <= 0) {
+					// the pipe may be held open by a process the exited process started, so it is never read blocking
+					if(drainDeadline!=0L) {
+						return System.nanoTime() - drainDeadline >= 0 ? end() : 0;
+					}
+					if(exited(process)) {
+						drainDeadline = System.nanoTime() + drainNanos;
+					}
+					return 0;
+				}
+				if(drainDeadline!=0L) {
+					drainDeadline = System.nanoTime() + drainNanos;
+				}
+				final int bytesRead = in.read(buf, 0, Math.min(available, buf.length));
+				if(bytesRead < 0) return end();
+				if(bytesRead > 0) {
+					bytes += bytesRead;
+					totalBytes.add(bytesRead);
+					try {
+						listener.onData(process, out, buf, 0, bytesRead);
+					} catch (Exception ex) {/* No Op */}
+				}
+				return bytesRead;
+			} catch (IOException iex) {
+				return end();
+			}
+		}
+
+		private int end() {
+			done = true;
+			activeStreams.decrementAndGet();
+			try { in.close(); } catch (Exception x) {/* No Op */}
+			try {
+				listener.onEnd(process, out, bytes);
+			} catch (Exception ex) {/* No Op */}
+			return -1;
+		}
+
+		/**
+		 * Returns the number of bytes read from the stream so far
+		 * @return the number of bytes read
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * Indicates if the stream has ended
+		 * @return true if the stream has ended
+		 */
+		public boolean isDone() {
+			return done;
+		}
+
+		/**
+		 * Returns the process the stream belongs to
+		 * @return the process
+		 */
+		public Process getProcess() {
+			return process;
+		}
+
+		/**
+		 * Indicates if the stream is the process's <b><code>System.out</code></b>
+		 * @return true for <b><code>System.out</code></b>, false for <b><code>System.err</code></b>
+		 */
+		public boolean isOut() {
+			return out;
+		}
+	}
+
+	/**
+	 * <p>Title: ExitWatch</p>
+	 * <p>Description: Notifies process stream handlers when a process exits</p>
+	 */
+	private static final class ExitWatch extends Pumped {
+		/** The watched process */
+		private final Process process;
+		/** The handlers to notify */
+		private final IProcessStreamHandler[] handlers;
+
+		ExitWatch(final Process process, final IProcessStreamHandler[] handlers) {
+			this.process = process;
+			this.handlers = handlers;
+		}
+
+		@Override
+		int pump(final byte[] buf) {
+			final int exitCode;
+			try {
+				exitCode = process.exitValue();
+			} catch (IllegalThreadStateException itse) {
+				return 0;
+			}
+			for(IProcessStreamHandler handler: handlers) {
+				if(handler==null) continue;
+				try {
+					handler.onProcessEnd(process, exitCode);
+				} catch (Exception x) {/* No Op */}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * <p>Title: Pumper</p>
+	 * <p>Description: A pump thread servicing its share of the pumped streams</p>
+	 */
+	private final class Pumper implements Runnable {
+		/** Newly assigned work */
+		final ConcurrentLinkedQueue<Pumped> incoming = new ConcurrentLinkedQueue<Pumped>();
+		/** The work this thread owns */
+		private final List<Pumped> owned = new ArrayList<Pumped>();
+		/** The transfer buffer, shared by all the streams this thread owns */
+		private final byte[] buf = new byte[bufferSize];
+		/** The pump thread */
+		Thread thread = null;
+
+		@Override
+		public void run() {
+			long parkNanos = 0L;
+			while(true) {
+				Pumped p = null;
+				while((p = incoming.poll())!=null) {
+					owned.add(p);
+				}
+				boolean pumped = false;
+				for(Iterator<Pumped> iter = owned.iterator(); iter.hasNext();) {
+					final int result = iter.next().pump(buf);
+					if(result < 0) {
+						iter.remove();
+					} else if(result > 0) {
+						pumped = true;
+					}
+				}
+				if(pumped) {
+					parkNanos = 0L;
+				} else if(owned.isEmpty() && incoming.isEmpty()) {
+					parkNanos = 0L;
+					LockSupport.park(this);
+				} else {
+					parkNanos = parkNanos==0L ? 100000L : Math.min(parkNanos * 2, maxParkNanos);
+					LockSupport.parkNanos(this, parkNanos);
+				}
+				Thread.interrupted();
+			}
+		}
+	}
+
+	/**
+	 * <p>Title: LineListener</p>
+	 * <p>Description: An {@link IProcessOutputListener} that splits the stream output into lines.
+	 * Lines longer than the pump's transfer buffer are split so a stream with no line breaks does not accumulate.
+	 * Each instance holds the partial line of one stream so instances must not be shared between streams.</p>
+	 */
+	public abstract static class LineListener implements IProcessOutputListener {
+		/** The character set the output is decoded with */
+		private final Charset charset;
+		/** The partial line */
+		private final byte[] line;
+		/** The length of the partial line */
+		private int length = 0;
+
+		/**
+		 * Creates a new LineListener decoding output with the passed character set
+		 * @param charset The character set the output is decoded with
+		 */
+		protected LineListener(final Charset charset) {
+			if(charset==null) throw new IllegalArgumentException("The passed charset was null");
+			this.charset = charset;
+			line = new byte[getInstance().bufferSize];
+		}
+
+		/**
+		 * Creates a new LineListener decoding output with the platform default character set
+		 */
+		protected LineListener() {
+			this(Charset.defaultCharset());
+		}
+
+		/**
+		 * Called for each line of output
+		 * @param process The process the line was read from
+		 * @param out true if the stream is <b><code>System.out</code></b>, false if it is <b><code>System.err</code></b>
+		 * @param line The line, without the line terminator
+		 */
+		protected abstract void onLine(final Process process, final boolean out, final String line);
+
+		/**
+		 * Called once when the stream ends, after any final unterminated line. No op by default.
+		 * @param process The process the stream was read from
+		 * @param out true if the stream is <b><code>System.out</code></b>, false if it is <b><code>System.err</code></b>
+		 * @param bytes The total number of bytes read from the stream
+		 */
+		protected void onLinesEnd(final Process process, final boolean out, final long bytes) {
+			/* No Op */
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * @see com.heliosapm.utils.system.IProcessOutputListener#onData(java.lang.Process, boolean, byte[], int, int)
+		 */
+		@Override
+		public void onData(final Process process, final boolean out, final byte[] data, final int offset, final int length) {
+			final int end = offset + length;
+			for(int i = offset; i < end; i++) {
+				final byte b = data[i];
+				if(b=='\n') {
+					flush(process, out);
+				} else {
+					if(this.length==line.length) flush(process, out);
+					line[this.length++] = b;
+				}
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * @see com.heliosapm.utils.system.IProcessOutputListener#onEnd(java.lang.Process, boolean, long)
+		 */
+		@Override
+		public void onEnd(final Process process, final boolean out, final long bytes) {
+			if(length > 0) flush(process, out);
+			onLinesEnd(process, out, bytes);
+		}
+
+		private void flush(final Process process, final boolean out) {
+			int len = length;
+			if(len > 0 && line[len-1]=='\r') len--;
+			length = 0;
+			onLine(process, out, new String(line, 0, len, charset));
+		}
+	}
+}
@@ -0,0 +1,446 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.unsafe;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.cliffc.high_scale_lib.NonBlockingHashMapLong;
+
+import jsr166e.LongAdder;
+
+import sun.misc.Unsafe;
+
+/**
+ * <p>Title: SlabAllocator</p>
+ * <p>Description: A size-classed slab allocator for off-heap memory. Arenas are reserved from the OS and carved into page aligned pages,
+ * each page serving blocks of a single power of two size class from 16 bytes to 32KB. Each thread allocates from and frees to its own
+ * per class cache, which exchanges blocks with the class's central free list in batches, so most allocations and frees take no lock and make no native call.</p>
+ * <p>Freed blocks stay reserved for their size class and arenas are never returned to the OS.</p> 
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.unsafe.SlabAllocator</code></p>
+ */
+public class SlabAllocator {
+	/** The page size shift */
+	public static final int PAGE_SHIFT = 16;
+	/** The page size in bytes. Each page is carved into blocks of a single size class. */
+	public static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	/** The smallest block size shift */
+	public static final int MIN_BLOCK_SHIFT = 4;
+	/** The largest block size shift */
+	public static final int MAX_BLOCK_SHIFT = 15;
+	/** The smallest block size in bytes */
+	public static final int MIN_BLOCK_SIZE = 1 << MIN_BLOCK_SHIFT;
+	/** The largest block size in bytes. Larger requests are not served by the slab allocator. */
+	public static final int MAX_BLOCK_SIZE = 1 << MAX_BLOCK_SHIFT;
+	/** The number of size classes */
+	public static final int SIZE_CLASSES = MAX_BLOCK_SHIFT - MIN_BLOCK_SHIFT + 1;
+	/** The system property defining the number of pages reserved per arena */
+	public static final String ARENA_PAGES_PROP = "unsafe.memory.slab.arena";
+	/** The default number of pages reserved per arena (4MB) */
+	public static final int DEFAULT_ARENA_PAGES = 64;
+	/** The maximum number of blocks moved between a thread cache and a central free list at a time */
+	private static final int MAX_BATCH = 32;
+
+	/** The number of pages reserved per arena */
+	private final int arenaPages;
+	/** Indicates if live block counts are tracked */
+	private final boolean track;
+	/** The size class of each carved page keyed by the page number (address &gt;&gt;&gt; PAGE_SHIFT) */
+	private final NonBlockingHashMapLong<Integer> pageClasses = new NonBlockingHashMapLong<Integer>(256, false);
+	/** The central free lists, one per size class */
+	private final CentralList[] central = new CentralList[SIZE_CLASSES];
+	/** The thread caches */
+	private final ThreadLocal<ThreadCache> caches = new ThreadLocal<ThreadCache>() {
+		@Override
+		protected ThreadCache initialValue() {
+			final ThreadCache cache = new ThreadCache(Thread.currentThread());
+			allCaches.add(cache);
+			return cache;
+		}
+	};
+	/** All thread caches, so the blocks cached by terminated threads can be reclaimed */
+	private final ConcurrentLinkedQueue<ThreadCache> allCaches = new ConcurrentLinkedQueue<ThreadCache>();
+	/** Indicates if any page has been carved, so frees of addresses the allocator does not own can skip the page lookup */
+	private volatile boolean active = false;
+
+	/** The arena lock */
+	private final Object arenaLock = new Object();
+	/** The next unused page in the current arena */
+	private long arenaNext = 0L;
+	/** The end of the current arena */
+	private long arenaEnd = 0L;
+
+	/** The total reserved arena memory in bytes */
+	private final AtomicLong reserved = new AtomicLong(0L);
+	/** The number of arenas */
+	private final AtomicLong arenas = new AtomicLong(0L);
+	/** The number of carved pages */
+	private final AtomicLong pages = new AtomicLong(0L);
+	/** The number of batches moved from a central free list to a thread cache */
+	private final LongAdder refills = new LongAdder();
+	/** The number of batches moved from a thread cache to a central free list */
+	private final LongAdder flushes = new LongAdder();
+	/** The number of live blocks */
+	private final LongAdder liveBlocks = new LongAdder();
+	/** The live block memory in bytes */
+	private final LongAdder liveBytes = new LongAdder();
+
+	/**
+	 * <p>Title: CentralList</p>
+	 * <p>Description: The shared free list of a size class</p>
+	 */
+	private static final class CentralList {
+		/** The free block addresses */
+		long[] blocks = new long[MAX_BATCH * 4];
+		/** The number of free blocks */
+		int count = 0;
+
+		void push(final long address) {
+			if(count==blocks.length) blocks = Arrays.copyOf(blocks, count << 1);
+			blocks[count++] = address;
+		}
+	}
+
+	/**
+	 * <p>Title: ThreadCache</p>
+	 * <p>Description: A thread's free blocks, one stack per size class</p>
+	 */
+	private static final class ThreadCache {
+		/** The owning thread */
+		final WeakReference<Thread> owner;
+		/** The cached block addresses per size class */
+		final long[][] blocks = new long[SIZE_CLASSES][];
+		/** The number of cached blocks per size class */
+		final int[] counts = new int[SIZE_CLASSES];
+
+		ThreadCache(final Thread owner) {
+			this.owner = new WeakReference<Thread>(owner);
+			for(int i = 0; i < SIZE_CLASSES; i++) {
+				blocks[i] = new long[batch(i) << 1];
+			}
+		}
+
+		boolean isDead() {
+			final Thread t = owner.get();
+			return t==null || !t.isAlive();
+		}
+	}
+
+	/**
+	 * Creates a new SlabAllocator. No memory is reserved until the first allocation.
+	 * @param track true to track live block counts and memory
+	 */
+	public SlabAllocator(final boolean track) {
+		this.track = track;
+		arenaPages = Math.max(1, Integer.getInteger(ARENA_PAGES_PROP, DEFAULT_ARENA_PAGES));
+		for(int i = 0; i < SIZE_CLASSES; i++) {
+			central[i] = new CentralList();
+		}
+	}
+
+	/**
+	 * Returns the size class index for the passed size
+	 * @param size The requested size in bytes
+	 * @return the size class index
+	 */
+	static int sizeClass(final long size) {
+		return Math.max(0, 64 - Long.numberOfLeadingZeros(size - 1) - MIN_BLOCK_SHIFT);
+	}
+
+	/**
+	 * Returns the block size of the passed size class
+	 * @param cls The size class index
+	 * @return the block size in bytes
+	 */
+	static int blockSize(final int cls) {
+		return 1 << (cls + MIN_BLOCK_SHIFT);
+	}
+
+	/**
+	 * Returns the number of blocks moved between a thread cache and the central free list at a time for the passed size class
+	 * @param cls The size class index
+	 * @return the batch size
+	 */
+	static int batch(final int cls) {
+		return Math.max(2, Math.min(MAX_BATCH, (PAGE_SIZE >> (cls + MIN_BLOCK_SHIFT)) >> 2));
+	}
+
+	/**
+	 * Allocates a block of at least the passed size. The block is aligned to its size and is not zeroed.
+	 * @param size The requested size in bytes, which must not exceed {@link #MAX_BLOCK_SIZE}
+	 * @return the address of the block
+	 */
+	public long allocate(final long size) {
+		if(size < 1 || size > MAX_BLOCK_SIZE) throw new IllegalArgumentException("Invalid slab allocation size [" + size + "]");
+		final int cls = sizeClass(size);
+		final ThreadCache cache = caches.get();
+		int n = cache.counts[cls];
+		if(n==0) n = refill(cache, cls);
+		final long address = cache.blocks[cls][--n];
+		cache.counts[cls] = n;
+		if(track) {
+			liveBlocks.increment();
+			liveBytes.add(blockSize(cls));
+		}
+		return address;
+	}
+
+	/**
+	 * Returns a block to the allocator. Blocks are returned to the calling thread's cache and
+	 * handed back to the size class's central free list in batches. Freeing a block twice corrupts the free lists.
+	 * @param address The address of the block
+	 * @return true if the block was allocated by this allocator and freed, false if the address is not owned by this allocator
+	 */
+	public boolean free(final long address) {
+		if(!active) return false;
+		final Integer c = pageClasses.get(address >>> PAGE_SHIFT);
+		if(c==null) return false;
+		final int cls = c;
+		final ThreadCache cache = caches.get();
+		int n = cache.counts[cls];
+		if(n==cache.blocks[cls].length) n = flush(cache, cls);
+		cache.blocks[cls][n++] = address;
+		cache.counts[cls] = n;
+		if(track) {
+			liveBlocks.decrement();
+			liveBytes.add(-blockSize(cls));
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the size of the block at the passed address
+	 * @param address The address of the block
+	 * @return the block size in bytes, or -1 if the address is not owned by this allocator
+	 */
+	public int sizeOf(final long address) {
+		if(!active) return -1;
+		final Integer c = pageClasses.get(address >>> PAGE_SHIFT);
+		return c==null ? -1 : blockSize(c);
+	}
+
+	/**
+	 * Moves a batch of free blocks from the central free list to the passed thread cache,
+	 * reclaiming the caches of terminated threads or carving a new page if the central list is empty
+	 * @param cache The thread cache
+	 * @param cls The size class index
+	 * @return the number of blocks in the thread cache
+	 */
+	private int refill(final ThreadCache cache, final int cls) {
+		final CentralList list = central[cls];
+		int n = transfer(list, cache, cls);
+		if(n==0) {
+			reclaimDeadCaches();
+			synchronized(list) {
+				if(list.count==0) carve(list, cls);
+			}
+			n = transfer(list, cache, cls);
+		}
+		refills.increment();
+		return n;
+	}
+
+	private static int transfer(final CentralList list, final ThreadCache cache, final int cls) {
+		synchronized(list) {
+			final int n = Math.min(batch(cls), list.count);
+			list.count -= n;
+			System.arraycopy(list.blocks, list.count, cache.blocks[cls], 0, n);
+			cache.counts[cls] = n;
+			return n;
+		}
+	}
+
+	/**
+	 * Moves a batch of blocks from the passed thread cache to the central free list
+	 * @param cache The thread cache
+	 * @param cls The size class index
+	 * @return the number of blocks left in the thread cache
+	 */
+	private int flush(final ThreadCache cache, final int cls) {
+		final int n = cache.counts[cls];
+		final int keep = n - batch(cls);
+		final long[] blocks = cache.blocks[cls];
+		final CentralList list = central[cls];
+		synchronized(list) {
+			for(int i = keep; i < n; i++) {
+				list.push(blocks[i]);
+			}
+		}
+		cache.counts[cls] = keep;
+		flushes.increment();
+		return keep;
+	}
+
+	/**
+	 * Returns the blocks cached by terminated threads to the central free lists
+	 */
+	private void reclaimDeadCaches() {
+		for(Iterator<ThreadCache> iter = allCaches.iterator(); iter.hasNext();) {
+			final ThreadCache cache = iter.next();
+			if(!cache.isDead()) continue;
+			iter.remove();
+			for(int cls = 0; cls < SIZE_CLASSES; cls++) {
+				final int n = cache.counts[cls];
+				if(n==0) continue;
+				final CentralList list = central[cls];
+				synchronized(list) {
+					for(int i = 0; i < n; i++) {
+						list.push(cache.blocks[cls][i]);
+					}
+				}
+				cache.counts[cls] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Carves a new page into blocks of the passed size class and adds them to the central free list
+	 * @param list The central free list, which the caller holds the lock on
+	 * @param cls The size class index
+	 */
+	private void carve(final CentralList list, final int cls) {
+		final long page;
+		synchronized(arenaLock) {
+			if(arenaNext==arenaEnd) {
+				final long size = ((long)arenaPages << PAGE_SHIFT) + PAGE_SIZE;
+				final long address = UnsafeAdapter.allocateMemory(size);
+				reserved.addAndGet(size);
+				arenas.incrementAndGet();
+				arenaNext = (address + PAGE_SIZE - 1) & ~((long)PAGE_SIZE - 1);
+				arenaEnd = arenaNext + ((long)arenaPages << PAGE_SHIFT);
+			}
+			page = arenaNext;
+			arenaNext += PAGE_SIZE;
+		}
+		pageClasses.put(page >>> PAGE_SHIFT, Integer.valueOf(cls));
+		pages.incrementAndGet();
+		active = true;
+		final int blockSize = blockSize(cls);
+		// pushed in reverse so blocks are handed out in ascending address order
+		for(long address = page + PAGE_SIZE - blockSize; address >= page; address -= blockSize) {
+			list.push(address);
+		}
+	}
+
+	/**
+	 * Returns the total memory reserved for arenas in bytes
+	 * @return the reserved memory in bytes
+	 */
+	public long getReservedMemory() {
+		return reserved.get();
+	}
+
+	/**
+	 * Returns the number of reserved arenas
+	 * @return the number of arenas
+	 */
+	public long getArenaCount() {
+		return arenas.get();
+	}
+
+	/**
+	 * Returns the number of pages carved into blocks
+	 * @return the number of carved pages
+	 */
+	public long getPageCount() {
+		return pages.get();
+	}
+
+	/**
+	 * Returns the number of batches moved from the central free lists to thread caches
+	 * @return the number of refills
+	 */
+	public long getRefillCount() {
+		return refills.longValue();
+	}
+
+	/**
+	 * Returns the number of batches moved from thread caches to the central free lists
+	 * @return the number of flushes
+	 */
+	public long getFlushCount() {
+		return flushes.longValue();
+	}
+
+	/**
+	 * Returns the number of live blocks, or -1 if tracking is disabled
+	 * @return the number of live blocks
+	 */
+	public long getLiveBlocks() {
+		return track ? liveBlocks.longValue() : -1L;
+	}
+
+	/**
+	 * Returns the memory held by live blocks in bytes, or -1 if tracking is disabled
+	 * @return the live block memory in bytes
+	 */
+	public long getLiveMemory() {
+		return track ? liveBytes.longValue() : -1L;
+	}
+
+	/**
+	 * Allocate/free throughput benchmark against raw <b><code>Unsafe.allocateMemory</code></b>
+	 * @param args None
+	 */
+	public static void main(final String[] args) {
+		final SlabAllocator slab = new SlabAllocator(false);
+		final Unsafe unsafe = UnsafeAdapter.UNSAFE;
+		final int ops = 2000000;
+		final int batch = 1024;
+		final long[] addresses = new long[batch];
+		final int[] sizes = {16, 64, 256, 4096};
+		for(int loop = 0; loop < 3; loop++) {
+			for(int size: sizes) {
+				long start = System.nanoTime();
+				for(int i = 0; i < ops; i++) {
+					unsafe.freeMemory(unsafe.allocateMemory(size));
+				}
+				final long rawPair = System.nanoTime() - start;
+				start = System.nanoTime();
+				for(int i = 0; i < ops; i++) {
+					slab.free(slab.allocate(size));
+				}
+				final long slabPair = System.nanoTime() - start;
+				start = System.nanoTime();
+				for(int i = 0; i < ops; i += batch) {
+					for(int x = 0; x < batch; x++) addresses[x] = unsafe.allocateMemory(size);
+					for(int x = 0; x < batch; x++) unsafe.freeMemory(addresses[x]);
+				}
+				final long rawBatch = System.nanoTime() - start;
+				start = System.nanoTime();
+				for(int i = 0; i < ops; i += batch) {
+					for(int x = 0; x < batch; x++) addresses[x] = slab.allocate(size);
+					for(int x = 0; x < batch; x++) slab.free(addresses[x]);
+				}
+				final long slabBatch = System.nanoTime() - start;
+				if(loop==2) {
+					System.out.println(String.format("size %5d: alloc/free pair raw %5.1f ns, slab %5.1f ns | batch of %d raw %5.1f ns, slab %5.1f ns",
+						size, (double)rawPair/ops, (double)slabPair/ops, batch, (double)rawBatch/ops, (double)slabBatch/ops));
+				}
+			}
+		}
+		System.out.println("Arenas: " + slab.getArenaCount() + ", Pages: " + slab.getPageCount() + ", Reserved: " + slab.getReservedMemory()
+			+ ", Refills: " + slab.getRefillCount() + ", Flushes: " + slab.getFlushCount());
+	}
+}
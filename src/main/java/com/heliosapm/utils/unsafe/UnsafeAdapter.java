@@ -37,7 +37,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
@@ -125,6 +124,10 @@ public class UnsafeAdapter {
 public static final boolean trackMem;
 /** The configured native memory alignment enablement  */
 public static final boolean alignMem;
+/** The configured slab allocation enablement for {@link #allocateMemory(long)} */
+public static final boolean slabMem;
+/** The slab allocator */
+public static final SlabAllocator slabAllocator;
 
 
 ///** A set of the allocating/re-allocating callers */
@@ -172,6 +175,14 @@ public static void log(String fmt, Object...args) {
   	public static final String REFQ_SIZE= "RefQSize";
   	/** The map key for the pending phantom references */
   	public static final String PENDING_COUNT = "Pending";
+  	/** The map key for the memory reserved by the slab allocator in bytes */
+  	public static final String SLAB_RESERVED = "SlabReserved";
+  	/** The map key for the memory held by live slab blocks in bytes */
+  	public static final String SLAB_MEM = "SlabMemory";
+  	/** The map key for the number of live slab blocks */
+  	public static final String SLAB_COUNT = "SlabAllocations";
+  	/** The map key for the number of carved slab pages */
+  	public static final String SLAB_PAGES = "SlabPages";
   	
   	/**
   	 * Returns a map of unsafe memory stats keyed by the stat name
@@ -222,6 +233,30 @@ public static void log(String fmt, Object...args) {
   	 */
   	public int getPendingRefs();
   	
+  	/**
+  	 * Returns the off-heap memory reserved by the slab allocator in bytes
+  	 * @return the slab reserved memory
+  	 */
+  	public long getSlabReservedMemory();
+  	
+  	/**
+  	 * Returns the off-heap memory held by live slab blocks in bytes
+  	 * @return the slab live block memory
+  	 */
+  	public long getSlabAllocatedMemory();
+  	
+  	/**
+  	 * Returns the number of live slab blocks
+  	 * @return the number of live slab blocks
+  	 */
+  	public long getSlabAllocationCount();
+  	
+  	/**
+  	 * Returns the number of slab pages carved into blocks
+  	 * @return the number of slab pages
+  	 */
+  	public long getSlabPageCount();
+  	
 //  	/**
 // 	 * Returns the distinct native memory de-allocating callers
 // 	 * @return the distinct native memory de-allocating callers
@@ -283,6 +318,26 @@ public static void log(String fmt, Object...args) {
 	public int getPendingRefs() {			
 		return -1;
 	}
+
+	@Override
+	public long getSlabReservedMemory() {
+		return -1L;
+	}
+
+	@Override
+	public long getSlabAllocatedMemory() {
+		return -1L;
+	}
+
+	@Override
+	public long getSlabAllocationCount() {
+		return -1L;
+	}
+
+	@Override
+	public long getSlabPageCount() {
+		return -1L;
+	}
   	
   }
   
@@ -303,6 +358,14 @@ public static void log(String fmt, Object...args) {
   	public static final String REFQ_SIZE= "RefQSize";
   	/** The map key for the pending phantom references */
   	public static final String PENDING_COUNT = "Pending";
+  	/** The map key for the memory reserved by the slab allocator in bytes */
+  	public static final String SLAB_RESERVED = "SlabReserved";
+  	/** The map key for the memory held by live slab blocks in bytes */
+  	public static final String SLAB_MEM = "SlabMemory";
+  	/** The map key for the number of live slab blocks */
+  	public static final String SLAB_COUNT = "SlabAllocations";
+  	/** The map key for the number of carved slab pages */
+  	public static final String SLAB_PAGES = "SlabPages";
   	
   	/**
   	 * {@inheritDoc}
@@ -310,7 +373,7 @@ public static void log(String fmt, Object...args) {
   	 */
   	@Override
   	public Map<String, Long> getState() {
-  		Map<String, Long> map = new HashMap<String, Long>(6);
+  		Map<String, Long> map = new HashMap<String, Long>(16);
   		map.put(ALLOC_MEM, getTotalAllocatedMemory());
   		map.put(ALLOC_OVER, getAlignedMemoryOverhead());
   		map.put(ALLOC_MEMK, getTotalAllocatedMemoryKb());
@@ -318,6 +381,10 @@ public static void log(String fmt, Object...args) {
   		map.put(ALLOC_COUNT, (long)getTotalAllocationCount());
   		map.put(REFQ_SIZE, getRefQueueSize());
   		map.put(PENDING_COUNT, (long)getPendingRefs());    		
+  		map.put(SLAB_RESERVED, getSlabReservedMemory());
+  		map.put(SLAB_MEM, getSlabAllocatedMemory());
+  		map.put(SLAB_COUNT, getSlabAllocationCount());
+  		map.put(SLAB_PAGES, getSlabPageCount());
   		return map;
   	}
   	
@@ -420,6 +487,42 @@ public static void log(String fmt, Object...args) {
   	public int getPendingRefs() {
   		return deAllocs.size();
   	}
+  	
+  	/**
+  	 * {@inheritDoc}
+  	 * @see com.heliosapm.utils.unsafe.UnsafeAdapter.UnsafeMemoryMBean#getSlabReservedMemory()
+  	 */
+  	@Override
+  	public long getSlabReservedMemory() {
+  		return slabAllocator.getReservedMemory();
+  	}
+  	
+  	/**
+  	 * {@inheritDoc}
+  	 * @see com.heliosapm.utils.unsafe.UnsafeAdapter.UnsafeMemoryMBean#getSlabAllocatedMemory()
+  	 */
+  	@Override
+  	public long getSlabAllocatedMemory() {
+  		return slabAllocator.getLiveMemory();
+  	}
+  	
+  	/**
+  	 * {@inheritDoc}
+  	 * @see com.heliosapm.utils.unsafe.UnsafeAdapter.UnsafeMemoryMBean#getSlabAllocationCount()
+  	 */
+  	@Override
+  	public long getSlabAllocationCount() {
+  		return slabAllocator.getLiveBlocks();
+  	}
+  	
+  	/**
+  	 * {@inheritDoc}
+  	 * @see com.heliosapm.utils.unsafe.UnsafeAdapter.UnsafeMemoryMBean#getSlabPageCount()
+  	 */
+  	@Override
+  	public long getSlabPageCount() {
+  		return slabAllocator.getPageCount();
+  	}
 	
 	
   }
@@ -482,7 +585,6 @@ public static void log(String fmt, Object...args) {
   
   private static final Runnable deallocator = new Runnable() {
   	public void run() {
-  		latch.countDown();
   		//log(StringHelper.banner("Started Unsafe Memory Manager Thread"));
   		while(true) {
   			try {
@@ -496,14 +598,9 @@ public static void log(String fmt, Object...args) {
   	}
   };
   
-  private static final CountDownLatch latch = new CountDownLatch(1);
-  
   public static List<MemoryAllocationReference> registerForDeAlloc(DeAllocateMe...deallocators) {
-  	try {
-  		latch.await();
-  	} catch (Exception ex) {
-  		throw new RuntimeException(ex);
-  	}
+  	// No wait for the deallocator thread to start: the reference queue holds enqueued references until it does,
+  	// and a wait deadlocks when this is called during UnsafeAdapter's static initialization.
   	if(deallocators==null || deallocators.length==0) return EMPTY_ALLOC_LIST;
   	List<MemoryAllocationReference> refs = new ArrayList<MemoryAllocationReference>();
   	for(DeAllocateMe dame: deallocators) {
@@ -572,6 +669,8 @@ public static void log(String fmt, Object...args) {
           DEFINE_CLASS_8 = defineClassCount==4 ? false : true;
       	trackMem = System.getProperties().containsKey("unsafe.memory.track");   
       	alignMem = System.getProperties().containsKey("unsafe.memory.align");
+      	slabMem = System.getProperties().containsKey("unsafe.memory.slab");
+      	slabAllocator = new SlabAllocator(trackMem);
       	if(trackMem) {
       		unsafeMemoryStats = new UnsafeMemory();
       		memoryAllocations = new ConcurrentHashMap<Long, long[]>(1024);
@@ -675,6 +774,8 @@ public static Object allocateInstance(Class<?> clazz) throws InstantiationExcept
  * @return The size of the memory allocation in bytes
  */
 public static long sizeOf(long address) {
+	final int slabSize = slabAllocator.sizeOf(address);
+	if(slabSize!=-1) return slabSize;
 	if(trackMem) {
 		long[] alloc = memoryAllocations.get(address);
 		return alloc!=null ? alloc[0] : -1L;
@@ -708,6 +809,15 @@ private static long _allocateMemory(long size, long alignmentOverhead) {
  * @see sun.misc.Unsafe#reallocateMemory(long, long)
  */
 public static long _reallocateMemory(long address, long size, long alignmentOverhead) {
+	final int slabSize = slabAllocator.sizeOf(address);
+	if(slabSize!=-1) {
+		// a slab block stays in place if it is big enough, otherwise it is copied into a new allocation
+		if(size <= slabSize) return address;
+		final long newAddress = size <= SlabAllocator.MAX_BLOCK_SIZE ? slabAllocator.allocate(size) : _allocateMemory(size, alignmentOverhead);
+		UNSAFE.copyMemory(address, newAddress, slabSize);
+		slabAllocator.free(address);
+		return newAddress;
+	}
 	long newAddress = UNSAFE.reallocateMemory(address, size);
 	if(trackMem) {
 		// ==========================================================
@@ -731,12 +841,27 @@ public static long _reallocateMemory(long address, long size, long alignmentOver
 }
 
 /**
- * Allocates a chunk of memory and returns its address
+ * Allocates a chunk of memory and returns its address.
+ * If slab allocation is enabled (<b><code>unsafe.memory.slab</code></b>), requests up to {@link SlabAllocator#MAX_BLOCK_SIZE}
+ * are served by the {@link SlabAllocator}.
  * @param size The number of bytes to allocate
  * @return The address of the allocated memory
  * @see sun.misc.Unsafe#allocateMemory(long)
  */
 public static long allocateMemory(long size) {
+	if(slabMem && size > 0 && size <= SlabAllocator.MAX_BLOCK_SIZE) return slabAllocator.allocate(size);
+	return _allocateMemory(size, 0);
+}
+
+/**
+ * Allocates a chunk of memory from the {@link SlabAllocator} and returns its address.
+ * Requests larger than {@link SlabAllocator#MAX_BLOCK_SIZE} are allocated directly.
+ * The memory is released back to the slab by {@link #freeMemory(long)}.
+ * @param size The number of bytes to allocate
+ * @return The address of the allocated memory
+ */
+public static long allocateSlabMemory(long size) {
+	if(size > 0 && size <= SlabAllocator.MAX_BLOCK_SIZE) return slabAllocator.allocate(size);
 	return _allocateMemory(size, 0);
 }
 
@@ -747,6 +872,8 @@ public static long allocateMemory(long size) {
  * @see sun.misc.Unsafe#allocateMemory(long)
  */
 public static long allocateAlignedMemory(long size) {
+	// slab blocks are power of 2 sized and aligned to their size
+	if(slabMem && size > 0 && size <= SlabAllocator.MAX_BLOCK_SIZE) return slabAllocator.allocate(size);
 	if(alignMem && size <= MAX_ALIGNED_MEM) {
 		int actual = findNextPositivePowerOfTwo((int)size);
 		return _allocateMemory(actual, actual-size);
@@ -782,11 +909,13 @@ public static long reallocateAlignedMemory(long address, long size) {
 }	
 
 /**
- * Frees the memory allocated at the passed address
+ * Frees the memory allocated at the passed address.
+ * Slab allocated blocks are returned to the {@link SlabAllocator}.
  * @param address The address of the memory to free
  * @see sun.misc.Unsafe#freeMemory(long)
  */
 public static void freeMemory(long address) {
+	if(slabAllocator.free(address)) return;
 	if(trackMem) {
 		// ==========================================================
 		//  Subtract pervious allocation
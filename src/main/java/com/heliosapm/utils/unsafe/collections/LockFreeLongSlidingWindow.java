@@ -0,0 +1,688 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.unsafe.collections;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.heliosapm.utils.unsafe.UnsafeAdapter;
+
+/**
+ * <p>Title: LockFreeLongSlidingWindow</p>
+ * <p>Description: A fixed size sliding window of longs implemented as a sequence numbered ring in an off-heap {@link UnsafeLongArray}.
+ * Writers never lock: in {@link WriterMode#SINGLE_WRITER} mode the (one) writer simply publishes the next sequence, and in
+ * {@link WriterMode#MULTI_PRODUCER} mode each writer claims its slot by incrementing the shared head sequence.
+ * Bulk readers are wait-free: each slot is stamped with the sequence of the value it holds and a slot being overwritten
+ * while read is skipped rather than retried. A read or increment of one index waits for a writer that has claimed
+ * the index's sequence but not yet stamped its slot, as the window already counts that value, and resolves the
+ * index against the new head if the slot is overwritten first.</p>
+ * <p>Each slot occupies two longs in the backing array: <b><code>[stamp, value]</code></b> where the stamp is
+ * <b><code>sequence + 1</code></b> for a committed value, <b><code>0</code></b> for a never written slot and
+ * <b><code>-(sequence + 1)</code></b> while a write to the slot is in flight.</p>
+ * <p>As with {@link LongSlidingWindow}, index <b><code>0</code></b> is chronologically the most recent value.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.unsafe.collections.LockFreeLongSlidingWindow</code></p>
+ */
+
+public class LockFreeLongSlidingWindow implements ILongSlidingWindow {
+	/** The underlying UnsafeLongArray holding the interleaved stamps and values */
+	protected final UnsafeLongArray array;
+	/** The fixed size of the sliding window */
+	protected final int windowSize;
+	/** The writer mode */
+	protected final WriterMode writerMode;
+	/** The next sequence to be claimed by a writer */
+	protected final AtomicLong head = new AtomicLong(0L);
+	/** The sequence below which entries are considered cleared */
+	protected final AtomicLong floor = new AtomicLong(0L);
+
+	/**
+	 * <p>Title: WriterMode</p>
+	 * <p>Description: Enumerates the supported writer concurrency modes</p>
+	 * <p>Company: Helios Development Group LLC</p>
+	 * @author Whitehead (nwhitehead AT heliosdev DOT org)
+	 * <p><code>com.heliosapm.utils.unsafe.collections.LockFreeLongSlidingWindow.WriterMode</code></p>
+	 */
+	public static enum WriterMode {
+		/** Exactly one thread ever writes to the window. Writes are plain ordered stores. */
+		SINGLE_WRITER,
+		/** Any number of threads may write to the window. Slots are claimed by CAS. */
+		MULTI_PRODUCER;
+	}
+
+	/**
+	 * Creates a new multi producer LockFreeLongSlidingWindow
+	 * @param size the fixed size of the sliding window
+	 */
+	public LockFreeLongSlidingWindow(int size) {
+		this(size, WriterMode.MULTI_PRODUCER);
+	}
+
+	/**
+	 * Creates a new LockFreeLongSlidingWindow
+	 * @param size the fixed size of the sliding window
+	 * @param writerMode the writer concurrency mode
+	 */
+	public LockFreeLongSlidingWindow(int size, WriterMode writerMode) {
+		if(size<1) throw new IllegalArgumentException("Invalid window size: " + size);
+		if(writerMode==null) throw new IllegalArgumentException("The passed writer mode was null");
+		this.windowSize = size;
+		this.writerMode = writerMode;
+		array = UnsafeArrayBuilder.newBuilder().sorted(false).fixed(true).initialCapacity(size*2).maxCapacity(size*2).buildLongArray();
+	}
+
+	/**
+	 * Creates a new LockFreeLongSlidingWindow with the provided initial values
+	 * @param size the fixed size of the sliding window
+	 * @param writerMode the writer concurrency mode
+	 * @param values the initial values to load
+	 */
+	public LockFreeLongSlidingWindow(int size, WriterMode writerMode, long[] values) {
+		this(size, writerMode);
+		for(long v: values) {
+			insert(v);
+		}
+	}
+
+	/**
+	 * Deallocates this window's off-heap memory
+	 */
+	public void destroy() {
+		array.destroy();
+	}
+
+	/**
+	 * Returns the writer mode of this window
+	 * @return the writer mode
+	 */
+	public WriterMode getWriterMode() {
+		return writerMode;
+	}
+
+	/**
+	 * Returns the fixed capacity of this window
+	 * @return the fixed capacity
+	 */
+	public int capacity() {
+		return windowSize;
+	}
+
+	/**
+	 * Indicates if the window is full
+	 * @return true if the window is full, false otherwise
+	 */
+	public boolean isFull() {
+		return size()==windowSize;
+	}
+
+	// ==================================================================================
+	//			Slot access
+	// ==================================================================================
+
+	/**
+	 * Returns the address of the stamp for the passed sequence
+	 * @param seq The sequence
+	 * @return the stamp address
+	 */
+	private long stampAddress(final long seq) {
+		return array.address + ((seq % windowSize) << 4);
+	}
+
+	/**
+	 * Writes the passed value into the slot for the passed (already claimed) sequence
+	 * @param seq The claimed sequence
+	 * @param value The value to write
+	 * @return The dropped value if one was dropped, otherwise null
+	 */
+	private Long write(final long seq, final long value) {
+		final long stampAddr = stampAddress(seq);
+		final long valueAddr = stampAddr + 8;
+		final long committed = seq + 1;
+		long stamp;
+		if(writerMode==WriterMode.SINGLE_WRITER) {
+			stamp = UnsafeAdapter.getLongVolatile(null, stampAddr);
+			UnsafeAdapter.putLongVolatile(null, stampAddr, -committed);
+		} else {
+			while(true) {
+				stamp = UnsafeAdapter.getLongVolatile(null, stampAddr);
+				if(stamp<0) {
+					// another writer (a full lap ahead or behind) is in this slot
+					Thread.yield();
+					continue;
+				}
+				// a writer a full lap ahead of us already committed, so this value is already stale
+				if(stamp>committed) return null;
+				if(UnsafeAdapter.compareAndSwapLong(null, stampAddr, stamp, -committed)) break;
+			}
+		}
+		final Long dropped = (stamp!=0 && (stamp-1) >= floor.get()) ? UnsafeAdapter.getLongVolatile(null, valueAddr) : null;
+		UnsafeAdapter.putLongVolatile(null, valueAddr, value);
+		UnsafeAdapter.putOrderedLong(null, stampAddr, committed);
+		return dropped;
+	}
+
+	/**
+	 * Claims the next sequence
+	 * @return the claimed sequence
+	 */
+	private long claim() {
+		if(writerMode==WriterMode.SINGLE_WRITER) {
+			final long seq = head.get();
+			head.lazySet(seq+1);
+			return seq;
+		}
+		return head.getAndIncrement();
+	}
+
+	/**
+	 * Reads the committed value for the passed sequence without blocking.
+	 * @param seq The sequence to read
+	 * @param out A one slot array the value is written into
+	 * @return true if the value was read, false if the slot has been overwritten or is being written
+	 */
+	private boolean read(final long seq, final long[] out) {
+		final long stampAddr = stampAddress(seq);
+		final long committed = seq + 1;
+		if(UnsafeAdapter.getLongVolatile(null, stampAddr)!=committed) return false;
+		final long value = UnsafeAdapter.getLongVolatile(null, stampAddr + 8);
+		if(UnsafeAdapter.getLongVolatile(null, stampAddr)!=committed) return false;
+		out[0] = value;
+		return true;
+	}
+
+	/**
+	 * Reads the committed value for the passed sequence, waiting for a writer that claimed the sequence
+	 * or is writing it to stamp the slot.
+	 * @param seq The sequence to read
+	 * @param out A one slot array the value is written into
+	 * @return true if the value was read, false if the slot has been overwritten by a later sequence
+	 */
+	private boolean awaitRead(final long seq, final long[] out) {
+		final long stampAddr = stampAddress(seq);
+		final long committed = seq + 1;
+		while(true) {
+			if(read(seq, out)) return true;
+			final long stamp = UnsafeAdapter.getLongVolatile(null, stampAddr);
+			if((stamp<0 ? -stamp : stamp) > committed) return false;
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * Returns the lowest readable sequence given the passed head
+	 * @param h The current head sequence
+	 * @return the lowest readable sequence
+	 */
+	private long low(final long h) {
+		final long f = floor.get();
+		final long l = h - windowSize;
+		return l > f ? l : f;
+	}
+
+	// ==================================================================================
+	//			Writes
+	// ==================================================================================
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#insert(long[])
+	 */
+	@Override
+	public void insert(long... values) {
+		for(long v: values) {
+			write(claim(), v);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#insert(java.nio.LongBuffer)
+	 */
+	@Override
+	public void insert(LongBuffer longBuff) {
+		longBuff.position(0);
+		while(longBuff.remaining()>0) {
+			write(claim(), longBuff.get());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#insert(long)
+	 */
+	@Override
+	public Long insert(long value) {
+		return write(claim(), value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The index is relative to the most recent value. If the targeted value is claimed but not yet written,
+	 * the increment waits for the write. If it is overwritten before it can be incremented, the index is resolved
+	 * again against the new head.</p>
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#inc(int, long)
+	 */
+	@Override
+	public long inc(int index, long value) {
+		long stampAddr;
+		long committed;
+		resolve:
+		while(true) {
+			final long h = head.get();
+			final long seq = h - 1 - index;
+			if(index<0 || seq<low(h)) throw new ArrayOverflowException("Attempted to increment at index [" + index + "] but size is [" + size() + "]", new Throwable());
+			stampAddr = stampAddress(seq);
+			committed = seq + 1;
+			while(true) {
+				final long stamp = UnsafeAdapter.getLongVolatile(null, stampAddr);
+				if(stamp==committed) {
+					if(UnsafeAdapter.compareAndSwapLong(null, stampAddr, committed, -committed)) break resolve;
+					continue;
+				}
+				// overwritten by a later lap, so the index now refers to a newer sequence
+				if((stamp<0 ? -stamp : stamp) > committed) continue resolve;
+				// the sequence is claimed but not yet stamped, or being written or incremented
+				Thread.yield();
+			}
+		}
+		final long newValue = UnsafeAdapter.getLongVolatile(null, stampAddr + 8) + value;
+		UnsafeAdapter.putLongVolatile(null, stampAddr + 8, newValue);
+		UnsafeAdapter.putOrderedLong(null, stampAddr, committed);
+		return newValue;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#inc(int)
+	 */
+	@Override
+	public long inc(int index) {
+		return inc(index, 1L);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#inc(long)
+	 */
+	@Override
+	public long inc(long value) {
+		return inc(0, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#inc()
+	 */
+	@Override
+	public long inc() {
+		return inc(0, 1L);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>If the window is empty, the value is inserted.</p>
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#set(long)
+	 */
+	@Override
+	public void set(long value) {
+		if(isEmpty()) {
+			insert(value);
+			return;
+		}
+		final long current = get(0);
+		inc(0, value - current);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Logically clears the window by advancing the readable floor to the current head. Safe to call concurrently with writers.</p>
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#clear()
+	 */
+	@Override
+	public void clear() {
+		final long h = head.get();
+		while(true) {
+			final long f = floor.get();
+			if(f>=h || floor.compareAndSet(f, h)) break;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The byte array is expected to be in the format returned by {@link LongSlidingWindow#getBytes()},
+	 * i.e. most recent value first.</p>
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#load(byte[])
+	 */
+	@Override
+	public void load(byte[] arr) {
+		final long[] values = UnsafeLongArray.convert(arr);
+		for(int i = values.length-1; i >= 0; i--) {
+			insert(values[i]);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#reinitAndLoad(byte[])
+	 */
+	@Override
+	public void reinitAndLoad(byte[] arr) {
+		clear();
+		load(arr);
+	}
+
+	// ==================================================================================
+	//			Wait-free reads
+	// ==================================================================================
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#size()
+	 */
+	@Override
+	public int size() {
+		final long h = head.get();
+		return (int)(h - low(h));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#isEmpty()
+	 */
+	@Override
+	public boolean isEmpty() {
+		return size()==0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Waits for a value that is claimed but not yet written, and resolves the index again against the new head
+	 * if the value is overwritten before it can be read. Throws an {@link ArrayOverflowException} if the index is out of range.</p>
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#get(int)
+	 */
+	@Override
+	public long get(int index) {
+		final long[] out = new long[1];
+		while(true) {
+			final long h = head.get();
+			final long seq = h - 1 - index;
+			if(index<0 || seq<low(h)) throw new ArrayOverflowException("No value available at index [" + index + "]", new Throwable());
+			if(awaitRead(seq, out)) return out[0];
+		}
+	}
+
+	/**
+	 * Returns the most recent value in the array or -1L if the size is 0.
+	 * @return the most recent in the array or -1L if the size is 0.
+	 */
+	public long getNewest() {
+		final long h = head.get();
+		final long[] out = new long[1];
+		for(long seq = h-1, l = low(h); seq >= l; seq--) {
+			if(read(seq, out)) return out[0];
+		}
+		return -1L;
+	}
+
+	/**
+	 * Returns the oldest value in the array or -1L if the size is 0.
+	 * @return the oldest in the array or -1L if the size is 0.
+	 */
+	public long getOldest() {
+		final long h = head.get();
+		final long[] out = new long[1];
+		for(long seq = low(h); seq < h; seq++) {
+			if(read(seq, out)) return out[0];
+		}
+		return -1L;
+	}
+
+	/**
+	 * Returns a point in time copy of the readable values in this window, most recent first.
+	 * Values being written at the time of the read are omitted.
+	 * @return a long array
+	 */
+	public long[] asLongArray() {
+		final long h = head.get();
+		final long l = low(h);
+		final long[] snap = new long[(int)(h-l)];
+		final long[] out = new long[1];
+		int cnt = 0;
+		for(long seq = h-1; seq >= l; seq--) {
+			if(read(seq, out)) snap[cnt++] = out[0];
+		}
+		return cnt==snap.length ? snap : Arrays.copyOf(snap, cnt);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#asDoubleArray()
+	 */
+	@Override
+	public double[] asDoubleArray() {
+		final long[] snap = asLongArray();
+		final double[] d = new double[snap.length];
+		for(int i = 0; i < snap.length; i++) {
+			d[i] = snap[i];
+		}
+		return d;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#find(long)
+	 */
+	@Override
+	public int find(long value) {
+		final long h = head.get();
+		final long[] out = new long[1];
+		for(long seq = h-1, l = low(h); seq >= l; seq--) {
+			if(read(seq, out) && out[0]==value) return (int)(h - 1 - seq);
+		}
+		return -1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#sum(int)
+	 */
+	@Override
+	public long sum(int within) {
+		final long h = head.get();
+		final long l = Math.max(low(h), h - within);
+		final long[] out = new long[1];
+		long total = 0;
+		for(long seq = h-1; seq >= l; seq--) {
+			if(read(seq, out)) total += out[0];
+		}
+		return total;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#sum()
+	 */
+	@Override
+	public long sum() {
+		return sum(windowSize);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#avg(int)
+	 */
+	@Override
+	public long avg(int within) {
+		final long h = head.get();
+		final long l = Math.max(low(h), h - within);
+		final long[] out = new long[1];
+		double total = 0;
+		double cnt = 0;
+		for(long seq = h-1; seq >= l; seq--) {
+			if(read(seq, out)) {
+				total += out[0];
+				cnt++;
+			}
+		}
+		if(total==0 || cnt==0) return 0;
+		double d = total/cnt;
+		return (long)d;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#avg()
+	 */
+	@Override
+	public long avg() {
+		if(isEmpty()) return -1;
+		return avg(windowSize);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#min()
+	 */
+	@Override
+	public long min() {
+		final long h = head.get();
+		final long[] out = new long[1];
+		long min = Long.MAX_VALUE;
+		boolean found = false;
+		for(long seq = h-1, l = low(h); seq >= l; seq--) {
+			if(read(seq, out)) {
+				found = true;
+				if(out[0]<min) min = out[0];
+			}
+		}
+		return found ? min : 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.collections.ILongSlidingWindow#max()
+	 */
+	@Override
+	public long max() {
+		final long h = head.get();
+		final long[] out = new long[1];
+		long max = Long.MIN_VALUE;
+		boolean found = false;
+		for(long seq = h-1, l = low(h); seq >= l; seq--) {
+			if(read(seq, out)) {
+				found = true;
+				if(out[0]>max) max = out[0];
+			}
+		}
+		return found ? max : 0;
+	}
+
+	/**
+	 * Returns the pth percentile value from this window using the nearest rank formula.
+	 * @param p The percentile to get
+	 * @return the pth percentile value or -1L if the window is empty
+	 */
+	public long percentile(int p) {
+		if (p < 1 || p > 100) {
+			throw new IllegalArgumentException("invalid percentile: " + p);
+		}
+		final long[] snap = asLongArray();
+		if(snap.length==0) return -1L;
+		Arrays.sort(snap);
+		final double _pp = p/100d;
+		int ix = (int)((_pp*snap.length)+LongSlidingWindow.ONE_HALF);
+		if(ix>=snap.length) ix = snap.length-1;
+		return snap[ix];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return Arrays.toString(asLongArray());
+	}
+
+	/**
+	 * Runs a throughput comparison of this class against {@link ConcurrentLongSlidingWindow} at 1, 4 and 16 writer threads.
+	 * @param args Optional: [0]: the number of inserts per writer thread, [1]: the window size
+	 */
+	public static void main(String[] args) {
+		final int loops = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		final int size = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		LongSlidingWindow.log("LockFreeLongSlidingWindow Benchmark: loops/thread=" + loops + ", window=" + size);
+		for(int pass = 0; pass < 2; pass++) {
+			final boolean warmup = pass==0;
+			for(int threads: new int[]{1, 4, 16}) {
+				final ConcurrentLongSlidingWindow rw = new ConcurrentLongSlidingWindow(size);
+				final LockFreeLongSlidingWindow lf = new LockFreeLongSlidingWindow(size, threads==1 ? WriterMode.SINGLE_WRITER : WriterMode.MULTI_PRODUCER);
+				final long rwElapsed = bench(rw, threads, warmup ? loops/10 : loops);
+				final long lfElapsed = bench(lf, threads, warmup ? loops/10 : loops);
+				if(!warmup) {
+					LongSlidingWindow.log(String.format("Writers: %2d  RWLock: %,12d ops/s   LockFree(%s): %,12d ops/s",
+						threads, opsPerSec(threads, loops, rwElapsed), lf.getWriterMode(), opsPerSec(threads, loops, lfElapsed)));
+				}
+				rw.destroy();
+				lf.destroy();
+			}
+		}
+	}
+
+	private static long opsPerSec(final int threads, final int loops, final long elapsedNs) {
+		return (long)(((double)threads * loops) / elapsedNs * 1000000000d);
+	}
+
+	private static long bench(final ILongSlidingWindow window, final int threads, final int loops) {
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		final CountDownLatch endLatch = new CountDownLatch(threads);
+		for(int t = 0; t < threads; t++) {
+			final Thread thread = new Thread("LockFreeLongSlidingWindowBench#" + t) {
+				@Override
+				public void run() {
+					try {
+						startLatch.await();
+						for(int i = 0; i < loops; i++) {
+							window.insert((long)i);
+							if(i%1000==0) window.avg();
+						}
+					} catch (Exception ex) {
+						ex.printStackTrace(System.err);
+					} finally {
+						endLatch.countDown();
+					}
+				}
+			};
+			thread.setDaemon(true);
+			thread.start();
+		}
+		final long start = System.nanoTime();
+		startLatch.countDown();
+		try {
+			endLatch.await();
+		} catch (InterruptedException iex) {
+			throw new RuntimeException(iex);
+		}
+		return System.nanoTime() - start;
+	}
+
+}
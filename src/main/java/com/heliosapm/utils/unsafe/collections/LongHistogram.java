@@ -0,0 +1,526 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.heliosapm.utils.unsafe.collections;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.heliosapm.utils.unsafe.DeAllocateMe;
+import com.heliosapm.utils.unsafe.UnsafeAdapter;
+
+/**
+ * <p>Title: LongHistogram</p>
+ * <p>Description: An off-heap, log bucketed histogram of long values with a fixed relative error, in the style of HdrHistogram.
+ * Values are recorded in O(1) with a single CAS on the value's bucket counter, memory is fixed at construction and
+ * percentile queries are a single pass over the buckets regardless of how many values were recorded.</p>
+ * <p>The precision is defined by the number of significant decimal digits maintained: with 2 digits, any value
+ * is reported within 1% of its recorded value, with 3 digits within 0.1% etc.</p>
+ * <p>Recording is safe from any number of threads. Reads are not atomic across buckets so a percentile computed
+ * while values are being recorded reflects a consistent count per bucket, but not necessarily a consistent total.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.heliosapm.utils.unsafe.collections.LongHistogram</code></p>
+ */
+
+public class LongHistogram implements DeAllocateMe {
+	/** The highest value that can be tracked. Higher values are recorded as this value. */
+	protected final long highestTrackableValue;
+	/** The number of significant decimal digits maintained */
+	protected final int significantDigits;
+	/** The power of two magnitude of the sub bucket count */
+	protected final int subBucketCountMagnitude;
+	/** The power of two magnitude of half the sub bucket count */
+	protected final int subBucketHalfCountMagnitude;
+	/** The number of sub buckets in each bucket */
+	protected final int subBucketCount;
+	/** Half the number of sub buckets in each bucket */
+	protected final int subBucketHalfCount;
+	/** The mask applied to values to find the bucket */
+	protected final long subBucketMask;
+	/** The leading zero count base for bucket index calculation */
+	protected final int leadingZeroCountBase;
+	/** The number of buckets */
+	protected final int bucketCount;
+	/** The number of counters */
+	protected final int countsLength;
+	/** The addresses of the header and counts memory. [0][0] is the address, zeroed when destroyed. */
+	protected final long[][] addresses;
+
+	/** The header offset of the minimum recorded value */
+	private static final long MIN_OFFSET = 0;
+	/** The header offset of the maximum recorded value */
+	private static final long MAX_OFFSET = 8;
+	/** The header size in bytes */
+	private static final long HEADER_SIZE = 16;
+
+	/** The default number of significant digits */
+	public static final int DEFAULT_SIGNIFICANT_DIGITS = 2;
+	/** The default highest trackable value: one hour in nanoseconds */
+	public static final long DEFAULT_HIGHEST_TRACKABLE = 3600L * 1000L * 1000L * 1000L;
+
+	/**
+	 * Creates a new LongHistogram with the default highest trackable value and precision
+	 */
+	public LongHistogram() {
+		this(DEFAULT_HIGHEST_TRACKABLE, DEFAULT_SIGNIFICANT_DIGITS);
+	}
+
+	/**
+	 * Creates a new LongHistogram
+	 * @param highestTrackableValue The highest value that can be tracked. Must be at least 2.
+	 * @param significantDigits The number of significant decimal digits to maintain, from 0 to 5
+	 */
+	public LongHistogram(final long highestTrackableValue, final int significantDigits) {
+		if(highestTrackableValue < 2) throw new IllegalArgumentException("Invalid highest trackable value: " + highestTrackableValue);
+		if(significantDigits < 0 || significantDigits > 5) throw new IllegalArgumentException("Invalid number of significant digits: " + significantDigits);
+		this.highestTrackableValue = highestTrackableValue;
+		this.significantDigits = significantDigits;
+		final long largestSingleUnitResolution = 2 * (long)Math.pow(10, significantDigits);
+		subBucketCountMagnitude = (int)Math.ceil(Math.log(largestSingleUnitResolution)/Math.log(2));
+		subBucketHalfCountMagnitude = (subBucketCountMagnitude > 1 ? subBucketCountMagnitude : 1) - 1;
+		subBucketCount = (int)Math.pow(2, subBucketHalfCountMagnitude + 1);
+		subBucketHalfCount = subBucketCount / 2;
+		subBucketMask = subBucketCount - 1;
+		leadingZeroCountBase = 64 - subBucketHalfCountMagnitude - 1;
+		long smallestUntrackableValue = subBucketCount;
+		int buckets = 1;
+		while(smallestUntrackableValue <= highestTrackableValue) {
+			if(smallestUntrackableValue > (Long.MAX_VALUE / 2)) {
+				buckets++;
+				break;
+			}
+			smallestUntrackableValue <<= 1;
+			buckets++;
+		}
+		bucketCount = buckets;
+		countsLength = (bucketCount + 1) * subBucketHalfCount;
+		final long bytes = HEADER_SIZE + ((long)countsLength << 3);
+		final long address = UnsafeAdapter.allocateMemory(bytes);
+		UnsafeAdapter.setMemory(address, bytes, (byte)0);
+		addresses = new long[][] {{address}};
+		UnsafeAdapter.putLongVolatile(null, address + MIN_OFFSET, Long.MAX_VALUE);
+		UnsafeAdapter.registerForDeAlloc(this);
+	}
+
+	/**
+	 * Creates a new empty LongHistogram with the same configuration as this one
+	 * @return a new empty LongHistogram
+	 */
+	public LongHistogram newInstance() {
+		return new LongHistogram(highestTrackableValue, significantDigits);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.heliosapm.utils.unsafe.DeAllocateMe#getAddresses()
+	 */
+	@Override
+	public long[][] getAddresses() {
+		return addresses;
+	}
+
+	/**
+	 * Deallocates this histogram's off-heap memory
+	 */
+	public void destroy() {
+		final long address = addresses[0][0];
+		if(address!=0) {
+			addresses[0][0] = 0;
+			UnsafeAdapter.freeMemory(address);
+		}
+	}
+
+	/**
+	 * Returns the memory address, throwing if destroyed
+	 * @return the memory address
+	 */
+	private long address() {
+		final long address = addresses[0][0];
+		if(address==0) throw new IllegalStateException("This LongHistogram has been destroyed");
+		return address;
+	}
+
+	/**
+	 * Returns the address of the counter at the passed index
+	 * @param index The counter index
+	 * @return the counter address
+	 */
+	private long countAddress(final int index) {
+		return address() + HEADER_SIZE + ((long)index << 3);
+	}
+
+	// ==================================================================================
+	//			Index arithmetic
+	// ==================================================================================
+
+	private int bucketIndex(final long value) {
+		return leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+	}
+
+	private int subBucketIndex(final long value, final int bucketIndex) {
+		return (int)(value >>> bucketIndex);
+	}
+
+	private int countsIndex(final int bucketIndex, final int subBucketIndex) {
+		return ((bucketIndex + 1) << subBucketHalfCountMagnitude) + (subBucketIndex - subBucketHalfCount);
+	}
+
+	private int countsIndexFor(final long value) {
+		final int bi = bucketIndex(value);
+		return countsIndex(bi, subBucketIndex(value, bi));
+	}
+
+	private long valueFromIndex(final int index) {
+		int bi = (index >> subBucketHalfCountMagnitude) - 1;
+		int sbi = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+		if(bi < 0) {
+			sbi -= subBucketHalfCount;
+			bi = 0;
+		}
+		return ((long)sbi) << bi;
+	}
+
+	/**
+	 * Returns the lowest value equivalent to the passed value at this histogram's precision
+	 * @param value The value
+	 * @return the lowest equivalent value
+	 */
+	public long lowestEquivalentValue(final long value) {
+		final int bi = bucketIndex(value);
+		return ((long)subBucketIndex(value, bi)) << bi;
+	}
+
+	/**
+	 * Returns the highest value equivalent to the passed value at this histogram's precision
+	 * @param value The value
+	 * @return the highest equivalent value
+	 */
+	public long highestEquivalentValue(final long value) {
+		final int bi = bucketIndex(value);
+		final int sbi = subBucketIndex(value, bi);
+		final long range = 1L << (bi + (sbi >= subBucketCount ? 1 : 0));
+		return lowestEquivalentValue(value) + range - 1;
+	}
+
+	// ==================================================================================
+	//			Recording
+	// ==================================================================================
+
+	/**
+	 * Records a value
+	 * @param value The value to record. Values higher than the highest trackable value are recorded as the highest trackable value.
+	 */
+	public void record(final long value) {
+		record(value, 1L);
+	}
+
+	/**
+	 * Records a value a number of times
+	 * @param value The value to record. Values higher than the highest trackable value are recorded as the highest trackable value.
+	 * @param count The number of times to record the value
+	 */
+	public void record(final long value, final long count) {
+		if(value < 0) throw new IllegalArgumentException("Negative values cannot be recorded: " + value);
+		final long v = value > highestTrackableValue ? highestTrackableValue : value;
+		addAndGet(countAddress(countsIndexFor(v)), count);
+		final long address = address();
+		long current;
+		while(v < (current = UnsafeAdapter.getLongVolatile(null, address + MIN_OFFSET))) {
+			if(UnsafeAdapter.compareAndSwapLong(null, address + MIN_OFFSET, current, v)) break;
+		}
+		while(v > (current = UnsafeAdapter.getLongVolatile(null, address + MAX_OFFSET))) {
+			if(UnsafeAdapter.compareAndSwapLong(null, address + MAX_OFFSET, current, v)) break;
+		}
+	}
+
+	private static long addAndGet(final long address, final long delta) {
+		while(true) {
+			final long current = UnsafeAdapter.getLongVolatile(null, address);
+			final long next = current + delta;
+			if(UnsafeAdapter.compareAndSwapLong(null, address, current, next)) return next;
+		}
+	}
+
+	private static long getAndSet(final long address, final long value) {
+		while(true) {
+			final long current = UnsafeAdapter.getLongVolatile(null, address);
+			if(UnsafeAdapter.compareAndSwapLong(null, address, current, value)) return current;
+		}
+	}
+
+	/**
+	 * Adds the counts of the passed histogram into this one.
+	 * The passed histogram must have the same highest trackable value and precision.
+	 * @param other The histogram to add
+	 * @return this histogram
+	 */
+	public LongHistogram add(final LongHistogram other) {
+		if(other.highestTrackableValue!=highestTrackableValue || other.significantDigits!=significantDigits) {
+			throw new IllegalArgumentException("Cannot merge histograms with different configurations");
+		}
+		for(int i = 0; i < countsLength; i++) {
+			final long count = UnsafeAdapter.getLongVolatile(null, other.countAddress(i));
+			if(count!=0) addAndGet(countAddress(i), count);
+		}
+		if(other.getTotalCount() > 0) {
+			final long address = address();
+			final long omin = other.getMin(), omax = other.getMax();
+			long current;
+			while(omin < (current = UnsafeAdapter.getLongVolatile(null, address + MIN_OFFSET))) {
+				if(UnsafeAdapter.compareAndSwapLong(null, address + MIN_OFFSET, current, omin)) break;
+			}
+			while(omax > (current = UnsafeAdapter.getLongVolatile(null, address + MAX_OFFSET))) {
+				if(UnsafeAdapter.compareAndSwapLong(null, address + MAX_OFFSET, current, omax)) break;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Returns a new histogram containing the values recorded in this histogram since the last interval snapshot (or creation)
+	 * and resets this histogram. Values recorded concurrently are never lost: each is counted in either the returned
+	 * snapshot or the next one.
+	 * @return the interval histogram
+	 */
+	public LongHistogram intervalSnapshot() {
+		final LongHistogram snap = newInstance();
+		final long address = address();
+		final long snapAddress = snap.address();
+		UnsafeAdapter.putLongVolatile(null, snapAddress + MIN_OFFSET, getAndSet(address + MIN_OFFSET, Long.MAX_VALUE));
+		UnsafeAdapter.putLongVolatile(null, snapAddress + MAX_OFFSET, getAndSet(address + MAX_OFFSET, 0L));
+		for(int i = 0; i < countsLength; i++) {
+			final long countAddress = countAddress(i);
+			if(UnsafeAdapter.getLongVolatile(null, countAddress)==0) continue;
+			UnsafeAdapter.putLongVolatile(null, snap.countAddress(i), getAndSet(countAddress, 0L));
+		}
+		return snap;
+	}
+
+	/**
+	 * Returns a copy of this histogram
+	 * @return a copy of this histogram
+	 */
+	public LongHistogram copy() {
+		return newInstance().add(this);
+	}
+
+	/**
+	 * Resets this histogram
+	 */
+	public void reset() {
+		final long address = address();
+		UnsafeAdapter.setMemory(address + HEADER_SIZE, (long)countsLength << 3, (byte)0);
+		UnsafeAdapter.putLongVolatile(null, address + MAX_OFFSET, 0L);
+		UnsafeAdapter.putLongVolatile(null, address + MIN_OFFSET, Long.MAX_VALUE);
+	}
+
+	// ==================================================================================
+	//			Queries
+	// ==================================================================================
+
+	/**
+	 * Returns the total number of recorded values
+	 * @return the total number of recorded values
+	 */
+	public long getTotalCount() {
+		long total = 0;
+		for(int i = 0; i < countsLength; i++) {
+			total += UnsafeAdapter.getLongVolatile(null, countAddress(i));
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the minimum recorded value or 0 if no values have been recorded
+	 * @return the minimum recorded value
+	 */
+	public long getMin() {
+		final long min = UnsafeAdapter.getLongVolatile(null, address() + MIN_OFFSET);
+		return min==Long.MAX_VALUE ? 0 : min;
+	}
+
+	/**
+	 * Returns the maximum recorded value or 0 if no values have been recorded
+	 * @return the maximum recorded value
+	 */
+	public long getMax() {
+		return UnsafeAdapter.getLongVolatile(null, address() + MAX_OFFSET);
+	}
+
+	/**
+	 * Returns the mean of the recorded values at this histogram's precision or 0 if no values have been recorded
+	 * @return the mean of the recorded values
+	 */
+	public double getMean() {
+		long total = 0;
+		double sum = 0;
+		for(int i = 0; i < countsLength; i++) {
+			final long count = UnsafeAdapter.getLongVolatile(null, countAddress(i));
+			if(count==0) continue;
+			total += count;
+			final long v = valueFromIndex(i);
+			sum += count * (double)((lowestEquivalentValue(v) + highestEquivalentValue(v)) >> 1);
+		}
+		return total==0 ? 0 : sum/total;
+	}
+
+	/**
+	 * Returns the value at the passed percentile. The returned value is the highest value equivalent to the
+	 * recorded value at the percentile, capped at the maximum recorded value.
+	 * @param percentile The percentile, from 0 to 100
+	 * @return the value at the passed percentile or 0 if no values have been recorded
+	 */
+	public long getValueAtPercentile(final double percentile) {
+		if(percentile < 0 || percentile > 100) throw new IllegalArgumentException("invalid percentile: " + percentile);
+		final long total = getTotalCount();
+		if(total==0) return 0;
+		final long countAtPercentile = Math.max(1L, (long)(((percentile / 100d) * total) + LongSlidingWindow.ONE_HALF));
+		long running = 0;
+		for(int i = 0; i < countsLength; i++) {
+			running += UnsafeAdapter.getLongVolatile(null, countAddress(i));
+			if(running >= countAtPercentile) {
+				final long v = highestEquivalentValue(valueFromIndex(i));
+				final long max = getMax();
+				return v > max ? max : v;
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Returns the 50th percentile (median)
+	 * @return the 50th percentile
+	 */
+	public long getP50() {
+		return getValueAtPercentile(50d);
+	}
+
+	/**
+	 * Returns the 90th percentile
+	 * @return the 90th percentile
+	 */
+	public long getP90() {
+		return getValueAtPercentile(90d);
+	}
+
+	/**
+	 * Returns the 99th percentile
+	 * @return the 99th percentile
+	 */
+	public long getP99() {
+		return getValueAtPercentile(99d);
+	}
+
+	/**
+	 * Returns the 99.9th percentile
+	 * @return the 99.9th percentile
+	 */
+	public long getP999() {
+		return getValueAtPercentile(99.9d);
+	}
+
+	/**
+	 * Returns a map of the standard summary stats: count, min, max, mean, p50, p90, p99 and p999
+	 * @return a map of summary stats keyed by stat name
+	 */
+	public Map<String, Long> getSummary() {
+		final Map<String, Long> map = new LinkedHashMap<String, Long>(8);
+		map.put("count", getTotalCount());
+		map.put("min", getMin());
+		map.put("max", getMax());
+		map.put("mean", (long)getMean());
+		map.put("p50", getP50());
+		map.put("p90", getP90());
+		map.put("p99", getP99());
+		map.put("p999", getP999());
+		return map;
+	}
+
+	/**
+	 * Returns the highest trackable value
+	 * @return the highest trackable value
+	 */
+	public long getHighestTrackableValue() {
+		return highestTrackableValue;
+	}
+
+	/**
+	 * Returns the number of significant decimal digits maintained
+	 * @return the number of significant digits
+	 */
+	public int getSignificantDigits() {
+		return significantDigits;
+	}
+
+	/**
+	 * Returns the off-heap footprint of this histogram in bytes
+	 * @return the footprint in bytes
+	 */
+	public long getFootprint() {
+		return HEADER_SIZE + ((long)countsLength << 3);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "LongHistogram " + getSummary();
+	}
+
+	/**
+	 * Compares recording and percentile query costs against {@link LongSlidingWindow}
+	 * @param args Optional: [0]: the number of values to record
+	 */
+	public static void main(String[] args) {
+		final int loops = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		final Random r = new Random(System.currentTimeMillis());
+		final long[] values = new long[loops];
+		for(int i = 0; i < loops; i++) {
+			values[i] = Math.abs(r.nextInt(10000000));
+		}
+		final LongHistogram h = new LongHistogram();
+		final LongSlidingWindow w = new LongSlidingWindow(1000);
+		for(int pass = 0; pass < 2; pass++) {
+			long start = System.nanoTime();
+			for(long v: values) h.record(v);
+			long hrec = System.nanoTime() - start;
+			start = System.nanoTime();
+			for(long v: values) w.insert(v);
+			long wrec = System.nanoTime() - start;
+			start = System.nanoTime();
+			long hp = 0, wp = 0;
+			for(int i = 0; i < 100; i++) hp += h.getP99();
+			long hq = System.nanoTime() - start;
+			start = System.nanoTime();
+			for(int i = 0; i < 100; i++) wp += w.percentile(99);
+			long wq = System.nanoTime() - start;
+			if(pass==1) {
+				LongSlidingWindow.log(String.format("Record ns/op:  Histogram: %s  SlidingWindow: %s", hrec/loops, wrec/loops));
+				LongSlidingWindow.log(String.format("p99 query us:  Histogram: %s (%s)  SlidingWindow: %s (%s)", hq/100000, hp/100, wq/100000, wp/100));
+				LongSlidingWindow.log("Histogram footprint: " + h.getFootprint() + " bytes, " + h);
+			}
+		}
+		h.destroy();
+		w.destroy();
+	}
+
+}
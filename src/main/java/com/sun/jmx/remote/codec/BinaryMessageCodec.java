@@ -0,0 +1,898 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.sun.jmx.remote.codec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectInstance;
+import javax.management.ObjectName;
+import javax.management.openmbean.ArrayType;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXServiceURL;
+import javax.management.remote.jmxmp.JMXMPConnector;
+import javax.management.remote.jmxmp.JMXMPConnectorServer;
+import javax.management.remote.message.MBeanServerRequestMessage;
+import javax.management.remote.message.MBeanServerResponseMessage;
+import javax.management.remote.message.Message;
+
+/**
+ * <p>Title: BinaryMessageCodec</p>
+ * <p>Description: A {@link MessageCodec} with hand written encodings for {@link MBeanServerRequestMessage}s,
+ * {@link MBeanServerResponseMessage}s and the values they usually carry: primitives and their arrays, strings, dates,
+ * big numbers, {@link ObjectName}s, attributes, object instances, and open data with its open types. Everything else,
+ * including other messages, falls back to Java serialization.</p>
+ * <p>Each connection direction uses one object stream for its whole life, so the class descriptors of serialized payloads are
+ * only sent once, and keeps dictionaries of the object names and open types it has sent, so a repeated name or type costs a
+ * few bytes. The stream is only reset every {@link #RESET_INTERVAL} serialized payloads, which bounds the objects it retains.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.sun.jmx.remote.codec.BinaryMessageCodec</code></p>
+ */
+
+public class BinaryMessageCodec extends MessageCodec {
+	/** The number of serialized payloads after which the object stream is reset */
+	public static final int RESET_INTERVAL = 1024;
+	/** The largest number of object names kept in a connection's dictionary */
+	public static final int MAX_NAMES = 8192;
+	/** The largest number of open types kept in a connection's dictionary */
+	public static final int MAX_TYPES = 1024;
+	/** The deepest nesting of values encoded directly */
+	private static final int MAX_DEPTH = 16;
+	/** The longest string written as modified UTF-8, which is limited to 65535 bytes */
+	private static final int MAX_UTF_CHARS = 65535 / 3;
+	/**
+	 * The largest length of a string, array, collection or table encoded directly. Longer values are serialized,
+	 * and the decoder rejects longer lengths rather than allocate for whatever length a corrupt or hostile stream claims.
+	 */
+	public static final int MAX_LENGTH = 16 * 1024 * 1024;
+	/** The largest number of dimensions of an array type, as limited by the class file format */
+	private static final int MAX_DIMENSIONS = 255;
+	/** The largest number of elements a decoded collection is presized for before its elements are read */
+	private static final int MAX_PRESIZE = 4096;
+
+	// message tags
+	private static final byte MSG_SERIALIZED = 0, MSG_REQUEST = 1, MSG_RESPONSE = 2;
+
+	// value tags
+	private static final byte NULL = 0, STRING = 1, BOOLEAN = 2, BYTE = 3, SHORT = 4, INT = 5, LONG = 6, FLOAT = 7, DOUBLE = 8, CHAR = 9,
+			DATE = 10, BIG_INTEGER = 11, BIG_DECIMAL = 12, NAME_DEF = 13, NAME_REF = 14, NAME = 15, ATTRIBUTE = 16, ATTRIBUTE_LIST = 17,
+			OBJECT_INSTANCE = 18, HASH_SET = 19, OBJECT_ARRAY = 20, PRIMITIVE_ARRAY = 21, COMPOSITE = 22, TABULAR = 23, WRAPPED = 24,
+			SERIALIZED = 25;
+
+	// open type tags
+	private static final byte SIMPLE_TYPE = 0, ARRAY_TYPE = 1, TYPE_REF = 2, COMPOSITE_TYPE = 3, TABULAR_TYPE = 4;
+
+	/** The simple types, indexed by their wire ordinal */
+	private static final SimpleType<?>[] SIMPLE_TYPES = {
+		SimpleType.VOID, SimpleType.BOOLEAN, SimpleType.CHARACTER, SimpleType.BYTE, SimpleType.SHORT, SimpleType.INTEGER,
+		SimpleType.LONG, SimpleType.FLOAT, SimpleType.DOUBLE, SimpleType.STRING, SimpleType.BIGDECIMAL, SimpleType.BIGINTEGER,
+		SimpleType.DATE, SimpleType.OBJECTNAME
+	};
+
+	/** The primitive array classes, indexed by their wire ordinal */
+	private static final Class<?>[] PRIMITIVE_ARRAYS = {
+		boolean[].class, char[].class, byte[].class, short[].class, int[].class, long[].class, float[].class, double[].class
+	};
+
+	/** The object array component types encoded directly, indexed by their wire ordinal */
+	private static final Class<?>[] COMPONENTS = {
+		Object.class, String.class, ObjectName.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class,
+		Long.class, Float.class, Double.class, Date.class, BigInteger.class, BigDecimal.class, Attribute.class, ObjectInstance.class,
+		CompositeData.class, TabularData.class
+	};
+
+	/** The exact value classes encoded directly, other than arrays */
+	private static final Set<Class<?>> DIRECT = new HashSet<Class<?>>(Arrays.asList(new Class<?>[]{
+		String.class, Boolean.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class, Character.class,
+		Date.class, BigInteger.class, BigDecimal.class, ObjectName.class, Attribute.class, AttributeList.class, ObjectInstance.class,
+		HashSet.class, CompositeDataSupport.class, TabularDataSupport.class
+	}));
+
+	private static final Map<Object, Integer> SIMPLE_TYPE_ORDINALS = ordinals(SIMPLE_TYPES);
+	private static final Map<Object, Integer> PRIMITIVE_ARRAY_ORDINALS = ordinals(PRIMITIVE_ARRAYS);
+	private static final Map<Object, Integer> COMPONENT_ORDINALS = ordinals(COMPONENTS);
+
+	private static Map<Object, Integer> ordinals(final Object[] values) {
+		final Map<Object, Integer> map = new HashMap<Object, Integer>(values.length * 2);
+		for(int i = 0; i < values.length; i++) {
+			map.put(values[i], i);
+		}
+		return map;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.sun.jmx.remote.codec.MessageCodec#newEncoder(java.io.OutputStream)
+	 */
+	@Override
+	public Encoder newEncoder(final OutputStream out) throws IOException {
+		return new BinaryEncoder(out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.sun.jmx.remote.codec.MessageCodec#newDecoder(java.io.InputStream, java.lang.ClassLoader)
+	 */
+	@Override
+	public Decoder newDecoder(final InputStream in, final ClassLoader loader) throws IOException {
+		return new BinaryDecoder(in, loader);
+	}
+
+	/**
+	 * Determines if the passed value, and every value it contains, is encoded directly rather than serialized.
+	 * Such values only reference JDK classes, so decoding them does not depend on a class loader.
+	 * @param value The value to test
+	 * @return true if the value is encoded directly
+	 */
+	public static boolean canEncode(final Object value) {
+		return canEncode(value, 0);
+	}
+
+	private static boolean canEncode(final Object value, final int depth) {
+		if(value==null) return true;
+		if(depth > MAX_DEPTH) return false;
+		final Class<?> clazz = value.getClass();
+		if(clazz==String.class) return ((String)value).length() <= MAX_LENGTH;
+		if(clazz.isArray()) {
+			if(Array.getLength(value) > MAX_LENGTH) return false;
+			if(PRIMITIVE_ARRAY_ORDINALS.containsKey(clazz)) return true;
+			if(!COMPONENT_ORDINALS.containsKey(clazz.getComponentType())) return false;
+			for(Object o: (Object[])value) {
+				if(!canEncode(o, depth + 1)) return false;
+			}
+			return true;
+		}
+		if(!DIRECT.contains(clazz) && !isJdkCompositeData(value)) return false;
+		if(value instanceof Attribute) {
+			return canEncode(((Attribute)value).getValue(), depth + 1);
+		}
+		if(value instanceof Collection) {
+			if(((Collection<?>)value).size() > MAX_LENGTH) return false;
+			for(Object o: (Collection<?>)value) {
+				if(!canEncode(o, depth + 1)) return false;
+			}
+			return true;
+		}
+		if(value instanceof CompositeData) {
+			for(Object o: ((CompositeData)value).values()) {
+				if(!canEncode(o, depth + 1)) return false;
+			}
+			return true;
+		}
+		if(value instanceof TabularData) {
+			if(((TabularData)value).size() > MAX_LENGTH) return false;
+			for(Object o: ((TabularData)value).values()) {
+				if(!canEncode(o, depth + 1)) return false;
+			}
+			return true;
+		}
+		return true;
+	}
+
+	/**
+	 * Copies the mutable parts of a value that {@link #canEncode(Object)} accepts, so the copy is not affected by later
+	 * changes to the value: arrays, dates, attribute lists, hash sets, and attributes and open data holding them.
+	 * Immutable values such as strings, boxed primitives and object names are returned as is.
+	 * @param value The value to copy
+	 * @return the copy, or the value itself if it is immutable
+	 * @throws IOException thrown if open data cannot be rebuilt
+	 */
+	public static Object snapshot(final Object value) throws IOException {
+		if(value==null) return null;
+		final Class<?> clazz = value.getClass();
+		if(clazz.isArray()) {
+			if(PRIMITIVE_ARRAY_ORDINALS.containsKey(clazz)) {
+				final int length = Array.getLength(value);
+				final Object copy = Array.newInstance(clazz.getComponentType(), length);
+				System.arraycopy(value, 0, copy, 0, length);
+				return copy;
+			}
+			final Object[] copy = ((Object[])value).clone();
+			for(int i = 0; i < copy.length; i++) {
+				copy[i] = snapshot(copy[i]);
+			}
+			return copy;
+		}
+		if(clazz==Date.class) return new Date(((Date)value).getTime());
+		if(clazz==Attribute.class) {
+			final Object v = ((Attribute)value).getValue();
+			final Object copy = snapshot(v);
+			return copy==v ? value : new Attribute(((Attribute)value).getName(), copy);
+		}
+		if(clazz==AttributeList.class) {
+			final AttributeList list = new AttributeList(((AttributeList)value).size());
+			for(Object o: (AttributeList)value) {
+				list.add(snapshot(o));
+			}
+			return list;
+		}
+		if(clazz==HashSet.class) {
+			final HashSet<Object> set = new HashSet<Object>(Math.max(16, (int)(((HashSet<?>)value).size() / .75f) + 1));
+			for(Object o: (HashSet<?>)value) {
+				set.add(snapshot(o));
+			}
+			return set;
+		}
+		if(clazz==CompositeDataSupport.class || isJdkCompositeData(value)) {
+			return snapshotComposite((CompositeData)value);
+		}
+		if(clazz==TabularDataSupport.class) {
+			final TabularData td = (TabularData)value;
+			final TabularDataSupport copy = new TabularDataSupport(td.getTabularType(), Math.max(16, (int)(td.size() / .75f) + 1), .75f);
+			for(Object row: td.values()) {
+				copy.put(snapshotComposite((CompositeData)row));
+			}
+			return copy;
+		}
+		return value;
+	}
+
+	private static CompositeData snapshotComposite(final CompositeData cd) throws IOException {
+		final CompositeType type = cd.getCompositeType();
+		final Set<String> keys = type.keySet();
+		final String[] names = keys.toArray(new String[keys.size()]);
+		final Object[] values = new Object[names.length];
+		boolean copied = cd.getClass()!=CompositeDataSupport.class;
+		for(int i = 0; i < values.length; i++) {
+			final Object v = cd.get(names[i]);
+			values[i] = snapshot(v);
+			if(values[i]!=v) copied = true;
+		}
+		// composite data support is immutable, so it only needs rebuilding if one of its values was copied
+		if(!copied) return cd;
+		try {
+			return new CompositeDataSupport(type, names, values);
+		} catch (OpenDataException ode) {
+			throw new IOException("Invalid composite data for type [" + type.getTypeName() + "]", ode);
+		}
+	}
+
+	/**
+	 * Determines if the passed value is composite data implemented by the JDK, such as the lazily built composites of the
+	 * platform MXBeans, which all serialize as {@link CompositeDataSupport}
+	 * @param value The value to test
+	 * @return true if the value is JDK composite data
+	 */
+	private static boolean isJdkCompositeData(final Object value) {
+		return value instanceof CompositeData && value.getClass().getClassLoader()==null;
+	}
+
+	/**
+	 * <p>Title: BinaryEncoder</p>
+	 * <p>Description: Writes the messages of one connection direction</p>
+	 */
+	private static final class BinaryEncoder implements BatchEncoder {
+		/** The object stream, also used for the binary fields in block data mode */
+		private final ObjectOutputStream out;
+		/** The object names sent, keyed to their dictionary index */
+		private final Map<ObjectName, Integer> names = new HashMap<ObjectName, Integer>();
+		/** The composite and tabular types sent, keyed to their dictionary index */
+		private final Map<OpenType<?>, Integer> types = new HashMap<OpenType<?>, Integer>();
+		/** The number of payloads serialized since the last reset */
+		private int serialized = 0;
+
+		BinaryEncoder(final OutputStream os) throws IOException {
+			// the stream header stays buffered until the first message is flushed
+			out = new ObjectOutputStream(os instanceof BufferedOutputStream ? os : new BufferedOutputStream(os));
+		}
+
+		@Override
+		public void writeMessage(final Message msg) throws IOException {
+			write(msg);
+			flush();
+		}
+
+		@Override
+		public void write(final Message msg) throws IOException {
+			if(serialized >= RESET_INTERVAL) {
+				out.reset();
+				serialized = 0;
+			}
+			final Class<?> clazz = msg.getClass();
+			if(clazz==MBeanServerRequestMessage.class && ((MBeanServerRequestMessage)msg).getDelegationSubject()==null) {
+				final MBeanServerRequestMessage req = (MBeanServerRequestMessage)msg;
+				final Object[] params = req.getParams();
+				out.writeByte(MSG_REQUEST);
+				out.writeLong(req.getMessageId());
+				out.writeInt(req.getMethodId());
+				out.writeInt(params.length);
+				for(Object p: params) {
+					writeValue(p);
+				}
+			} else if(clazz==MBeanServerResponseMessage.class) {
+				final MBeanServerResponseMessage resp = (MBeanServerResponseMessage)msg;
+				out.writeByte(MSG_RESPONSE);
+				out.writeLong(resp.getMessageId());
+				out.writeBoolean(resp.isException());
+				writeValue(resp.getWrappedResult());
+			} else {
+				out.writeByte(MSG_SERIALIZED);
+				writeSerialized(msg);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		private void writeSerialized(final Object value) throws IOException {
+			out.writeUnshared(value);
+			serialized++;
+		}
+
+		private void writeText(final String s) throws IOException {
+			if(s.length() > MAX_LENGTH) throw new IOException("String too long to encode: " + s.length() + " chars");
+			if(s.length() <= MAX_UTF_CHARS) {
+				out.writeBoolean(true);
+				out.writeUTF(s);
+			} else {
+				out.writeBoolean(false);
+				out.writeInt(s.length());
+				out.writeChars(s);
+			}
+		}
+
+		private void writeValue(final Object value) throws IOException {
+			if(value==null) {
+				out.writeByte(NULL);
+				return;
+			}
+			final Class<?> clazz = value.getClass();
+			if(clazz==String.class && ((String)value).length() <= MAX_LENGTH) {
+				out.writeByte(STRING);
+				writeText((String)value);
+			} else if(clazz==ObjectName.class) {
+				writeName((ObjectName)value);
+			} else if(clazz==Integer.class) {
+				out.writeByte(INT);
+				out.writeInt((Integer)value);
+			} else if(clazz==Long.class) {
+				out.writeByte(LONG);
+				out.writeLong((Long)value);
+			} else if(clazz==Double.class) {
+				out.writeByte(DOUBLE);
+				out.writeDouble((Double)value);
+			} else if(clazz==Boolean.class) {
+				out.writeByte(BOOLEAN);
+				out.writeBoolean((Boolean)value);
+			} else if(clazz==Float.class) {
+				out.writeByte(FLOAT);
+				out.writeFloat((Float)value);
+			} else if(clazz==Short.class) {
+				out.writeByte(SHORT);
+				out.writeShort((Short)value);
+			} else if(clazz==Byte.class) {
+				out.writeByte(BYTE);
+				out.writeByte((Byte)value);
+			} else if(clazz==Character.class) {
+				out.writeByte(CHAR);
+				out.writeChar((Character)value);
+			} else if(clazz==Date.class) {
+				out.writeByte(DATE);
+				out.writeLong(((Date)value).getTime());
+			} else if(clazz==BigInteger.class) {
+				out.writeByte(BIG_INTEGER);
+				writeBytes(((BigInteger)value).toByteArray());
+			} else if(clazz==BigDecimal.class) {
+				out.writeByte(BIG_DECIMAL);
+				writeBytes(((BigDecimal)value).unscaledValue().toByteArray());
+				out.writeInt(((BigDecimal)value).scale());
+			} else if(clazz==WrappedObject.class) {
+				out.writeByte(WRAPPED);
+				writeValue(((WrappedObject)value).getValue());
+			} else if(clazz==Attribute.class) {
+				out.writeByte(ATTRIBUTE);
+				writeText(((Attribute)value).getName());
+				writeValue(((Attribute)value).getValue());
+			} else if((clazz==AttributeList.class || clazz==HashSet.class) && ((Collection<?>)value).size() <= MAX_LENGTH) {
+				final Collection<?> c = (Collection<?>)value;
+				out.writeByte(clazz==HashSet.class ? HASH_SET : ATTRIBUTE_LIST);
+				out.writeInt(c.size());
+				for(Object o: c) {
+					writeValue(o);
+				}
+			} else if(clazz==ObjectInstance.class) {
+				out.writeByte(OBJECT_INSTANCE);
+				writeValue(((ObjectInstance)value).getObjectName());
+				writeValue(((ObjectInstance)value).getClassName());
+			} else if(clazz==CompositeDataSupport.class || isJdkCompositeData(value)) {
+				out.writeByte(COMPOSITE);
+				final CompositeType type = ((CompositeData)value).getCompositeType();
+				writeType(type);
+				writeCompositeValues((CompositeData)value, type);
+			} else if(clazz==TabularDataSupport.class && ((TabularData)value).size() <= MAX_LENGTH) {
+				out.writeByte(TABULAR);
+				final TabularType type = ((TabularData)value).getTabularType();
+				writeType(type);
+				final Collection<?> rows = ((TabularData)value).values();
+				out.writeInt(rows.size());
+				for(Object row: rows) {
+					writeCompositeValues((CompositeData)row, type.getRowType());
+				}
+			} else if(clazz.isArray() && Array.getLength(value) <= MAX_LENGTH) {
+				writeArray(value, clazz);
+			} else {
+				out.writeByte(SERIALIZED);
+				writeSerialized(value);
+			}
+		}
+
+		private void writeBytes(final byte[] bytes) throws IOException {
+			if(bytes.length > MAX_LENGTH) throw new IOException("Value too long to encode: " + bytes.length + " bytes");
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		private void writeName(final ObjectName name) throws IOException {
+			final Integer index = names.get(name);
+			if(index!=null) {
+				out.writeByte(NAME_REF);
+				out.writeInt(index);
+				return;
+			}
+			if(names.size() < MAX_NAMES) {
+				names.put(name, names.size());
+				out.writeByte(NAME_DEF);
+			} else {
+				out.writeByte(NAME);
+			}
+			writeText(name.toString());
+		}
+
+		private void writeCompositeValues(final CompositeData cd, final CompositeType type) throws IOException {
+			// the row type of a tabular value is the type of its rows, so the values follow the type's key order
+			for(String key: type.keySet()) {
+				writeValue(cd.get(key));
+			}
+		}
+
+		private void writeArray(final Object array, final Class<?> clazz) throws IOException {
+			final Integer primitive = PRIMITIVE_ARRAY_ORDINALS.get(clazz);
+			if(primitive!=null) {
+				out.writeByte(PRIMITIVE_ARRAY);
+				out.writeByte(primitive);
+				final int length = Array.getLength(array);
+				out.writeInt(length);
+				switch(primitive) {
+					case 0: for(boolean v: (boolean[])array) out.writeBoolean(v); break;
+					case 1: for(char v: (char[])array) out.writeChar(v); break;
+					case 2: out.write((byte[])array); break;
+					case 3: for(short v: (short[])array) out.writeShort(v); break;
+					case 4: for(int v: (int[])array) out.writeInt(v); break;
+					case 5: for(long v: (long[])array) out.writeLong(v); break;
+					case 6: for(float v: (float[])array) out.writeFloat(v); break;
+					default: for(double v: (double[])array) out.writeDouble(v); break;
+				}
+				return;
+			}
+			final Integer component = COMPONENT_ORDINALS.get(clazz.getComponentType());
+			if(component==null) {
+				out.writeByte(SERIALIZED);
+				writeSerialized(array);
+				return;
+			}
+			final Object[] values = (Object[])array;
+			out.writeByte(OBJECT_ARRAY);
+			out.writeByte(component);
+			out.writeInt(values.length);
+			for(Object v: values) {
+				writeValue(v);
+			}
+		}
+
+		private void writeType(final OpenType<?> type) throws IOException {
+			if(type instanceof SimpleType) {
+				out.writeByte(SIMPLE_TYPE);
+				out.writeByte(SIMPLE_TYPE_ORDINALS.get(type));
+				return;
+			}
+			if(type instanceof ArrayType) {
+				final ArrayType<?> at = (ArrayType<?>)type;
+				out.writeByte(ARRAY_TYPE);
+				out.writeInt(at.getDimension());
+				out.writeBoolean(at.isPrimitiveArray());
+				writeType(at.getElementOpenType());
+				return;
+			}
+			final Integer index = types.get(type);
+			if(index!=null) {
+				out.writeByte(TYPE_REF);
+				out.writeInt(index);
+				return;
+			}
+			if(type instanceof CompositeType) {
+				final CompositeType ct = (CompositeType)type;
+				out.writeByte(COMPOSITE_TYPE);
+				writeText(ct.getTypeName());
+				writeText(ct.getDescription());
+				final Set<String> keys = ct.keySet();
+				out.writeInt(keys.size());
+				for(String key: keys) {
+					writeText(key);
+					writeText(ct.getDescription(key));
+					writeType(ct.getType(key));
+				}
+			} else if(type instanceof TabularType) {
+				final TabularType tt = (TabularType)type;
+				out.writeByte(TABULAR_TYPE);
+				writeText(tt.getTypeName());
+				writeText(tt.getDescription());
+				writeType(tt.getRowType());
+				final List<String> indexNames = tt.getIndexNames();
+				out.writeInt(indexNames.size());
+				for(String name: indexNames) {
+					writeText(name);
+				}
+			} else {
+				throw new IOException("Unsupported open type: " + type.getClass().getName());
+			}
+			// assigned after the nested types, in the order the decoder completes them
+			if(types.size() < MAX_TYPES) {
+				types.put(type, types.size());
+			}
+		}
+	}
+
+	/**
+	 * <p>Title: BinaryDecoder</p>
+	 * <p>Description: Reads the messages of one connection direction</p>
+	 */
+	private static final class BinaryDecoder implements Decoder {
+		/** The stream read from */
+		private final InputStream is;
+		/** The class loader serialized classes are resolved with */
+		private final ClassLoader loader;
+		/** The object stream, also used for the binary fields in block data mode, opened by the first read */
+		private ObjectInputStream in = null;
+		/** The object names received, by dictionary index */
+		private final List<ObjectName> names = new ArrayList<ObjectName>();
+		/** The composite and tabular types received, by dictionary index */
+		private final List<OpenType<?>> types = new ArrayList<OpenType<?>>();
+
+		BinaryDecoder(final InputStream is, final ClassLoader loader) {
+			this.is = is instanceof BufferedInputStream ? is : new BufferedInputStream(is);
+			this.loader = loader;
+		}
+
+		@Override
+		public Message readMessage() throws IOException, ClassNotFoundException {
+			if(in==null) {
+				// reads the stream header, which the peer writes with its first message
+				in = new ObjectInputStreamWithLoader(is, loader);
+			}
+			final byte tag = in.readByte();
+			switch(tag) {
+				case MSG_REQUEST:
+					final long id = in.readLong();
+					final int methodId = in.readInt();
+					final Object[] params = new Object[readLength()];
+					for(int i = 0; i < params.length; i++) {
+						params[i] = readValue();
+					}
+					return new MBeanServerRequestMessage(id, methodId, params, null);
+				case MSG_RESPONSE:
+					final long respId = in.readLong();
+					final boolean isException = in.readBoolean();
+					return new MBeanServerResponseMessage(respId, readValue(), isException);
+				case MSG_SERIALIZED:
+					final Object msg = in.readUnshared();
+					if(!(msg instanceof Message)) throw new StreamCorruptedException("Not a message: " + (msg==null ? null : msg.getClass().getName()));
+					return (Message)msg;
+				default:
+					throw new StreamCorruptedException("Invalid message tag: " + tag);
+			}
+		}
+
+		private String readText() throws IOException {
+			if(in.readBoolean()) return in.readUTF();
+			final char[] chars = new char[readLength()];
+			for(int i = 0; i < chars.length; i++) {
+				chars[i] = in.readChar();
+			}
+			return new String(chars);
+		}
+
+		private byte[] readBytes() throws IOException {
+			final byte[] bytes = new byte[readLength()];
+			in.readFully(bytes);
+			return bytes;
+		}
+
+		private int readLength() throws IOException {
+			final int length = in.readInt();
+			if(length < 0 || length > MAX_LENGTH) throw new StreamCorruptedException("Invalid length: " + length);
+			return length;
+		}
+
+		private Object readValue() throws IOException, ClassNotFoundException {
+			final byte tag = in.readByte();
+			switch(tag) {
+				case NULL: return null;
+				case STRING: return readText();
+				case BOOLEAN: return in.readBoolean();
+				case BYTE: return in.readByte();
+				case SHORT: return in.readShort();
+				case INT: return in.readInt();
+				case LONG: return in.readLong();
+				case FLOAT: return in.readFloat();
+				case DOUBLE: return in.readDouble();
+				case CHAR: return in.readChar();
+				case DATE: return new Date(in.readLong());
+				case BIG_INTEGER: return new BigInteger(readBytes());
+				case BIG_DECIMAL: return new BigDecimal(new BigInteger(readBytes()), in.readInt());
+				case NAME_DEF:
+					final ObjectName def = toName(readText());
+					names.add(def);
+					return def;
+				case NAME_REF:
+					final int index = in.readInt();
+					if(index < 0 || index >= names.size()) throw new StreamCorruptedException("Invalid object name reference: " + index);
+					return names.get(index);
+				case NAME: return toName(readText());
+				case ATTRIBUTE:
+					final String name = readText();
+					return new Attribute(name, readValue());
+				case ATTRIBUTE_LIST:
+					final int attrs = readLength();
+					final AttributeList list = new AttributeList(Math.min(attrs, MAX_PRESIZE));
+					for(int i = 0; i < attrs; i++) {
+						list.add(readValue());
+					}
+					return list;
+				case HASH_SET:
+					final int size = readLength();
+					final HashSet<Object> set = new HashSet<Object>(Math.max(16, (int)(Math.min(size, MAX_PRESIZE) / .75f) + 1));
+					for(int i = 0; i < size; i++) {
+						set.add(readValue());
+					}
+					return set;
+				case OBJECT_INSTANCE:
+					final ObjectName on = (ObjectName)readValue();
+					return new ObjectInstance(on, (String)readValue());
+				case OBJECT_ARRAY:
+					final Class<?> component = COMPONENTS[checkOrdinal(in.readByte(), COMPONENTS.length)];
+					final Object[] array = (Object[])Array.newInstance(component, readLength());
+					for(int i = 0; i < array.length; i++) {
+						array[i] = readValue();
+					}
+					return array;
+				case PRIMITIVE_ARRAY:
+					return readPrimitiveArray(checkOrdinal(in.readByte(), PRIMITIVE_ARRAYS.length));
+				case COMPOSITE:
+					return readCompositeValues((CompositeType)readType());
+				case TABULAR:
+					final TabularType tt = (TabularType)readType();
+					final int rows = readLength();
+					final TabularDataSupport td = new TabularDataSupport(tt, Math.max(16, (int)(Math.min(rows, MAX_PRESIZE) / .75f) + 1), .75f);
+					for(int i = 0; i < rows; i++) {
+						td.put(readCompositeValues(tt.getRowType()));
+					}
+					return td;
+				case WRAPPED: return new WrappedObject(readValue());
+				case SERIALIZED: return in.readUnshared();
+				default:
+					throw new StreamCorruptedException("Invalid value tag: " + tag);
+			}
+		}
+
+		private static int checkOrdinal(final int ordinal, final int size) throws StreamCorruptedException {
+			if(ordinal < 0 || ordinal >= size) throw new StreamCorruptedException("Invalid ordinal: " + ordinal);
+			return ordinal;
+		}
+
+		private static ObjectName toName(final String name) throws IOException {
+			try {
+				return ObjectName.getInstance(name);
+			} catch (MalformedObjectNameException mex) {
+				throw new IOException("Invalid object name [" + name + "]", mex);
+			}
+		}
+
+		private Object readPrimitiveArray(final int ordinal) throws IOException {
+			final int length = readLength();
+			switch(ordinal) {
+				case 0: final boolean[] z = new boolean[length]; for(int i = 0; i < length; i++) z[i] = in.readBoolean(); return z;
+				case 1: final char[] c = new char[length]; for(int i = 0; i < length; i++) c[i] = in.readChar(); return c;
+				case 2: final byte[] b = new byte[length]; in.readFully(b); return b;
+				case 3: final short[] s = new short[length]; for(int i = 0; i < length; i++) s[i] = in.readShort(); return s;
+				case 4: final int[] n = new int[length]; for(int i = 0; i < length; i++) n[i] = in.readInt(); return n;
+				case 5: final long[] j = new long[length]; for(int i = 0; i < length; i++) j[i] = in.readLong(); return j;
+				case 6: final float[] f = new float[length]; for(int i = 0; i < length; i++) f[i] = in.readFloat(); return f;
+				default: final double[] d = new double[length]; for(int i = 0; i < length; i++) d[i] = in.readDouble(); return d;
+			}
+		}
+
+		private CompositeData readCompositeValues(final CompositeType type) throws IOException, ClassNotFoundException {
+			final Set<String> keys = type.keySet();
+			final String[] names = keys.toArray(new String[keys.size()]);
+			final Object[] values = new Object[names.length];
+			for(int i = 0; i < values.length; i++) {
+				values[i] = readValue();
+			}
+			try {
+				return new CompositeDataSupport(type, names, values);
+			} catch (OpenDataException ode) {
+				throw new IOException("Invalid composite data for type [" + type.getTypeName() + "]", ode);
+			}
+		}
+
+		private OpenType<?> readType() throws IOException {
+			final byte tag = in.readByte();
+			try {
+				switch(tag) {
+					case SIMPLE_TYPE:
+						return SIMPLE_TYPES[checkOrdinal(in.readByte(), SIMPLE_TYPES.length)];
+					case ARRAY_TYPE:
+						final int dimension = in.readInt();
+						if(dimension < 1 || dimension > MAX_DIMENSIONS) throw new StreamCorruptedException("Invalid array dimension: " + dimension);
+						final boolean primitive = in.readBoolean();
+						final OpenType<?> element = readType();
+						if(!primitive) return new ArrayType<Object>(dimension, element);
+						ArrayType<?> at = new ArrayType<Object>((SimpleType<?>)element, true);
+						for(int i = 1; i < dimension; i++) {
+							at = ArrayType.getArrayType(at);
+						}
+						return at;
+					case TYPE_REF:
+						final int index = in.readInt();
+						if(index < 0 || index >= types.size()) throw new StreamCorruptedException("Invalid open type reference: " + index);
+						return types.get(index);
+					case COMPOSITE_TYPE:
+						final String typeName = readText();
+						final String description = readText();
+						final int count = readLength();
+						final String[] itemNames = new String[count];
+						final String[] itemDescriptions = new String[count];
+						final OpenType<?>[] itemTypes = new OpenType<?>[count];
+						for(int i = 0; i < count; i++) {
+							itemNames[i] = readText();
+							itemDescriptions[i] = readText();
+							itemTypes[i] = readType();
+						}
+						return define(new CompositeType(typeName, description, itemNames, itemDescriptions, itemTypes));
+					case TABULAR_TYPE:
+						final String tabularName = readText();
+						final String tabularDescription = readText();
+						final CompositeType rowType = (CompositeType)readType();
+						final String[] indexNames = new String[readLength()];
+						for(int i = 0; i < indexNames.length; i++) {
+							indexNames[i] = readText();
+						}
+						return define(new TabularType(tabularName, tabularDescription, rowType, indexNames));
+					default:
+						throw new StreamCorruptedException("Invalid open type tag: " + tag);
+				}
+			} catch (OpenDataException ode) {
+				throw new IOException("Invalid open type", ode);
+			}
+		}
+
+		private OpenType<?> define(final OpenType<?> type) {
+			if(types.size() < MAX_TYPES) {
+				types.add(type);
+			}
+			return type;
+		}
+	}
+
+	/**
+	 * <p>Title: ObjectInputStreamWithLoader</p>
+	 * <p>Description: An object input stream resolving classes with a supplied class loader</p>
+	 */
+	private static final class ObjectInputStreamWithLoader extends ObjectInputStream {
+		private final ClassLoader cloader;
+
+		ObjectInputStreamWithLoader(final InputStream in, final ClassLoader cl) throws IOException {
+			super(in);
+			this.cloader = cl;
+		}
+
+		@Override
+		protected Class<?> resolveClass(final ObjectStreamClass aClass) throws IOException, ClassNotFoundException {
+			return cloader == null ? super.resolveClass(aClass) : Class.forName(aClass.getName(), false, cloader);
+		}
+	}
+
+	/**
+	 * Benchmarks <code>getAttributes</code> round trips over loopback, first with Java serialization and then with this codec
+	 * @param args Optional number of seconds to measure each for, defaulting to 10
+	 * @throws Exception on any error
+	 */
+	public static void main(final String[] args) throws Exception {
+		final int seconds = args.length==0 ? 10 : Integer.parseInt(args[0]);
+		final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+		final Map<ObjectName, String[]> targets = new LinkedHashMap<ObjectName, String[]>();
+		targets.put(new ObjectName(ManagementFactory.MEMORY_MXBEAN_NAME), new String[]{"HeapMemoryUsage", "NonHeapMemoryUsage", "ObjectPendingFinalizationCount"});
+		targets.put(new ObjectName(ManagementFactory.THREAD_MXBEAN_NAME), new String[]{"ThreadCount", "PeakThreadCount", "DaemonThreadCount", "TotalStartedThreadCount"});
+		targets.put(new ObjectName(ManagementFactory.RUNTIME_MXBEAN_NAME), new String[]{"Uptime", "StartTime", "VmName"});
+		for(ObjectName on: mbs.queryNames(new ObjectName(ManagementFactory.GARBAGE_COLLECTOR_MXBEAN_DOMAIN_TYPE + ",*"), null)) {
+			targets.put(on, new String[]{"CollectionCount", "CollectionTime", "LastGcInfo"});
+		}
+		for(boolean codec: new boolean[]{false, true}) {
+			final Map<String, Object> env = new HashMap<String, Object>();
+			if(codec) env.put("jmx.remote.profiles", "CODEC");
+			final JMXMPConnectorServer cs = new JMXMPConnectorServer(new JMXServiceURL("jmxmp", "localhost", 0), env, mbs);
+			cs.start();
+			final JMXConnector connector = new JMXMPConnector(cs.getAddress(), env);
+			try {
+				connector.connect(env);
+				final MBeanServerConnection conn = connector.getMBeanServerConnection();
+				roundTrips(conn, targets, 2000L);
+				cs.resetStats();
+				final long start = System.nanoTime();
+				final long trips = roundTrips(conn, targets, seconds * 1000L);
+				final long elapsed = System.nanoTime() - start;
+				System.out.println(String.format("%-13s round trips/s: %d, bytes in per trip: %d, bytes out per trip: %d",
+						codec ? "Binary codec" : "Serialization", trips * 1000000000L / elapsed, cs.getBytesIn() / trips, cs.getBytesOut() / trips));
+			} finally {
+				try { connector.close(); } catch (Exception x) {/* No Op */}
+				cs.stop();
+			}
+		}
+	}
+
+	private static long roundTrips(final MBeanServerConnection conn, final Map<ObjectName, String[]> targets, final long millis) throws Exception {
+		final long end = System.currentTimeMillis() + millis;
+		long trips = 0;
+		while(System.currentTimeMillis() < end) {
+			for(Map.Entry<ObjectName, String[]> entry: targets.entrySet()) {
+				conn.getAttributes(entry.getKey(), entry.getValue());
+				trips++;
+			}
+		}
+		return trips;
+	}
+}
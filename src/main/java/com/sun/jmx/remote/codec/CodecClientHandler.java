@@ -0,0 +1,123 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.sun.jmx.remote.codec;
+
+import java.io.IOException;
+import java.util.Map;
+
+import javax.management.remote.generic.MessageConnection;
+import javax.management.remote.message.CodecMessage;
+import javax.management.remote.message.ProfileMessage;
+
+import com.sun.jmx.remote.generic.ProfileClient;
+import com.sun.jmx.remote.opt.util.ClassLogger;
+
+/**
+ * <p>Title: CodecClientHandler</p>
+ * <p>Description: The client side <code>CODEC</code> profile, which offers the codecs listed by {@link MessageCodec#CODECS}
+ * and switches the connection to the one the server selects</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.sun.jmx.remote.codec.CodecClientHandler</code></p>
+ */
+
+public class CodecClientHandler implements ProfileClient {
+	/** The profile name */
+	private final String profile;
+	/** The client environment */
+	private final Map env;
+	/** The connection */
+	private MessageConnection mc = null;
+	/** The offered codecs */
+	private Map<String, MessageCodec> codecs = null;
+	/** The codec selected by the server */
+	private MessageCodec selected = null;
+
+	private static final ClassLogger logger = new ClassLogger("javax.management.remote.misc", "CodecClientHandler");
+
+	/**
+	 * Creates a new CodecClientHandler
+	 * @param profile The profile name
+	 * @param env The client environment
+	 */
+	public CodecClientHandler(final String profile, final Map env) {
+		this.profile = profile;
+		this.env = env;
+	}
+
+	@Override
+	public void initialize(final MessageConnection mc) throws IOException {
+		if (!(mc instanceof CodecConnectionIf)) {
+			throw new IOException("Not an instance of CodecConnectionIf");
+		}
+		this.mc = mc;
+		codecs = MessageCodec.getCodecs(env);
+	}
+
+	@Override
+	public ProfileMessage produceMessage() throws IOException {
+		final StringBuilder b = new StringBuilder();
+		for(String name: codecs.keySet()) {
+			if(b.length() > 0) b.append(' ');
+			b.append(name);
+		}
+		if (logger.traceOn()) {
+			logger.trace("produceMessage", "Offered codecs [ " + b + " ]");
+		}
+		return new CodecMessage(CodecMessage.READY, b.toString());
+	}
+
+	@Override
+	public void consumeMessage(final ProfileMessage pm) throws IOException {
+		if (!(pm instanceof CodecMessage)) {
+			throw new IOException("Unexpected profile message type: " + pm.getClass().getName());
+		}
+		final CodecMessage cm = (CodecMessage) pm;
+		if (cm.getStatus() != CodecMessage.PROCEED) {
+			throw new IOException("Unexpected CODEC status [" + cm.getStatus() + "]");
+		}
+		selected = codecs.get(cm.getCodecs());
+		if (selected == null) {
+			throw new IOException("The server selected a codec that was not offered [" + cm.getCodecs() + "]");
+		}
+		if (logger.traceOn()) {
+			logger.trace("consumeMessage", "Selected codec [ " + cm.getCodecs() + " ]");
+		}
+	}
+
+	@Override
+	public boolean isComplete() {
+		return selected != null;
+	}
+
+	@Override
+	public void activate() throws IOException {
+		((CodecConnectionIf)mc).setCodec(selected);
+	}
+
+	@Override
+	public void terminate() throws IOException {
+		/* No Op */
+	}
+
+	@Override
+	public String getName() {
+		return profile;
+	}
+}
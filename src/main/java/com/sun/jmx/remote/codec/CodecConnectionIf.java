@@ -0,0 +1,39 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.sun.jmx.remote.codec;
+
+import java.io.IOException;
+
+/**
+ * <p>Title: CodecConnectionIf</p>
+ * <p>Description: Implemented by message connections that can switch from Java serialization to a negotiated {@link MessageCodec}</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.sun.jmx.remote.codec.CodecConnectionIf</code></p>
+ */
+
+public interface CodecConnectionIf {
+	/**
+	 * Writes and reads all the following messages with the passed codec.
+	 * Called by the <code>CODEC</code> profile when no message is in flight.
+	 * @param codec The codec to use
+	 * @throws IOException thrown if the connection cannot use a codec
+	 */
+	public void setCodec(final MessageCodec codec) throws IOException;
+}
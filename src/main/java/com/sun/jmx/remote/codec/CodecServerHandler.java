@@ -0,0 +1,133 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.sun.jmx.remote.codec;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+import javax.management.remote.generic.MessageConnection;
+import javax.management.remote.message.CodecMessage;
+import javax.management.remote.message.ProfileMessage;
+import javax.security.auth.Subject;
+
+import com.sun.jmx.remote.generic.ProfileServer;
+import com.sun.jmx.remote.opt.util.ClassLogger;
+
+/**
+ * <p>Title: CodecServerHandler</p>
+ * <p>Description: The server side <code>CODEC</code> profile, which selects the first codec offered by the client that is also
+ * listed by the server's {@link MessageCodec#CODECS}, and switches the connection to it once the selection is sent</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.sun.jmx.remote.codec.CodecServerHandler</code></p>
+ */
+
+public class CodecServerHandler implements ProfileServer {
+	/** The profile name */
+	private final String profile;
+	/** The server environment */
+	private final Map env;
+	/** The connection */
+	private MessageConnection mc = null;
+	/** The subject authenticated by the preceding profiles */
+	private Subject subject = null;
+	/** The name of the selected codec */
+	private String selectedName = null;
+	/** The selected codec */
+	private MessageCodec selected = null;
+	/** Indicates the selection has been produced */
+	private boolean completed = false;
+
+	private static final ClassLogger logger = new ClassLogger("javax.management.remote.misc", "CodecServerHandler");
+
+	/**
+	 * Creates a new CodecServerHandler
+	 * @param profile The profile name
+	 * @param env The server environment
+	 */
+	public CodecServerHandler(final String profile, final Map env) {
+		this.profile = profile;
+		this.env = env;
+	}
+
+	@Override
+	public void initialize(final MessageConnection mc, final Subject s) throws IOException {
+		if (!(mc instanceof CodecConnectionIf)) {
+			throw new IOException("Not an instance of CodecConnectionIf");
+		}
+		this.mc = mc;
+		this.subject = s;
+	}
+
+	@Override
+	public void consumeMessage(final ProfileMessage pm) throws IOException {
+		if (!(pm instanceof CodecMessage)) {
+			throw new IOException("Unexpected profile message type: " + pm.getClass().getName());
+		}
+		final CodecMessage cm = (CodecMessage) pm;
+		if (cm.getStatus() != CodecMessage.READY) {
+			throw new IOException("Unexpected CODEC status [" + cm.getStatus() + "]");
+		}
+		if (logger.traceOn()) {
+			logger.trace("consumeMessage", "Offered codecs [ " + cm.getCodecs() + " ]");
+		}
+		final Map<String, MessageCodec> codecs = MessageCodec.getCodecs(env);
+		final StringTokenizer st = new StringTokenizer(cm.getCodecs()==null ? "" : cm.getCodecs(), " ");
+		while(st.hasMoreTokens()) {
+			final String name = st.nextToken();
+			if(codecs.containsKey(name)) {
+				selectedName = name;
+				selected = codecs.get(name);
+				return;
+			}
+		}
+		throw new IOException("None of the offered codecs [" + cm.getCodecs() + "] is supported by the server " + codecs.keySet());
+	}
+
+	@Override
+	public ProfileMessage produceMessage() throws IOException {
+		if (logger.traceOn()) {
+			logger.trace("produceMessage", "Selected codec [ " + selectedName + " ]");
+		}
+		completed = true;
+		return new CodecMessage(CodecMessage.PROCEED, selectedName);
+	}
+
+	@Override
+	public boolean isComplete() {
+		return completed;
+	}
+
+	@Override
+	public Subject activate() throws IOException {
+		((CodecConnectionIf)mc).setCodec(selected);
+		return subject;
+	}
+
+	@Override
+	public void terminate() throws IOException {
+		/* No Op */
+	}
+
+	@Override
+	public String getName() {
+		return profile;
+	}
+}
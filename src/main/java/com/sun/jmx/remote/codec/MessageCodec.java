@@ -0,0 +1,143 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.sun.jmx.remote.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+import javax.management.remote.message.Message;
+
+import com.sun.jmx.remote.generic.ProfileClientFactory;
+
+/**
+ * <p>Title: MessageCodec</p>
+ * <p>Description: A wire codec for JMXMP messages, negotiated by the <code>CODEC</code> profile during the connection handshake.
+ * A codec creates one encoder and one decoder per connection, so both can keep state, such as dictionaries of values already
+ * sent, for the life of the connection.</p>
+ * <p>The codecs a client offers and a server accepts are listed, in order of preference, by the {@link #CODECS} environment
+ * attribute. Each entry is either the name of a built in codec, currently only {@link #BINARY}, or the class name of a
+ * <code>MessageCodec</code> with a public no-arg constructor.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.sun.jmx.remote.codec.MessageCodec</code></p>
+ */
+
+public abstract class MessageCodec {
+	/** The name of the environment attribute listing the codecs in order of preference. The default is {@link #BINARY} */
+	public static final String CODECS = "jmx.remote.x.codecs";
+	/** The name of the built in {@link BinaryMessageCodec} */
+	public static final String BINARY = "BINARY";
+
+	/**
+	 * Creates a new encoder writing messages to the passed stream
+	 * @param out The stream to write to
+	 * @return the new encoder
+	 * @throws IOException thrown on any IO error
+	 */
+	public abstract Encoder newEncoder(final OutputStream out) throws IOException;
+
+	/**
+	 * Creates a new decoder reading messages from the passed stream.
+	 * Nothing may be read until the first message is, as the peer may not have written anything yet.
+	 * @param in The stream to read from
+	 * @param loader The class loader to resolve serialized classes with, or null for the default resolution
+	 * @return the new decoder
+	 * @throws IOException thrown on any IO error
+	 */
+	public abstract Decoder newDecoder(final InputStream in, final ClassLoader loader) throws IOException;
+
+	/**
+	 * <p>Title: Encoder</p>
+	 * <p>Description: Writes the messages of one connection</p>
+	 */
+	public interface Encoder {
+		/**
+		 * Writes and flushes a message
+		 * @param msg The message to write
+		 * @throws IOException thrown on any IO error
+		 */
+		public void writeMessage(final Message msg) throws IOException;
+	}
+
+	/**
+	 * <p>Title: BatchEncoder</p>
+	 * <p>Description: An encoder that can write several messages before flushing them, so a pipelined client can send a
+	 * batch of requests with a single flush. Encoders that do not implement it flush every message.</p>
+	 */
+	public interface BatchEncoder extends Encoder {
+		/**
+		 * Writes a message without flushing it
+		 * @param msg The message to write
+		 * @throws IOException thrown on any IO error
+		 */
+		public void write(final Message msg) throws IOException;
+
+		/**
+		 * Flushes the messages written since the last flush
+		 * @throws IOException thrown on any IO error
+		 */
+		public void flush() throws IOException;
+	}
+
+	/**
+	 * <p>Title: Decoder</p>
+	 * <p>Description: Reads the messages of one connection</p>
+	 */
+	public interface Decoder {
+		/**
+		 * Reads the next message
+		 * @return the message
+		 * @throws IOException thrown on any IO error
+		 * @throws ClassNotFoundException thrown if a serialized class cannot be resolved
+		 */
+		public Message readMessage() throws IOException, ClassNotFoundException;
+	}
+
+	/**
+	 * Resolves the codecs listed in the passed environment
+	 * @param env The client or server environment
+	 * @return a map of codecs keyed by the name they are negotiated with, in order of preference
+	 * @throws IOException thrown if a listed codec cannot be loaded
+	 */
+	static Map<String, MessageCodec> getCodecs(final Map env) throws IOException {
+		final Object v = env==null ? null : env.get(CODECS);
+		final String names = (v==null || v.toString().trim().isEmpty()) ? BINARY : v.toString();
+		final Object cl = env==null ? null : env.get(ProfileClientFactory.PROFILE_PROVIDER_CLASS_LOADER);
+		final ClassLoader loader = (cl instanceof ClassLoader) ? (ClassLoader)cl : MessageCodec.class.getClassLoader();
+		final Map<String, MessageCodec> codecs = new LinkedHashMap<String, MessageCodec>();
+		final StringTokenizer st = new StringTokenizer(names, " ");
+		while(st.hasMoreTokens()) {
+			final String name = st.nextToken();
+			if(BINARY.equals(name)) {
+				codecs.put(name, new BinaryMessageCodec());
+				continue;
+			}
+			try {
+				codecs.put(name, (MessageCodec)Class.forName(name, true, loader).newInstance());
+			} catch (Exception ex) {
+				throw new IOException("Failed to load message codec [" + name + "]", ex);
+			}
+		}
+		return codecs;
+	}
+}
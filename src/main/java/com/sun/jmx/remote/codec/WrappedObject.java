@@ -0,0 +1,85 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.sun.jmx.remote.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+
+/**
+ * <p>Title: WrappedObject</p>
+ * <p>Description: A value wrapped by {@link com.sun.jmx.remote.generic.ObjectWrappingImpl} without serializing it, because
+ * {@link BinaryMessageCodec} can encode it directly. Java serialization replaces it with the serialized bytes the wrapping
+ * would otherwise have produced, so connections without a codec send exactly what they sent before.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.sun.jmx.remote.codec.WrappedObject</code></p>
+ */
+
+public final class WrappedObject implements Serializable {
+	private static final long serialVersionUID = -2940255384108926315L;
+	/** The wrapped value */
+	private final transient Object value;
+
+	/**
+	 * Creates a new WrappedObject
+	 * @param value The wrapped value
+	 */
+	public WrappedObject(final Object value) {
+		this.value = value;
+	}
+
+	/**
+	 * Returns the wrapped value
+	 * @return the wrapped value
+	 */
+	public Object getValue() {
+		return value;
+	}
+
+	/**
+	 * Serializes the value the way the default object wrapping does
+	 * @param value The value to serialize
+	 * @return the serialized bytes
+	 * @throws IOException thrown if the value cannot be serialized
+	 */
+	public static byte[] serialize(final Object value) throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final ObjectOutputStream oos = new ObjectOutputStream(baos);
+		oos.writeObject(value);
+		oos.flush();
+		return baos.toByteArray();
+	}
+
+	/**
+	 * Replaces this wrapper with the serialized value when written by Java serialization
+	 * @return the serialized value
+	 * @throws ObjectStreamException thrown if the value cannot be serialized
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		try {
+			return serialize(value);
+		} catch (IOException iex) {
+			throw new NotSerializableException(iex.toString());
+		}
+	}
+}
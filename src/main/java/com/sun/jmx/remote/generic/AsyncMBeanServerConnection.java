@@ -0,0 +1,72 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.sun.jmx.remote.generic;
+
+import java.io.IOException;
+import java.util.concurrent.Future;
+
+import javax.management.AttributeList;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+
+/**
+ * <p>Title: AsyncMBeanServerConnection</p>
+ * <p>Description: An MBeanServer connection that can send requests without waiting for their responses, so that one
+ * thread can keep many requests in flight on a single connection. Implemented by the connections of a
+ * <code>GenericConnector</code>, whose requests are best sent in the pipelined mode enabled by {@link DefaultConfig#CLIENT_PIPELINE}.</p>
+ * <p>The returned futures fail with the exception the synchronous call would have thrown, wrapped in an
+ * <code>ExecutionException</code>. A call to <code>get()</code> waits at most the connection's request timeout.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.sun.jmx.remote.generic.AsyncMBeanServerConnection</code></p>
+ */
+
+public interface AsyncMBeanServerConnection extends MBeanServerConnection {
+	/**
+	 * Sends a request for the value of an attribute of a named MBean
+	 * @param name The object name of the MBean
+	 * @param attribute The name of the attribute
+	 * @return the future value of the attribute
+	 * @throws IOException thrown if the request cannot be sent
+	 * @see MBeanServerConnection#getAttribute(ObjectName, String)
+	 */
+	public Future<Object> getAttributeAsync(final ObjectName name, final String attribute) throws IOException;
+
+	/**
+	 * Sends a request for the values of several attributes of a named MBean
+	 * @param name The object name of the MBean
+	 * @param attributes The names of the attributes
+	 * @return the future list of the retrieved attributes
+	 * @throws IOException thrown if the request cannot be sent
+	 * @see MBeanServerConnection#getAttributes(ObjectName, String[])
+	 */
+	public Future<AttributeList> getAttributesAsync(final ObjectName name, final String[] attributes) throws IOException;
+
+	/**
+	 * Sends a request to invoke an operation on a named MBean
+	 * @param name The object name of the MBean
+	 * @param operationName The name of the operation
+	 * @param params The parameters of the operation
+	 * @param signature The class names of the parameters
+	 * @return the future return value of the operation
+	 * @throws IOException thrown if the request cannot be sent
+	 * @see MBeanServerConnection#invoke(ObjectName, String, Object[], String[])
+	 */
+	public Future<Object> invokeAsync(final ObjectName name, final String operationName, final Object[] params, final String[] signature) throws IOException;
+}
@@ -0,0 +1,61 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.sun.jmx.remote.generic;
+
+import javax.management.remote.generic.MessageConnection;
+import javax.management.remote.message.Message;
+
+/**
+ * <p>Title: AsynchroMessageConnection</p>
+ * <p>Description: A {@link MessageConnection} that can push incoming messages to a listener on its own threads,
+ * so {@link ServerSynchroMessageConnectionImpl} does not need a reader thread blocked in {@link MessageConnection#readMessage()}
+ * for each connection. Until a listener is set, messages are returned by {@link MessageConnection#readMessage()} as usual, which
+ * is how the connection handshake is read.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.sun.jmx.remote.generic.AsynchroMessageConnection</code></p>
+ */
+
+public interface AsynchroMessageConnection extends MessageConnection {
+	/**
+	 * Starts pushing incoming messages, including any already received and not read, to the passed listener.
+	 * {@link MessageConnection#readMessage()} must not be called once a listener is set.
+	 * @param listener The listener to push messages to
+	 */
+	public void setMessageListener(final MessageListener listener);
+
+	/**
+	 * <p>Title: MessageListener</p>
+	 * <p>Description: Receives the messages pushed by an {@link AsynchroMessageConnection}.
+	 * Messages may be delivered concurrently, as requests read by a reader thread are executed concurrently.</p>
+	 */
+	public interface MessageListener {
+		/**
+		 * Called with each message received
+		 * @param msg The message
+		 */
+		public void onMessage(final Message msg);
+
+		/**
+		 * Called when reading from the connection fails, which includes the connection being closed
+		 * @param ex The failure
+		 */
+		public void onException(final Exception ex);
+	}
+}
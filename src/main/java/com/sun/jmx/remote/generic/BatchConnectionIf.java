@@ -0,0 +1,43 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.sun.jmx.remote.generic;
+
+import java.io.IOException;
+
+import javax.management.remote.message.Message;
+
+/**
+ * <p>Title: BatchConnectionIf</p>
+ * <p>Description: Implemented by message connections that can write several messages with a single flush,
+ * used by a pipelined {@link ClientSynchroMessageConnectionImpl} to coalesce concurrently submitted requests</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.sun.jmx.remote.generic.BatchConnectionIf</code></p>
+ */
+
+public interface BatchConnectionIf {
+	/**
+	 * Writes the passed messages in order and then flushes the connection once.
+	 * Callers serialize writes the same way as for <code>MessageConnection.writeMessage</code>.
+	 * @param msgs The messages to write
+	 * @param count The number of messages to write from the start of the array
+	 * @throws IOException thrown on any IO error, in which case any of the messages may have been written
+	 */
+	public void writeMessages(final Message[] msgs, final int count) throws IOException;
+}
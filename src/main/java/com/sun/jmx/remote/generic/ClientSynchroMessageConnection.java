@@ -52,6 +52,7 @@ package com.sun.jmx.remote.generic;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.Future;
 import javax.security.auth.Subject;
 
 import javax.management.remote.message.*;
@@ -70,4 +71,19 @@ public interface ClientSynchroMessageConnection extends SynchroMessageConnection
      * @exception IOException if a communication problem occures.
      */
     public Message sendWithReturn(Message msg) throws IOException;
+
+    /**
+     * Sends a <code>MBeanServerRequestMessage</code> to the remote side
+     * without waiting for its response. The returned future completes
+     * when the response with the same message id is received, so any
+     * number of requests can be in flight at the same time.
+     * <P>Unlike <code>sendWithReturn</code>, a request whose connection
+     * is closed while it is in flight is not retried: the future fails
+     * with a <code>ConnectionClosedException</code>.
+     *
+     * @exception UnsupportedOperationException thrown if the operation is not
+     * supported by an implementation.
+     * @exception IOException if the request cannot be sent.
+     */
+    public Future<Message> sendAsync(Message msg) throws IOException;
 }
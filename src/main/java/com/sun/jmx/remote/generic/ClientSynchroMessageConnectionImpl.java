@@ -50,9 +50,17 @@
 
 package com.sun.jmx.remote.generic;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import javax.security.auth.Subject;
@@ -102,6 +110,11 @@ public class ClientSynchroMessageConnectionImpl implements ClientSynchroMessageC
 		wtimeout = DefaultConfig.getRequestTimeout(newEnv);
 		waitConnectedState = DefaultConfig.getTimeoutForWaitConnectedState(newEnv);
 
+		pipelined = DefaultConfig.isClientPipeline(newEnv);
+		if (pipelined) {
+		    batch = new Message[DefaultConfig.getClientPipelineBatch(newEnv)];
+		}
+
 		clientAdmin = DefaultConfig.getClientAdmin(newEnv);
 
 		state = CONNECTING;
@@ -145,6 +158,10 @@ public class ClientSynchroMessageConnectionImpl implements ClientSynchroMessageC
 		    connection.connect(this.env);
 
 		    connection = clientAdmin.connectionOpen(connection);
+
+		    // the requests still queued are failed below with the
+		    // ones in flight, and are retried by their senders.
+		    writeQueue.clear();
 		}
 
 		// wakeup all waiting threads		
@@ -170,7 +187,7 @@ public class ClientSynchroMessageConnectionImpl implements ClientSynchroMessageC
 				rm.got = true;
 				rm.msg = ce;
 			    }
-			    rm.notify();
+			    rm.notifyAll();
 			}
 		    }
 
@@ -267,9 +284,7 @@ public class ClientSynchroMessageConnectionImpl implements ClientSynchroMessageC
 		}
 
 		// send out the msg
-		synchronized(connectionLock) {
-		    connection.writeMessage(msg);
-		}
+		writeRequest(msg);
 	    
 		long remainingTime = wtimeout;
 		final long startTime = System.currentTimeMillis();
@@ -325,6 +340,9 @@ public class ClientSynchroMessageConnectionImpl implements ClientSynchroMessageC
 		    retried = true;
 
 		    continue;
+		} else if (mwrapper.msg instanceof IOException) {
+		    // a pipelined batch holding the request failed to be written
+		    throw (IOException)mwrapper.msg;
 		} else {
 		    throw new IOException("Got wrong response: "+mwrapper.msg);
 		}
@@ -336,6 +354,36 @@ public class ClientSynchroMessageConnectionImpl implements ClientSynchroMessageC
 	return ret;
     }
 
+    public Future<Message> sendAsync(Message msg) throws IOException {
+	if (logger.traceOn()) {
+	    logger.trace("sendAsync", "Send a message without waiting its response.");
+	}
+
+	if (!(msg instanceof MBeanServerRequestMessage)) {
+	    throw new IOException("Only a MBeanServerRequestMessage can be sent asynchronously: "+msg);
+	}
+
+	checkState();
+
+	final Long id = new Long(((MBeanServerRequestMessage)msg).getMessageId());
+	final ResponseFuture future = new ResponseFuture(id);
+
+	synchronized(waitingList) {
+	    waitingList.put(id, future);
+	}
+
+	try {
+	    writeRequest(msg);
+	} catch (IOException ioe) {
+	    synchronized(waitingList) {
+		waitingList.remove(id);
+	    }
+	    throw ioe;
+	}
+
+	return future;
+    }
+
     public void close() throws IOException {
 	if (logger.traceOn()) {
 	    logger.trace("close", "Closing this SynchroMessageConnection.");
@@ -368,6 +416,8 @@ public class ClientSynchroMessageConnectionImpl implements ClientSynchroMessageC
 		connection.close();
 	    }
 
+	    writeQueue.clear();
+
 	    clientAdmin.connectionClosed(connection);
 
 	    // clean
@@ -387,7 +437,7 @@ public class ClientSynchroMessageConnectionImpl implements ClientSynchroMessageC
 			    rm.got = true;
 			    rm.msg = ce;
 			}
-			rm.notify();
+			rm.notifyAll();
 		    }
 		}
 		    
@@ -468,8 +518,12 @@ public class ClientSynchroMessageConnectionImpl implements ClientSynchroMessageC
 		    } else if (msg instanceof MBeanServerResponseMessage) {
 			ResponseMsgWrapper mwrapper;
 			synchronized(waitingList) {
-			    mwrapper = (ResponseMsgWrapper)waitingList.get(
-                                new Long(((MBeanServerResponseMessage)msg).getMessageId()));
+			    final Long id = new Long(((MBeanServerResponseMessage)msg).getMessageId());
+			    mwrapper = (ResponseMsgWrapper)waitingList.get(id);
+			    // nobody else removes an asynchronous request
+			    if (mwrapper instanceof ResponseFuture) {
+				waitingList.remove(id);
+			    }
 			}
 
 			if (mwrapper == null) {
@@ -482,7 +536,7 @@ public class ClientSynchroMessageConnectionImpl implements ClientSynchroMessageC
 			    synchronized(mwrapper) {
 				mwrapper.setMsg(msg);
 				
-				mwrapper.notify();
+				mwrapper.notifyAll();
 			    }
 			}
 		    } else { // unknown message, protocol error	    
@@ -554,6 +608,91 @@ public class ClientSynchroMessageConnectionImpl implements ClientSynchroMessageC
 	}
     }
 
+    /**
+     * The response of a request sent by <code>sendAsync</code>. It is
+     * completed by the reader thread like a <code>ResponseMsgWrapper</code>
+     * and removed from the waiting list once completed or cancelled.
+     */
+    private class ResponseFuture extends ResponseMsgWrapper implements Future<Message> {
+	public ResponseFuture(Long id) {
+	    this.id = id;
+	}
+
+	public boolean cancel(boolean mayInterruptIfRunning) {
+	    synchronized(waitingList) {
+		waitingList.remove(id);
+	    }
+
+	    synchronized(this) {
+		if (got) {
+		    return false;
+		}
+		got = true;
+		cancelled = true;
+		notifyAll();
+		return true;
+	    }
+	}
+
+	public synchronized boolean isCancelled() {
+	    return cancelled;
+	}
+
+	public synchronized boolean isDone() {
+	    return got;
+	}
+
+	/**
+	 * Waits at most the request timeout, as <code>sendWithReturn</code> does.
+	 */
+	public Message get() throws InterruptedException, ExecutionException {
+	    if (!await(wtimeout)) {
+		synchronized(waitingList) {
+		    waitingList.remove(id);
+		}
+		throw new ExecutionException(
+		      new InterruptedIOException("Waiting response timeout: "+wtimeout));
+	    }
+	    return result();
+	}
+
+	public Message get(long timeout, TimeUnit unit)
+		throws InterruptedException, ExecutionException, TimeoutException {
+	    if (!await(unit.toMillis(timeout))) {
+		throw new TimeoutException("Waiting response timeout: "+unit.toMillis(timeout));
+	    }
+	    return result();
+	}
+
+	private synchronized boolean await(long timeout) throws InterruptedException {
+	    long remainingTime = timeout;
+	    final long startTime = System.currentTimeMillis();
+
+	    while (!got && remainingTime > 0) {
+		wait(remainingTime);
+
+		remainingTime = timeout - (System.currentTimeMillis() - startTime);
+	    }
+	    return got;
+	}
+
+	private synchronized Message result() throws ExecutionException {
+	    if (cancelled) {
+		throw new CancellationException("Request "+id+" cancelled");
+	    }
+	    if (msg instanceof MBeanServerResponseMessage) {
+		return (Message)msg;
+	    }
+	    if (msg instanceof Throwable) {
+		throw new ExecutionException((Throwable)msg);
+	    }
+	    throw new ExecutionException(new IOException("Got wrong response: "+msg));
+	}
+
+	private final Long id;
+	private boolean cancelled = false;
+    }
+
     private class RemoteJob implements Runnable {
         public RemoteJob(Message msg) {
             this.msg = msg;
@@ -588,6 +727,108 @@ public class ClientSynchroMessageConnectionImpl implements ClientSynchroMessageC
 //----------------------------------------------
 // private methods
 //----------------------------------------------
+
+    /**
+     * Writes a MBeanServer request whose response wrapper is already in
+     * the waiting list. In pipelined mode the request is queued and the
+     * first thread finding no write in progress writes all the queued
+     * requests with a single flush, while the others return at once to
+     * wait their response. A failed batch write completes the wrappers of
+     * all its requests with the <code>IOException</code>.
+     */
+    private void writeRequest(Message msg) throws IOException {
+	if (!pipelined) {
+	    synchronized(connectionLock) {
+		connection.writeMessage(msg);
+	    }
+	    return;
+	}
+
+	writeQueue.offer(msg);
+	flushWrites();
+    }
+
+    /**
+     * Writes the queued requests, unless another thread is writing them,
+     * in which case that thread writes them before it releases the flag.
+     * A request is so always written without waiting for a later one.
+     */
+    private void flushWrites() {
+	if (!pipelined) {
+	    return;
+	}
+
+	// re-check after releasing the flag: a request queued by a thread
+	// which found the flag set must not be left behind.
+	while (!writeQueue.isEmpty() && writing.compareAndSet(false, true)) {
+	    try {
+		drainWrites();
+	    } finally {
+		writing.set(false);
+	    }
+	}
+    }
+
+    private void drainWrites() {
+	int count;
+	do {
+	    count = 0;
+	    Message m;
+	    while (count < batch.length && (m = writeQueue.poll()) != null) {
+		batch[count++] = m;
+	    }
+	    if (count == 0) {
+		return;
+	    }
+
+	    try {
+		synchronized(connectionLock) {
+		    if (connection instanceof BatchConnectionIf) {
+			((BatchConnectionIf)connection).writeMessages(batch, count);
+		    } else {
+			for (int i = 0; i < count; i++) {
+			    connection.writeMessage(batch[i]);
+			}
+		    }
+		}
+	    } catch (Exception e) {
+		failWrites(batch, count, e);
+	    } finally {
+		Arrays.fill(batch, 0, count, null);
+	    }
+	} while (count == batch.length);
+    }
+
+    private void failWrites(Message[] msgs, int count, Exception e) {
+	if (logger.traceOn()) {
+	    logger.trace("failWrites", "Failed to write "+count+" requests: "+e);
+	}
+
+	for (int i = 0; i < count; i++) {
+	    final Long id = new Long(((MBeanServerRequestMessage)msgs[i]).getMessageId());
+	    ResponseMsgWrapper rm;
+	    synchronized(waitingList) {
+		rm = (ResponseMsgWrapper)waitingList.get(id);
+		if (rm instanceof ResponseFuture) {
+		    waitingList.remove(id);
+		}
+	    }
+	    if (rm == null) {
+		continue;
+	    }
+
+	    final IOException ioe = new IOException("Failed to write the request: "+e);
+	    EnvHelp.initCause(ioe, e);
+	    synchronized(rm) {
+		if (!rm.got) {
+		    rm.got = true;
+		    rm.msg = ioe;
+		}
+		rm.notifyAll();
+	    }
+	}
+    }
+
     private void checkState() throws IOException {
 	synchronized(stateLock) {
 	    if (state == CONNECTED) {
@@ -648,6 +889,15 @@ public class ClientSynchroMessageConnectionImpl implements ClientSynchroMessageC
 
     private transient long wtimeout;
 
+    /**
+     * Pipelined mode: the requests waiting to be written, the flag held
+     * by the thread writing them and the batch it writes them from.
+     */
+    private transient boolean pipelined = false;
+    private transient final ConcurrentLinkedQueue<Message> writeQueue = new ConcurrentLinkedQueue<Message>();
+    private transient final AtomicBoolean writing = new AtomicBoolean(false);
+    private transient Message[] batch;
+
     /**
      * Maps message id to ResponseMsgWrapper, locked at itself when the map is updated.
      * A ResponseMsgWrapper is used to wait for response for given request.
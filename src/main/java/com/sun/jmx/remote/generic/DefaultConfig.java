@@ -55,6 +55,7 @@ import java.net.Socket;
 import java.util.Map;
 
 import com.heliosapm.utils.config.ConfigurationHelper;
+import com.sun.jmx.remote.opt.internal.RingNotificationBuffer;
 import com.sun.jmx.remote.opt.util.EnvHelp;
 
 public class DefaultConfig {
@@ -432,6 +433,191 @@ public class DefaultConfig {
     	return ConfigurationHelper.getIntSystemThenEnvProperty(SERVER_BACKLOG, 100);
     }
 
+    // ===============================================================================
+    //		NIO TRANSPORT OPTIONS
+    // ===============================================================================
+    
+    /**
+     * <p>Name of the attribute that specifies whether the JMXMP connector server uses the selector based NIO transport
+     * and the connector client writes length prefixed message frames. Clients and servers must agree. Its default value is false</p>
+     */
+    public final static String NIO_TRANSPORT = "jmx.remote.x.nio";
+    
+    /**
+     * Indicates if the <b>NIO transport</b> with length prefixed message frames is used.
+     * The passed env map will be inspected first, then defaults to {@link ConfigurationHelper}.
+     * @param env The jmx client's or server's environment map
+     * @return true if the NIO transport is used
+     */
+    public static boolean isNioTransport(final Map<String, ?> env) {
+    	final Object v = env==null ? null : env.get(NIO_TRANSPORT);
+    	if(v!=null) return "true".equals(v.toString().trim().toLowerCase());
+    	return ConfigurationHelper.getBooleanSystemThenEnvProperty(NIO_TRANSPORT, false);
+    }
+    
+    /**
+     * <p>Name of the attribute that specifies the number of NIO transport selector threads. Its default value is 2</p>
+     */
+    public final static String NIO_SELECTORS = "jmx.remote.x.nio.selectors";
+    
+    /**
+     * Returns the <b>number of selector threads</b> for the NIO transport.
+     * The passed env map will be inspected first, then defaults to {@link ConfigurationHelper}.
+     * @param env The jmx server's environment map
+     * @return the number of selector threads
+     */
+    public static int getNioSelectors(final Map<String, ?> env) {
+    	return Math.max(1, getInt(env, NIO_SELECTORS, 2));
+    }
+    
+    /**
+     * <p>Name of the attribute that specifies the maximum number of threads executing requests for all
+     * the connections of an NIO transport server. Requests wait in a queue when every thread is busy. A notification
+     * fetch holds its thread until notifications arrive or the fetch times out, so this should exceed the number of
+     * connections expected to listen for notifications. Its default value is 64</p>
+     */
+    public final static String NIO_REQUEST_THREADS = "jmx.remote.x.nio.request.threads";
+    
+    /**
+     * Returns the <b>maximum number of request threads</b> for the NIO transport.
+     * The passed env map will be inspected first, then defaults to {@link ConfigurationHelper}.
+     * @param env The jmx server's environment map
+     * @return the maximum number of request threads
+     */
+    public static int getNioRequestThreads(final Map<String, ?> env) {
+    	return Math.max(1, getInt(env, NIO_REQUEST_THREADS, 64));
+    }
+    
+    /**
+     * <p>Name of the attribute that specifies the largest message frame in bytes the NIO transport accepts. Its default value is 64MB</p>
+     */
+    public final static String NIO_MAX_FRAME = "jmx.remote.x.nio.max.frame";
+    
+    /**
+     * Returns the <b>largest message frame in bytes</b> the NIO transport accepts.
+     * The passed env map will be inspected first, then defaults to {@link ConfigurationHelper}.
+     * @param env The jmx client's or server's environment map
+     * @return the largest message frame size
+     */
+    public static int getNioMaxFrame(final Map<String, ?> env) {
+    	return Math.max(1024, getInt(env, NIO_MAX_FRAME, 64 * 1024 * 1024));
+    }
+    
+    /**
+     * <p>Name of the attribute that specifies the number of bytes an NIO transport connection may have queued for writing
+     * before writers wait for the client to catch up. Its default value is 4MB</p>
+     */
+    public final static String NIO_MAX_PENDING_WRITE = "jmx.remote.x.nio.max.pending.write";
+    
+    /**
+     * Returns the <b>number of bytes an NIO transport connection may have queued for writing</b>.
+     * The passed env map will be inspected first, then defaults to {@link ConfigurationHelper}.
+     * @param env The jmx server's environment map
+     * @return the maximum number of bytes queued for writing
+     */
+    public static int getNioMaxPendingWrite(final Map<String, ?> env) {
+    	return Math.max(1024, getInt(env, NIO_MAX_PENDING_WRITE, 4 * 1024 * 1024));
+    }
+    
+    /**
+     * <p>Name of the attribute that specifies the number of requests an NIO transport connection may have waiting for or
+     * executing on a request thread before the server stops reading from the connection. Its default value is 64</p>
+     */
+    public final static String NIO_MAX_PENDING_REQUESTS = "jmx.remote.x.nio.max.pending.requests";
+    
+    /**
+     * Returns the <b>number of requests an NIO transport connection may have pending</b> before the server stops reading from it.
+     * The passed env map will be inspected first, then defaults to {@link ConfigurationHelper}.
+     * @param env The jmx server's environment map
+     * @return the maximum number of pending requests per connection
+     */
+    public static int getNioMaxPendingRequests(final Map<String, ?> env) {
+    	return Math.max(1, getInt(env, NIO_MAX_PENDING_REQUESTS, 64));
+    }
+    
+    // ===============================================================================
+    //		NOTIFICATION BUFFER OPTIONS
+    // ===============================================================================
+    
+    /**
+     * <p>Name of the attribute that specifies whether the connector server buffers notifications in a lock free
+     * {@link RingNotificationBuffer} rather than the shared <code>ArrayNotificationBuffer</code>. Its default value is false</p>
+     */
+    public final static String NOTIF_RING_BUFFER = "jmx.remote.x.notification.ring";
+    
+    /**
+     * Indicates if the connector server buffers notifications in a {@link RingNotificationBuffer}.
+     * The passed env map will be inspected first, then defaults to {@link ConfigurationHelper}.
+     * @param env The jmx server's environment map
+     * @return true if the ring buffer is used
+     */
+    public static boolean isNotifRingBuffer(final Map<String, ?> env) {
+    	final Object v = env==null ? null : env.get(NOTIF_RING_BUFFER);
+    	if(v!=null) return "true".equals(v.toString().trim().toLowerCase());
+    	return ConfigurationHelper.getBooleanSystemThenEnvProperty(NOTIF_RING_BUFFER, false);
+    }
+    
+    /**
+     * <p>Name of the attribute that specifies the {@link RingNotificationBuffer.OverflowPolicy} of the ring buffer,
+     * <code>OVERWRITE</code> or <code>DROP_NEWEST</code>. Its default value is OVERWRITE</p>
+     */
+    public final static String NOTIF_OVERFLOW = "jmx.remote.x.notification.overflow";
+    
+    /**
+     * Returns the <b>overflow policy</b> of the notification ring buffer.
+     * The passed env map will be inspected first, then defaults to {@link ConfigurationHelper}.
+     * @param env The jmx server's environment map
+     * @return the overflow policy
+     */
+    public static RingNotificationBuffer.OverflowPolicy getNotifOverflowPolicy(final Map<String, ?> env) {
+    	final Object v = env==null ? null : env.get(NOTIF_OVERFLOW);
+    	return RingNotificationBuffer.OverflowPolicy.decode(v!=null ? v : ConfigurationHelper.getSystemThenEnvProperty(NOTIF_OVERFLOW, null),
+    		RingNotificationBuffer.OverflowPolicy.OVERWRITE);
+    }
+    
+    /**
+     * <p>Name of the attribute that specifies whether a client connection pipelines its MBeanServer requests,
+     * coalescing the requests submitted concurrently by several threads into a single write and flush.
+     * Its default value is false</p>
+     */
+    public final static String CLIENT_PIPELINE = "jmx.remote.x.client.pipeline";
+    
+    /**
+     * Indicates if a client connection pipelines its MBeanServer requests.
+     * The passed env map will be inspected first, then defaults to {@link ConfigurationHelper}.
+     * @param env The jmx client's environment map
+     * @return true if requests are pipelined
+     */
+    public static boolean isClientPipeline(final Map<String, ?> env) {
+    	final Object v = env==null ? null : env.get(CLIENT_PIPELINE);
+    	if(v!=null) return "true".equals(v.toString().trim().toLowerCase());
+    	return ConfigurationHelper.getBooleanSystemThenEnvProperty(CLIENT_PIPELINE, false);
+    }
+    
+    /**
+     * <p>Name of the attribute that specifies the maximum number of pipelined requests written in one batch
+     * before the connection is flushed. Its default value is 128</p>
+     */
+    public final static String CLIENT_PIPELINE_BATCH = "jmx.remote.x.client.pipeline.batch";
+    
+    /**
+     * Returns the <b>maximum number of pipelined requests</b> written per flush.
+     * The passed env map will be inspected first, then defaults to {@link ConfigurationHelper}.
+     * @param env The jmx client's environment map
+     * @return the maximum batch size
+     */
+    public static int getClientPipelineBatch(final Map<String, ?> env) {
+    	return Math.max(1, getInt(env, CLIENT_PIPELINE_BATCH, 128));
+    }
+    
+    private static int getInt(final Map<String, ?> env, final String key, final int defaultValue) {
+    	try {
+    		final Object v = env==null ? null : env.get(key);
+    		if(v!=null) return Number.class.isInstance(v) ? ((Number)v).intValue() : new Double(v.toString().trim()).intValue();
+    	} catch (Exception x) {/* No Op */}
+    	return ConfigurationHelper.getIntSystemThenEnvProperty(key, defaultValue);
+    }
+
     // ===============================================================================
     
     /**
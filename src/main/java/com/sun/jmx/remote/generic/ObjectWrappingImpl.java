@@ -54,17 +54,29 @@ import java.io.*;
 
 import javax.management.remote.generic.ObjectWrapping;
 
+import com.sun.jmx.remote.codec.BinaryMessageCodec;
+import com.sun.jmx.remote.codec.WrappedObject;
+
 /**
  * This class is the default implementation of the interface
  * <code>ObjectWrapping</code>.  Objects are wrapped in a byte array
  * containing the output of {@link
- * ObjectOutputStream#writeObject(Object)}.
+ * ObjectOutputStream#writeObject(Object)}.  Objects that the {@link
+ * BinaryMessageCodec} can encode directly are wrapped in a {@link
+ * WrappedObject} instead, which Java serialization replaces with the
+ * same byte array.  The wrapper holds a {@link
+ * BinaryMessageCodec#snapshot(Object) snapshot} of the object, since
+ * the message may be written after the caller has changed it.
  */ 
 public class ObjectWrappingImpl implements ObjectWrapping {
 
     public ObjectWrappingImpl() {}
     
     public Object wrap(Object obj) throws IOException {
+	if (BinaryMessageCodec.canEncode(obj)) {
+	    return new WrappedObject(BinaryMessageCodec.snapshot(obj));
+	}
+
 	ByteArrayOutputStream baos = new ByteArrayOutputStream();
 	ObjectOutputStream oos = new ObjectOutputStream(baos);
 	oos.writeObject(obj);
@@ -75,6 +87,10 @@ public class ObjectWrappingImpl implements ObjectWrapping {
     public Object unwrap(Object wrapped, ClassLoader cloader)
 	    throws IOException, ClassNotFoundException {
 
+	if (wrapped instanceof WrappedObject) {
+	    return ((WrappedObject)wrapped).getValue();
+	}
+
 	ByteArrayInputStream bais = new ByteArrayInputStream((byte[])wrapped);
 	ObjectInputStreamWithLoader ois = new ObjectInputStreamWithLoader(bais);
 	return ois.readObject(cloader);
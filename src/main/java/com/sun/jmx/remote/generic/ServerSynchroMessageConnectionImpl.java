@@ -139,6 +139,13 @@ public class ServerSynchroMessageConnectionImpl implements ServerSynchroMessageC
 	}
 	callback = cb;
 
+	// a connection that pushes its messages needs no reader thread and
+	// executes the requests on its own bounded pool
+	if (connection instanceof AsynchroMessageConnection) {
+	    ((AsynchroMessageConnection)connection).setMessageListener(new AsynchroReader());
+	    return;
+	}
+
 	threads = new ThreadService(DefaultConfig.getServerMinThreads(env),
 				    DefaultConfig.getServerMaxThreads(env));
 
@@ -292,6 +299,29 @@ public class ServerSynchroMessageConnectionImpl implements ServerSynchroMessageC
 	private boolean executingThreadInterrupted = false;
     }
 
+    private class AsynchroReader implements AsynchroMessageConnection.MessageListener {
+	public void onMessage(Message msg) {
+	    if (stopped()) {
+		return;
+	    }
+	    // already on a request thread of the connection
+	    new RemoteJob(msg).run();
+	}
+
+	public void onException(Exception e) {
+	    if (stopped()) {
+		return;
+	    }
+	    callback.connectionException(e);
+	}
+
+	private boolean stopped() {
+	    synchronized(stateLock) {
+		return state != CONNECTED;
+	    }
+	}
+    }
+
     private class RemoteJob implements Runnable {
 	public RemoteJob(Message msg) {
 	    this.msg = msg;
@@ -0,0 +1,813 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.sun.jmx.remote.opt.internal;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerFactory;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationBroadcaster;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.NotificationFilter;
+import javax.management.NotificationFilterSupport;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.QueryEval;
+import javax.management.QueryExp;
+import javax.management.remote.NotificationResult;
+import javax.management.remote.TargetedNotification;
+import javax.management.timer.Timer;
+
+import com.sun.jmx.remote.opt.util.ClassLogger;
+import com.sun.jmx.remote.opt.util.EnvHelp;
+
+/**
+ * <p>Title: RingNotificationBuffer</p>
+ * <p>Description: A {@link NotificationBuffer} that replaces the single monitor of {@link ArrayNotificationBuffer}
+ * with a multi-producer ring. Publishing a notification claims a sequence number with one atomic increment and
+ * writes the slot without locking, so MBeans emitting notifications never block each other or the fetchers.
+ * Fetchers scan the ring from their own sequence number, evaluating listener filters against a snapshot of the
+ * client's listeners taken once per batch, and only take a lock to wait when they have caught up.</p>
+ * <p>Each client connection registers a cursor through {@link #addClient(Set, String)} which records how far it has
+ * fetched and how many notifications it lost. What happens when the ring is full is set by the {@link OverflowPolicy}.</p>
+ * <p>Unlike {@link ArrayNotificationBuffer}, a ring is not shared between connector servers of the same MBeanServer.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.sun.jmx.remote.opt.internal.RingNotificationBuffer</code></p>
+ */
+
+public class RingNotificationBuffer implements NotificationBuffer {
+
+	/**
+	 * <p>Title: OverflowPolicy</p>
+	 * <p>Description: Enumerates what happens to a new notification when the ring is full</p>
+	 */
+	public static enum OverflowPolicy {
+		/** The oldest notification is overwritten. Clients that had not fetched it see it as lost, as with {@link ArrayNotificationBuffer} */
+		OVERWRITE,
+		/** The new notification is dropped while the slowest client with listeners is a full ring behind, so no client loses a buffered notification */
+		DROP_NEWEST;
+
+		/**
+		 * Decodes the passed value to an OverflowPolicy, ignoring case
+		 * @param value The value to decode
+		 * @param defaultPolicy The policy to return if the value is null or not a policy name
+		 * @return the decoded policy
+		 */
+		public static OverflowPolicy decode(final Object value, final OverflowPolicy defaultPolicy) {
+			if(value==null) return defaultPolicy;
+			if(value instanceof OverflowPolicy) return (OverflowPolicy)value;
+			try {
+				return valueOf(value.toString().trim().toUpperCase());
+			} catch (Exception ex) {
+				return defaultPolicy;
+			}
+		}
+	}
+
+	/** The MBeanServer whose notifications are buffered */
+	private final MBeanServer mbeanServer;
+	/** The overflow policy */
+	private final OverflowPolicy overflowPolicy;
+	/** The ring capacity, a power of 2 */
+	private final int capacity;
+	/** The ring index mask */
+	private final int mask;
+	/** The ring slots */
+	private final AtomicReferenceArray<Slot> ring;
+	/** The sequence number of the first notification. Starts at the current time, like {@link ArrayNotificationBuffer} */
+	private final long baseSequence;
+	/** The number of ring positions claimed by publishers */
+	private final AtomicLong claimed = new AtomicLong(0L);
+	/** The lowest position a client with listeners still has to fetch, recomputed when the ring looks full */
+	private volatile long slowest = 0L;
+	/** The client cursors keyed by the identity of their listener set */
+	private final Map<IdentityKey, Cursor> clients = new ConcurrentHashMap<IdentityKey, Cursor>();
+	/** The number of notifications dropped by {@link OverflowPolicy#DROP_NEWEST} */
+	private final AtomicLong dropped = new AtomicLong(0L);
+	/** The number of notifications lost by all clients, including clients that have gone */
+	private final AtomicLong lost = new AtomicLong(0L);
+	/** The number of fetchers waiting for notifications */
+	private final AtomicInteger waiters = new AtomicInteger(0);
+	/** The lock fetchers wait on */
+	private final ReentrantLock waitLock = new ReentrantLock();
+	/** Signalled when a notification is published or the buffer is disposed */
+	private final Condition published = waitLock.newCondition();
+	/** Indicates the buffer has been disposed */
+	private volatile boolean disposed = false;
+	/** The names of MBeans registered while the initial broadcaster query runs, or null once it has completed */
+	private Set<ObjectName> createdDuringQuery;
+
+	private static final TargetedNotification[] EMPTY_NOTIFS = {};
+	private static final ListenerInfo[] EMPTY_LISTENERS = {};
+
+	private static final String broadcasterClass = NotificationBroadcaster.class.getName();
+
+	private static final ClassLogger logger = new ClassLogger("javax.management.remote.misc", "RingNotificationBuffer");
+
+	/**
+	 * Creates a new ring buffer for the passed MBeanServer, sized by the notification buffer size in the passed environment
+	 * @param mbs The MBeanServer to buffer notifications from
+	 * @param env The connector server environment
+	 * @param overflowPolicy The overflow policy, or null for {@link OverflowPolicy#OVERWRITE}
+	 * @return the new buffer
+	 */
+	public static RingNotificationBuffer getNotificationBuffer(final MBeanServer mbs, final Map env, final OverflowPolicy overflowPolicy) {
+		return new RingNotificationBuffer(mbs, EnvHelp.getNotifBufferSize(env), overflowPolicy);
+	}
+
+	/**
+	 * Creates a new RingNotificationBuffer and starts listening to every NotificationBroadcaster in the MBeanServer
+	 * @param mbs The MBeanServer to buffer notifications from
+	 * @param size The minimum number of notifications buffered. Rounded up to a power of 2.
+	 * @param overflowPolicy The overflow policy, or null for {@link OverflowPolicy#OVERWRITE}
+	 */
+	public RingNotificationBuffer(final MBeanServer mbs, final int size, final OverflowPolicy overflowPolicy) {
+		if(mbs==null) throw new IllegalArgumentException("The passed MBeanServer was null");
+		int cap = 1;
+		while(cap < size && cap < (1 << 30)) cap <<= 1;
+		mbeanServer = mbs;
+		capacity = cap;
+		mask = cap - 1;
+		ring = new AtomicReferenceArray<Slot>(cap);
+		this.overflowPolicy = overflowPolicy==null ? OverflowPolicy.OVERWRITE : overflowPolicy;
+		baseSequence = System.currentTimeMillis();
+		if (logger.traceOn()) {
+			logger.trace("Constructor", "capacity=" + capacity + ", overflow=" + this.overflowPolicy);
+		}
+		createListeners();
+	}
+
+	// ===============================================================================
+	//		CLIENTS
+	// ===============================================================================
+
+	/**
+	 * Registers a client cursor for the passed listener set. Fetches made with the set are tracked by the cursor.
+	 * @param listeners The client's listener set, as passed to {@link #fetchNotifications(Set, long, long, int)}
+	 * @param clientId The client's connection id
+	 */
+	public void addClient(final Set listeners, final String clientId) {
+		clients.put(new IdentityKey(listeners), new Cursor(listeners, clientId, claimed.get(), dropped.get()));
+	}
+
+	/**
+	 * Removes the client cursor for the passed listener set
+	 * @param listeners The client's listener set
+	 */
+	public void removeClient(final Set listeners) {
+		clients.remove(new IdentityKey(listeners));
+	}
+
+	/**
+	 * Returns the number of notifications each registered client has lost, either overwritten before the client fetched
+	 * them, whether they would have matched its listeners or not, or dropped since the client registered
+	 * @return a map of lost notification counts keyed by client connection id
+	 */
+	public Map<String, Long> getLostNotifications() {
+		final Map<String, Long> map = new TreeMap<String, Long>();
+		final long d = dropped.get();
+		for(Cursor c: clients.values()) {
+			map.put(c.clientId, c.lost.get() + d - c.droppedAtStart);
+		}
+		return map;
+	}
+
+	/**
+	 * Returns the number of notifications lost by all clients, including clients that are no longer connected,
+	 * plus the number dropped by {@link OverflowPolicy#DROP_NEWEST}
+	 * @return the total number of lost notifications
+	 */
+	public long getLostNotificationCount() {
+		return lost.get() + dropped.get();
+	}
+
+	/**
+	 * Returns the number of notifications dropped by {@link OverflowPolicy#DROP_NEWEST}
+	 * @return the number of dropped notifications
+	 */
+	public long getDroppedNotificationCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * Returns the number of notifications published to the ring
+	 * @return the number of published notifications
+	 */
+	public long getPublishedNotificationCount() {
+		return claimed.get();
+	}
+
+	/**
+	 * Returns the ring capacity
+	 * @return the ring capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the overflow policy
+	 * @return the overflow policy
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	// ===============================================================================
+	//		PUBLISH
+	// ===============================================================================
+
+	/**
+	 * Publishes a notification to the ring
+	 * @param sender The ObjectName of the MBean that emitted the notification
+	 * @param notif The notification
+	 */
+	void publish(final ObjectName sender, final Notification notif) {
+		if(disposed) return;
+		if(overflowPolicy==OverflowPolicy.DROP_NEWEST && isFull()) {
+			dropped.incrementAndGet();
+			if (logger.debugOn()) {
+				logger.debug("publish", "ring full, dropped notif=" + notif);
+			}
+			return;
+		}
+		final long pos = claimed.getAndIncrement();
+		final int index = (int)(pos & mask);
+		final Slot slot = new Slot(pos, sender, notif);
+		// a publisher delayed by a full lap must not replace the newer notification already in its slot.
+		// Its notification is then lost, which fetchers count as they would an overwritten one.
+		for(;;) {
+			final Slot current = ring.get(index);
+			if(current!=null && current.position > pos) return;
+			if(ring.compareAndSet(index, current, slot)) break;
+		}
+		if(waiters.get() > 0) {
+			waitLock.lock();
+			try {
+				published.signalAll();
+			} finally {
+				waitLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Determines if publishing would overwrite a notification a client with listeners has not fetched.
+	 * The slowest position is only recomputed when the cached one says the ring is full.
+	 * @return true if the ring is full
+	 */
+	private boolean isFull() {
+		final long next = claimed.get();
+		if(next - slowest < capacity) return false;
+		long min = next;
+		for(Cursor c: clients.values()) {
+			if(c.hasListeners()) {
+				final long p = c.position;
+				if(p < min) min = p;
+			}
+		}
+		slowest = min;
+		return next - min >= capacity;
+	}
+
+	// ===============================================================================
+	//		FETCH
+	// ===============================================================================
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Filters are evaluated against a snapshot of the listeners taken when the fetch starts and again after each wait,
+	 * without holding any lock on the buffer.</p>
+	 * @see com.sun.jmx.remote.opt.internal.NotificationBuffer#fetchNotifications(java.util.Set, long, long, int)
+	 */
+	@Override
+	public NotificationResult fetchNotifications(final Set listeners, final long startSequenceNumber, final long timeout, final int maxNotifications) throws InterruptedException {
+		logger.trace("fetchNotifications", "starts");
+		if (startSequenceNumber < 0 || disposed) {
+			return new NotificationResult(baseSequence + earliestPosition(), baseSequence + claimed.get(), EMPTY_NOTIFS);
+		}
+		if (listeners == null || timeout < 0 || maxNotifications < 0) {
+			logger.trace("fetchNotifications", "Bad args");
+			throw new IllegalArgumentException("Bad args to fetch");
+		}
+		long pos = startSequenceNumber - baseSequence;
+		if (pos > claimed.get()) {
+			final String msg = "Start sequence number too big: " + startSequenceNumber + " > " + (baseSequence + claimed.get());
+			logger.trace("fetchNotifications", msg);
+			throw new IllegalArgumentException(msg);
+		}
+		long endTime = System.currentTimeMillis() + timeout;
+		if (endTime < 0) endTime = Long.MAX_VALUE;
+
+		final Cursor cursor = clients.get(new IdentityKey(listeners));
+		long earliest = earliestPosition();
+		if (pos < earliest) {
+			if (pos >= 0) lostBy(cursor, earliest - pos);
+			pos = earliest;
+		}
+		int remaining = maxNotifications;
+		ListenerInfo[] snapshot = snapshot(listeners);
+		final List<TargetedNotification> notifs = new ArrayList<TargetedNotification>();
+		while (true) {
+			final Slot slot = ring.get((int)(pos & mask));
+			if (slot == null || slot.position < pos) {
+				/* Caught up with the publishers. Return what we have, or wait for more. */
+				if (!notifs.isEmpty()) break;
+				final long toWait = endTime - System.currentTimeMillis();
+				if (toWait <= 0 || disposed) break;
+				awaitPublish(pos, toWait);
+				snapshot = snapshot(listeners);
+				continue;
+			}
+			if (slot.position > pos) {
+				/* Overwritten while we were scanning. Return now so the caller sees the gap on the next fetch. */
+				earliest = earliestPosition();
+				break;
+			}
+			if (snapshot.length > 0) {
+				final int before = notifs.size();
+				match(slot, snapshot, notifs);
+				if (notifs.size() > before) {
+					/* Only check the max now so the returned next sequence number is as large as possible */
+					if (remaining <= 0) {
+						while (notifs.size() > before) notifs.remove(notifs.size() - 1);
+						break;
+					}
+					remaining--;
+				}
+			}
+			pos++;
+		}
+		if (cursor != null) cursor.position = pos;
+		final NotificationResult nr = new NotificationResult(baseSequence + earliest, baseSequence + pos, notifs.toArray(new TargetedNotification[notifs.size()]));
+		if (logger.debugOn()) {
+			logger.debug("fetchNotifications", nr.toString());
+		}
+		return nr;
+	}
+
+	/**
+	 * Adds a targeted notification to the passed list for each listener the slot's notification matches
+	 * @param slot The slot to match
+	 * @param snapshot The listeners to match against
+	 * @param notifs The list to add matches to
+	 */
+	private static void match(final Slot slot, final ListenerInfo[] snapshot, final List<TargetedNotification> notifs) {
+		for (ListenerInfo li: snapshot) {
+			if (!li.getObjectName().apply(slot.sender)) continue;
+			final NotificationFilter filter = li.getNotificationFilter();
+			try {
+				if (filter == null || filter.isNotificationEnabled(slot.notification)) {
+					notifs.add(new TargetedNotification(slot.notification, li.getListenerID()));
+				}
+			} catch (RuntimeException rex) {
+				logger.debug("fetchNotifications", rex);
+			}
+		}
+	}
+
+	/**
+	 * Waits for the notification at the passed position to be published
+	 * @param pos The position to wait for
+	 * @param toWait The maximum time to wait in ms
+	 * @throws InterruptedException thrown if the thread is interrupted while waiting
+	 */
+	private void awaitPublish(final long pos, final long toWait) throws InterruptedException {
+		waitLock.lock();
+		try {
+			waiters.incrementAndGet();
+			try {
+				/* Re-check under the lock, after registering as a waiter, so a publish cannot slip between */
+				final Slot slot = ring.get((int)(pos & mask));
+				if ((slot == null || slot.position < pos) && !disposed) {
+					published.await(toWait, TimeUnit.MILLISECONDS);
+				}
+			} finally {
+				waiters.decrementAndGet();
+			}
+		} finally {
+			waitLock.unlock();
+		}
+	}
+
+	/**
+	 * Takes a snapshot of the passed listener set
+	 * @param listeners The listener set, synchronized on for the copy
+	 * @return the snapshot
+	 */
+	private static ListenerInfo[] snapshot(final Set listeners) {
+		synchronized (listeners) {
+			return listeners.isEmpty() ? EMPTY_LISTENERS : (ListenerInfo[])listeners.toArray(new ListenerInfo[listeners.size()]);
+		}
+	}
+
+	/**
+	 * Records notifications lost by a client
+	 * @param cursor The client's cursor, or null if the client is not registered
+	 * @param count The number of notifications lost
+	 */
+	private void lostBy(final Cursor cursor, final long count) {
+		lost.addAndGet(count);
+		if (cursor != null) cursor.lost.addAndGet(count);
+		if (logger.traceOn()) {
+			logger.trace("fetchNotifications", "client " + (cursor==null ? "" : cursor.clientId) + " lost " + count + " notifs");
+		}
+	}
+
+	/**
+	 * Returns the position of the oldest notification still in the ring
+	 * @return the oldest position
+	 */
+	private long earliestPosition() {
+		return Math.max(0L, claimed.get() - capacity);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.sun.jmx.remote.opt.internal.NotificationBuffer#dispose()
+	 */
+	@Override
+	public void dispose() {
+		logger.trace("dispose", "starts");
+		disposed = true;
+		waitLock.lock();
+		try {
+			published.signalAll();
+		} finally {
+			waitLock.unlock();
+		}
+		destroyListeners();
+		clients.clear();
+		logger.trace("dispose", "ends");
+	}
+
+	// ===============================================================================
+	//		MBEAN LISTENERS
+	// ===============================================================================
+
+	/*
+	 * Adds the buffer listener to every NotificationBroadcaster in the MBeanServer and to every one registered later.
+	 * MBeans registered while the query runs are collected in createdDuringQuery and added once it completes, so none is
+	 * missed or added twice. No lock is held while adding listeners, as an MBean's addNotificationListener is arbitrary
+	 * code. See ArrayNotificationBuffer.createListeners.
+	 */
+	private void createListeners() {
+		synchronized (this) {
+			createdDuringQuery = new HashSet<ObjectName>();
+		}
+		try {
+			addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, creationListener, creationFilter, null);
+		} catch (Exception e) {
+			final String msg = "Can't add listener to MBean server delegate: ";
+			RuntimeException re = new IllegalArgumentException(msg + e);
+			EnvHelp.initCause(re, e);
+			logger.fine("createListeners", msg + e);
+			logger.debug("createListeners", e);
+			throw re;
+		}
+		final Set<ObjectName> names = new HashSet<ObjectName>(queryNames(null, broadcasterQuery));
+		synchronized (this) {
+			names.addAll(createdDuringQuery);
+			createdDuringQuery = null;
+		}
+		for (ObjectName name: names) {
+			addBufferListener(name);
+		}
+	}
+
+	private void destroyListeners() {
+		try {
+			removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, creationListener);
+		} catch (Exception e) {
+			logger.warning("remove listener from MBeanServer delegate", e);
+		}
+		for (ObjectName name: queryNames(null, broadcasterQuery)) {
+			removeBufferListener(name);
+		}
+	}
+
+	/* Must not be synchronized while adding the listener. See createListeners. */
+	private void createdNotification(final MBeanServerNotification n) {
+		final ObjectName name = n.getMBeanName();
+		synchronized (this) {
+			if (createdDuringQuery != null) {
+				createdDuringQuery.add(name);
+				return;
+			}
+		}
+		if (isInstanceOf(mbeanServer, name, broadcasterClass)) {
+			addBufferListener(name);
+			if (disposed) removeBufferListener(name);
+		}
+	}
+
+	private void addBufferListener(final ObjectName name) {
+		try {
+			addNotificationListener(name, bufferListener, null, name);
+		} catch (Exception e) {
+			/* The MBean was unregistered after the query, or its addNotificationListener failed */
+			logger.trace("addBufferListener", e);
+		}
+	}
+
+	private void removeBufferListener(final ObjectName name) {
+		try {
+			removeNotificationListener(name, bufferListener);
+		} catch (Exception e) {
+			logger.trace("removeBufferListener", e);
+		}
+	}
+
+	private void addNotificationListener(final ObjectName name, final NotificationListener listener, final NotificationFilter filter, final Object handback) throws Exception {
+		try {
+			AccessController.doPrivileged(new PrivilegedExceptionAction<Void>() {
+				public Void run() throws InstanceNotFoundException {
+					mbeanServer.addNotificationListener(name, listener, filter, handback);
+					return null;
+				}
+			});
+		} catch (Exception e) {
+			throw extractException(e);
+		}
+	}
+
+	private void removeNotificationListener(final ObjectName name, final NotificationListener listener) throws Exception {
+		try {
+			AccessController.doPrivileged(new PrivilegedExceptionAction<Void>() {
+				public Void run() throws Exception {
+					mbeanServer.removeNotificationListener(name, listener);
+					return null;
+				}
+			});
+		} catch (Exception e) {
+			throw extractException(e);
+		}
+	}
+
+	private Set<ObjectName> queryNames(final ObjectName name, final QueryExp query) {
+		try {
+			return AccessController.doPrivileged(new PrivilegedAction<Set<ObjectName>>() {
+				public Set<ObjectName> run() {
+					return mbeanServer.queryNames(name, query);
+				}
+			});
+		} catch (RuntimeException e) {
+			logger.fine("queryNames", "Failed to query names: " + e);
+			logger.debug("queryNames", e);
+			throw e;
+		}
+	}
+
+	private static boolean isInstanceOf(final MBeanServer mbs, final ObjectName name, final String className) {
+		try {
+			return AccessController.doPrivileged(new PrivilegedExceptionAction<Boolean>() {
+				public Boolean run() throws InstanceNotFoundException {
+					return mbs.isInstanceOf(name, className);
+				}
+			});
+		} catch (Exception e) {
+			logger.fine("isInstanceOf", "failed: " + e);
+			logger.debug("isInstanceOf", e);
+			return false;
+		}
+	}
+
+	private static Exception extractException(Exception e) {
+		while (e instanceof PrivilegedActionException) {
+			e = ((PrivilegedActionException)e).getException();
+		}
+		return e;
+	}
+
+	/** Publishes the notifications of every broadcaster MBean. The handback is the MBean's ObjectName. */
+	private final NotificationListener bufferListener = new NotificationListener() {
+		public void handleNotification(final Notification notif, final Object handback) {
+			publish((ObjectName)handback, notif);
+		}
+	};
+
+	/** Adds the buffer listener to newly registered broadcaster MBeans */
+	private final NotificationListener creationListener = new NotificationListener() {
+		public void handleNotification(final Notification notif, final Object handback) {
+			createdNotification((MBeanServerNotification)notif);
+		}
+	};
+
+	private static final NotificationFilter creationFilter;
+	static {
+		final NotificationFilterSupport nfs = new NotificationFilterSupport();
+		nfs.enableType(MBeanServerNotification.REGISTRATION_NOTIFICATION);
+		creationFilter = nfs;
+	}
+
+	private static class BroadcasterQuery extends QueryEval implements QueryExp {
+		private static final long serialVersionUID = 6413283948371207471L;
+		public boolean apply(final ObjectName name) {
+			return isInstanceOf(QueryEval.getMBeanServer(), name, broadcasterClass);
+		}
+	}
+	private static final QueryExp broadcasterQuery = new BroadcasterQuery();
+
+	// ===============================================================================
+	//		SUPPORT CLASSES
+	// ===============================================================================
+
+	/**
+	 * <p>Title: Slot</p>
+	 * <p>Description: An immutable ring entry. The position identifies which lap of the ring wrote it.</p>
+	 */
+	private static final class Slot {
+		final long position;
+		final ObjectName sender;
+		final Notification notification;
+
+		Slot(final long position, final ObjectName sender, final Notification notification) {
+			this.position = position;
+			this.sender = sender;
+			this.notification = notification;
+		}
+	}
+
+	/**
+	 * <p>Title: Cursor</p>
+	 * <p>Description: A client's fetch position and lost notification count</p>
+	 */
+	private static final class Cursor {
+		final Set listeners;
+		final String clientId;
+		final long droppedAtStart;
+		final AtomicLong lost = new AtomicLong(0L);
+		volatile long position;
+
+		Cursor(final Set listeners, final String clientId, final long position, final long droppedAtStart) {
+			this.listeners = listeners;
+			this.clientId = clientId;
+			this.position = position;
+			this.droppedAtStart = droppedAtStart;
+		}
+
+		boolean hasListeners() {
+			synchronized (listeners) {
+				return !listeners.isEmpty();
+			}
+		}
+	}
+
+	/**
+	 * <p>Title: IdentityKey</p>
+	 * <p>Description: A map key comparing the wrapped listener set by identity, as its contents change</p>
+	 */
+	private static final class IdentityKey {
+		final Object key;
+
+		IdentityKey(final Object key) {
+			this.key = key;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(key);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return obj instanceof IdentityKey && ((IdentityKey)obj).key == key;
+		}
+	}
+
+	// ===============================================================================
+	//		BENCHMARK
+	// ===============================================================================
+
+	/**
+	 * Compares the throughput of this buffer and {@link ArrayNotificationBuffer} during a notification storm.
+	 * Producer threads emit notifications from broadcaster MBeans while each client thread fetches with its own listener set.
+	 * @param args <b><code>[producers] [clients] [seconds] [buffer size]</code></b>
+	 * @throws Exception thrown on any error
+	 */
+	public static void main(final String[] args) throws Exception {
+		final int producers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		final int clientCount = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		final int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		final int size = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+		log("Notification storm: producers=" + producers + ", clients=" + clientCount + ", seconds=" + seconds + ", buffer=" + size);
+		for (int i = 0; i < 2; i++) {
+			storm(false, producers, clientCount, seconds, size);
+			storm(true, producers, clientCount, seconds, size);
+		}
+	}
+
+	private static void storm(final boolean useRing, final int producers, final int clientCount, final int seconds, final int size) throws Exception {
+		final MBeanServer mbs = MBeanServerFactory.newMBeanServer();
+		final NotificationBroadcasterSupport[] emitters = new NotificationBroadcasterSupport[producers];
+		for (int i = 0; i < producers; i++) {
+			/* a Timer is a ready made broadcaster MBean. It is never started, so only the producers emit. */
+			emitters[i] = new Timer();
+			mbs.registerMBean(emitters[i], new ObjectName("storm:emitter=" + i));
+		}
+		final Map<String, Object> env = new HashMap<String, Object>();
+		env.put("jmx.remote.x.notification.buffer.size", String.valueOf(size));
+		final NotificationBuffer buffer = useRing ? getNotificationBuffer(mbs, env, OverflowPolicy.OVERWRITE) : ArrayNotificationBuffer.getNotificationBuffer(mbs, env);
+		final AtomicLong sent = new AtomicLong(0L);
+		final AtomicLong delivered = new AtomicLong(0L);
+		final AtomicLong clientLost = new AtomicLong(0L);
+		final long endTime = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+		final CountDownLatch done = new CountDownLatch(producers + clientCount);
+		final ObjectName pattern = new ObjectName("storm:*");
+		for (int c = 0; c < clientCount; c++) {
+			final Set<ListenerInfo> listeners = Collections.synchronizedSet(new HashSet<ListenerInfo>());
+			final NotificationFilterSupport filter = new NotificationFilterSupport();
+			filter.enableType("storm." + (c % 2));
+			listeners.add(new ListenerInfo(Integer.valueOf(c), pattern, filter));
+			if (useRing) ((RingNotificationBuffer)buffer).addClient(listeners, "client-" + c);
+			final Thread t = new Thread("StormClient#" + c) {
+				public void run() {
+					try {
+						long seq = buffer.fetchNotifications(listeners, -1, 0, 0).getNextSequenceNumber();
+						while (System.currentTimeMillis() < endTime) {
+							final NotificationResult nr = buffer.fetchNotifications(listeners, seq, 100, 1000);
+							if (nr.getEarliestSequenceNumber() > seq) clientLost.addAndGet(nr.getEarliestSequenceNumber() - seq);
+							delivered.addAndGet(nr.getTargetedNotifications().length);
+							seq = nr.getNextSequenceNumber();
+						}
+					} catch (Exception ex) {
+						ex.printStackTrace(System.err);
+					} finally {
+						done.countDown();
+					}
+				}
+			};
+			t.setDaemon(true);
+			t.start();
+		}
+		for (int p = 0; p < producers; p++) {
+			final NotificationBroadcasterSupport emitter = emitters[p];
+			final Thread t = new Thread("StormProducer#" + p) {
+				public void run() {
+					long seq = 0;
+					try {
+						while (System.currentTimeMillis() < endTime) {
+							for (int i = 0; i < 100; i++) {
+								emitter.sendNotification(new Notification("storm." + (seq % 2), "storm", seq++));
+							}
+							sent.addAndGet(100);
+						}
+					} finally {
+						done.countDown();
+					}
+				}
+			};
+			t.setDaemon(true);
+			t.start();
+		}
+		done.await();
+		buffer.dispose();
+		log(String.format("%-24s sent/s: %,12d   delivered/s: %,12d   lost by clients: %,d",
+			useRing ? "RingNotificationBuffer" : "ArrayNotificationBuffer",
+			sent.get() / seconds, delivered.get() / seconds, clientLost.get()));
+	}
+
+	private static void log(final Object msg) {
+		System.out.println(msg);
+	}
+}
@@ -47,6 +47,10 @@
 package com.sun.jmx.remote.opt.internal;
 
 import java.io.IOException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import com.sun.jmx.remote.opt.util.ClassLogger;
 
@@ -62,13 +66,13 @@ public abstract class ServerCommunicatorAdmin {
 
 	timestamp = 0;
         if (timeout < Long.MAX_VALUE) {
-            Runnable timeoutTask = new Timeout();
-            final Thread t = new Thread(timeoutTask);
-            t.setName("JMX server connection timeout " + t.getName());
-            // If you change this name you will need to change a unit test
-	    // (NoServerTimeoutTest)
-            t.setDaemon(true);
-            t.start();
+	    // the timeouts of all connections are checked by one shared
+	    // thread rather than a thread waiting for each connection
+	    timeoutTask = new Timeout();
+	    synchronized(lock) {
+		timestamp = System.currentTimeMillis();
+		scheduleTimeout(timeout);
+	    }
         }
     }
 
@@ -113,8 +117,10 @@ public abstract class ServerCommunicatorAdmin {
 	    if (--currentJobs == 0) {
 		timestamp = System.currentTimeMillis();
 		logtime("Admin: Timestamp=",timestamp);
-		// tells the adminor to restart waiting with timeout
-		lock.notify();
+		// restart waiting with timeout
+		if (timeoutTask != null && !timeoutScheduled && !terminated) {
+		    scheduleTimeout(timeout);
+		}
 	    }
 	    return terminated;
 	}
@@ -142,8 +148,12 @@ public abstract class ServerCommunicatorAdmin {
 
 	    terminated = true;
 
-	    // tell Timeout to terminate
-	    lock.notify();
+	    // a cancelled timeout stays queued until the timer is purged
+	    if (timeoutFuture != null) {
+		timeoutFuture.cancel(false);
+		timeoutFuture = null;
+	    }
+	    timeoutScheduled = false;
 	}
     }
 
@@ -152,81 +162,62 @@ public abstract class ServerCommunicatorAdmin {
 // --------------------------------------------------------------
     private class Timeout implements Runnable {
 	public void run() {
-	    boolean stopping = false;
-
 	    synchronized(lock) {
-		if (timestamp == 0) timestamp = System.currentTimeMillis();
-		logtime("Admin: timeout=",timeout);
-		logtime("Admin: Timestamp=",timestamp);
-		
-		while(!terminated) {
-		    try {
-			// wait until there is no more job
-			while(!terminated && currentJobs != 0) {
-			    if (logger.traceOn()) {
-				logger.trace("Timeout-run", 
-					     "Waiting without timeout.");
-			    }
-			    
-			    lock.wait();
-			}
-
-			if (terminated) return;
-
-			final long remaining =
-			    timeout - (System.currentTimeMillis() - timestamp);
-			    
-			logtime("Admin: remaining timeout=",remaining);
-
-			if (remaining > 0) {
-				
-			    if (logger.traceOn()) {
-				logger.trace("Timeout-run", 
-					     "Waiting with timeout: "+
-					     remaining + " ms remaining");
-			    }
-
-			    lock.wait(remaining);
-			}
-
-			if (currentJobs > 0) continue;
-
-			final long elapsed = 
-			    System.currentTimeMillis() - timestamp;
-			logtime("Admin: elapsed=",elapsed);
-
-			if (!terminated && elapsed > timeout) {
-			    if (logger.traceOn()) {
-				logger.trace("Timeout-run", 
-					     "timeout elapsed");
-			    }
-			    logtime("Admin: timeout elapsed! "+
-				    elapsed+">",timeout);
-				// stopping
-			    terminated = true;
-			    
-			    stopping = true;
-			    break;
-			}
-		    } catch (InterruptedException ire) {
-			logger.warning("Timeout-run","Unexpected Exception: "+
-				       ire);
-			logger.debug("Timeout-run",ire);
-			return;
-		    }	
+		timeoutScheduled = false;
+		timeoutFuture = null;
+		if (terminated) return;
+
+		// a new timeout is scheduled when the last job ends
+		if (currentJobs > 0) {
+		    if (logger.traceOn()) {
+			logger.trace("Timeout-run", 
+				     "Waiting without timeout.");
+		    }
+		    return;
+		}
+
+		final long elapsed = 
+		    System.currentTimeMillis() - timestamp;
+		logtime("Admin: elapsed=",elapsed);
+
+		if (elapsed <= timeout) {
+		    logtime("Admin: remaining timeout=",timeout - elapsed);
+		    scheduleTimeout(timeout - elapsed + 1);
+		    return;
 		}
-	    }
 
-	    if (stopping) {
 		if (logger.traceOn()) {
-		    logger.trace("Timeout-run", "Call the doStop.");
+		    logger.trace("Timeout-run", 
+				 "timeout elapsed");
 		}
-		
-		doStop();
+		logtime("Admin: timeout elapsed! "+
+			elapsed+">",timeout);
+		// stopping
+		terminated = true;
 	    }
+
+	    if (logger.traceOn()) {
+		logger.trace("Timeout-run", "Call the doStop.");
+	    }
+
+	    // stopping may block on the connection, so keep it off the shared thread
+	    final Thread t = new Thread(new Runnable() {
+		public void run() {
+		    doStop();
+		}
+	    });
+	    t.setName("JMX server connection timeout " + t.getName());
+	    t.setDaemon(true);
+	    t.start();
 	}
     }
 
+    // called holding lock
+    private void scheduleTimeout(long delay) {
+	timeoutScheduled = true;
+	timeoutFuture = timer.schedule(timeoutTask, delay, TimeUnit.MILLISECONDS);
+    }
+
     private void logtime(String desc,long time) {
 	timelogger.trace("synchro",desc+time);
     }
@@ -244,6 +235,34 @@ public abstract class ServerCommunicatorAdmin {
     // state issue
     private boolean terminated = false;
 
+    private Runnable timeoutTask = null;
+    private boolean timeoutScheduled = false;
+    private ScheduledFuture<?> timeoutFuture = null;
+
+    // If you change this name you will need to change a unit test
+    // (NoServerTimeoutTest)
+    private static final ScheduledThreadPoolExecutor timer =
+	new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+		    final Thread t = new Thread(r);
+		    t.setName("JMX server connection timeout " + t.getName());
+		    t.setDaemon(true);
+		    return t;
+		}
+	    });
+
+    // removes the timeouts cancelled by terminate, which would otherwise
+    // keep their terminated connections until they were due
+    private static final long PURGE_PERIOD = 10000;
+
+    static {
+	timer.scheduleWithFixedDelay(new Runnable() {
+		public void run() {
+		    timer.purge();
+		}
+	    }, PURGE_PERIOD, PURGE_PERIOD, TimeUnit.MILLISECONDS);
+    }
+
     private static final ClassLogger logger =
 	new ClassLogger("javax.management.remote.misc",
 			"ServerCommunicatorAdmin");
@@ -83,10 +83,26 @@ public class ServerNotifForwarder {
     public ServerNotifForwarder(MBeanServer mbeanServer, 
 				Map env, 
 				NotificationBuffer notifBuffer) {
+	this(mbeanServer, env, notifBuffer, null);
+    }
+
+    /**
+     * Creates a forwarder for the client with the given connection id.
+     * If the buffer is a {@link RingNotificationBuffer}, the client's
+     * fetch position and lost notifications are tracked under that id.
+     */
+    public ServerNotifForwarder(MBeanServer mbeanServer, 
+				Map env, 
+				NotificationBuffer notifBuffer,
+				String clientId) {
 	this.mbeanServer = mbeanServer;
 
 	this.notifBuffer = notifBuffer;
 
+	if (notifBuffer instanceof RingNotificationBuffer)
+	    ((RingNotificationBuffer)notifBuffer).addClient(listenerList,
+		clientId == null ? "client-" + System.identityHashCode(this) : clientId);
+
 
 	connectionTimeout = EnvHelp.getServerConnectionTimeout(env);
     }
@@ -236,6 +252,9 @@ public class ServerNotifForwarder {
             }
         }
 
+	if (notifBuffer instanceof RingNotificationBuffer)
+	    ((RingNotificationBuffer)notifBuffer).removeClient(listenerList);
+
         if (logger.traceOn()) {
             logger.trace("terminate", "Terminated.");
         }
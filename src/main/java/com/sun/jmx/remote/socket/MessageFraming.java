@@ -0,0 +1,145 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.sun.jmx.remote.socket;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+
+import javax.management.remote.message.Message;
+
+/**
+ * <p>Title: MessageFraming</p>
+ * <p>Description: Reads and writes JMXMP messages as length prefixed frames, each a 4 byte big endian length followed by
+ * the message serialized on its own object stream. The standard transport writes every message to one continuous object stream,
+ * which can only be read by a thread blocked on the socket. Framed messages can be assembled from non-blocking reads.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.sun.jmx.remote.socket.MessageFraming</code></p>
+ */
+
+final class MessageFraming {
+	/** The length of the frame length prefix */
+	static final int PREFIX = 4;
+
+	/**
+	 * Serializes the passed message into a frame
+	 * @param msg The message to serialize
+	 * @return a buffer holding the length prefix and the serialized message, ready to write
+	 * @throws IOException thrown if the message cannot be serialized
+	 */
+	static ByteBuffer encode(final Message msg) throws IOException {
+		final FrameOutputStream fos = new FrameOutputStream();
+		final ObjectOutputStream oos = new ObjectOutputStream(fos);
+		oos.writeObject(msg);
+		oos.flush();
+		return fos.toFrame();
+	}
+
+	/**
+	 * Reads one frame from the passed stream and deserializes the message in it
+	 * @param in The stream to read from
+	 * @param maxFrame The largest frame accepted
+	 * @param loader The class loader to resolve message classes with, or null for the default resolution
+	 * @return the message
+	 * @throws IOException thrown on any IO error or an invalid frame length
+	 * @throws ClassNotFoundException thrown if a class in the message cannot be resolved
+	 */
+	static Message readFrame(final DataInputStream in, final int maxFrame, final ClassLoader loader) throws IOException, ClassNotFoundException {
+		final int length = in.readInt();
+		checkLength(length, maxFrame);
+		final byte[] frame = new byte[length];
+		in.readFully(frame);
+		return decode(frame, loader);
+	}
+
+	/**
+	 * Deserializes the message in a frame
+	 * @param frame The frame content, without the length prefix
+	 * @param loader The class loader to resolve message classes with, or null for the default resolution
+	 * @return the message
+	 * @throws IOException thrown if the frame is not a serialized message
+	 * @throws ClassNotFoundException thrown if a class in the message cannot be resolved
+	 */
+	static Message decode(final byte[] frame, final ClassLoader loader) throws IOException, ClassNotFoundException {
+		final ObjectInputStream ois = new ObjectInputStreamWithLoader(new ByteArrayInputStream(frame), loader);
+		try {
+			return (Message)ois.readObject();
+		} catch (ClassCastException cce) {
+			throw new StreamCorruptedException("Frame did not contain a message: " + cce.getMessage());
+		}
+	}
+
+	/**
+	 * Validates a frame length
+	 * @param length The frame length read
+	 * @param maxFrame The largest frame accepted
+	 * @throws StreamCorruptedException thrown if the length is negative or too large
+	 */
+	static void checkLength(final int length, final int maxFrame) throws StreamCorruptedException {
+		if(length < 0 || length > maxFrame) throw new StreamCorruptedException("Invalid frame length [" + length + "], max is [" + maxFrame + "]");
+	}
+
+	/**
+	 * <p>Title: FrameOutputStream</p>
+	 * <p>Description: A byte array output stream that reserves the length prefix and hands out the frame without copying</p>
+	 */
+	private static final class FrameOutputStream extends ByteArrayOutputStream {
+		FrameOutputStream() {
+			super(512);
+			count = PREFIX;
+		}
+
+		ByteBuffer toFrame() {
+			final int length = count - PREFIX;
+			buf[0] = (byte)(length >>> 24);
+			buf[1] = (byte)(length >>> 16);
+			buf[2] = (byte)(length >>> 8);
+			buf[3] = (byte)length;
+			return ByteBuffer.wrap(buf, 0, count);
+		}
+	}
+
+	/**
+	 * <p>Title: ObjectInputStreamWithLoader</p>
+	 * <p>Description: An object input stream resolving classes with a supplied class loader</p>
+	 */
+	static class ObjectInputStreamWithLoader extends ObjectInputStream {
+		private final ClassLoader cloader;
+
+		ObjectInputStreamWithLoader(final InputStream in, final ClassLoader cl) throws IOException {
+			super(in);
+			this.cloader = cl;
+		}
+
+		@Override
+		protected Class<?> resolveClass(final ObjectStreamClass aClass) throws IOException, ClassNotFoundException {
+			return cloader == null ? super.resolveClass(aClass) : Class.forName(aClass.getName(), false, cloader);
+		}
+	}
+
+	private MessageFraming() {}
+}
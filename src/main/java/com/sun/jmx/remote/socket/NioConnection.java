@@ -0,0 +1,390 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.sun.jmx.remote.socket;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.message.Message;
+
+import jsr166e.LongAdder;
+
+import com.sun.jmx.remote.generic.AsynchroMessageConnection;
+import com.sun.jmx.remote.opt.util.ClassLogger;
+
+/**
+ * <p>Title: NioConnection</p>
+ * <p>Description: A server side JMXMP connection on a non-blocking socket channel, serviced by one of the
+ * {@link NioConnectionServer}'s selector threads. The selector thread assembles the incoming length prefixed frames,
+ * which are deserialized and executed on the server's request pool once a listener is set, and queued for
+ * {@link #readMessage()} before that. The selector thread stops reading the connection while too many of its requests are
+ * pending on the pool. Writers write directly to the channel when nothing is queued ahead of them and otherwise queue the
+ * frame for the selector thread, waiting when too much is queued for a slow client.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.sun.jmx.remote.socket.NioConnection</code></p>
+ */
+
+final class NioConnection implements AsynchroMessageConnection {
+	/** The channel */
+	private final SocketChannel channel;
+	/** The selector thread servicing this connection */
+	private final NioConnectionServer.NioSelector selector;
+	/** The executor messages are deserialized and delivered on once a listener is set */
+	private final Executor executor;
+	/** Bytes in counter */
+	private final LongAdder bytesIn;
+	/** Bytes out counter */
+	private final LongAdder bytesOut;
+	/** The largest frame accepted */
+	private final int maxFrame;
+	/** The number of bytes that may be queued for writing before writers wait */
+	private final int maxPendingWrite;
+	/** The number of requests that may be pending on the executor before the connection stops being read */
+	private final int maxPendingRequests;
+	/** The number of requests pending on the executor */
+	private final AtomicInteger pendingRequests = new AtomicInteger(0);
+	/** The connection id prefix */
+	private final String idPrefix;
+	/** The selection key, set and used by the selector thread */
+	SelectionKey key = null;
+
+	// read state, only accessed by the selector thread
+	/** The frame length prefix being read */
+	private final byte[] prefix = new byte[MessageFraming.PREFIX];
+	/** The number of prefix bytes read */
+	private int prefixRead = 0;
+	/** The frame being read */
+	private byte[] frame = null;
+	/** The number of frame bytes read */
+	private int frameRead = 0;
+
+	/** Frames and the read failure received before a listener is set, read by {@link #readMessage()} */
+	private final LinkedBlockingQueue<Object> inbound = new LinkedBlockingQueue<Object>();
+	/** Guards the listener hand over */
+	private final Object inboundLock = new Object();
+	/** The message listener */
+	private MessageListener listener = null;
+	/** The class loader messages are deserialized with */
+	private volatile ClassLoader defaultClassLoader = null;
+
+	/** Frames queued for writing, guarded by outLock */
+	private final LinkedList<ByteBuffer> outbound = new LinkedList<ByteBuffer>();
+	/** The number of bytes queued for writing, guarded by outLock */
+	private long pendingWrite = 0L;
+	/** Guards the write queue and the closed state */
+	private final Object outLock = new Object();
+	/** Indicates the connection is closed */
+	private volatile boolean closed = false;
+
+	private static final ClassLogger logger = new ClassLogger("javax.management.remote.misc", "NioConnection");
+
+	/**
+	 * Creates a new NioConnection
+	 * @param channel The accepted channel, in non-blocking mode
+	 * @param selector The selector thread that will service the connection
+	 * @param executor The executor messages are delivered on
+	 * @param bytesIn The input bytes counter
+	 * @param bytesOut The output bytes counter
+	 * @param maxFrame The largest frame accepted
+	 * @param maxPendingWrite The number of bytes that may be queued for writing before writers wait
+	 * @param maxPendingRequests The number of requests that may be pending on the executor before the connection stops being read
+	 */
+	NioConnection(final SocketChannel channel, final NioConnectionServer.NioSelector selector, final Executor executor,
+			final LongAdder bytesIn, final LongAdder bytesOut, final int maxFrame, final int maxPendingWrite, final int maxPendingRequests) {
+		this.channel = channel;
+		this.selector = selector;
+		this.executor = executor;
+		this.bytesIn = bytesIn;
+		this.bytesOut = bytesOut;
+		this.maxFrame = maxFrame;
+		this.maxPendingWrite = maxPendingWrite;
+		this.maxPendingRequests = maxPendingRequests;
+		idPrefix = "jmxmp://" + channel.socket().getInetAddress().getHostName() + ":" + channel.socket().getPort() + " ";
+	}
+
+	/**
+	 * Returns the channel
+	 * @return the channel
+	 */
+	SocketChannel channel() {
+		return channel;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see javax.management.remote.generic.MessageConnection#connect(java.util.Map)
+	 */
+	@Override
+	public void connect(final Map env) throws IOException {
+		if(env != null) {
+			defaultClassLoader = (ClassLoader)env.get(JMXConnectorFactory.DEFAULT_CLASS_LOADER);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see javax.management.remote.generic.MessageConnection#readMessage()
+	 */
+	@Override
+	public Message readMessage() throws IOException, ClassNotFoundException {
+		final Object next;
+		try {
+			next = inbound.take();
+		} catch (InterruptedException ie) {
+			throw new InterruptedIOException("Interrupted while waiting for a message");
+		}
+		if(next instanceof byte[]) {
+			return MessageFraming.decode((byte[])next, defaultClassLoader);
+		}
+		// the failure stays queued so later reads fail the same way
+		inbound.add(next);
+		throw (IOException)next;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.sun.jmx.remote.generic.AsynchroMessageConnection#setMessageListener(com.sun.jmx.remote.generic.AsynchroMessageConnection.MessageListener)
+	 */
+	@Override
+	public void setMessageListener(final MessageListener listener) {
+		if(listener==null) throw new IllegalArgumentException("Null listener.");
+		final List<Object> unread = new ArrayList<Object>();
+		synchronized(inboundLock) {
+			if(this.listener!=null) throw new IllegalStateException("The listener has been set.");
+			this.listener = listener;
+			inbound.drainTo(unread);
+		}
+		for(Object x: unread) {
+			dispatch(listener, x);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see javax.management.remote.generic.MessageConnection#writeMessage(javax.management.remote.message.Message)
+	 */
+	@Override
+	public void writeMessage(final Message msg) throws IOException {
+		if (logger.debugOn()) {
+			logger.debug("writeMessage", "Write a message ...");
+		}
+		final ByteBuffer buf = MessageFraming.encode(msg);
+		synchronized(outLock) {
+			if(closed) throw new IOException("The connection has been closed.");
+			if(outbound.isEmpty()) {
+				bytesOut.add(channel.write(buf));
+				if(!buf.hasRemaining()) return;
+			}
+			outbound.add(buf);
+			pendingWrite += buf.remaining();
+			selector.updateInterest(this);
+			while(pendingWrite > maxPendingWrite && !closed) {
+				try {
+					outLock.wait();
+				} catch (InterruptedException ie) {
+					throw new InterruptedIOException("Interrupted while waiting to write");
+				}
+			}
+			if(closed) throw new IOException("The connection has been closed.");
+		}
+	}
+
+	/**
+	 * Reads what is available from the channel and delivers any completed frames. Called by the selector thread.
+	 * @param rb The selector thread's read buffer
+	 * @throws IOException thrown on any IO error, an invalid frame or the end of the stream
+	 */
+	void onReadable(final ByteBuffer rb) throws IOException {
+		rb.clear();
+		final int read = channel.read(rb);
+		if(read < 0) throw new EOFException("The connection was closed by the client.");
+		bytesIn.add(read);
+		rb.flip();
+		while(rb.hasRemaining()) {
+			if(frame==null) {
+				while(prefixRead < prefix.length && rb.hasRemaining()) {
+					prefix[prefixRead++] = rb.get();
+				}
+				if(prefixRead < prefix.length) break;
+				final int length = ((prefix[0] & 0xFF) << 24) | ((prefix[1] & 0xFF) << 16) | ((prefix[2] & 0xFF) << 8) | (prefix[3] & 0xFF);
+				MessageFraming.checkLength(length, maxFrame);
+				frame = new byte[length];
+				frameRead = 0;
+				prefixRead = 0;
+			}
+			final int take = Math.min(rb.remaining(), frame.length - frameRead);
+			rb.get(frame, frameRead, take);
+			frameRead += take;
+			if(frameRead==frame.length) {
+				final byte[] complete = frame;
+				frame = null;
+				deliver(complete);
+			}
+		}
+	}
+
+	/**
+	 * Writes queued frames until the channel will take no more. Called by the selector thread.
+	 * @throws IOException thrown on any IO error
+	 */
+	void onWritable() throws IOException {
+		synchronized(outLock) {
+			while(!outbound.isEmpty()) {
+				final ByteBuffer buf = outbound.getFirst();
+				final int written = channel.write(buf);
+				bytesOut.add(written);
+				pendingWrite -= written;
+				if(buf.hasRemaining()) break;
+				outbound.removeFirst();
+			}
+			outLock.notifyAll();
+		}
+		updateInterest();
+	}
+
+	/**
+	 * Sets the interest operations of the selection key from the queued writes and the pending requests. Called by the selector thread.
+	 */
+	void updateInterest() {
+		final SelectionKey k = key;
+		if(k==null || !k.isValid()) return;
+		final int ops = (pendingRequests.get() < maxPendingRequests ? SelectionKey.OP_READ : 0) | (hasPendingWrites() ? SelectionKey.OP_WRITE : 0);
+		if(k.interestOps()!=ops) k.interestOps(ops);
+	}
+
+	/**
+	 * Indicates if frames are queued for writing
+	 * @return true if frames are queued for writing
+	 */
+	boolean hasPendingWrites() {
+		synchronized(outLock) {
+			return !outbound.isEmpty();
+		}
+	}
+
+	/**
+	 * Closes the connection after a failure and passes the failure on to the reader. Called by the selector thread.
+	 * @param cause The failure
+	 */
+	void failed(final IOException cause) {
+		if (logger.debugOn()) {
+			logger.debug("failed", cause);
+		}
+		close(cause);
+	}
+
+	private void deliver(final Object frameOrFailure) {
+		final MessageListener l;
+		synchronized(inboundLock) {
+			l = listener;
+			if(l==null) {
+				inbound.add(frameOrFailure);
+				return;
+			}
+		}
+		dispatch(l, frameOrFailure);
+	}
+
+	private void dispatch(final MessageListener l, final Object frameOrFailure) {
+		if(pendingRequests.incrementAndGet()==maxPendingRequests) selector.updateInterest(this);
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						if(frameOrFailure instanceof byte[]) {
+							final Message msg;
+							try {
+								msg = MessageFraming.decode((byte[])frameOrFailure, defaultClassLoader);
+							} catch (Exception ex) {
+								l.onException(ex);
+								return;
+							}
+							l.onMessage(msg);
+						} else {
+							l.onException((Exception)frameOrFailure);
+						}
+					} finally {
+						requestDone();
+					}
+				}
+			});
+		} catch (RejectedExecutionException rex) {
+			// the server is stopping
+			requestDone();
+			if(frameOrFailure instanceof byte[]) close(new IOException("The server has been stopped."));
+		}
+	}
+
+	private void requestDone() {
+		if(pendingRequests.getAndDecrement()==maxPendingRequests) selector.updateInterest(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see javax.management.remote.generic.MessageConnection#close()
+	 */
+	@Override
+	public void close() {
+		if (logger.traceOn()) {
+			logger.trace("close", "Close the connection.");
+		}
+		close(new EOFException("The connection has been closed."));
+	}
+
+	private void close(final IOException cause) {
+		synchronized(outLock) {
+			if(closed) return;
+			closed = true;
+			outbound.clear();
+			outLock.notifyAll();
+		}
+		try {
+			channel.close();
+		} catch (Exception e) {
+			if (logger.debugOn()) {
+				logger.debug("close", e);
+			}
+		}
+		deliver(cause);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see javax.management.remote.generic.MessageConnection#getConnectionId()
+	 */
+	@Override
+	public String getConnectionId() {
+		return idPrefix + System.identityHashCode(this);
+	}
+}
@@ -0,0 +1,479 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package com.sun.jmx.remote.socket;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXServiceURL;
+import javax.management.remote.generic.MessageConnection;
+import javax.management.remote.jmxmp.JMXMPConnector;
+import javax.management.remote.jmxmp.JMXMPConnectorServer;
+
+import jsr166e.LongAdder;
+
+import com.heliosapm.utils.jmx.JMXManagedThreadFactory;
+import com.heliosapm.utils.system.ProcessLauncher;
+import com.heliosapm.utils.system.ProcessStreamPump;
+import com.sun.jmx.remote.generic.DefaultConfig;
+import com.sun.jmx.remote.opt.util.ClassLogger;
+
+/**
+ * <p>Title: NioConnectionServer</p>
+ * <p>Description: A JMXMP connection server built on non-blocking socket channels. Accepted connections are spread across a small,
+ * fixed set of selector threads which assemble length prefixed message frames, and requests are executed on one bounded pool shared
+ * by all connections, so the number of threads follows the number of requests in flight rather than the number of connections.</p>
+ * <p>Selected by setting {@link DefaultConfig#NIO_TRANSPORT} to true in the environment of both the {@link JMXMPConnectorServer}
+ * and the {@link JMXMPConnector}, or as a system property. Other options are {@link DefaultConfig#NIO_SELECTORS},
+ * {@link DefaultConfig#NIO_REQUEST_THREADS}, {@link DefaultConfig#NIO_MAX_FRAME}, {@link DefaultConfig#NIO_MAX_PENDING_WRITE}
+ * and {@link DefaultConfig#NIO_MAX_PENDING_REQUESTS}. Requests are never executed on a selector thread: when every request thread
+ * is busy they wait in the pool's queue, and a connection with too many requests pending stops being read until some complete,
+ * which pushes back on that client through TCP flow control without holding up the selector's other connections.</p>
+ * <p>The TLS and SASL profiles replace the connection's socket streams, and the CODEC profile needs messages decoded in order,
+ * so they are not supported by this transport.</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>com.sun.jmx.remote.socket.NioConnectionServer</code></p>
+ */
+
+public class NioConnectionServer implements CountingMessageConnectionServer {
+	/** Bytes in counter */
+	private final LongAdder bytesIn = new LongAdder();
+	/** Bytes out counter */
+	private final LongAdder bytesOut = new LongAdder();
+	/** The number of connections accepted */
+	private final LongAdder accepted = new LongAdder();
+
+	/** The server address */
+	private JMXServiceURL addr;
+	/** Indicates if the server listens on all interfaces */
+	private final boolean wildcard;
+	/** The merged environment */
+	private Map env;
+	/** The listening channel */
+	private ServerSocketChannel server = null;
+	/** The selector threads */
+	private NioSelector[] selectors = null;
+	/** The request execution pool */
+	private ThreadPoolExecutor requestPool = null;
+	/** The round robin selector assignment */
+	private final AtomicInteger nextSelector = new AtomicInteger(0);
+	/** The largest frame accepted */
+	private int maxFrame;
+	/** The number of bytes a connection may queue for writing */
+	private int maxPendingWrite;
+	/** The number of requests a connection may have pending before it stops being read */
+	private int maxPendingRequests;
+
+	private static final String DEFAULT_PROTOCOL = "jmxmp";
+
+	private final ClassLogger logger = new ClassLogger("javax.management.remote.misc", "NioConnectionServer");
+
+	/**
+	 * Creates a new NioConnectionServer
+	 * @param addr The address to listen on
+	 * @param env The server environment
+	 * @throws IOException thrown if the address is not a jmxmp address
+	 */
+	public NioConnectionServer(final JMXServiceURL addr, final Map env) throws IOException {
+		if (logger.traceOn()) {
+			logger.trace("constructor", "Constructs a NioConnectionServer on " + addr);
+		}
+		if (addr == null) {
+			throw new NullPointerException("Null address.");
+		}
+		if (!DEFAULT_PROTOCOL.equalsIgnoreCase(addr.getProtocol())) {
+			throw new MalformedURLException("Unknown protocol: " + addr.getProtocol());
+		}
+		final String wildcardS = env==null ? null : (String)env.get(JMXMPConnectorServer.SERVER_ADDRESS_WILDCARD);
+		wildcard = (wildcardS == null) ? true : wildcardS.equalsIgnoreCase("true");
+		this.addr = addr;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see javax.management.remote.generic.MessageConnectionServer#start(java.util.Map)
+	 */
+	@Override
+	public void start(final Map env) throws IOException {
+		if (logger.traceOn()) {
+			logger.trace("start", "Starts the server now.");
+		}
+		final Map newEnv = new HashMap();
+		if (this.env != null) newEnv.putAll(this.env);
+		if (env != null) newEnv.putAll(env);
+
+		final int port = addr.getPort();
+		String host = addr.getHost();
+		if (host.equals("")) host = InetAddress.getLocalHost().getHostName();
+
+		maxFrame = DefaultConfig.getNioMaxFrame(newEnv);
+		maxPendingWrite = DefaultConfig.getNioMaxPendingWrite(newEnv);
+		maxPendingRequests = DefaultConfig.getNioMaxPendingRequests(newEnv);
+		server = ServerSocketChannel.open();
+		try {
+			server.socket().setReuseAddress(DefaultConfig.getServerReuseAddress(newEnv));
+			server.socket().setReceiveBufferSize(DefaultConfig.getServerReceiveBufferSize(newEnv));
+			server.socket().bind(wildcard ? new InetSocketAddress(port) : new InetSocketAddress(InetAddress.getByName(host), port),
+					DefaultConfig.getServerBacklog(newEnv));
+		} catch (IOException iex) {
+			try { server.close(); } catch (Exception x) {/* No Op */}
+			throw iex;
+		}
+		final int maxThreads = DefaultConfig.getNioRequestThreads(newEnv);
+		// the queue is bounded by the connections' pending request limits
+		requestPool = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				JMXManagedThreadFactory.newThreadFactory("JMXMPNioRequest", true));
+		requestPool.allowCoreThreadTimeOut(true);
+		final ThreadFactory selectorThreads = JMXManagedThreadFactory.newThreadFactory("JMXMPNioSelector", true);
+		selectors = new NioSelector[DefaultConfig.getNioSelectors(newEnv)];
+		for(int i = 0; i < selectors.length; i++) {
+			selectors[i] = new NioSelector();
+			selectors[i].thread = selectorThreads.newThread(selectors[i]);
+			selectors[i].thread.start();
+		}
+		addr = new JMXServiceURL(DEFAULT_PROTOCOL, host, server.socket().getLocalPort());
+		this.env = newEnv;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see javax.management.remote.generic.MessageConnectionServer#accept()
+	 */
+	@Override
+	public MessageConnection accept() throws IOException {
+		if (logger.traceOn()) {
+			logger.trace("accept", "Waiting a new connection...");
+		}
+		final SocketChannel channel = server.accept();
+		try {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			channel.socket().setKeepAlive(true);
+		} catch (IOException iex) {
+			try { channel.close(); } catch (Exception x) {/* No Op */}
+			throw iex;
+		}
+		final NioSelector selector = selectors[(nextSelector.getAndIncrement() & Integer.MAX_VALUE) % selectors.length];
+		final NioConnection conn = new NioConnection(channel, selector, requestPool, bytesIn, bytesOut, maxFrame, maxPendingWrite, maxPendingRequests);
+		selector.register(conn);
+		accepted.increment();
+		return conn;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see javax.management.remote.generic.MessageConnectionServer#stop()
+	 */
+	@Override
+	public void stop() throws IOException {
+		if (logger.traceOn()) {
+			logger.trace("stop", "Stops the server now.");
+		}
+		if (server != null) {
+			server.close();
+		}
+		if (selectors != null) {
+			for(NioSelector selector: selectors) {
+				selector.stop();
+			}
+		}
+		if (requestPool != null) {
+			requestPool.shutdown();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see javax.management.remote.generic.MessageConnectionServer#getAddress()
+	 */
+	@Override
+	public JMXServiceURL getAddress() {
+		return addr;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.sun.jmx.remote.socket.CountingMessageConnectionServer#getBytesIn()
+	 */
+	@Override
+	public long getBytesIn() {
+		return bytesIn.longValue();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.sun.jmx.remote.socket.CountingMessageConnectionServer#getBytesOut()
+	 */
+	@Override
+	public long getBytesOut() {
+		return bytesOut.longValue();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @see com.sun.jmx.remote.socket.CountingMessageConnectionServer#resetStats()
+	 */
+	@Override
+	public void resetStats() {
+		bytesIn.reset();
+		bytesOut.reset();
+	}
+
+	/**
+	 * Returns the number of connections accepted
+	 * @return the number of connections accepted
+	 */
+	public long getAcceptedConnections() {
+		return accepted.longValue();
+	}
+
+	/**
+	 * Returns the number of threads currently executing requests
+	 * @return the number of request threads
+	 */
+	public int getRequestThreads() {
+		return requestPool==null ? 0 : requestPool.getPoolSize();
+	}
+
+	/**
+	 * <p>Title: NioSelector</p>
+	 * <p>Description: A selector thread servicing its share of the server's connections</p>
+	 */
+	static final class NioSelector implements Runnable {
+		/** The selector */
+		private final Selector selector;
+		/** Connections waiting to be registered */
+		private final ConcurrentLinkedQueue<NioConnection> registrations = new ConcurrentLinkedQueue<NioConnection>();
+		/** Connections whose queued writes or pending requests changed the operations they are interested in */
+		private final ConcurrentLinkedQueue<NioConnection> updates = new ConcurrentLinkedQueue<NioConnection>();
+		/** The read buffer shared by all this selector's connections */
+		private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+		/** The run flag */
+		private volatile boolean running = true;
+		/** The selector thread */
+		Thread thread = null;
+
+		NioSelector() throws IOException {
+			selector = Selector.open();
+		}
+
+		/**
+		 * Queues a new connection for registration by the selector thread
+		 * @param conn The connection
+		 */
+		void register(final NioConnection conn) {
+			registrations.add(conn);
+			selector.wakeup();
+		}
+
+		/**
+		 * Queues a connection whose queued writes or pending requests changed so the selector thread updates its interest operations
+		 * @param conn The connection
+		 */
+		void updateInterest(final NioConnection conn) {
+			updates.add(conn);
+			selector.wakeup();
+		}
+
+		/**
+		 * Stops the selector thread, which closes the connections it services
+		 */
+		void stop() {
+			running = false;
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			while(running) {
+				try {
+					selector.select();
+				} catch (IOException iex) {
+					break;
+				}
+				NioConnection conn = null;
+				while((conn = registrations.poll())!=null) {
+					try {
+						conn.key = conn.channel().register(selector, SelectionKey.OP_READ, conn);
+					} catch (ClosedChannelException cce) {
+						conn.failed(cce);
+					}
+				}
+				while((conn = updates.poll())!=null) {
+					try {
+						conn.updateInterest();
+					} catch (CancelledKeyException cke) {
+						/* No Op: closed by another thread */
+					}
+				}
+				for(Iterator<SelectionKey> iter = selector.selectedKeys().iterator(); iter.hasNext();) {
+					final SelectionKey key = iter.next();
+					iter.remove();
+					conn = (NioConnection)key.attachment();
+					try {
+						if(key.isValid() && key.isReadable()) conn.onReadable(readBuffer);
+						if(key.isValid() && key.isWritable()) conn.onWritable();
+					} catch (IOException iex) {
+						conn.failed(iex);
+					} catch (CancelledKeyException cke) {
+						/* No Op: closed by another thread */
+					}
+				}
+			}
+			for(SelectionKey key: selector.keys()) {
+				((NioConnection)key.attachment()).close();
+			}
+			try { selector.close(); } catch (Exception x) {/* No Op */}
+		}
+	}
+
+	/**
+	 * Load test comparing the server threads and request latency of the standard and the NIO transports.
+	 * Clients run in a separate JVM so only the server's threads are counted.
+	 * @param args Optional connection counts, defaulting to 50, 500 and 2000,
+	 * or, in the client JVM, <code>client &lt;url&gt; &lt;connections&gt; &lt;requests per connection&gt; &lt;nio&gt;</code>
+	 * @throws Exception on any error
+	 */
+	public static void main(final String[] args) throws Exception {
+		if(args.length > 0 && "client".equals(args[0])) {
+			loadClient(new JMXServiceURL(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), Boolean.parseBoolean(args[4]));
+			return;
+		}
+		final int[] connections = args.length==0 ? new int[]{50, 500, 2000} : new int[args.length];
+		for(int i = 0; i < args.length; i++) connections[i] = Integer.parseInt(args[i]);
+		final ThreadMXBean tmx = ManagementFactory.getThreadMXBean();
+		for(int c: connections) {
+			for(boolean nio: new boolean[]{false, true}) {
+				final Map<String, Object> env = new HashMap<String, Object>();
+				env.put(DefaultConfig.NIO_TRANSPORT, String.valueOf(nio));
+				final JMXMPConnectorServer cs = new JMXMPConnectorServer(new JMXServiceURL("jmxmp", "localhost", 0), env, ManagementFactory.getPlatformMBeanServer());
+				cs.start();
+				final int baseThreads = tmx.getThreadCount();
+				tmx.resetPeakThreadCount();
+				final String[] result = new String[1];
+				final CountDownLatch done = new CountDownLatch(1);
+				final Process p = ProcessLauncher.newInstance().thisJre().cmd("-Xss256k", "-cp", System.getProperty("java.class.path"),
+						NioConnectionServer.class.getName(), "client", cs.getAddress().toString(), String.valueOf(c), "20", String.valueOf(nio)).execute();
+				ProcessStreamPump.getInstance().pump(p, p.getInputStream(), true, new ProcessStreamPump.LineListener() {
+					@Override
+					protected void onLine(final Process process, final boolean out, final String line) {
+						if(line.startsWith("RESULT")) result[0] = line.substring(7);
+						else System.out.println("  client: " + line);
+					}
+					@Override
+					protected void onLinesEnd(final Process process, final boolean out, final long bytes) {
+						done.countDown();
+					}
+				});
+				ProcessStreamPump.getInstance().pump(p, p.getErrorStream(), false, new ProcessStreamPump.LineListener() {
+					@Override
+					protected void onLine(final Process process, final boolean out, final String line) {
+						/* No Op: client logging */
+					}
+				});
+				done.await();
+				p.waitFor();
+				System.out.println(String.format("%-4s connections: %5d, server threads: base %d, peak %d, %s",
+						nio ? "NIO" : "Std", c, baseThreads, tmx.getPeakThreadCount(), result[0]));
+				cs.stop();
+				Thread.sleep(500);
+			}
+		}
+	}
+
+	private static void loadClient(final JMXServiceURL url, final int connections, final int requests, final boolean nio) throws Exception {
+		final Map<String, Object> env = new HashMap<String, Object>();
+		env.put(DefaultConfig.NIO_TRANSPORT, String.valueOf(nio));
+		final List<JMXConnector> connectors = new ArrayList<JMXConnector>(connections);
+		try {
+			for(int i = 0; i < connections; i++) {
+				final JMXConnector connector = new JMXMPConnector(url, env);
+				connector.connect(env);
+				connectors.add(connector);
+			}
+			final ObjectName on = new ObjectName(ManagementFactory.RUNTIME_MXBEAN_NAME);
+			final long[] latencies = new long[connections * requests];
+			final ExecutorService workers = Executors.newFixedThreadPool(Math.min(connections, 32));
+			final AtomicInteger slot = new AtomicInteger(0);
+			final CountDownLatch latch = new CountDownLatch(connections);
+			final long start = System.nanoTime();
+			for(final JMXConnector connector: connectors) {
+				workers.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							final MBeanServerConnection server = connector.getMBeanServerConnection();
+							for(int r = 0; r < requests; r++) {
+								final long t = System.nanoTime();
+								server.getAttribute(on, "Uptime");
+								latencies[slot.getAndIncrement()] = System.nanoTime() - t;
+							}
+						} catch (Exception ex) {
+							System.out.println("Request failed: " + ex);
+						} finally {
+							latch.countDown();
+						}
+					}
+				});
+			}
+			latch.await();
+			final long elapsed = System.nanoTime() - start;
+			workers.shutdown();
+			final int count = slot.get();
+			final long[] sorted = Arrays.copyOf(latencies, count);
+			Arrays.sort(sorted);
+			System.out.println(String.format("RESULT requests: %d, req/s: %d, p50: %.2f ms, p99: %.2f ms", count,
+					count * 1000000000L / Math.max(1L, elapsed), sorted[count / 2] / 1000000D, sorted[(int)(count * 0.99)] / 1000000D));
+		} finally {
+			for(JMXConnector connector: connectors) {
+				try { connector.close(); } catch (Exception x) {/* No Op */}
+			}
+		}
+	}
+}
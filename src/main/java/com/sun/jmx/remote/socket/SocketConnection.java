@@ -52,16 +52,17 @@ package com.sun.jmx.remote.socket;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.io.ObjectStreamClass;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.security.Principal;
 import java.util.Iterator;
 import java.util.Map;
@@ -76,13 +77,21 @@ import jsr166e.LongAdder;
 
 import com.heliosapm.utils.io.InstrumentedInputStream;
 import com.heliosapm.utils.io.InstrumentedOutputStream;
+import com.sun.jmx.remote.codec.CodecConnectionIf;
+import com.sun.jmx.remote.codec.MessageCodec;
+import com.sun.jmx.remote.generic.BatchConnectionIf;
 import com.sun.jmx.remote.generic.DefaultConfig;
 import com.sun.jmx.remote.opt.util.ClassLogger;
+import com.sun.jmx.remote.socket.MessageFraming.ObjectInputStreamWithLoader;
 
 /**
  * This class uses TCP sockets to implement a JMX client MessageConnection.
+ * When the {@link DefaultConfig#NIO_TRANSPORT} option is set, messages are
+ * written as length prefixed frames, as expected by {@link NioConnectionServer}.
+ * When the <code>CODEC</code> profile is negotiated, messages are written
+ * and read by the selected {@link MessageCodec}.
  */
-public class SocketConnection implements SocketConnectionIf, MessageConnection {
+public class SocketConnection implements SocketConnectionIf, CodecConnectionIf, BatchConnectionIf, MessageConnection {
   /** Bytes in counter */
   private final LongAdder bytesIn;
   /** Bytes out counter */
@@ -140,6 +149,10 @@ public class SocketConnection implements SocketConnectionIf, MessageConnection {
 
     public void connect(Map env) throws IOException {
     	waitConnectedState = DefaultConfig.getTimeoutForWaitConnectedState(env);
+    	framed = DefaultConfig.isNioTransport(env);
+    	maxFrame = DefaultConfig.getNioMaxFrame(env);
+    	// a codec is negotiated again by the handshake of each connection
+    	codec = null;
 
 			synchronized(stateLock) {
 			    if (state == UNCONNECTED) {
@@ -257,6 +270,24 @@ public class SocketConnection implements SocketConnectionIf, MessageConnection {
 	this.subject = subject;
     }
 
+    //--------------------------------------------------
+    // Implementation of the CodecConnectionIf interface
+    //--------------------------------------------------
+
+    /**
+     * Writes and reads the following messages with the passed codec.
+     * The codec is bound to the current streams when they are next used,
+     * and again if a later profile replaces them.
+     */
+    public void setCodec(MessageCodec codec) throws IOException {
+	if (framed) {
+	    throw new IOException("Message codecs are not supported by the NIO transport");
+	}
+	this.codec = codec;
+	replaceInputStreamFlag = true;
+	replaceOutputStreamFlag = true;
+    }
+
     //--------------------------------------------------
     // Implementation of the MessageConnection interface
     //--------------------------------------------------
@@ -268,6 +299,22 @@ public class SocketConnection implements SocketConnectionIf, MessageConnection {
 	    logger.debug("readMessage", "Read a message ...");
 	}
 
+	if (framed) {
+	    if (replaceInputStreamFlag) {
+		fin = new DataInputStream(in instanceof BufferedInputStream ? in : new BufferedInputStream(in));
+		replaceInputStreamFlag = false;
+	    }
+	    return MessageFraming.readFrame(fin, maxFrame, defaultClassLoader);
+	}
+
+	if (codec != null) {
+	    if (replaceInputStreamFlag) {
+		decoder = codec.newDecoder(in, defaultClassLoader);
+		replaceInputStreamFlag = false;
+	    }
+	    return decoder.readMessage();
+	}
+
 	if (replaceInputStreamFlag) {		
 	    if (in instanceof BufferedInputStream) {
 		oin = new ObjectInputStreamWithLoader(in, defaultClassLoader);
@@ -289,6 +336,51 @@ public class SocketConnection implements SocketConnectionIf, MessageConnection {
 
 	checkState();
 
+	write(msg);
+	flush();
+    }
+
+    /**
+     * Writes the passed messages and flushes them once, so the requests
+     * of a pipelined client go out in as few socket writes as possible.
+     */
+    public void writeMessages(Message[] msgs, int count) throws IOException {
+	if (logger.debugOn()) {
+	    logger.debug("writeMessages", "Write " + count + " messages ...");
+	}
+
+	checkState();
+
+	for (int i = 0; i < count; i++) {
+	    write(msgs[i]);
+	}
+	flush();
+    }
+
+    private void write(Message msg) throws IOException {
+	if (framed) {
+	    if (replaceOutputStreamFlag) {
+		fout = out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out);
+		replaceOutputStreamFlag = false;
+	    }
+	    final ByteBuffer frame = MessageFraming.encode(msg);
+	    fout.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+	    return;
+	}
+
+	if (codec != null) {
+	    if (replaceOutputStreamFlag) {
+		encoder = codec.newEncoder(out);
+		replaceOutputStreamFlag = false;
+	    }
+	    if (encoder instanceof MessageCodec.BatchEncoder) {
+		((MessageCodec.BatchEncoder)encoder).write(msg);
+	    } else {
+		encoder.writeMessage(msg);
+	    }
+	    return;
+	}
+
 	if (replaceOutputStreamFlag) {
 	    if (out instanceof BufferedOutputStream) {
 		oout = new ObjectOutputStream(out);
@@ -298,10 +390,21 @@ public class SocketConnection implements SocketConnectionIf, MessageConnection {
 	    replaceOutputStreamFlag = false;
 	}
 	oout.writeObject(msg);
-	oout.flush();
 	oout.reset();
     }
 
+    private void flush() throws IOException {
+	if (framed) {
+	    fout.flush();
+	} else if (codec != null) {
+	    if (encoder instanceof MessageCodec.BatchEncoder) {
+		((MessageCodec.BatchEncoder)encoder).flush();
+	    }
+	} else {
+	    oout.flush();
+	}
+    }
+
     public void close() {
 	if (logger.traceOn()) {
 	    logger.trace("close", "Close the socket connection.");
@@ -418,23 +521,6 @@ public class SocketConnection implements SocketConnectionIf, MessageConnection {
 // Private variables
 //----------------------------------------
 
-    private static class ObjectInputStreamWithLoader 
-	extends ObjectInputStream {
-        public ObjectInputStreamWithLoader(InputStream in, ClassLoader cl) 
-	    throws IOException {
-            super(in);
-	    this.cloader = cl;
-        }
-
-        protected Class resolveClass(ObjectStreamClass aClass) 
-	    throws IOException, ClassNotFoundException {
-	    return cloader == null ? super.resolveClass(aClass) : 
-		Class.forName(aClass.getName(), false, cloader);
-        }
-
-        private final ClassLoader cloader;
-    }
-
     private Subject subject;
     private String connectionId;
     private Socket sock;
@@ -442,6 +528,15 @@ public class SocketConnection implements SocketConnectionIf, MessageConnection {
     private ObjectInputStream oin;
     private OutputStream out;
     private ObjectOutputStream oout;
+    // framed mode streams
+    private boolean framed = false;
+    private int maxFrame;
+    private DataInputStream fin;
+    private OutputStream fout;
+    // negotiated codec
+    private MessageCodec codec = null;
+    private MessageCodec.Decoder decoder;
+    private MessageCodec.Encoder encoder;
     private boolean replaceInputStreamFlag = false;
     private boolean replaceOutputStreamFlag = false;
     private String addr;
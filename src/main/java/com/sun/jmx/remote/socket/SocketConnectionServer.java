@@ -64,7 +64,6 @@ import java.lang.reflect.InvocationTargetException;
 import javax.management.remote.JMXServiceURL;
 import javax.management.remote.jmxmp.JMXMPConnectorServer;
 import javax.management.remote.generic.MessageConnection;
-import javax.management.remote.generic.MessageConnectionServer;
 
 import jsr166e.LongAdder;
 
@@ -75,7 +74,7 @@ import com.sun.jmx.remote.opt.util.EnvHelp;
 /**
  * This class uses a Tcp Server Socket to realize a JMX connection server
  */
-public class SocketConnectionServer implements MessageConnectionServer {
+public class SocketConnectionServer implements CountingMessageConnectionServer {
 	
   /** Bytes in counter */
   private final LongAdder bytesIn = new LongAdder();
@@ -56,6 +56,10 @@ import java.io.Serializable;
 import java.util.Set;
 import java.util.Map;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import java.rmi.NoSuchObjectException;
 
@@ -86,6 +90,7 @@ import javax.management.MalformedObjectNameException;
 import javax.management.remote.NotificationResult;
 import javax.management.remote.TargetedNotification;
 import javax.management.remote.JMXConnectionNotification;
+import javax.management.remote.message.Message;
 import javax.management.remote.message.MBeanServerRequestMessage;
 import javax.management.remote.message.MBeanServerResponseMessage;
 import javax.management.remote.message.NotificationRequestMessage;
@@ -536,6 +541,51 @@ class ClientIntermediary {
 	}
     }
 
+    //-------------------------------------------------------------
+    // Asynchronous requests, see AsyncMBeanServerConnection
+    //-------------------------------------------------------------
+
+    public Future<Object> getAttributeAsync(ObjectName name,
+					    String attribute,
+					    Subject delegationSubject)
+	    throws IOException {
+
+	logger.trace("getAttributeAsync", "called");
+
+	return mBeanServerRequestAsync(MBeanServerRequestMessage.GET_ATTRIBUTE,
+				       new Object[] {name, attribute},
+				       delegationSubject);
+    }
+
+    public Future<AttributeList> getAttributesAsync(ObjectName name,
+						    String[] attributes,
+						    Subject delegationSubject)
+	    throws IOException {
+
+	logger.trace("getAttributesAsync", "called");
+
+	return mBeanServerRequestAsync(MBeanServerRequestMessage.GET_ATTRIBUTES,
+				       new Object[] {name, attributes},
+				       delegationSubject);
+    }
+
+    public Future<Object> invokeAsync(ObjectName name,
+				      String operationName,
+				      Object params[],
+				      String signature[],
+				      Subject delegationSubject)
+	    throws IOException {
+
+	logger.trace("invokeAsync", "called");
+
+	return mBeanServerRequestAsync(MBeanServerRequestMessage.INVOKE,
+				       new Object[] {name,
+						     operationName,
+						     serialization.wrap(params),
+						     signature},
+				       delegationSubject);
+    }
+
     public String getDefaultDomain(Subject delegationSubject)
 	    throws IOException {
 
@@ -1059,6 +1109,97 @@ class ClientIntermediary {
 	return result;
     }
 
+    /*
+     * Sends a request without waiting for its response. As for the
+     * synchronous requests, a request which cannot be sent is retried
+     * once after the connection is checked, but a request already sent
+     * is not retried: its future fails if the connection is lost.
+     */
+    private <T> Future<T> mBeanServerRequestAsync(int methodId,
+						  Object[] params,
+						  Subject delegationSubject)
+	    throws IOException {
+
+	MBeanServerRequestMessage req =
+	    new MBeanServerRequestMessage(methodId,
+					  params,
+					  delegationSubject);
+
+	Future<Message> resp;
+
+	try {
+	    resp = connection.sendAsync(req);
+	} catch (IOException e) {
+	    if (terminated || e instanceof InterruptedIOException) throw e;
+
+	    communicatorAdmin.gotIOException(e);
+
+	    resp = connection.sendAsync(req);
+	}
+
+	return new ResultFuture<T>(resp);
+    }
+
+    /*
+     * Unwraps the result of an asynchronous request in the thread
+     * getting it, the way mBeanServerRequest does.
+     */
+    private class ResultFuture<T> implements Future<T> {
+	public ResultFuture(Future<Message> response) {
+	    this.response = response;
+	}
+
+	public boolean cancel(boolean mayInterruptIfRunning) {
+	    return response.cancel(mayInterruptIfRunning);
+	}
+
+	public boolean isCancelled() {
+	    return response.isCancelled();
+	}
+
+	public boolean isDone() {
+	    return response.isDone();
+	}
+
+	public T get() throws InterruptedException, ExecutionException {
+	    return unwrap(response.get());
+	}
+
+	public T get(long timeout, TimeUnit unit)
+		throws InterruptedException, ExecutionException, TimeoutException {
+	    return unwrap(response.get(timeout, unit));
+	}
+
+	private synchronized T unwrap(Message msg) throws ExecutionException {
+	    if (!unwrapped) {
+		MBeanServerResponseMessage resp = (MBeanServerResponseMessage) msg;
+		try {
+		    result = serialization.unwrap(resp.getWrappedResult(), myloader);
+		} catch (ClassNotFoundException e) {
+		    IOException ioe = new IOException(e.toString());
+		    EnvHelp.initCause(ioe, e);
+		    throw new ExecutionException(ioe);
+		} catch (IOException e) {
+		    throw new ExecutionException(e);
+		}
+		exception = resp.isException();
+		unwrapped = true;
+	    }
+
+	    if (exception)
+		throw new ExecutionException((Exception) result);
+
+	    @SuppressWarnings("unchecked")
+	    final T t = (T) result;
+	    return t;
+	}
+
+	private final Future<Message> response;
+	private boolean unwrapped = false;
+	private boolean exception;
+	private Object result;
+    }
+
     /*
      * Throw an exception appropriate for e.  This method is called
      * from the final catch (Exception e) clause of methods that have
@@ -52,6 +52,7 @@ package javax.management.remote.generic;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Future;
 
 import javax.management.*;
 import javax.management.remote.NotificationResult;
@@ -71,6 +72,7 @@ import javax.management.remote.JMXServiceURL; // javadoc
 
 import javax.security.auth.Subject;
 
+import com.sun.jmx.remote.generic.AsyncMBeanServerConnection;
 import com.sun.jmx.remote.generic.ObjectWrappingImpl;
 import com.sun.jmx.remote.generic.DefaultConfig;
 import com.sun.jmx.remote.generic.ClientSynchroMessageConnection;
@@ -416,7 +418,7 @@ public class GenericConnector implements JMXConnector {
 //----------------------------------------------
 
     private static class RemoteMBeanServerConnection
-	    implements MBeanServerConnection {
+	    implements AsyncMBeanServerConnection {
 
         public RemoteMBeanServerConnection(ClientIntermediary ci) {
 	    this(ci, null);
@@ -642,6 +644,30 @@ public class GenericConnector implements JMXConnector {
             return ci.isInstanceOf(name, className, ds);
         }
 
+        //----------------------------------------------
+        // Implementation of AsyncMBeanServerConnection
+        //----------------------------------------------
+
+        public Future<Object> getAttributeAsync(ObjectName name,
+                                                String attribute)
+            throws IOException {
+            return ci.getAttributeAsync(name, attribute, ds);
+        }
+
+        public Future<AttributeList> getAttributesAsync(ObjectName name,
+                                                        String[] attributes)
+            throws IOException {
+            return ci.getAttributesAsync(name, attributes, ds);
+        }
+
+        public Future<Object> invokeAsync(ObjectName name,
+                                          String operationName,
+                                          Object params[],
+                                          String signature[])
+            throws IOException {
+            return ci.invokeAsync(name, operationName, params, signature, ds);
+        }
+
         private ClientIntermediary ci;
         private Subject ds;
     }
@@ -92,6 +92,7 @@ import com.sun.jmx.remote.opt.util.ClassLogger;
 import com.sun.jmx.remote.opt.util.EnvHelp;
 import com.sun.jmx.remote.opt.internal.ArrayNotificationBuffer;
 import com.sun.jmx.remote.opt.internal.NotificationBuffer;
+import com.sun.jmx.remote.opt.internal.RingNotificationBuffer;
 
 /**
  * <p>A JMX API Connector server that creates connections to remote
@@ -353,6 +354,43 @@ public class GenericConnectorServer extends JMXConnectorServer {
 	}
     }
 
+    /**
+     * <p>Returns the number of notifications each connected client has
+     * lost, when notifications are buffered in a {@link
+     * RingNotificationBuffer}.</p>
+     *
+     * @return a map of lost notification counts keyed by connection id,
+     * empty if the ring buffer is not used.
+     */
+    public Map<String, Long> getLostNotifications() {
+	final NotificationBuffer buf;
+	synchronized(this) {
+	    buf = notifBuffer;
+	}
+	if (buf instanceof RingNotificationBuffer)
+	    return ((RingNotificationBuffer)buf).getLostNotifications();
+	return Collections.emptyMap();
+    }
+
+    /**
+     * <p>Returns the number of notifications lost by all clients,
+     * including clients that are no longer connected, when
+     * notifications are buffered in a {@link
+     * RingNotificationBuffer}.</p>
+     *
+     * @return the number of lost notifications, 0 if the ring buffer
+     * is not used.
+     */
+    public long getLostNotificationCount() {
+	final NotificationBuffer buf;
+	synchronized(this) {
+	    buf = notifBuffer;
+	}
+	if (buf instanceof RingNotificationBuffer)
+	    return ((RingNotificationBuffer)buf).getLostNotificationCount();
+	return 0L;
+    }
+
     // used by ServerIntermediary
     void failedConnectionNotif(String connectionId,
 				    String message,
@@ -569,10 +607,16 @@ public class GenericConnectorServer extends JMXConnectorServer {
 
     synchronized NotificationBuffer getNotifBuffer() {
 	//Notification buffer is lazily created when the first client connects
-	if(notifBuffer == null)
-	    notifBuffer = 
-		ArrayNotificationBuffer.getNotificationBuffer(getMBeanServer(),
-							      env);
+	if(notifBuffer == null) {
+	    if (DefaultConfig.isNotifRingBuffer(env))
+		notifBuffer =
+		    RingNotificationBuffer.getNotificationBuffer(getMBeanServer(),
+				env, DefaultConfig.getNotifOverflowPolicy(env));
+	    else
+		notifBuffer = 
+		    ArrayNotificationBuffer.getNotificationBuffer(getMBeanServer(),
+								  env);
+	}
 	return notifBuffer;
     }
     
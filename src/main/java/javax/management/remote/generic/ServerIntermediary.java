@@ -188,7 +188,8 @@ class ServerIntermediary {
 	    serverNotifForwarder =
 		new ServerNotifForwarder(mbeanServer,
 					 env,
-					 myServer.getNotifBuffer());
+					 myServer.getNotifBuffer(),
+					 clientId);
 
 	return serverNotifForwarder;
     }
@@ -63,6 +63,9 @@ import javax.management.remote.JMXConnectorServerFactory;
 import javax.management.remote.JMXServiceURL;
 import javax.management.remote.generic.GenericConnectorServer;
 
+import com.sun.jmx.remote.generic.DefaultConfig;
+import com.sun.jmx.remote.socket.CountingMessageConnectionServer;
+import com.sun.jmx.remote.socket.NioConnectionServer;
 import com.sun.jmx.remote.socket.SocketConnectionServer;
 
 /**
@@ -100,6 +103,12 @@ import com.sun.jmx.remote.socket.SocketConnectionServer;
  * <code>Subject</code> to use for received requests, or null if there
  * is none.  If the connection is rejected, the method throws an
  * exception, typically {@link SecurityException}.</p>
+ *
+ * <p>If the environment, or a system property, sets {@link
+ * DefaultConfig#NIO_TRANSPORT} to true, connections are served by a
+ * {@link NioConnectionServer} from a few selector threads instead of
+ * a reader thread per connection.  Clients must set the same option
+ * as the messages are framed differently.</p>
  */
 public class JMXMPConnectorServer extends GenericConnectorServer implements JMXMPConnectorServerMBean {
     /**
@@ -114,7 +123,7 @@ public class JMXMPConnectorServer extends GenericConnectorServer implements JMXM
     public static final String SERVER_ADDRESS_WILDCARD =
 	"jmx.remote.server.address.wildcard";
     
-    final SocketConnectionServer socketConnectionServer;
+    final CountingMessageConnectionServer socketConnectionServer;
 
     /**
      * <p>Creates a connector server that listens for connection
@@ -220,7 +229,7 @@ public class JMXMPConnectorServer extends GenericConnectorServer implements JMXM
     	return map;
     }
     
-    private static final ThreadLocal<SocketConnectionServer> scs = new ThreadLocal<SocketConnectionServer>(); 
+    private static final ThreadLocal<CountingMessageConnectionServer> scs = new ThreadLocal<CountingMessageConnectionServer>(); 
 
     private static Map completeEnv(JMXServiceURL address, Map env)
 	    throws IOException {
@@ -229,7 +238,8 @@ public class JMXMPConnectorServer extends GenericConnectorServer implements JMXM
 	if (address == null)
 	    address = new JMXServiceURL("jmxmp", null, 0);
 	Map newEnv = (env == null) ? new HashMap() : new HashMap(env);
-	final SocketConnectionServer sockServer = new SocketConnectionServer(address, newEnv);
+	final CountingMessageConnectionServer sockServer = DefaultConfig.isNioTransport(newEnv) ?
+		new NioConnectionServer(address, newEnv) : new SocketConnectionServer(address, newEnv);
 	scs.set(sockServer);
 	newEnv.put(MESSAGE_CONNECTION_SERVER,
 		   sockServer);
@@ -18,6 +18,8 @@ under the License.
  */
 package javax.management.remote.jmxmp;
 
+import java.util.Map;
+
 import javax.management.remote.JMXConnectorServerMBean;
 
 /**
@@ -45,5 +47,17 @@ public interface JMXMPConnectorServerMBean extends JMXConnectorServerMBean {
 	 * Resets the IO counters
 	 */
 	public void resetStats();
+	
+	/**
+	 * Returns the number of notifications each connected client has lost, when notifications are buffered in a ring
+	 * @return a map of lost notification counts keyed by connection id
+	 */
+	public Map<String, Long> getLostNotifications();
+	
+	/**
+	 * Returns the number of notifications lost by all clients, including clients that are no longer connected, when notifications are buffered in a ring
+	 * @return the number of lost notifications
+	 */
+	public long getLostNotificationCount();
 
 }
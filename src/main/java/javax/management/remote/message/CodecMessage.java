@@ -0,0 +1,103 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package javax.management.remote.message;
+
+/**
+ * <p>Handshake message between client and server to agree on the wire
+ * codec used for the messages exchanged after the handshake.</p>
+ *
+ * <p>The client sends a CodecMessage(READY) listing the codecs it supports
+ * in order of preference. The server replies with a CodecMessage(PROCEED)
+ * naming the codec it selected, or with an {@link HandshakeErrorMessage
+ * indication} if it supports none of them. Both sides write and read all
+ * the following messages, starting with the {@link HandshakeEndMessage},
+ * with the selected codec.</p>
+ *
+ * <p>The status attribute takes one of the two values:</p>
+ * <ul>
+ *     <li><b>READY</b> : used by a client to offer its codecs.</li>
+ *     <li><b>PROCEED</b> : used by a server to name the selected codec.</li>
+ * </ul>
+ * The profile name in this profile message is "CODEC".
+ *
+ * @see HandshakeBeginMessage
+ */
+public class CodecMessage implements ProfileMessage {
+
+    private static final long serialVersionUID = 3021565180395012164L;
+
+    /**
+     * This status code is used by a client to offer its codecs.
+     */
+    public static final int READY = 1;
+
+    /**
+     * This status code is used by a server to name the selected codec.
+     */
+    public static final int PROCEED = 2;
+
+    /**
+     * @serial The status of the current codec negotiation.
+     * @see #getStatus()
+     */
+    private final int status;
+
+    /**
+     * @serial The space separated codec names.
+     * @see #getCodecs()
+     */
+    private final String codecs;
+
+    /**
+     * Constructs a new CodecMessage with the specified status and codecs.
+     *
+     * @param status the status of the current codec negotiation.
+     * @param codecs the space separated names of the offered codecs,
+     * or the name of the selected codec.
+     */
+    public CodecMessage(int status, String codecs) {
+	this.status = status;
+	this.codecs = codecs;
+    }
+
+    /**
+     * The status of the current codec negotiation.
+     *
+     * @return the status of the current codec negotiation.
+     */
+    public int getStatus() {
+	return status;
+    }
+
+    /**
+     * The codecs offered by the client, or the codec selected by the server.
+     *
+     * @return the space separated codec names.
+     */
+    public String getCodecs() {
+	return codecs;
+    }
+
+    /**
+     * The profile name.
+     */
+    public String getProfileName() {
+	return "CODEC";
+    }
+}
@@ -364,6 +364,31 @@ public class MBeanServerRequestMessage implements Message {
 	this.delegationSubject = delegationSubject;
     }
 
+    /**
+     * <p>Constructs a message with the given message ID. This is used
+     * by message codecs to rebuild a received message, which must
+     * keep the identifier of the message that was sent.</p>
+     *
+     * @param messageId the identifier of the message being rebuilt.
+     *
+     * @param methodId the identifier of an <code>MBeanServerConnection</code>
+     * method.
+     *
+     * @param params parameters to the method.
+     *
+     * @param delegationSubject the subject on which the authorization checks
+     * are performed for this request.
+     */
+    public MBeanServerRequestMessage(long messageId,
+				     int methodId,
+				     Object[] params,
+				     Subject delegationSubject) {
+        this.messageId = messageId;
+        this.methodId = methodId;
+        this.params = (params == null) ? NO_PARAMS : params;
+	this.delegationSubject = delegationSubject;
+    }
+
     /**
      * <p>Returns the method identifier of this message.</p>
      *
@@ -0,0 +1,215 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package test.com.heliosapm.utils.jmx.bulk;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import test.com.heliosutils.BaseTest;
+
+import com.heliosapm.utils.jmx.bulk.BulkAttributeCodec;
+import com.heliosapm.utils.jmx.bulk.BulkAttributeDecoder;
+
+/**
+ * <p>Title: BulkAttributeCodecTest</p>
+ * <p>Description: Encode/decode round trip tests for {@link BulkAttributeCodec} and {@link BulkAttributeDecoder}</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>test.com.heliosapm.utils.jmx.bulk.BulkAttributeCodecTest</code></p>
+ */
+
+public class BulkAttributeCodecTest extends BaseTest {
+
+	/**
+	 * Tests every natively encoded value type, raw and deflated
+	 * @throws Exception on any error
+	 */
+	@Test
+	public void testNativeValues() throws Exception {
+		final CompositeType ct = new CompositeType("Usage", "A usage", new String[]{"used", "max", "label"}, new String[]{"Used", "Max", "Label"},
+				new OpenType<?>[]{SimpleType.LONG, SimpleType.LONG, SimpleType.STRING});
+		final Map<String, Object> attrs = new LinkedHashMap<String, Object>();
+		attrs.put("Null", null);
+		attrs.put("Boolean", true);
+		attrs.put("Byte", (byte)-3);
+		attrs.put("Short", (short)-300);
+		attrs.put("Char", '\u4e2d');
+		attrs.put("Int", Integer.MIN_VALUE);
+		attrs.put("Long", Long.MAX_VALUE);
+		attrs.put("Float", -1.5F);
+		attrs.put("Double", Double.NaN);
+		attrs.put("String", "text \u00e9");
+		attrs.put("ObjectName", new ObjectName("a:b=c"));
+		attrs.put("Composite", new CompositeDataSupport(ct, new String[]{"used", "max", "label"}, new Object[]{-1L, 10L, null}));
+		attrs.put("LongArray", new long[]{Long.MIN_VALUE, 0, 1});
+		attrs.put("IntArray", new int[]{-1, 0, Integer.MAX_VALUE});
+		attrs.put("DoubleArray", new double[]{0.25, -0D});
+		attrs.put("StringArray", new String[]{"a", null, "text \u00e9"});
+		final Map<ObjectName, Map<String, Object>> map = new HashMap<ObjectName, Map<String, Object>>();
+		map.put(new ObjectName("test:type=Native"), attrs);
+		map.put(new ObjectName("test:type=Empty"), new HashMap<String, Object>());
+		assertRoundTrip(map);
+	}
+
+	/**
+	 * Tests that values with no native encoding fall back to Java serialization, alongside native values
+	 * @throws Exception on any error
+	 */
+	@Test
+	public void testSerializationFallback() throws Exception {
+		final Map<ObjectName, Map<String, Object>> map = new HashMap<ObjectName, Map<String, Object>>();
+		for(int i = 0; i < 3; i++) {
+			final Map<String, Object> attrs = new HashMap<String, Object>();
+			attrs.put("Date", new Date(i));
+			attrs.put("List", new ArrayList<String>(Arrays.asList("x" + i, "y")));
+			attrs.put("Payload", new Payload(i));
+			attrs.put("FloatArray", new float[]{i});
+			attrs.put("Count", (long)i);
+			map.put(new ObjectName("test:type=Fallback,id=" + i), attrs);
+		}
+		assertRoundTrip(map);
+	}
+
+	/**
+	 * Tests string dictionaries, object name rows and columns large enough to need multi byte indexes,
+	 * with an attribute that changes type between rows
+	 * @throws Exception on any error
+	 */
+	@Test
+	public void testLargeDictionary() throws Exception {
+		final Map<ObjectName, Map<String, Object>> map = new HashMap<ObjectName, Map<String, Object>>();
+		for(int i = 0; i < 20000; i++) {
+			final Map<String, Object> attrs = new HashMap<String, Object>();
+			attrs.put("Name", "name-" + i);
+			attrs.put("State", (i % 3)==0 ? "RUNNING" : "STOPPED");
+			attrs.put("Mixed", (i % 2)==0 ? (Object)Long.valueOf(i) : (Object)("m" + i));
+			if((i % 7)==0) attrs.put("Sparse", i * -31L);
+			map.put(new ObjectName("test:type=Large,id=" + i), attrs);
+		}
+		assertRoundTrip(map);
+	}
+
+	/**
+	 * Tests that empty and null input decode to an empty map
+	 * @throws Exception on any error
+	 */
+	@Test
+	public void testEmpty() throws Exception {
+		Assert.assertTrue("Null decodes empty", BulkAttributeDecoder.decode(null).isEmpty());
+		Assert.assertTrue("No bytes decode empty", BulkAttributeDecoder.decode(new byte[0]).isEmpty());
+		assertRoundTrip(new HashMap<ObjectName, Map<String, Object>>());
+	}
+
+	/**
+	 * Tests that invalid encodings are rejected with an {@link IOException}
+	 * @throws Exception on any error
+	 */
+	@Test
+	public void testInvalidEncodings() throws Exception {
+		final Map<ObjectName, Map<String, Object>> map = new HashMap<ObjectName, Map<String, Object>>();
+		final Map<String, Object> attrs = new HashMap<String, Object>();
+		attrs.put("Name", "value");
+		attrs.put("Ids", new long[]{1, 2, 3});
+		map.put(new ObjectName("test:type=Invalid"), attrs);
+		for(boolean deflate: new boolean[]{false, true}) {
+			final byte[] encoded = BulkAttributeCodec.encode(map, deflate);
+			Assert.assertTrue("Is encoded", BulkAttributeDecoder.isEncoded(encoded));
+			final byte[] badMagic = encoded.clone();
+			badMagic[0]++;
+			Assert.assertFalse("Bad magic is not encoded", BulkAttributeDecoder.isEncoded(badMagic));
+			assertInvalid(badMagic);
+			final byte[] badVersion = encoded.clone();
+			badVersion[4] = BulkAttributeCodec.VERSION + 1;
+			assertInvalid(badVersion);
+			assertInvalid(Arrays.copyOf(encoded, encoded.length - 3));
+		}
+	}
+
+	/**
+	 * Encodes the passed map raw and deflated and asserts that both decode to the same map
+	 * @param map The map to round trip
+	 * @throws Exception on any error
+	 */
+	static void assertRoundTrip(final Map<ObjectName, Map<String, Object>> map) throws Exception {
+		for(boolean deflate: new boolean[]{false, true}) {
+			final Map<ObjectName, Map<String, Object>> decoded = BulkAttributeDecoder.decode(BulkAttributeCodec.encode(map, deflate));
+			Assert.assertEquals("ObjectNames [deflate:" + deflate + "]", map.keySet(), decoded.keySet());
+			for(Map.Entry<ObjectName, Map<String, Object>> entry: map.entrySet()) {
+				final Map<String, Object> attrs = decoded.get(entry.getKey());
+				Assert.assertEquals("Attribute names of [" + entry.getKey() + "]", entry.getValue().keySet(), attrs.keySet());
+				for(Map.Entry<String, Object> attr: entry.getValue().entrySet()) {
+					// wrapped so arrays are compared by content
+					Assert.assertArrayEquals("Value of [" + entry.getKey() + "/" + attr.getKey() + "] [deflate:" + deflate + "]",
+							new Object[]{attr.getValue()}, new Object[]{attrs.get(attr.getKey())});
+				}
+			}
+		}
+	}
+
+	/**
+	 * Asserts that decoding the passed bytes fails with an {@link IOException}
+	 * @param encoded The bytes to decode
+	 */
+	static void assertInvalid(final byte[] encoded) {
+		try {
+			BulkAttributeDecoder.decode(encoded);
+			Assert.fail("Invalid encoding was decoded");
+		} catch (IOException iex) {
+			/* expected */
+		}
+	}
+
+	/**
+	 * <p>Title: Payload</p>
+	 * <p>Description: A serializable value the codec does not know</p>
+	 */
+	static class Payload implements Serializable {
+		private static final long serialVersionUID = 1L;
+		final int value;
+
+		Payload(final int value) {
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return obj instanceof Payload && ((Payload)obj).value==value;
+		}
+
+		@Override
+		public int hashCode() {
+			return value;
+		}
+	}
+}
@@ -0,0 +1,351 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.
+ */
+package test.com.heliosapm.utils.jmx.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.TreeMap;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.ObjectInstance;
+import javax.management.ObjectName;
+import javax.management.openmbean.ArrayType;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+import javax.management.remote.message.CloseMessage;
+import javax.management.remote.message.MBeanServerRequestMessage;
+import javax.management.remote.message.MBeanServerResponseMessage;
+import javax.management.remote.message.Message;
+import javax.security.auth.Subject;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import test.com.heliosutils.BaseTest;
+
+import com.sun.jmx.remote.codec.BinaryMessageCodec;
+import com.sun.jmx.remote.codec.MessageCodec.Decoder;
+import com.sun.jmx.remote.codec.MessageCodec.Encoder;
+import com.sun.jmx.remote.codec.WrappedObject;
+
+/**
+ * <p>Title: BinaryMessageCodecTest</p>
+ * <p>Description: Encode/decode round trip tests for the {@link BinaryMessageCodec} used by JMXMP connections</p>
+ * <p>Company: Helios Development Group LLC</p>
+ * @author Whitehead (nwhitehead AT heliosdev DOT org)
+ * <p><code>test.com.heliosapm.utils.jmx.protocol.BinaryMessageCodecTest</code></p>
+ */
+
+public class BinaryMessageCodecTest extends BaseTest {
+	/** The codec under test */
+	static final BinaryMessageCodec CODEC = new BinaryMessageCodec();
+
+	// the wire tags of the codec, for hand crafted streams
+	static final byte MSG_REQUEST = 1, NAME_REF = 14, PRIMITIVE_ARRAY = 21, COMPOSITE = 22, ARRAY_TYPE = 1;
+
+	/**
+	 * Tests a request carrying every value type that is encoded directly
+	 * @throws Exception on any error
+	 */
+	@Test
+	public void testDirectValues() throws Exception {
+		final CompositeType ct = new CompositeType("Sample", "A sample", new String[]{"count", "name", "ids"}, new String[]{"The count", "The name", "The ids"},
+				new OpenType<?>[]{SimpleType.LONG, SimpleType.STRING, ArrayType.getPrimitiveArrayType(long[].class)});
+		final CompositeDataSupport cd = new CompositeDataSupport(ct, new String[]{"count", "name", "ids"}, new Object[]{3L, "three", new long[]{1, 2, 3}});
+		final TabularDataSupport td = new TabularDataSupport(new TabularType("Samples", "Some samples", ct, new String[]{"name"}));
+		td.put(cd);
+		td.put(new CompositeDataSupport(ct, new String[]{"count", "name", "ids"}, new Object[]{4L, "four", new long[0]}));
+		final AttributeList attrs = new AttributeList();
+		attrs.add(new Attribute("A", 1));
+		attrs.add(new Attribute("B", "b"));
+		final HashSet<Object> set = new HashSet<Object>(Arrays.asList(new ObjectName("a:b=c"), new ObjectName("a:b=d")));
+		final StringBuilder longText = new StringBuilder();
+		while(longText.length() < 70000) {
+			longText.append("text \u00e9\u4e2d ");
+		}
+		final Object[] params = {
+			null, "str", new ObjectName("a:b=c"), 1, 2L, 3.5D, true, 4.5F, (short)5, (byte)6, 'c', new Date(), new BigInteger("123456789012345678901234567890"),
+			new BigDecimal("-1234567890.0987654321"), new Attribute("X", 7L), attrs, new ObjectInstance("a:b=c", "java.lang.Object"), set,
+			new String[]{"a", null, "c"}, new ObjectName[]{new ObjectName("a:b=c")}, new Integer[]{1, 2}, new boolean[]{true, false},
+			new char[]{'a'}, new byte[]{1, 2}, new short[]{3}, new int[]{4, 5}, new long[]{6}, new float[]{7}, new double[]{8}, cd, td,
+			new CompositeData[]{cd}, longText.toString()
+		};
+		Assert.assertTrue("Params are encoded directly", BinaryMessageCodec.canEncode(params));
+		final Object[] decoded = roundTripParams(params);
+		Assert.assertArrayEquals("Decoded params", params, decoded);
+		Assert.assertEquals("String array type", String[].class, decoded[18].getClass());
+		Assert.assertEquals("ObjectName array type", ObjectName[].class, decoded[19].getClass());
+	}
+
+	/**
+	 * Tests JDK implemented composite data and wrapped values
+	 * @throws Exception on any error
+	 */
+	@Test
+	public void testJdkCompositeAndWrapped() throws Exception {
+		final Object usage = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(ManagementFactory.MEMORY_MXBEAN_NAME), "HeapMemoryUsage");
+		Assert.assertTrue("JDK composite is encoded directly", BinaryMessageCodec.canEncode(usage));
+		final Object[] decoded = roundTripParams(usage, new WrappedObject(new long[]{1, 2}));
+		Assert.assertEquals("Decoded composite", decoded[0], usage);
+		Assert.assertEquals("Wrapped type", WrappedObject.class, decoded[1].getClass());
+		Assert.assertArrayEquals("Wrapped value", new long[]{1, 2}, (long[])((WrappedObject)decoded[1]).getValue());
+	}
+
+	/**
+	 * Tests a response round trip, including an exception response
+	 * @throws Exception on any error
+	 */
+	@Test
+	public void testResponses() throws Exception {
+		final AttributeList attrs = new AttributeList();
+		attrs.add(new Attribute("Count", 12L));
+		final Message[] decoded = roundTrip(
+			new MBeanServerResponseMessage(11, new WrappedObject(attrs), false),
+			new MBeanServerResponseMessage(12, new IllegalStateException("boom"), true)
+		);
+		final MBeanServerResponseMessage ok = (MBeanServerResponseMessage)decoded[0];
+		Assert.assertEquals("Message id", 11, ok.getMessageId());
+		Assert.assertFalse("Not an exception", ok.isException());
+		Assert.assertEquals("Result", attrs, ((WrappedObject)ok.getWrappedResult()).getValue());
+		final MBeanServerResponseMessage ex = (MBeanServerResponseMessage)decoded[1];
+		Assert.assertEquals("Message id", 12, ex.getMessageId());
+		Assert.assertTrue("An exception", ex.isException());
+		Assert.assertEquals("Exception message", "boom", ((IllegalStateException)ex.getWrappedResult()).getMessage());
+	}
+
+	/**
+	 * Tests that values and messages the codec does not encode directly fall back to Java serialization,
+	 * including past the point the object stream is reset
+	 * @throws Exception on any error
+	 */
+	@Test
+	public void testSerializationFallback() throws Exception {
+		final TreeMap<String, Integer> map = new TreeMap<String, Integer>();
+		map.put("a", 1);
+		final Object[] params = {
+			new ArrayList<String>(Arrays.asList("a", "b")), map, new Payload(3), new int[][]{{1}, {2, 3}},
+			new Attribute("Nested", new ArrayList<Integer>(Arrays.asList(1, 2))), new Object[]{new Payload(4), "s"}
+		};
+		for(Object p: params) {
+			Assert.assertFalse("Not encoded directly: " + p, BinaryMessageCodec.canEncode(p));
+		}
+		Assert.assertArrayEquals("Decoded params", params, roundTripParams(params));
+
+		final Subject subject = new Subject();
+		final Message[] decoded = roundTrip(
+			new MBeanServerRequestMessage(5, MBeanServerRequestMessage.GET_ATTRIBUTE, new Object[]{new ObjectName("a:b=c"), "X"}, subject),
+			new CloseMessage("bye")
+		);
+		final MBeanServerRequestMessage delegated = (MBeanServerRequestMessage)decoded[0];
+		Assert.assertEquals("Message id", 5, delegated.getMessageId());
+		Assert.assertNotNull("Delegation subject", delegated.getDelegationSubject());
+		Assert.assertEquals("Close message", "bye", ((CloseMessage)decoded[1]).getMessage());
+
+		final int count = BinaryMessageCodec.RESET_INTERVAL * 2 + 3;
+		final Message[] msgs = new Message[count];
+		for(int i = 0; i < count; i++) {
+			msgs[i] = request(new Payload(i), "p" + i);
+		}
+		final Message[] afterReset = roundTrip(msgs);
+		for(int i = 0; i < count; i++) {
+			Assert.assertArrayEquals("Decoded params #" + i, new Object[]{new Payload(i), "p" + i}, ((MBeanServerRequestMessage)afterReset[i]).getParams());
+		}
+	}
+
+	/**
+	 * Tests that values longer than {@link BinaryMessageCodec#MAX_LENGTH} are serialized, and that
+	 * the decoder rejects invalid lengths and array dimensions rather than allocating for them
+	 * @throws Exception on any error
+	 */
+	@Test
+	public void testLengthBounds() throws Exception {
+		final byte[] big = new byte[BinaryMessageCodec.MAX_LENGTH + 1];
+		big[big.length - 1] = 9;
+		Assert.assertFalse("Too long to encode directly", BinaryMessageCodec.canEncode(big));
+		Assert.assertArrayEquals("Decoded oversized array", big, (byte[])roundTripParams((Object)big)[0]);
+
+		for(int length: new int[]{BinaryMessageCodec.MAX_LENGTH + 1, -1, Integer.MAX_VALUE}) {
+			// a request claiming too many params
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			ObjectOutputStream oos = craftRequest(baos);
+			oos.writeInt(length);
+			assertCorrupt(baos, oos);
+			// a primitive array claiming too many elements
+			baos = new ByteArrayOutputStream();
+			oos = craftRequest(baos);
+			oos.writeInt(1);
+			oos.writeByte(PRIMITIVE_ARRAY);
+			oos.writeByte(2);
+			oos.writeInt(length);
+			assertCorrupt(baos, oos);
+		}
+
+		for(int dimension: new int[]{0, 256}) {
+			final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			final ObjectOutputStream oos = craftRequest(baos);
+			oos.writeInt(1);
+			oos.writeByte(COMPOSITE);
+			oos.writeByte(ARRAY_TYPE);
+			oos.writeInt(dimension);
+			assertCorrupt(baos, oos);
+		}
+	}
+
+	/**
+	 * Tests object names and open types past the size of the connection's dictionaries, in one message and across messages,
+	 * and that the decoder rejects references to entries it never received
+	 * @throws Exception on any error
+	 */
+	@Test
+	public void testDictionaryOverflow() throws Exception {
+		final ObjectName[] names = new ObjectName[BinaryMessageCodec.MAX_NAMES + 100];
+		for(int i = 0; i < names.length; i++) {
+			names[i] = new ObjectName("test:type=Name,id=" + i);
+		}
+		final CompositeData[] composites = new CompositeData[BinaryMessageCodec.MAX_TYPES + 10];
+		for(int i = 0; i < composites.length; i++) {
+			final CompositeType ct = new CompositeType("Type" + i, "Type #" + i, new String[]{"v"}, new String[]{"The value"}, new OpenType<?>[]{SimpleType.INTEGER});
+			composites[i] = new CompositeDataSupport(ct, new String[]{"v"}, new Object[]{i});
+		}
+		final Object[] first = {names, composites};
+		final Object[] again = {names[0], names[names.length - 1], composites[0], composites[composites.length - 1], names, composites};
+		final Message[] decoded = roundTrip(request(first), request(again));
+		Assert.assertArrayEquals("First message", first, ((MBeanServerRequestMessage)decoded[0]).getParams());
+		Assert.assertArrayEquals("Repeated message", again, ((MBeanServerRequestMessage)decoded[1]).getParams());
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final ObjectOutputStream oos = craftRequest(baos);
+		oos.writeInt(1);
+		oos.writeByte(NAME_REF);
+		oos.writeInt(0);
+		assertCorrupt(baos, oos);
+	}
+
+	/**
+	 * Creates a request message with no delegation subject
+	 * @param params The request params
+	 * @return the request
+	 */
+	static MBeanServerRequestMessage request(final Object... params) {
+		return new MBeanServerRequestMessage(7, MBeanServerRequestMessage.GET_ATTRIBUTES, params, null);
+	}
+
+	/**
+	 * Encodes the passed messages on one stream and decodes them
+	 * @param msgs The messages to encode
+	 * @return the decoded messages
+	 * @throws Exception on any error
+	 */
+	static Message[] roundTrip(final Message... msgs) throws Exception {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final Encoder encoder = CODEC.newEncoder(baos);
+		for(Message msg: msgs) {
+			encoder.writeMessage(msg);
+		}
+		final Decoder decoder = CODEC.newDecoder(new ByteArrayInputStream(baos.toByteArray()), null);
+		final Message[] decoded = new Message[msgs.length];
+		for(int i = 0; i < msgs.length; i++) {
+			decoded[i] = decoder.readMessage();
+		}
+		return decoded;
+	}
+
+	/**
+	 * Round trips a request carrying the passed params
+	 * @param params The request params
+	 * @return the decoded params
+	 * @throws Exception on any error
+	 */
+	static Object[] roundTripParams(final Object... params) throws Exception {
+		final MBeanServerRequestMessage decoded = (MBeanServerRequestMessage)roundTrip(request(params))[0];
+		Assert.assertEquals("Message id", 7, decoded.getMessageId());
+		Assert.assertEquals("Method id", MBeanServerRequestMessage.GET_ATTRIBUTES, decoded.getMethodId());
+		Assert.assertNull("Delegation subject", decoded.getDelegationSubject());
+		return decoded.getParams();
+	}
+
+	/**
+	 * Starts a hand crafted request, up to its param count
+	 * @param baos The buffer the request is written to
+	 * @return the stream to write the rest of the request with
+	 * @throws Exception on any error
+	 */
+	static ObjectOutputStream craftRequest(final ByteArrayOutputStream baos) throws Exception {
+		final ObjectOutputStream oos = new ObjectOutputStream(baos);
+		oos.writeByte(MSG_REQUEST);
+		oos.writeLong(1);
+		oos.writeInt(MBeanServerRequestMessage.GET_ATTRIBUTES);
+		return oos;
+	}
+
+	/**
+	 * Asserts that decoding the hand crafted request fails with a {@link StreamCorruptedException}
+	 * @param baos The buffer the request was written to
+	 * @param oos The stream the request was written with
+	 * @throws Exception on any error
+	 */
+	static void assertCorrupt(final ByteArrayOutputStream baos, final ObjectOutputStream oos) throws Exception {
+		oos.flush();
+		try {
+			CODEC.newDecoder(new ByteArrayInputStream(baos.toByteArray()), null).readMessage();
+			Assert.fail("Corrupt request was decoded");
+		} catch (StreamCorruptedException sce) {
+			/* expected */
+		}
+	}
+
+	/**
+	 * <p>Title: Payload</p>
+	 * <p>Description: A serializable value the codec does not know</p>
+	 */
+	static class Payload implements Serializable {
+		private static final long serialVersionUID = 1L;
+		final int value;
+
+		Payload(final int value) {
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return obj instanceof Payload && ((Payload)obj).value==value;
+		}
+
+		@Override
+		public int hashCode() {
+			return value;
+		}
+	}
+}